@@ -412,6 +412,39 @@ function dataLoaded() {
     // Hide the progress bar on the popup
     $("#pleaseWaitForm\\:progressName").hide();
     PF('progressBar').jq.hide();
+
+    // Some data may still be loading in the background
+    checkAllDataLoaded();
+  }
+}
+
+// Refresh the table, plots and maps once the background data loading has
+// finished, or check again later if it hasn't
+function allDataLoadedCheck() {
+  if ($('#loadStatusForm\\:allDataLoaded').val() == 'true') {
+    if (!errorCheck()) {
+      if (null != jsDataTable) {
+        jsDataTable.ajax.reload(null, false);
+      }
+      reloadPlotsAndMaps();
+    }
+  } else {
+    setTimeout(checkAllDataLoaded, 2000);
+  }
+}
+
+// Reload the data for all plots and maps that have been drawn.
+// Hidden maps are reloaded too, because they aren't reloaded
+// when they are shown again.
+function reloadPlotsAndMaps() {
+  for (let index = 1; index <= 2; index++) {
+    if (null != window['dataPlot' + index]) {
+      eval('loadPlot' + index + '()'); // PF remoteCommand
+    }
+
+    if (null != window['map' + index]) {
+      getMapData(index);
+    }
   }
 }
 
@@ -1021,6 +1054,27 @@ function tableDataDownload() {
   });
 }
 
+// Replace the table rows whose QC flags have been changed.
+// If too many rows were changed, the whole table is reloaded.
+function applyTableUpdates() {
+  let updates = JSON.parse($('#tableForm\\:tableUpdates').val());
+
+  if (null == updates) {
+    jsDataTable.ajax.reload(null, false);
+  } else {
+    // Rows that aren't currently loaded will be retrieved
+    // from the server when they are scrolled into view
+    updates.forEach(record => {
+      let row = jsDataTable.row('#' + record['DT_RowId']);
+      if (row.any()) {
+        row.data(record);
+      }
+    });
+
+    drawTableSelection();
+  }
+}
+
 // Scroll to the specfied column in the table
 function scrollToColumn(column) {
   console.log('Scrolling to column ' + column);
@@ -1355,6 +1409,7 @@ function drawDataPlot1Y(index, keepZoom) {
   };
   data_options.zoomCallback = function(xMin, xMax, yRange) {
     syncZoom(index);
+    refreshPlotDetail(index, true);
   };
   data_options.drawCallback = function(g, initial) {
     resizePlot(index);
@@ -1519,6 +1574,7 @@ function drawDataPlot2Y(index, keepZoom) {
   };
   data_options.zoomCallback = function(xMin, xMax, yRange) {
     syncZoom(index);
+    refreshPlotDetail(index, true);
   };
   data_options.drawCallback = function(g, initial) {
     resizePlot(index);
@@ -1756,6 +1812,26 @@ function drawFlagPlot2Y(index) {
   }
 }
 
+// Redraw a plot after QC flags have been changed.
+//
+// Usually only the flags layer needs to be redrawn. If the plot's
+// data depends on the flags (flags are hidden, the data is decimated,
+// or the plot has a second Y axis), the plot data for the current view
+// is retrieved from the server instead.
+function updatePlotFlags(index) {
+  if (getPlotMode(index) == PLOT_MODE_PLOT && null != window['dataPlot' + index]) {
+    let flagsHidden = $('#plot' + index + 'Form\\:plot' + index + 'HideFlags_input').is(':checked');
+
+    if (flagsHidden || isDecimated(index) || hasY2(index)) {
+      setPlotViewport(index, true);
+      eval('plot' + index + 'Zoom()'); // PF remoteCommand
+    } else {
+      drawFlagPlot1Y(index);
+      syncZoom(index);
+    }
+  }
+}
+
 function drawSelectionPlot(index) {
 
   if (canEdit()) {
@@ -1862,6 +1938,35 @@ function syncZoom(index) {
 }
 
 
+// Set the plot width and visible X range used by the back end
+// to decimate the plot data
+function setPlotViewport(index, keepRange) {
+  let fieldPrefix = getPlotFormName(index) + '\\:plot' + index;
+  $(fieldPrefix + 'ViewWidth').val(Math.round($('#plot' + index + 'DataPlot').width()));
+
+  if (keepRange && null != window['dataPlot' + index]) {
+    let range = window['dataPlot' + index].xAxisRange();
+    $(fieldPrefix + 'ViewXMin').val(range[0]);
+    $(fieldPrefix + 'ViewXMax').val(range[1]);
+  } else {
+    $(fieldPrefix + 'ViewXMin').val('');
+    $(fieldPrefix + 'ViewXMax').val('');
+  }
+}
+
+function isDecimated(index) {
+  return $(getPlotFormName(index) + '\\:plot' + index + 'Decimated').val() === 'true';
+}
+
+// If the plot data has been decimated, get more detailed
+// data for the visible part of the plot
+function refreshPlotDetail(index, keepRange) {
+  if (getPlotMode(index) == PLOT_MODE_PLOT && isDecimated(index)) {
+    setPlotViewport(index, keepRange);
+    eval('plot' + index + 'Zoom()'); // PF remoteCommand
+  }
+}
+
 //Get the interaction model for a plot
 function getInteractionModel(index) {
   let selectMode = $('[id^=plot' + index + 'Form\\:plotSelectMode]:checked').val();
@@ -2237,6 +2342,10 @@ function selectModeMouseUp(event, g, context) {
       let pointId = closestPoint.point['idx'];
       let row = window['dataPlot' + plotIndex + 'Data'][pointId][1];
       scrollToTableRow(row);
+    } else if (isDecimated(plotIndex)) {
+      // The plot doesn't have all the points, so the selection
+      // must be made on the back end
+      selectPointsInRectOnServer(plotIndex, plotVar, minX, maxX, minY, maxY);
     } else {
       selectPointsInRect(window['dataPlot' + plotIndex + 'Data'], plotVar, minX, maxX, minY, maxY);
     }
@@ -2281,6 +2390,25 @@ function selectPointsInRect(data, variableId, minX, maxX, minY, maxY) {
     }
   }
 
+  applyPointSelection(pointsToSelect, variableId);
+}
+
+function selectPointsInRectOnServer(index, variableId, minX, maxX, minY, maxY) {
+  let fieldPrefix = getPlotFormName(index) + '\\:plot' + index;
+  $(fieldPrefix + 'SelectMinX').val(minX);
+  $(fieldPrefix + 'SelectMaxX').val(maxX);
+  $(fieldPrefix + 'SelectMinY').val(minY);
+  $(fieldPrefix + 'SelectMaxY').val(maxY);
+  window['rectSelectionVariable' + index] = variableId;
+  eval('plot' + index + 'SelectRect()'); // PF remoteCommand
+}
+
+function applyRectSelection(index) {
+  let pointsToSelect = JSON.parse($(getPlotFormName(index) + '\\:plot' + index + 'RectSelection').val());
+  applyPointSelection(pointsToSelect, window['rectSelectionVariable' + index]);
+}
+
+function applyPointSelection(pointsToSelect, variableId) {
   newSelectionColumn = getTrueSelectionColumn(variableId);
   if (null == getSelectedColumn() || newSelectionColumn != getSelectedColumn().id) {
     setSelectedRows(pointsToSelect);
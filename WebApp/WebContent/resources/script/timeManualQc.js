@@ -11,12 +11,12 @@ function qcFlagsAccepted() {
 
   PF('flagDialog').hide();
 
-  drawPlot(1, true, true);
-  drawPlot(2, true, true);
+  updatePlotFlags(1);
+  updatePlotFlags(2);
   clearSelection();
 
-  // Reload table data
-  jsDataTable.ajax.reload(null, false);
+  // Update the changed table rows
+  applyTableUpdates();
   itemNotLoading(UPDATE_DATA);
 }
 
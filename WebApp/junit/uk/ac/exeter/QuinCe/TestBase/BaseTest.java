@@ -40,6 +40,8 @@ import uk.ac.exeter.QuinCe.User.UserDB;
 import uk.ac.exeter.QuinCe.data.Dataset.Coordinate;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.FlagScheme;
 import uk.ac.exeter.QuinCe.data.Instrument.Instrument;
+import uk.ac.exeter.QuinCe.data.Instrument.InstrumentDB;
+import uk.ac.exeter.QuinCe.data.Instrument.Calibration.CalibrationDB;
 import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorType;
 import uk.ac.exeter.QuinCe.web.User.LoginBean;
 import uk.ac.exeter.QuinCe.web.system.ResourceManager;
@@ -152,8 +154,16 @@ public class BaseTest {
    * Initialise the Resource Manager using the Mocked {@link ServletContext} and
    * {@link ServletContextEvent} created by
    * {@link #createServletContextEvent()}.
+   *
+   * <p>
+   * Cached {@link uk.ac.exeter.QuinCe.data.Instrument.Calibration.CalibrationSet}s
+   * and {@link Instrument}s are cleared, since the test database may have been
+   * rebuilt since the last test.
+   * </p>
    */
   public void initResourceManager() {
+    CalibrationDB.clearCalibrationSetCache();
+    InstrumentDB.clearInstrumentCache();
     if (null == ResourceManager.getInstance()) {
       ResourceManager resourceManager = new TestResourceManager(
         getDataSource());
@@ -332,4 +332,32 @@ public class CalculatorsTest extends BaseTest {
     assertEquals(7.0276D,
       Calculators.interpolate(time0, y0, time1, y1, targetTime), 0.0001D);
   }
+
+  /**
+   * Test that the primitive {@link Calculators} methods give the same results
+   * as their boxed equivalents.
+   */
+  @Test
+  public void primitiveMatchesBoxedTest() {
+    Double temp = 11.17;
+    Double salinity = 34.18548;
+    Double pressure = 1020.32;
+    Double xCO2 = 350.43;
+    Double sst = 12.5;
+
+    Double pH2O = Calculators.calcPH2O(salinity, temp);
+    assertEquals(pH2O,
+      Calculators.calcPH2O(salinity.doubleValue(), temp.doubleValue()));
+
+    Double pCO2 = Calculators.calcpCO2TEWet(xCO2, pressure, pH2O);
+    assertEquals(pCO2, Calculators.calcpCO2TEWet(xCO2.doubleValue(),
+      pressure.doubleValue(), pH2O.doubleValue()));
+
+    assertEquals(Calculators.calcfCO2(pCO2, xCO2, pressure, temp),
+      Calculators.calcfCO2(pCO2.doubleValue(), xCO2.doubleValue(),
+        pressure.doubleValue(), temp.doubleValue()));
+
+    assertEquals(Calculators.calcCO2AtSST(pCO2, temp, sst), Calculators
+      .calcCO2AtSST(pCO2.doubleValue(), temp.doubleValue(), sst.doubleValue()));
+  }
 }
@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import java.sql.SQLException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Properties;
 
 import org.flywaydb.test.annotation.FlywayTest;
@@ -125,4 +126,58 @@ public class UnderwayMarinePco2ReducerTest extends DataReducerTest {
     assertEquals(Double.NaN, record.getCalculationValue("pCO₂ SST"));
     assertEquals(Double.NaN, record.getCalculationValue("fCO₂"));
   }
+
+  @FlywayTest
+  @Test
+  public void columnarReductionTest() throws Exception {
+
+    // Mock objects
+    Instrument instrument = Mockito.mock(Instrument.class);
+    Mockito.when(instrument.getId()).thenReturn(1L);
+    Mockito.when(instrument.getFlagScheme()).thenReturn(flagScheme);
+
+    Variable variable = Mockito.mock(Variable.class);
+    Mockito.when(variable.getId()).thenReturn(1L);
+
+    UnderwayMarinePco2Reducer reducer = new UnderwayMarinePco2Reducer(variable,
+      new HashMap<String, Properties>(), null);
+
+    Measurement normal = makeMeasurement(
+      makeMeasurementValue("Water Temperature", 11.912D),
+      makeMeasurementValue("Salinity", 35.224D),
+      makeMeasurementValue("Equilibrator Temperature", 12.37D),
+      makeMeasurementValue("Equilibrator Pressure", 999.23D),
+      makeMeasurementValue("xCO₂ (with standards)", 374.977D));
+
+    Measurement largeDeltaT = makeMeasurement(
+      makeMeasurementValue("Water Temperature", 11.912D),
+      makeMeasurementValue("Salinity", 35.224D),
+      makeMeasurementValue("Equilibrator Temperature", 1000D),
+      makeMeasurementValue("Equilibrator Pressure", 999.23D),
+      makeMeasurementValue("xCO₂ (with standards)", 374.977D));
+
+    List<Measurement> measurements = List.of(normal, largeDeltaT);
+
+    List<DataReductionRecord> records = reducer.performColumnarDataReduction(
+      instrument, measurements, null, getDataSource().getConnection());
+
+    assertEquals(measurements.size(), records.size());
+
+    // The columnar results must match the per-measurement calculation
+    for (int i = 0; i < measurements.size(); i++) {
+      DataReductionRecord expected = new DataReductionRecord(
+        measurements.get(i), variable, flagScheme,
+        reducer.getCalculationParameterNames());
+
+      reducer.doCalculation(instrument, measurements.get(i), expected,
+        getDataSource().getConnection());
+
+      for (String parameter : reducer.getCalculationParameterNames()) {
+        assertEquals(expected.getCalculationValue(parameter),
+          records.get(i).getCalculationValue(parameter), 1e-9, parameter);
+      }
+    }
+
+    assertEquals(Double.NaN, records.get(1).getCalculationValue("fCO₂"));
+  }
 }
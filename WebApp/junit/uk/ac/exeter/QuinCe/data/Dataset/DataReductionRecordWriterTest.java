@@ -0,0 +1,156 @@
+package uk.ac.exeter.QuinCe.data.Dataset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.flywaydb.test.annotation.FlywayTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import uk.ac.exeter.QuinCe.TestBase.BaseTest;
+import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.DataReductionRecord;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.Variable;
+import uk.ac.exeter.QuinCe.utils.DatabaseUtils;
+
+/**
+ * Tests for the {@link DataReductionRecordWriter}.
+ */
+public class DataReductionRecordWriterTest extends BaseTest {
+
+  private static final long DATASET_ID = 1L;
+
+  /**
+   * The ID of the test variable in {@code resources/sql/testbase/variable}.
+   */
+  private static final long VARIABLE_ID = 1000000L;
+
+  private static final String PARAMETER = "value";
+
+  private Connection conn = null;
+
+  @BeforeEach
+  public void setup() throws SQLException {
+    initResourceManager();
+    conn = getConnection(false);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    DatabaseUtils.closeConnection(conn);
+  }
+
+  /**
+   * Store the specified number of measurements for the test dataset.
+   *
+   * @param count
+   *          The number of measurements.
+   * @return The measurements.
+   * @throws Exception
+   *           If the measurements cannot be stored.
+   */
+  private List<Measurement> storeMeasurements(int count) throws Exception {
+    LocalDateTime start = LocalDateTime.of(2021, 1, 1, 0, 0, 0);
+    List<Measurement> measurements = new ArrayList<Measurement>(count);
+
+    for (int i = 0; i < count; i++) {
+      measurements.add(new Measurement(DATASET_ID, flagScheme,
+        new TimeCoordinate(DATASET_ID, start.plusSeconds(i)),
+        new HashMap<Long, String>()));
+    }
+
+    DataSetDataDB.storeMeasurements(conn, measurements);
+    return measurements;
+  }
+
+  /**
+   * Get the calculation values stored in the database, keyed by measurement
+   * ID.
+   *
+   * @return The stored calculation values.
+   * @throws SQLException
+   *           If the values cannot be retrieved.
+   */
+  private Map<Long, String> getStoredCalculations() throws SQLException {
+    Map<Long, String> result = new HashMap<Long, String>();
+
+    try (
+      PreparedStatement stmt = conn.prepareStatement(
+        "SELECT measurement_id, calculation_values FROM data_reduction "
+          + "WHERE variable_id = ?")) {
+
+      stmt.setLong(1, VARIABLE_ID);
+
+      try (ResultSet records = stmt.executeQuery()) {
+        while (records.next()) {
+          result.put(records.getLong(1), records.getString(2));
+        }
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Test that records added over several batches are all written to the
+   * database against their own measurements.
+   *
+   * @throws Exception
+   */
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/variable", "resources/sql/testbase/instrument",
+    "resources/sql/testbase/dataset" })
+  @Test
+  public void multipleBatchesTest() throws Exception {
+
+    int count = DataSetDataDB.BATCH_SIZE * 2 + 1;
+    List<Measurement> measurements = storeMeasurements(count);
+
+    Variable variable = Mockito.mock(Variable.class);
+    Mockito.when(variable.getId()).thenReturn(VARIABLE_ID);
+
+    List<DataReductionRecord> records = new ArrayList<DataReductionRecord>(
+      count);
+
+    DataReductionRecordWriter writer = new DataReductionRecordWriter(conn);
+
+    for (int i = 0; i < count; i++) {
+      DataReductionRecord record = new DataReductionRecord(
+        measurements.get(i), variable, flagScheme, Arrays.asList(PARAMETER));
+      record.put(PARAMETER, (double) i);
+      records.add(record);
+
+      writer.add(record);
+    }
+
+    // Only full batches have been written so far
+    assertEquals(DataSetDataDB.BATCH_SIZE * 2, writer.getWrittenCount(),
+      "Incorrect number of records written before close");
+
+    writer.close();
+    conn.commit();
+
+    assertEquals(count, writer.getWrittenCount(),
+      "Incorrect number of records written");
+
+    Map<Long, String> stored = getStoredCalculations();
+    assertEquals(count, stored.size(), "Incorrect number of records stored");
+
+    for (DataReductionRecord record : records) {
+      assertEquals(record.getCalculationJson(),
+        stored.get(record.getMeasurementId()),
+        "Record stored against wrong measurement");
+    }
+  }
+}
@@ -3,6 +3,7 @@ package uk.ac.exeter.QuinCe.data.Dataset;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -143,6 +144,55 @@ public class DataSetDataDBTest extends BaseTest {
       "Incorrect user QC message");
   }
 
+  /**
+   * Test that values stored over several batches are each given the database
+   * ID of their own record, and that their coordinates are also given the
+   * correct IDs.
+   *
+   * @throws Exception
+   */
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/variable", "resources/sql/testbase/instrument",
+    "resources/sql/testbase/dataset" })
+  @Test
+  public void storeSensorValuesMultipleBatchesTest() throws Exception {
+
+    int count = DataSetDataDB.BATCH_SIZE * 2 + 1;
+    LocalDateTime start = LocalDateTime.of(2021, 1, 1, 0, 0, 0);
+
+    NewSensorValues sensorValues = newSensorValue(DATASET_ID, COLUMN_ID, start,
+      "0");
+
+    for (int i = 1; i < count; i++) {
+      sensorValues.create(COLUMN_ID,
+        new TimeCoordinate(DATASET_ID, start.plusSeconds(i)),
+        String.valueOf(i));
+    }
+
+    assertEquals(count, DataSetDataDB.storeNewSensorValues(conn, sensorValues),
+      "Incorrect number of values stored");
+    conn.commit();
+
+    DatasetSensorValues storedValues = DataSetDataDB.getSensorValues(conn,
+      DataSetDB.getDataSet(conn, DATASET_ID), false, false);
+
+    assertEquals(count, storedValues.size(),
+      "Incorrect number of values retrieved");
+
+    for (SensorValue sensorValue : sensorValues.getSensorValues()) {
+      SensorValue storedValue = storedValues.getById(sensorValue.getId());
+
+      assertNotNull(storedValue, "No value stored with ID");
+      assertEquals(sensorValue.getValue(), storedValue.getValue(),
+        "Value stored with wrong ID");
+      assertEquals(sensorValue.getCoordinate().getId(),
+        storedValue.getCoordinate().getId(), "Incorrect coordinate ID");
+      assertEquals(sensorValue.getCoordinate().getTime(),
+        storedValue.getCoordinate().getTime(),
+        "Coordinate stored with wrong ID");
+    }
+  }
+
   @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
     "resources/sql/testbase/variable", "resources/sql/testbase/instrument",
     "resources/sql/testbase/dataset" })
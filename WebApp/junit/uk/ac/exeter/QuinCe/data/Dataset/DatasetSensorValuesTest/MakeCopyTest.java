@@ -0,0 +1,134 @@
+package uk.ac.exeter.QuinCe.data.Dataset.DatasetSensorValuesTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.time.LocalDateTime;
+
+import org.flywaydb.test.annotation.FlywayTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import uk.ac.exeter.QuinCe.TestBase.BaseTest;
+import uk.ac.exeter.QuinCe.data.Dataset.DataSet;
+import uk.ac.exeter.QuinCe.data.Dataset.DatasetSensorValues;
+import uk.ac.exeter.QuinCe.data.Dataset.SensorValue;
+import uk.ac.exeter.QuinCe.data.Dataset.TimeCoordinate;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.FlagScheme;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.IcosFlagScheme;
+import uk.ac.exeter.QuinCe.data.Instrument.InstrumentDB;
+import uk.ac.exeter.QuinCe.web.system.ResourceManager;
+
+/**
+ * Tests for {@link DatasetSensorValues#makeCopy()} and
+ * {@link DatasetSensorValues#getForUpdate(SensorValue)}.
+ */
+public class MakeCopyTest extends BaseTest {
+
+  private static final long DATASET_ID = 1L;
+
+  private static final long COLUMN_ID = 1L;
+
+  private FlagScheme flagScheme = IcosFlagScheme.getInstance();
+
+  @BeforeEach
+  public void setUp() {
+    initResourceManager();
+  }
+
+  @AfterEach
+  public void tearDown() {
+    ResourceManager.destroy();
+  }
+
+  /**
+   * Make a {@link DatasetSensorValues} object containing three values with
+   * IDs 1 to 3.
+   *
+   * @return The object.
+   * @throws Exception
+   *           If the object cannot be created.
+   */
+  private DatasetSensorValues makeSensorValues() throws Exception {
+    DatasetSensorValues result = new DatasetSensorValues(
+      Mockito.mock(DataSet.class));
+    Mockito.when(result.getInstrument())
+      .thenReturn(InstrumentDB.getInstrument(getConnection(), DATASET_ID));
+    Mockito.when(result.getFlagScheme()).thenReturn(flagScheme);
+
+    for (int i = 1; i <= 3; i++) {
+      result.add(new SensorValue(i, DATASET_ID, flagScheme, COLUMN_ID,
+        makeTime(i), "12", null, flagScheme.getAssumedGoodFlag(), null));
+    }
+
+    return result;
+  }
+
+  private TimeCoordinate makeTime(int minute) {
+    return new TimeCoordinate(DATASET_ID,
+      LocalDateTime.of(2023, 1, 1, 0, minute, 0));
+  }
+
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/instrument" })
+  @Test
+  public void copySharesValuesTest() throws Exception {
+    DatasetSensorValues original = makeSensorValues();
+    DatasetSensorValues copy = original.makeCopy();
+
+    for (long id = 1; id <= 3; id++) {
+      assertSame(original.getById(id), copy.getById(id));
+    }
+  }
+
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/instrument" })
+  @Test
+  public void updateCopyTest() throws Exception {
+    DatasetSensorValues original = makeSensorValues();
+    DatasetSensorValues copy = original.makeCopy();
+
+    SensorValue originalValue = original.getById(2L);
+    SensorValue updateValue = copy.getForUpdate(originalValue);
+    assertNotSame(originalValue, updateValue);
+
+    updateValue.setUserQC(flagScheme.getBadFlag(), "Bad");
+
+    assertEquals(flagScheme.getAssumedGoodFlag(),
+      originalValue.getUserQCFlag());
+    assertSame(originalValue,
+      original.getRawSensorValue(COLUMN_ID, makeTime(2)));
+
+    assertEquals(flagScheme.getBadFlag(), copy.getById(2L).getUserQCFlag());
+    assertSame(updateValue, copy.getRawSensorValue(COLUMN_ID, makeTime(2)));
+    assertSame(updateValue, copy.getColumnValues(COLUMN_ID)
+      .getRawSensorValue(makeTime(2), COLUMN_ID));
+
+    // The other values are still shared
+    assertSame(original.getById(1L), copy.getById(1L));
+  }
+
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/instrument" })
+  @Test
+  public void updateCopyTwiceTest() throws Exception {
+    DatasetSensorValues original = makeSensorValues();
+    DatasetSensorValues copy = original.makeCopy();
+
+    SensorValue updateValue = copy.getForUpdate(original.getById(2L));
+    assertSame(updateValue, copy.getForUpdate(original.getById(2L)));
+    assertSame(updateValue, copy.getForUpdate(updateValue));
+  }
+
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/instrument" })
+  @Test
+  public void updateOriginalTest() throws Exception {
+    DatasetSensorValues original = makeSensorValues();
+    SensorValue value = original.getById(2L);
+    assertSame(value, original.getForUpdate(value));
+  }
+}
@@ -0,0 +1,195 @@
+package uk.ac.exeter.QuinCe.data.Dataset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import uk.ac.exeter.QuinCe.TestBase.BaseTest;
+import uk.ac.exeter.QuinCe.utils.TimeRangeBuilder;
+
+/**
+ * Tests for the {@link DirtyWindow} class.
+ */
+public class DirtyWindowTest extends BaseTest {
+
+  private static LocalDateTime time(int hour) {
+    return LocalDateTime.of(2023, 1, 1, hour, 0, 0);
+  }
+
+  private static DirtyWindow makeWindow(int startHour, int endHour) {
+    TimeRangeBuilder range = new TimeRangeBuilder();
+    range.add(time(startHour));
+    range.add(time(endHour));
+    return new DirtyWindow(range);
+  }
+
+  private static SensorValue makeValue(int hour, String value, boolean good) {
+    return new SensorValue(hour + 1, 1L, flagScheme, 1L,
+      new TimeCoordinate(time(hour)), value, null,
+      good ? flagScheme.getAssumedGoodFlag() : flagScheme.getBadFlag(), null);
+  }
+
+  private static DatasetSensorValues mockSensorValues() {
+    DatasetSensorValues sensorValues = Mockito.mock(DatasetSensorValues.class);
+    Mockito.when(sensorValues.getFlagScheme()).thenReturn(flagScheme);
+    return sensorValues;
+  }
+
+  @Test
+  public void emptyWindowTest() {
+    DirtyWindow window = new DirtyWindow(new TimeRangeBuilder());
+    assertTrue(window.isEmpty());
+    assertFalse(window.contains(time(1)));
+  }
+
+  @Test
+  public void addTest() {
+    DirtyWindow window = new DirtyWindow(new TimeRangeBuilder());
+    window.add(time(5));
+    window.add(time(3));
+
+    assertFalse(window.isEmpty());
+    assertEquals(time(3), window.getStart());
+    assertEquals(time(5), window.getEnd());
+    assertTrue(window.contains(time(3)));
+    assertTrue(window.contains(time(4)));
+    assertTrue(window.contains(time(5)));
+    assertFalse(window.contains(time(6)));
+  }
+
+  @Test
+  public void padTest() {
+    DirtyWindow window = makeWindow(5, 6);
+    window.pad(Duration.ofHours(2));
+
+    assertEquals(time(3), window.getStart());
+    assertEquals(time(8), window.getEnd());
+  }
+
+  @Test
+  public void padEmptyTest() {
+    DirtyWindow window = new DirtyWindow(new TimeRangeBuilder());
+    window.pad(Duration.ofHours(2));
+    assertTrue(window.isEmpty());
+  }
+
+  @Test
+  public void padLimitTest() {
+    DirtyWindow window = makeWindow(5, 6);
+    window.add(LocalDateTime.MAX);
+    window.pad(Duration.ofHours(2));
+
+    assertEquals(time(3), window.getStart());
+    assertEquals(LocalDateTime.MAX, window.getEnd());
+  }
+
+  @Test
+  public void expandToGoodValuesTest() {
+    List<SensorValue> values = new ArrayList<SensorValue>();
+    for (int i = 0; i <= 10; i++) {
+      values.add(makeValue(i, "20", true));
+    }
+
+    DirtyWindow window = makeWindow(4, 6);
+    window.expandToValues(values, mockSensorValues());
+
+    assertEquals(time(3), window.getStart());
+    assertEquals(time(7), window.getEnd());
+  }
+
+  @Test
+  public void expandSkipsUnusableValuesTest() {
+    List<SensorValue> values = new ArrayList<SensorValue>();
+    values.add(makeValue(1, "20", true));
+    values.add(makeValue(2, "20", false));
+    values.add(makeValue(3, "NaN", true));
+    values.add(makeValue(5, "20", true));
+    values.add(makeValue(7, "20", false));
+    values.add(makeValue(8, "20", true));
+    values.add(makeValue(9, "20", true));
+
+    DirtyWindow window = makeWindow(4, 6);
+    window.expandToValues(values, mockSensorValues());
+
+    assertEquals(time(1), window.getStart());
+    assertEquals(time(8), window.getEnd());
+  }
+
+  @Test
+  public void expandNoUsableValuesTest() {
+    List<SensorValue> values = new ArrayList<SensorValue>();
+    values.add(makeValue(1, "20", false));
+    values.add(makeValue(2, "20", false));
+    values.add(makeValue(5, "20", true));
+    values.add(makeValue(8, "20", false));
+
+    DirtyWindow window = makeWindow(4, 6);
+    window.expandToValues(values, mockSensorValues());
+
+    assertEquals(time(1), window.getStart());
+    assertEquals(time(8), window.getEnd());
+  }
+
+  @Test
+  public void expandEmptyWindowToValuesTest() {
+    List<SensorValue> values = new ArrayList<SensorValue>();
+    values.add(makeValue(1, "20", true));
+
+    DirtyWindow window = new DirtyWindow(new TimeRangeBuilder());
+    window.expandToValues(values, mockSensorValues());
+
+    assertTrue(window.isEmpty());
+  }
+
+  private static RunTypePeriods makeRunTypePeriods() throws Exception {
+    RunTypePeriods periods = new RunTypePeriods();
+    periods.add("STD1", time(0));
+    periods.add("STD1", time(1));
+    periods.add("MEAS", time(2));
+    periods.add("MEAS", time(7));
+    periods.add("STD1", time(8));
+    periods.add("STD1", time(9));
+    periods.add("MEAS", time(10));
+    periods.add("MEAS", time(15));
+    periods.add("STD1", time(16));
+    periods.add("STD1", time(17));
+    periods.add("MEAS", time(18));
+    periods.add("MEAS", time(23));
+    return periods;
+  }
+
+  @Test
+  public void expandToRunTypePeriodsTest() throws Exception {
+    DirtyWindow window = makeWindow(11, 12);
+    window.expandToRunTypePeriods(makeRunTypePeriods(), List.of());
+
+    assertEquals(time(10), window.getStart());
+    assertEquals(time(15), window.getEnd());
+  }
+
+  @Test
+  public void expandToCalibrationRunsTest() throws Exception {
+    DirtyWindow window = makeWindow(11, 12);
+    window.expandToRunTypePeriods(makeRunTypePeriods(), List.of("STD1"));
+
+    assertEquals(time(8), window.getStart());
+    assertEquals(time(17), window.getEnd());
+  }
+
+  @Test
+  public void expandToMissingCalibrationRunTest() throws Exception {
+    DirtyWindow window = makeWindow(3, 4);
+    window.expandToRunTypePeriods(makeRunTypePeriods(), List.of("STD2"));
+
+    assertEquals(time(0), window.getStart());
+    assertEquals(time(23), window.getEnd());
+  }
+}
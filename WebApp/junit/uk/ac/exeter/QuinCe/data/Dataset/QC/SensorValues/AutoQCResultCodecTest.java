@@ -0,0 +1,135 @@
+package uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import uk.ac.exeter.QuinCe.data.Dataset.QC.FlagScheme;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.IcosFlagScheme;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.RoutineFlag;
+
+/**
+ * Tests for {@link AutoQCResultCodec}.
+ */
+public class AutoQCResultCodecTest {
+
+  private static final String LEGACY_JSON = "[{\"routineName\":\"SensorValue.RangeCheck\","
+    + "\"requiredValue\":\"0:30\",\"actualValue\":\"31.2\",\"flagValue\":4},"
+    + "{\"routineName\":\"SensorValue.GradientTest\",\"requiredValue\":\"5\","
+    + "\"actualValue\":\"7.1\",\"flagValue\":3}]";
+
+  private FlagScheme getFlagScheme() throws Exception {
+    return IcosFlagScheme.getInstance();
+  }
+
+  private AutoQCResult makeResult() throws Exception {
+    FlagScheme flagScheme = getFlagScheme();
+    AutoQCResult result = new AutoQCResult(flagScheme);
+    result.add(new RoutineFlag(flagScheme, "SensorValue.RangeCheck",
+      flagScheme.getBadFlag(), "0:30", "31.2"));
+    result.add(new RoutineFlag(flagScheme, "SensorValue.GradientTest",
+      flagScheme.getFlag(3), "5", "7.1"));
+    return result;
+  }
+
+  /**
+   * Check that two results contain the same flags, including the required and
+   * actual values (which are not part of {@link RoutineFlag#equals(Object)}).
+   */
+  private void assertSameFlags(AutoQCResult expected, AutoQCResult actual) {
+    assertEquals(expected, actual);
+
+    List<RoutineFlag> expectedFlags = expected.stream()
+      .sorted(Comparator.comparing(RoutineFlag::getRoutineName)).toList();
+    List<RoutineFlag> actualFlags = actual.stream()
+      .sorted(Comparator.comparing(RoutineFlag::getRoutineName)).toList();
+
+    for (int i = 0; i < expectedFlags.size(); i++) {
+      assertEquals(expectedFlags.get(i).getRequiredValue(),
+        actualFlags.get(i).getRequiredValue());
+      assertEquals(expectedFlags.get(i).getActualValue(),
+        actualFlags.get(i).getActualValue());
+    }
+  }
+
+  @Test
+  public void roundTripTest() throws Exception {
+    AutoQCResult result = makeResult();
+    String encoded = result.encode();
+
+    assertTrue(encoded.startsWith(AutoQCResultCodec.COMPACT_PREFIX));
+    assertSameFlags(result, AutoQCResult.decode(encoded, getFlagScheme()));
+  }
+
+  @Test
+  public void emptyResultTest() throws Exception {
+    AutoQCResult result = new AutoQCResult(getFlagScheme());
+    assertNull(result.encode());
+    assertTrue(AutoQCResult.decode(null, getFlagScheme()).isEmpty());
+    assertTrue(AutoQCResult.decode("", getFlagScheme()).isEmpty());
+  }
+
+  @Test
+  public void legacyJsonTest() throws Exception {
+    assertSameFlags(makeResult(),
+      AutoQCResult.decode(LEGACY_JSON, getFlagScheme()));
+  }
+
+  @Test
+  public void convertLegacyJsonTest() throws Exception {
+    String converted = AutoQCResultCodec.convertLegacyJson(LEGACY_JSON);
+
+    assertTrue(converted.startsWith(AutoQCResultCodec.COMPACT_PREFIX));
+    assertSameFlags(makeResult(),
+      AutoQCResult.decode(converted, getFlagScheme()));
+  }
+
+  @Test
+  public void convertEmptyLegacyJsonTest() {
+    assertNull(AutoQCResultCodec.convertLegacyJson("[]"));
+  }
+
+  @Test
+  public void separatorInValueTest() throws Exception {
+    FlagScheme flagScheme = getFlagScheme();
+    AutoQCResult result = new AutoQCResult(flagScheme);
+    result.add(new RoutineFlag(flagScheme, "SensorValue.RangeCheck",
+      flagScheme.getBadFlag(), "a" + AutoQCResultCodec.FIELD_SEPARATOR + "b",
+      "1"));
+
+    String encoded = result.encode();
+    assertTrue(encoded.startsWith("["));
+    assertSameFlags(result, AutoQCResult.decode(encoded, flagScheme));
+  }
+
+  @Test
+  public void nullValuesTest() throws Exception {
+    FlagScheme flagScheme = getFlagScheme();
+    AutoQCResult result = new AutoQCResult(flagScheme);
+    result.add(new RoutineFlag(flagScheme, "SensorValue.RangeCheck",
+      flagScheme.getBadFlag(), null, null));
+
+    AutoQCResult decoded = AutoQCResult.decode(result.encode(), flagScheme);
+    assertEquals("", decoded.iterator().next().getRequiredValue());
+    assertEquals("", decoded.iterator().next().getActualValue());
+  }
+
+  @Test
+  public void invalidValueTest() throws Exception {
+    assertThrows(IllegalArgumentException.class,
+      () -> AutoQCResult.decode("nonsense", getFlagScheme()));
+  }
+
+  @Test
+  public void sharedCodecTest() throws Exception {
+    assertSame(AutoQCResultCodec.getInstance(getFlagScheme()),
+      AutoQCResultCodec.getInstance(getFlagScheme()));
+  }
+}
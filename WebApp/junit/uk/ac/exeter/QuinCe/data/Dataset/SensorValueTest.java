@@ -6,6 +6,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 import org.flywaydb.test.annotation.FlywayTest;
 import org.junit.jupiter.api.BeforeEach;
@@ -269,4 +270,82 @@ public class SensorValueTest extends BaseTest {
     assertEquals("User Message", sensorValue.getUserQCMessage());
   }
 
+  @FlywayTest
+  @Test
+  public void unchangedQCNotDirtyTest() throws Exception {
+    SensorValue sensorValue = makeDBSensorValue();
+    assertFalse(sensorValue.isDirty());
+
+    sensorValue.clearAutomaticQC();
+    assertTrue(sensorValue.isDirty());
+
+    List<SensorValue> changed = SensorValue
+      .clearUnchangedDirtyFlags(List.of(sensorValue));
+    assertEquals(0, changed.size());
+    assertFalse(sensorValue.isDirty());
+  }
+
+  @FlywayTest
+  @Test
+  public void changedQCDirtyTest() throws Exception {
+    SensorValue sensorValue = makeDBSensorValue();
+
+    sensorValue.clearAutomaticQC();
+    sensorValue.addAutoQCFlag(new RoutineFlag(flagScheme, makeRoutine(),
+      flagScheme.getBadFlag(), "1", "2"));
+
+    List<SensorValue> changed = SensorValue
+      .clearUnchangedDirtyFlags(List.of(sensorValue));
+    assertEquals(1, changed.size());
+    assertTrue(sensorValue.isDirty());
+  }
+
+  @FlywayTest
+  @Test
+  public void repeatedQCNotDirtyTest() throws Exception {
+    ConstantValueRoutine routine = makeRoutine();
+
+    SensorValue sensorValue = makeDBSensorValue();
+    sensorValue.addAutoQCFlag(
+      new RoutineFlag(flagScheme, routine, flagScheme.getBadFlag(), "1", "2"));
+    SensorValue.clearDirtyFlag(List.of(sensorValue));
+
+    sensorValue.clearAutomaticQC();
+    sensorValue.addAutoQCFlag(
+      new RoutineFlag(flagScheme, routine, flagScheme.getBadFlag(), "1", "2"));
+
+    List<SensorValue> changed = SensorValue
+      .clearUnchangedDirtyFlags(List.of(sensorValue));
+    assertEquals(0, changed.size());
+    assertFalse(sensorValue.isDirty());
+  }
+
+  @FlywayTest
+  @Test
+  public void userQCChangeDirtyTest() throws Exception {
+    SensorValue sensorValue = makeDBSensorValue();
+
+    sensorValue.clearAutomaticQC();
+    sensorValue.setUserQC(IcosFlagScheme.QUESTIONABLE_FLAG, "User Message");
+
+    List<SensorValue> changed = SensorValue
+      .clearUnchangedDirtyFlags(List.of(sensorValue));
+    assertEquals(1, changed.size());
+    assertTrue(sensorValue.isDirty());
+  }
+
+  @FlywayTest
+  @Test
+  public void dirtyBeforeClearStaysDirtyTest() throws Exception {
+    SensorValue sensorValue = makeDBSensorValue();
+    sensorValue.setUserQC(IcosFlagScheme.QUESTIONABLE_FLAG, "User Message");
+    sensorValue.removeUserQC(true);
+
+    sensorValue.clearAutomaticQC();
+
+    List<SensorValue> changed = SensorValue
+      .clearUnchangedDirtyFlags(List.of(sensorValue));
+    assertEquals(1, changed.size());
+    assertTrue(sensorValue.isDirty());
+  }
 }
@@ -9,6 +9,7 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.stream.Stream;
 
@@ -318,4 +319,70 @@ public class TimestampSensorValuesListTest extends SensorValuesListTest {
     assertEquals(TimestampSensorValuesList.MODE_CONTINUOUS,
       list.getMeasurementMode());
   }
+
+  /**
+   * Build a continuous list with gaps and flagged values for testing lookups.
+   * Values are every minute, except for some missing minutes and a gap longer
+   * than the interpolation limit.
+   */
+  private TimestampSensorValuesList makeLookupList() throws Exception {
+    TimestampSensorValuesList list = new TimestampSensorValuesList(1L,
+      getDatasetSensorValues(), false);
+
+    LocalDateTime start = LocalDateTime.of(2023, 1, 1, 0, 0, 0);
+
+    for (int minute = 0; minute < 200; minute++) {
+      if (minute % 17 != 5 && (minute < 100 || minute > 110)) {
+        Flag flag = minute % 7 == 3 ? flagScheme.getBadFlag()
+          : flagScheme.getGoodFlag();
+
+        list.add(new SensorValue(getSensorValueId(), DATASET_ID, flagScheme,
+          1L, new TimeCoordinate(DATASET_ID, start.plusMinutes(minute)),
+          String.valueOf(minute), new AutoQCResult(flagScheme), flag, ""));
+      }
+    }
+
+    return list;
+  }
+
+  /**
+   * Check that looking up values in increasing time order (which uses the
+   * list's search cursor) gives the same results as looking them up in
+   * decreasing order (which does not).
+   */
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/instrument" })
+  @Test
+  public void orderedLookupTest() throws Exception {
+    TimestampSensorValuesList ascendingList = makeLookupList();
+    TimestampSensorValuesList descendingList = makeLookupList();
+
+    assertEquals(TimestampSensorValuesList.MODE_CONTINUOUS,
+      ascendingList.getMeasurementMode());
+
+    LocalDateTime start = LocalDateTime.of(2023, 1, 1, 0, 0, 0);
+    int lookupCount = 450;
+
+    SensorValuesListOutput[] ascending = new SensorValuesListOutput[lookupCount];
+    for (int i = 0; i < lookupCount; i++) {
+      ascending[i] = ascendingList.getValue(
+        new TimeCoordinate(DATASET_ID, start.plusSeconds(i * 30 - 300)), true);
+    }
+
+    for (int i = lookupCount - 1; i >= 0; i--) {
+      SensorValuesListOutput expected = descendingList.getValue(
+        new TimeCoordinate(DATASET_ID, start.plusSeconds(i * 30 - 300)), true);
+      SensorValuesListOutput actual = ascending[i];
+
+      if (null == expected) {
+        assertEquals(null, actual);
+      } else {
+        assertEquals(expected.getDoubleValue(), actual.getDoubleValue());
+        assertEquals(expected.getQCFlag(), actual.getQCFlag());
+        assertEquals(
+          new ArrayList<SensorValue>(expected.getSourceSensorValues()),
+          new ArrayList<SensorValue>(actual.getSourceSensorValues()));
+      }
+    }
+  }
 }
@@ -0,0 +1,147 @@
+package uk.ac.exeter.QuinCe.data.Files;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests for {@link BlockGzipFileStoreCodec}.
+ */
+public class BlockGzipFileStoreCodecTest {
+
+  @TempDir
+  Path tempDir;
+
+  /**
+   * Make some file content with the specified number of lines.
+   *
+   * @param lineCount
+   *          The number of lines.
+   * @return The content.
+   */
+  private byte[] makeContent(int lineCount) {
+    StringBuilder content = new StringBuilder("Date,Temp,Salinity\n");
+    for (int i = 0; i < lineCount; i++) {
+      content.append("2024-01-01T00:00:").append(i).append(',')
+        .append(i * 0.1).append(",35.").append(i).append("\r\n");
+    }
+
+    return content.toString().getBytes(Charset.defaultCharset());
+  }
+
+  /**
+   * Write content to a file using the specified codec.
+   *
+   * @param codec
+   *          The codec.
+   * @param content
+   *          The content.
+   * @param name
+   *          The file name.
+   * @return The file.
+   * @throws Exception
+   *           If the file cannot be written.
+   */
+  private File write(FileStoreCodec codec, byte[] content, String name)
+    throws Exception {
+    File file = tempDir.resolve(name).toFile();
+    codec.write(new ByteArrayInputStream(content), file);
+    return file;
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = { 0, 1, 100, 5000 })
+  public void readTest(int lineCount) throws Exception {
+    byte[] content = makeContent(lineCount);
+    BlockGzipFileStoreCodec codec = new BlockGzipFileStoreCodec(256);
+    File file = write(codec, content, "file");
+
+    assertArrayEquals(content, codec.read(file));
+    assertEquals(content.length, codec.getContentLength(file));
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = { 16, 37, 256, 1024 * 1024 })
+  public void linesMatchPlainTest(int blockSize) throws Exception {
+    byte[] content = makeContent(2000);
+
+    File plainFile = write(new PlainFileStoreCodec(), content, "plain");
+    File gzipFile = write(new BlockGzipFileStoreCodec(blockSize), content,
+      "gzip");
+
+    assertEquals(new PlainFileStoreCodec().getLines(plainFile),
+      new BlockGzipFileStoreCodec().getLines(gzipFile));
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = { 0, 1, 100, 5000 })
+  public void inputStreamTest(int lineCount) throws Exception {
+    byte[] content = makeContent(lineCount);
+    BlockGzipFileStoreCodec codec = new BlockGzipFileStoreCodec(256);
+    File file = write(codec, content, "file");
+
+    try (InputStream in = codec.getInputStream(file)) {
+      assertArrayEquals(content, in.readAllBytes());
+    }
+  }
+
+  @Test
+  public void linesAfterReplaceTest() throws Exception {
+    byte[] content = makeContent(2000);
+    BlockGzipFileStoreCodec codec = new BlockGzipFileStoreCodec(256);
+    File file = write(codec, content, "file");
+
+    List<String> lines = codec.getLines(file);
+    List<String> expected = new PlainFileStoreCodec()
+      .getLines(write(new PlainFileStoreCodec(), content, "plain"));
+    assertEquals(expected, lines);
+
+    // Replace the file in the same way as the file store
+    File replacement = write(codec, makeContent(10), "replacement");
+    Files.move(replacement.toPath(), file.toPath(),
+      StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+    // Lines must not be read from the new file
+    assertThrows(IllegalStateException.class, () -> lines.get(0));
+  }
+
+  @Test
+  public void compressedTest() throws Exception {
+    byte[] content = makeContent(5000);
+    File file = write(new BlockGzipFileStoreCodec(), content, "file");
+    assertTrue(file.length() < content.length / 2);
+  }
+
+  @Test
+  public void canReadTest() throws Exception {
+    byte[] content = makeContent(10);
+    BlockGzipFileStoreCodec codec = new BlockGzipFileStoreCodec();
+
+    assertTrue(codec.canRead(write(codec, content, "gzip")));
+    assertFalse(
+      codec.canRead(write(new PlainFileStoreCodec(), content, "plain")));
+  }
+
+  @Test
+  public void canReadEmptyFileTest() throws Exception {
+    File file = tempDir.resolve("empty").toFile();
+    Files.write(file.toPath(), new byte[0]);
+    assertFalse(new BlockGzipFileStoreCodec().canRead(file));
+  }
+}
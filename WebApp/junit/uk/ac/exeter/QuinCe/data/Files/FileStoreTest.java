@@ -0,0 +1,80 @@
+package uk.ac.exeter.QuinCe.data.Files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for {@link FileStore#recodeFiles(String, FileStoreCodec, int)}.
+ */
+public class FileStoreTest {
+
+  @TempDir
+  Path tempDir;
+
+  /**
+   * Write an uncompressed file into the file store.
+   *
+   * @param fileDefinitionId
+   *          The file definition ID.
+   * @param fileId
+   *          The file ID.
+   * @return The file.
+   * @throws Exception
+   *           If the file cannot be written.
+   */
+  private File writePlainFile(long fileDefinitionId, long fileId)
+    throws Exception {
+
+    File directory = tempDir.resolve(String.valueOf(fileDefinitionId))
+      .toFile();
+    directory.mkdirs();
+
+    File file = new File(directory, String.valueOf(fileId));
+    Files.write(file.toPath(), "Date,Temp\n2024-01-01T00:00:00,1.0\n"
+      .getBytes(Charset.defaultCharset()));
+
+    return file;
+  }
+
+  @Test
+  public void recodeTest() throws Exception {
+    BlockGzipFileStoreCodec codec = new BlockGzipFileStoreCodec();
+    File file = writePlainFile(1, 1);
+    List<String> expected = new PlainFileStoreCodec().getLines(file);
+
+    assertEquals(1, FileStore.recodeFiles(tempDir.toString(), codec, 10));
+    assertTrue(codec.canRead(file));
+    assertEquals(expected, FileStore.getLines(tempDir.toString(), 1, 1));
+  }
+
+  @Test
+  public void recodedFilesNotRescannedTest() throws Exception {
+    BlockGzipFileStoreCodec codec = new BlockGzipFileStoreCodec();
+    writePlainFile(1, 1);
+    writePlainFile(1, 2);
+    writePlainFile(2, 3);
+
+    assertEquals(3, FileStore.recodeFiles(tempDir.toString(), codec, 10));
+    assertEquals(0, FileStore.recodeFiles(tempDir.toString(), codec, 10));
+  }
+
+  @Test
+  public void maxFilesTest() throws Exception {
+    BlockGzipFileStoreCodec codec = new BlockGzipFileStoreCodec();
+    writePlainFile(1, 1);
+    writePlainFile(1, 2);
+    writePlainFile(2, 3);
+
+    assertEquals(2, FileStore.recodeFiles(tempDir.toString(), codec, 2));
+    assertEquals(1, FileStore.recodeFiles(tempDir.toString(), codec, 2));
+  }
+}
@@ -0,0 +1,101 @@
+package uk.ac.exeter.QuinCe.data.Files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import uk.ac.exeter.QuinCe.utils.StringUtils;
+
+/**
+ * Tests for {@link MappedLineList}.
+ */
+public class MappedLineListTest {
+
+  @TempDir
+  Path tempDir;
+
+  /**
+   * Write the specified string to a file in the temporary directory.
+   *
+   * @param content
+   *          The file content.
+   * @return The file.
+   * @throws Exception
+   *           If the file cannot be written.
+   */
+  private File makeFile(String content) throws Exception {
+    Path path = tempDir.resolve("file");
+    Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    return path.toFile();
+  }
+
+  /**
+   * Get the lines of a string using the splitting method that
+   * {@link MappedLineList} replaces.
+   *
+   * @param content
+   *          The string.
+   * @return The lines.
+   */
+  private List<String> splitLines(String content) {
+    List<String> result = new ArrayList<String>(
+      Arrays.asList(content.split("[\\r\\n]+")));
+    StringUtils.removeBlankTailLines(result);
+    return result;
+  }
+
+  private static Stream<String> contents() {
+    return Stream.of("a", "a\nb\nc", "a\nb\nc\n", "a\r\nb\r\nc\r\n",
+      "a\n\n\nb", "\na\nb", "\n\r\na\nb", "a\nb\n  \n\t\n", "a,b,c\n1,2,3\r",
+      "é,ü\n£,€\n");
+  }
+
+  @ParameterizedTest
+  @MethodSource("contents")
+  public void matchesSplitTest(String content) throws Exception {
+    assertEquals(splitLines(content),
+      new MappedLineList(makeFile(content), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void emptyFileTest() throws Exception {
+    assertEquals(0, new MappedLineList(makeFile("")).size());
+  }
+
+  @Test
+  public void onlyLineBreaksTest() throws Exception {
+    assertEquals(0, new MappedLineList(makeFile("\n\r\n\n")).size());
+  }
+
+  @Test
+  public void getOutOfBoundsTest() throws Exception {
+    MappedLineList list = new MappedLineList(makeFile("a\nb"));
+    assertThrows(IndexOutOfBoundsException.class, () -> list.get(2));
+    assertThrows(IndexOutOfBoundsException.class, () -> list.get(-1));
+  }
+
+  @Test
+  public void manyLinesTest() throws Exception {
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < 5000; i++) {
+      content.append(i).append(",").append(i * 2).append('\n');
+    }
+
+    MappedLineList list = new MappedLineList(makeFile(content.toString()));
+    assertEquals(5000, list.size());
+    assertEquals("4321,8642", list.get(4321));
+  }
+}
@@ -1,16 +1,18 @@
 package uk.ac.exeter.QuinCe.data.Instrument.Calibration;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.stream.Stream;
 
-import org.apache.commons.lang3.NotImplementedException;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.CsvSource;
@@ -425,6 +427,40 @@ public class CalibrationSetTest extends BaseTest {
 
     assertTrue(mapsEqual(expectedCalibrations, foundCalibrationIds));
   }
+
+  /**
+   * Test that {@link CalibrationSet#makeCopy()} creates a set with the same
+   * {@link Calibration}s that shares no objects with the original.
+   *
+   * @throws Exception
+   *           If any error occurs.
+   */
+  @Test
+  public void makeCopyTest() throws Exception {
+    CalibrationSet calibrationSet = new CalibrationSet(getTargets(),
+      makeTime(3), makeTime(18), makeDbInstance(false, true, true),
+      makeCalibrations());
+
+    CalibrationSet copy = calibrationSet.makeCopy();
+
+    assertTrue(copy.hasSameEffect(calibrationSet));
+
+    TreeMap<String, Calibration> original = calibrationSet
+      .getCalibrations(makeTime(10));
+    TreeMap<String, Calibration> copied = copy.getCalibrations(makeTime(10));
+
+    assertNotSame(original, copied);
+    for (String target : original.keySet()) {
+      assertEquals(original.get(target).getId(), copied.get(target).getId());
+      assertNotSame(original.get(target), copied.get(target));
+    }
+
+    copied.remove("TARGET1");
+    assertTrue(calibrationSet.getCalibrations(makeTime(10))
+      .containsKey("TARGET1"));
+
+    assertNotSame(calibrationSet.getTargets(), copy.getTargets());
+  }
 }
 
 /**
@@ -474,7 +510,15 @@ class TestCalibration extends Calibration {
 
   @Override
   public Calibration makeCopy() {
-    throw new NotImplementedException();
+    Map<String, String> coefficients = new LinkedHashMap<String, String>();
+    getCoefficients().forEach(c -> coefficients.put(c.getName(), c.getValue()));
+
+    try {
+      return new TestCalibration(getId(), getInstrument(), getTarget(),
+        getDeploymentDate(), coefficients, timeAffectsCalibration);
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
   }
 
   @Override
@@ -0,0 +1,145 @@
+package uk.ac.exeter.QuinCe.data.Instrument;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.flywaydb.test.annotation.FlywayTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import uk.ac.exeter.QuinCe.TestBase.BaseTest;
+import uk.ac.exeter.QuinCe.data.Instrument.Calibration.CalibrationDB;
+import uk.ac.exeter.QuinCe.data.Instrument.Calibration.CalibrationSet;
+import uk.ac.exeter.QuinCe.data.Instrument.Calibration.ExternalStandardDB;
+import uk.ac.exeter.QuinCe.data.Instrument.RunTypes.RunTypeAssignment;
+import uk.ac.exeter.QuinCe.data.Instrument.RunTypes.RunTypeCategory;
+import uk.ac.exeter.QuinCe.web.files.MissingRunType;
+
+/**
+ * Tests for the {@link Instrument} cache in {@link InstrumentDB}.
+ */
+public class InstrumentDBTest extends BaseTest {
+
+  private static final long INSTRUMENT_ID = 1L;
+
+  @BeforeEach
+  public void init() {
+    initResourceManager();
+  }
+
+  /**
+   * Rename the instrument directly in the database, bypassing
+   * {@link InstrumentDB}.
+   *
+   * @param name
+   *          The new name.
+   */
+  private void renameInstrument(String name) throws Exception {
+    try (Connection conn = getConnection();
+      PreparedStatement stmt = conn
+        .prepareStatement("UPDATE instrument SET name = ? WHERE id = ?")) {
+      stmt.setString(1, name);
+      stmt.setLong(2, INSTRUMENT_ID);
+      stmt.execute();
+    }
+  }
+
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/variable", "resources/sql/testbase/instrument" })
+  @Test
+  public void cachedInstrumentTest() throws Exception {
+    Instrument instrument1 = InstrumentDB.getInstrument(getDataSource(),
+      INSTRUMENT_ID);
+    renameInstrument("Renamed");
+    Instrument instrument2 = InstrumentDB.getInstrument(getDataSource(),
+      INSTRUMENT_ID);
+
+    assertNotSame(instrument1, instrument2);
+    assertSame(instrument1.getFileDefinitions(),
+      instrument2.getFileDefinitions());
+    assertSame(instrument1.getSensorAssignments(),
+      instrument2.getSensorAssignments());
+    assertEquals("Benguela Stream", instrument2.getName());
+  }
+
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/variable", "resources/sql/testbase/instrument" })
+  @Test
+  public void invalidateTest() throws Exception {
+    InstrumentDB.getInstrument(getDataSource(), INSTRUMENT_ID);
+    renameInstrument("Renamed");
+    InstrumentDB.invalidateInstrument(INSTRUMENT_ID);
+
+    assertEquals("Renamed",
+      InstrumentDB.getInstrument(getDataSource(), INSTRUMENT_ID).getName());
+  }
+
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/variable", "resources/sql/testbase/instrument" })
+  @Test
+  public void separatePropertiesTest() throws Exception {
+    Instrument instrument1 = InstrumentDB.getInstrument(getDataSource(),
+      INSTRUMENT_ID);
+    instrument1.setProperty("testProp", "testValue");
+
+    assertNull(InstrumentDB.getInstrument(getDataSource(), INSTRUMENT_ID)
+      .getProperty("testProp"));
+  }
+
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/variable", "resources/sql/testbase/instrument" })
+  @Test
+  public void savePropertiesTest() throws Exception {
+    Instrument instrument1 = InstrumentDB.getInstrument(getDataSource(),
+      INSTRUMENT_ID);
+    instrument1.setProperty("testProp", "testValue");
+    InstrumentDB.saveInstrumentProperties(getDataSource(), instrument1);
+
+    assertEquals("testValue", InstrumentDB
+      .getInstrument(getDataSource(), INSTRUMENT_ID).getProperty("testProp"));
+  }
+
+  /**
+   * Test that storing a new internal calibration run type adds it to the
+   * targets of cached external standard {@link CalibrationSet}s.
+   */
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/instrument", "resources/sql/testbase/variable",
+    "resources/sql/web/Instrument/CalibrationBeanTest/base",
+    "resources/sql/web/Instrument/CalibrationBeanTest/externalStandardsEdit" })
+  @Test
+  public void storeRunTypesCalibrationSetTest() throws Exception {
+    CalibrationDB.clearCalibrationSetCache();
+
+    Instrument instrument = InstrumentDB.getInstrument(getDataSource(),
+      INSTRUMENT_ID);
+    LocalDateTime start = LocalDateTime.of(2023, 6, 1, 0, 0, 0);
+    LocalDateTime end = LocalDateTime.of(2023, 6, 2, 0, 0, 0);
+
+    assertFalse(ExternalStandardDB.getInstance()
+      .getCalibrationSet(getDataSource(), instrument, start, end).getTargets()
+      .contains("std3"));
+
+    MissingRunType runType = Mockito.mock(MissingRunType.class);
+    Mockito.when(runType.getFileDefinition())
+      .thenReturn(instrument.getFileDefinitions().get(0));
+    Mockito.when(runType.getRunType()).thenReturn(new RunTypeAssignment(
+      "std3", RunTypeCategory.INTERNAL_CALIBRATION));
+
+    InstrumentDB.storeFileRunTypes(getDataSource(), List.of(runType));
+
+    assertTrue(ExternalStandardDB.getInstance()
+      .getCalibrationSet(getDataSource(), instrument, start, end).getTargets()
+      .contains("std3"));
+  }
+}
@@ -0,0 +1,86 @@
+package uk.ac.exeter.QuinCe.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link JobProgressRegistry}.
+ */
+public class JobProgressRegistryTest {
+
+  private static final long JOB_ID = 1000L;
+
+  @AfterEach
+  public void clearRegistry() {
+    JobProgressRegistry.remove(JOB_ID);
+  }
+
+  @Test
+  public void firstUpdateStoredTest() {
+    assertTrue(JobProgressRegistry.update(JOB_ID, 0D, 0L));
+  }
+
+  @Test
+  public void throttledUpdateTest() {
+    JobProgressRegistry.update(JOB_ID, 0D, 0L);
+    assertFalse(JobProgressRegistry.update(JOB_ID, 10D, 1000L));
+    assertFalse(JobProgressRegistry.update(JOB_ID, 20D, 2000L));
+    assertTrue(JobProgressRegistry.update(JOB_ID, 30D,
+      JobProgressRegistry.FLUSH_INTERVAL));
+    assertFalse(JobProgressRegistry.update(JOB_ID, 40D,
+      JobProgressRegistry.FLUSH_INTERVAL + 1000L));
+  }
+
+  @Test
+  public void unchangedProgressTest() {
+    JobProgressRegistry.update(JOB_ID, 50D, 0L);
+    assertFalse(JobProgressRegistry.update(JOB_ID, 50D,
+      JobProgressRegistry.FLUSH_INTERVAL * 2));
+  }
+
+  @Test
+  public void completeStoredTest() {
+    JobProgressRegistry.update(JOB_ID, 0D, 0L);
+    JobProgressRegistry.update(JOB_ID, 50D, 1000L);
+    assertTrue(JobProgressRegistry.update(JOB_ID, 100D, 2000L));
+  }
+
+  @Test
+  public void restartStoredTest() {
+    JobProgressRegistry.update(JOB_ID, 0D, 0L);
+    JobProgressRegistry.update(JOB_ID, 100D, 1000L);
+    assertTrue(JobProgressRegistry.update(JOB_ID, 0D, 2000L));
+  }
+
+  @Test
+  public void getProgressTest() {
+    assertNull(JobProgressRegistry.getProgress(JOB_ID));
+    JobProgressRegistry.update(JOB_ID, 0D, 0L);
+    JobProgressRegistry.update(JOB_ID, 25D, 1000L);
+    assertEquals(25D, JobProgressRegistry.getProgress(JOB_ID));
+  }
+
+  @Test
+  public void removePendingTest() {
+    JobProgressRegistry.update(JOB_ID, 0D, 0L);
+    JobProgressRegistry.update(JOB_ID, 25D, 1000L);
+    assertEquals(25D, JobProgressRegistry.remove(JOB_ID));
+    assertNull(JobProgressRegistry.getProgress(JOB_ID));
+  }
+
+  @Test
+  public void removeStoredTest() {
+    JobProgressRegistry.update(JOB_ID, 0D, 0L);
+    assertNull(JobProgressRegistry.remove(JOB_ID));
+  }
+
+  @Test
+  public void removeUnknownTest() {
+    assertNull(JobProgressRegistry.remove(JOB_ID));
+  }
+}
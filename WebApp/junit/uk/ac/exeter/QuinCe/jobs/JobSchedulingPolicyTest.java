@@ -0,0 +1,141 @@
+package uk.ac.exeter.QuinCe.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link JobSchedulingPolicy}.
+ */
+public class JobSchedulingPolicyTest {
+
+  private static final long NOW = 1000000000L;
+
+  private QueuedJob makeJob(long id, int priority, Long instrumentId,
+    long age) {
+    return new QueuedJob(id, 1L, "TestJob", "{}", priority, instrumentId,
+      NOW - age);
+  }
+
+  @Test
+  public void nrtBeforeBulkTest() {
+    List<QueuedJob> waiting = new ArrayList<QueuedJob>();
+    waiting.add(makeJob(1L, Job.PRIORITY_BULK, 1L, 60000L));
+    waiting.add(makeJob(2L, Job.PRIORITY_INTERACTIVE, 2L, 30000L));
+    waiting.add(makeJob(3L, Job.PRIORITY_NRT, 3L, 1000L));
+
+    QueuedJob selected = new JobSchedulingPolicy().selectJob(waiting,
+      new ArrayList<QueuedJob>(), NOW);
+    assertEquals(3L, selected.getId());
+  }
+
+  @Test
+  public void instrumentLimitTest() {
+    List<QueuedJob> running = new ArrayList<QueuedJob>();
+    running.add(makeJob(1L, Job.PRIORITY_INTERACTIVE, 1L, 60000L));
+
+    List<QueuedJob> waiting = new ArrayList<QueuedJob>();
+    waiting.add(makeJob(2L, Job.PRIORITY_NRT, 1L, 30000L));
+    waiting.add(makeJob(3L, Job.PRIORITY_BULK, 2L, 1000L));
+
+    JobSchedulingPolicy policy = new JobSchedulingPolicy(1);
+    assertEquals(3L, policy.selectJob(waiting, running, NOW).getId());
+
+    waiting.remove(1);
+    assertNull(policy.selectJob(waiting, running, NOW));
+  }
+
+  @Test
+  public void configuredInstrumentLimitTest() {
+    List<QueuedJob> running = new ArrayList<QueuedJob>();
+    running.add(makeJob(1L, Job.PRIORITY_INTERACTIVE, 1L, 60000L));
+
+    List<QueuedJob> waiting = new ArrayList<QueuedJob>();
+    waiting.add(makeJob(2L, Job.PRIORITY_NRT, 1L, 30000L));
+
+    JobSchedulingPolicy policy = new JobSchedulingPolicy(2);
+    assertEquals(2L, policy.selectJob(waiting, running, NOW).getId());
+
+    running.add(makeJob(3L, Job.PRIORITY_INTERACTIVE, 1L, 60000L));
+    assertNull(policy.selectJob(waiting, running, NOW));
+  }
+
+  @Test
+  public void noInstrumentLimitTest() {
+    List<QueuedJob> running = new ArrayList<QueuedJob>();
+    running.add(makeJob(1L, Job.PRIORITY_INTERACTIVE, 1L, 60000L));
+    running.add(makeJob(2L, Job.PRIORITY_INTERACTIVE, 1L, 60000L));
+
+    List<QueuedJob> waiting = new ArrayList<QueuedJob>();
+    waiting.add(makeJob(3L, Job.PRIORITY_NRT, 1L, 30000L));
+    waiting.add(makeJob(4L, Job.PRIORITY_BULK, 2L, 1000L));
+
+    JobSchedulingPolicy policy = new JobSchedulingPolicy();
+    assertEquals(3L, policy.selectJob(waiting, running, NOW).getId());
+
+    waiting.remove(1);
+    assertEquals(3L, policy.selectJob(waiting, running, NOW).getId());
+  }
+
+  @Test
+  public void fairShareTest() {
+    List<QueuedJob> waiting = new ArrayList<QueuedJob>();
+    waiting.add(makeJob(1L, Job.PRIORITY_INTERACTIVE, 1L, 60000L));
+    waiting.add(makeJob(2L, Job.PRIORITY_INTERACTIVE, 1L, 50000L));
+    waiting.add(makeJob(3L, Job.PRIORITY_INTERACTIVE, 1L, 40000L));
+    waiting.add(makeJob(4L, Job.PRIORITY_INTERACTIVE, 2L, 1000L));
+
+    JobSchedulingPolicy policy = new JobSchedulingPolicy();
+    List<Long> order = new ArrayList<Long>();
+
+    while (!waiting.isEmpty()) {
+      QueuedJob selected = policy.selectJob(waiting,
+        new ArrayList<QueuedJob>(), NOW);
+      policy.recordStart(selected, NOW);
+      order.add(selected.getId());
+      waiting.remove(selected);
+    }
+
+    assertEquals(List.of(1L, 4L, 2L, 3L), order);
+  }
+
+  @Test
+  public void agingTest() {
+    List<QueuedJob> waiting = new ArrayList<QueuedJob>();
+    waiting.add(makeJob(1L, Job.PRIORITY_BULK,
+      1L, JobSchedulingPolicy.AGING_INTERVAL * 2));
+    waiting.add(makeJob(2L, Job.PRIORITY_NRT, 2L, 1000L));
+
+    QueuedJob selected = new JobSchedulingPolicy().selectJob(waiting,
+      new ArrayList<QueuedJob>(), NOW);
+    assertEquals(1L, selected.getId());
+  }
+
+  @Test
+  public void waitStatsTest() {
+    List<QueuedJob> waiting = new ArrayList<QueuedJob>();
+    waiting.add(makeJob(1L, Job.PRIORITY_NRT, 1L, 10000L));
+    waiting.add(makeJob(2L, Job.PRIORITY_BULK, 2L, 30000L));
+
+    JobSchedulingPolicy policy = new JobSchedulingPolicy();
+    QueuedJob selected = policy.selectJob(waiting, new ArrayList<QueuedJob>(),
+      NOW);
+    policy.recordStart(selected, NOW);
+
+    List<JobSchedulingPolicy.WaitStats> stats = policy.getWaitStats();
+
+    JobSchedulingPolicy.WaitStats nrtStats = stats.get(Job.PRIORITY_NRT);
+    assertEquals(0, nrtStats.getWaiting());
+    assertEquals(1, nrtStats.getStarted());
+    assertEquals(10, nrtStats.getMeanWait());
+
+    JobSchedulingPolicy.WaitStats bulkStats = stats.get(Job.PRIORITY_BULK);
+    assertEquals(1, bulkStats.getWaiting());
+    assertEquals(30, bulkStats.getLongestWaiting());
+    assertEquals(0, bulkStats.getStarted());
+  }
+}
@@ -0,0 +1,93 @@
+package uk.ac.exeter.QuinCe.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+/**
+ * Tests for the memory admission control in {@link JobThreadPool}.
+ */
+public class JobThreadPoolTest {
+
+  private Job makeJob(long estimatedMemory) {
+    Job job = Mockito.mock(Job.class);
+    Mockito.when(job.getEstimatedMemory()).thenReturn(estimatedMemory);
+    return job;
+  }
+
+  @Test
+  public void memoryLimitTest() throws Exception {
+    JobThreadPool pool = new JobThreadPool(3, 100L);
+
+    JobThread thread1 = pool.getJobThread(makeJob(80L));
+    assertNotNull(thread1);
+    assertEquals(80L, pool.getReservedMemory());
+
+    Job secondJob = makeJob(30L);
+    assertFalse(pool.canAdmit(30L));
+    assertNull(pool.getJobThread(secondJob));
+
+    pool.returnThread(thread1);
+    assertEquals(0L, pool.getReservedMemory());
+    assertNotNull(pool.getJobThread(secondJob));
+    assertEquals(30L, pool.getReservedMemory());
+  }
+
+  @Test
+  public void largeJobRunsAloneTest() throws Exception {
+    JobThreadPool pool = new JobThreadPool(3, 100L);
+
+    assertTrue(pool.canAdmit(500L));
+    assertNotNull(pool.getJobThread(makeJob(500L)));
+    assertFalse(pool.canAdmit(1L));
+  }
+
+  @Test
+  public void instantJobNotLimitedTest() throws Exception {
+    JobThreadPool pool = new JobThreadPool(1, 100L);
+
+    assertNotNull(pool.getJobThread(makeJob(90L)));
+    assertNotNull(pool.getInstantJobThread(makeJob(50L)));
+    assertEquals(140L, pool.getReservedMemory());
+  }
+
+  @Test
+  public void chainedJobReservationTest() throws Exception {
+    JobThreadPool pool = new JobThreadPool(2, 100L);
+
+    JobThread thread = pool.getJobThread(makeJob(20L));
+    assertTrue(pool.admitChainedJob(thread, makeJob(60L)));
+    assertEquals(60L, pool.getReservedMemory());
+
+    pool.returnThread(thread);
+    assertEquals(0L, pool.getReservedMemory());
+  }
+
+  @Test
+  public void chainedJobRejectedTest() throws Exception {
+    JobThreadPool pool = new JobThreadPool(2, 100L);
+
+    JobThread thread = pool.getJobThread(makeJob(20L));
+    assertNotNull(pool.getJobThread(makeJob(50L)));
+
+    assertFalse(pool.admitChainedJob(thread, makeJob(60L)));
+    assertEquals(70L, pool.getReservedMemory());
+
+    assertTrue(pool.admitChainedJob(thread, makeJob(40L)));
+    assertEquals(90L, pool.getReservedMemory());
+  }
+
+  @Test
+  public void largeChainedJobRunsAloneTest() throws Exception {
+    JobThreadPool pool = new JobThreadPool(2, 100L);
+
+    JobThread thread = pool.getJobThread(makeJob(20L));
+    assertTrue(pool.admitChainedJob(thread, makeJob(500L)));
+    assertEquals(500L, pool.getReservedMemory());
+  }
+}
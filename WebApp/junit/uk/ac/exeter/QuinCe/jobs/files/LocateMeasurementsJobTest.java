@@ -0,0 +1,82 @@
+package uk.ac.exeter.QuinCe.jobs.files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the partial measurement replacement in
+ * {@link LocateMeasurementsJob}.
+ */
+public class LocateMeasurementsJobTest {
+
+  private static LocalDateTime time(int hour) {
+    return LocalDateTime.of(2023, 1, 1, hour, 0, 0);
+  }
+
+  private static List<LocalDateTime> times(int... hours) {
+    List<LocalDateTime> result = new ArrayList<LocalDateTime>();
+    for (int hour : hours) {
+      result.add(time(hour));
+    }
+    return result;
+  }
+
+  /**
+   * Make stored measurements with IDs 1, 2, 3... at the specified hours.
+   */
+  private static LinkedHashMap<Long, LocalDateTime> stored(int... hours) {
+    LinkedHashMap<Long, LocalDateTime> result = new LinkedHashMap<Long, LocalDateTime>();
+    for (int i = 0; i < hours.length; i++) {
+      result.put((long) i + 1, time(hours[i]));
+    }
+    return result;
+  }
+
+  @Test
+  public void replaceWindowTest() {
+    List<Long> replaced = LocateMeasurementsJob.getReplacedMeasurementIds(
+      stored(1, 2, 3, 4, 5, 6), times(1, 2), times(5, 6));
+
+    assertEquals(Arrays.asList(3L, 4L), replaced);
+  }
+
+  @Test
+  public void replaceToEndTest() {
+    List<Long> replaced = LocateMeasurementsJob.getReplacedMeasurementIds(
+      stored(1, 2, 3, 4), times(1, 2, 3), times());
+
+    assertEquals(Arrays.asList(4L), replaced);
+  }
+
+  @Test
+  public void tooManyLocatedTest() {
+    assertNull(LocateMeasurementsJob.getReplacedMeasurementIds(stored(1, 2, 3),
+      times(1, 2), times(3, 4)));
+  }
+
+  @Test
+  public void shiftedBoundaryTest() {
+    /*
+     * The stored measurements were 1, 2, 3 | 4, 5 | 6. Measurement 3 is now
+     * inside the window, and a new measurement at 0 has appeared before it.
+     * The counts still fit the stored measurements, but the kept measurements
+     * would not match.
+     */
+    assertNull(LocateMeasurementsJob.getReplacedMeasurementIds(
+      stored(1, 2, 3, 4, 5, 6), times(0, 1, 2), times(6)));
+  }
+
+  @Test
+  public void changedAfterWindowTest() {
+    assertNull(LocateMeasurementsJob.getReplacedMeasurementIds(
+      stored(1, 2, 3, 4, 5, 6), times(1, 2), times(5, 7)));
+  }
+}
@@ -277,6 +277,22 @@ public class TimeRangeTest {
     LocalDateTime earliestEnd = TimeRange.getEarliestEnd(ranges, 3600);
     assertEquals(LocalDateTime.of(2025, 1, 2, 1, 0, 0), earliestEnd);
   }
+
+  /**
+   * Test that a {@link TimeRangeBuilder} covers all the times added to it,
+   * regardless of the order in which they are added.
+   */
+  @Test
+  public void builderTimesTest() {
+    TimeRangeBuilder builder = new TimeRangeBuilder();
+    builder.add(makeTime(5));
+    builder.add(makeTime(2));
+    builder.add(makeTime(9));
+    builder.add((LocalDateTime) null);
+
+    assertEquals(makeTime(2), builder.getStart());
+    assertEquals(makeTime(9), builder.getEnd());
+  }
 }
 
 class SimpleTimeRange implements TimeRange {
@@ -0,0 +1,197 @@
+package uk.ac.exeter.QuinCe.web.datasets.plotPage.ManualQC;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.ReadOnlyDataReductionRecord;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.Variable;
+
+/**
+ * Tests for {@link ManualQCDataCache}.
+ */
+public class ManualQCDataCacheTest {
+
+  /**
+   * Counts the number of times the data is loaded.
+   */
+  private AtomicInteger loadCount = new AtomicInteger(0);
+
+  @AfterEach
+  public void clearCache() {
+    ManualQCDataCache.clear();
+  }
+
+  private Callable<ManualQCDataCache.DatasetData> loader() {
+    return () -> {
+      loadCount.incrementAndGet();
+      return new ManualQCDataCache.DatasetData(null, null,
+        Collections.emptyMap());
+    };
+  }
+
+  @Test
+  public void sharedTest() throws Exception {
+    ManualQCDataCache.Entry entry1 = ManualQCDataCache.acquire("1|A", "v1",
+      loader());
+    ManualQCDataCache.Entry entry2 = ManualQCDataCache.acquire("1|A", "v1",
+      loader());
+
+    assertSame(entry1, entry2);
+    assertSame(entry1.getData(), entry2.getData());
+    assertEquals(1, loadCount.get());
+    assertEquals(2, entry1.getRefCount());
+  }
+
+  @Test
+  public void differentKeysTest() throws Exception {
+    ManualQCDataCache.Entry entry1 = ManualQCDataCache.acquire("1|A", "v1",
+      loader());
+    ManualQCDataCache.Entry entry2 = ManualQCDataCache.acquire("1|B", "v1",
+      loader());
+
+    assertNotSame(entry1, entry2);
+    assertEquals(2, loadCount.get());
+  }
+
+  @Test
+  public void newVersionTest() throws Exception {
+    ManualQCDataCache.Entry entry1 = ManualQCDataCache.acquire("1|A", "v1",
+      loader());
+    ManualQCDataCache.Entry entry2 = ManualQCDataCache.acquire("1|A", "v2",
+      loader());
+
+    assertNotSame(entry1, entry2);
+    assertEquals(2, loadCount.get());
+    assertEquals(1, ManualQCDataCache.size());
+
+    // The old entry is still usable by its holder
+    assertEquals(1, entry1.getRefCount());
+  }
+
+  @Test
+  public void releaseKeepsEntryTest() throws Exception {
+    ManualQCDataCache.Entry entry = ManualQCDataCache.acquire("1|A", "v1",
+      loader());
+    ManualQCDataCache.release(entry);
+
+    assertEquals(0, entry.getRefCount());
+    assertEquals(1, ManualQCDataCache.size());
+
+    ManualQCDataCache.evictIdle();
+    assertEquals(1, ManualQCDataCache.size());
+
+    assertSame(entry, ManualQCDataCache.acquire("1|A", "v1", loader()));
+    assertEquals(1, loadCount.get());
+  }
+
+  @Test
+  public void evictIdleTest() throws Exception {
+    ManualQCDataCache.Entry entry = ManualQCDataCache.acquire("1|A", "v1",
+      loader());
+    ManualQCDataCache.release(entry);
+
+    ManualQCDataCache.evictIdle(0L);
+    assertEquals(0, ManualQCDataCache.size());
+  }
+
+  @Test
+  public void evictIdleInUseTest() throws Exception {
+    ManualQCDataCache.acquire("1|A", "v1", loader());
+
+    ManualQCDataCache.evictIdle(0L);
+    assertEquals(1, ManualQCDataCache.size());
+  }
+
+  @Test
+  public void detachOwnerTest() throws Exception {
+    ManualQCDataCache.Entry entry = ManualQCDataCache.acquire("1|A", "v1",
+      loader());
+
+    assertTrue(ManualQCDataCache.detach(entry));
+    assertEquals(0, ManualQCDataCache.size());
+  }
+
+  @Test
+  public void detachSharedTest() throws Exception {
+    ManualQCDataCache.Entry entry = ManualQCDataCache.acquire("1|A", "v1",
+      loader());
+    ManualQCDataCache.acquire("1|A", "v1", loader());
+
+    assertFalse(ManualQCDataCache.detach(entry));
+    assertEquals(1, entry.getRefCount());
+    assertEquals(0, ManualQCDataCache.size());
+  }
+
+  @Test
+  public void detachRemovesDatasetTest() throws Exception {
+    ManualQCDataCache.Entry entry = ManualQCDataCache.acquire("1|A", "v1",
+      loader());
+    ManualQCDataCache.acquire("1|B", "v1", loader());
+    ManualQCDataCache.acquire("11|A", "v1", loader());
+
+    ManualQCDataCache.detach(entry);
+    assertEquals(1, ManualQCDataCache.size());
+  }
+
+  @Test
+  public void loadFailureTest() throws Exception {
+    assertThrows(IllegalStateException.class,
+      () -> ManualQCDataCache.acquire("1|A", "v1", () -> {
+        throw new IllegalStateException();
+      }));
+
+    assertEquals(0, ManualQCDataCache.size());
+
+    ManualQCDataCache.acquire("1|A", "v1", loader());
+    assertEquals(1, loadCount.get());
+  }
+
+  @Test
+  public void dataReductionPendingTest() throws Exception {
+    CompletableFuture<Map<Long, Map<Variable, ReadOnlyDataReductionRecord>>> dataReduction = new CompletableFuture<Map<Long, Map<Variable, ReadOnlyDataReductionRecord>>>();
+
+    ManualQCDataCache.Entry entry = ManualQCDataCache.acquire("1|A", "v1",
+      () -> new ManualQCDataCache.DatasetData(null, null, dataReduction));
+
+    assertFalse(entry.getData().isDataReductionLoaded());
+    assertTrue(entry.getData().getDataReduction().isEmpty());
+
+    Map<Long, Map<Variable, ReadOnlyDataReductionRecord>> loaded = Map.of(1L,
+      Collections.emptyMap());
+    dataReduction.complete(loaded);
+
+    assertTrue(entry.getData().isDataReductionLoaded());
+    assertSame(loaded, entry.getData().getDataReduction());
+    assertSame(loaded, entry.getData().awaitDataReduction());
+    assertEquals(1, ManualQCDataCache.size());
+  }
+
+  @Test
+  public void dataReductionFailureTest() throws Exception {
+    CompletableFuture<Map<Long, Map<Variable, ReadOnlyDataReductionRecord>>> dataReduction = new CompletableFuture<Map<Long, Map<Variable, ReadOnlyDataReductionRecord>>>();
+
+    ManualQCDataCache.Entry entry = ManualQCDataCache.acquire("1|A", "v1",
+      () -> new ManualQCDataCache.DatasetData(null, null, dataReduction));
+
+    dataReduction.completeExceptionally(new IllegalStateException());
+
+    assertTrue(entry.getData().isDataReductionLoaded());
+    assertTrue(entry.getData().getDataReduction().isEmpty());
+    assertThrows(IllegalStateException.class,
+      () -> entry.getData().awaitDataReduction());
+    assertEquals(0, ManualQCDataCache.size());
+  }
+}
@@ -0,0 +1,145 @@
+package uk.ac.exeter.QuinCe.web.datasets.plotPage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import com.javadocmd.simplelatlng.LatLng;
+
+import uk.ac.exeter.QuinCe.data.Dataset.DatasetSensorValues;
+import uk.ac.exeter.QuinCe.data.Dataset.GeoBounds;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.Flag;
+
+/**
+ * Tests for {@link MapRecordIndex}.
+ */
+public class MapRecordIndexTest {
+
+  /**
+   * Simple {@link MapRecord} with only a position.
+   */
+  private static class TestMapRecord extends MapRecord {
+
+    private TestMapRecord(LatLng position, long id) {
+      super(null, position, id);
+    }
+
+    @Override
+    public boolean isGood(DatasetSensorValues allSensorValues) {
+      return true;
+    }
+
+    @Override
+    public boolean flagNeeded() {
+      return false;
+    }
+
+    @Override
+    public Double getValue() {
+      return 0D;
+    }
+
+    @Override
+    public Flag getFlag(DatasetSensorValues allSensorValues,
+      boolean ignoreNeeded) {
+      return null;
+    }
+  }
+
+  /**
+   * Make a set of records at random positions within the specified area.
+   *
+   * @param count
+   *          The number of records.
+   * @return The records.
+   */
+  private static List<MapRecord> makeRecords(int count, double minLon,
+    double maxLon, double minLat, double maxLat) {
+
+    Random random = new Random(count);
+    List<MapRecord> records = new ArrayList<MapRecord>(count);
+
+    for (int i = 0; i < count; i++) {
+      double lon = minLon + random.nextDouble() * (maxLon - minLon);
+      double lat = minLat + random.nextDouble() * (maxLat - minLat);
+      records.add(new TestMapRecord(new LatLng(lat, lon), i));
+    }
+
+    return records;
+  }
+
+  /**
+   * Find the records in the specified bounds by checking every record.
+   *
+   * @param records
+   *          The records.
+   * @param bounds
+   *          The bounds.
+   * @return The records in the bounds.
+   */
+  private List<MapRecord> bruteForce(List<MapRecord> records,
+    GeoBounds bounds) {
+    return records.stream().filter(r -> bounds.inBounds(r.position)).toList();
+  }
+
+  private static Stream<Arguments> boundsCases() {
+    return Stream.of(Arguments.of(new GeoBounds(-180, 180, -90, 90)),
+      Arguments.of(new GeoBounds(-10, 10, 50, 60)),
+      Arguments.of(new GeoBounds(-1.5, -1.4, 55.1, 55.2)),
+      Arguments.of(new GeoBounds(100, 120, 0, 10)),
+      Arguments.of(new GeoBounds(-200, -100, -90, -80)),
+      Arguments.of(new GeoBounds(0, 0, 55, 55)));
+  }
+
+  @ParameterizedTest
+  @MethodSource("boundsCases")
+  public void matchesBruteForceTest(GeoBounds bounds) {
+    List<MapRecord> records = makeRecords(20000, -20, 20, 40, 70);
+    MapRecordIndex index = new MapRecordIndex(records);
+    assertEquals(bruteForce(records, bounds), index.getRecords(bounds));
+  }
+
+  @Test
+  public void singleRecordTest() {
+    List<MapRecord> records = makeRecords(1, 5, 5, 5, 5);
+    MapRecordIndex index = new MapRecordIndex(records);
+    assertEquals(records,
+      index.getRecords(new GeoBounds(-180, 180, -90, 90)));
+  }
+
+  @Test
+  public void samePositionTest() {
+    List<MapRecord> records = new ArrayList<MapRecord>();
+    for (int i = 0; i < 100; i++) {
+      records.add(new TestMapRecord(new LatLng(10, 10), i));
+    }
+
+    MapRecordIndex index = new MapRecordIndex(records);
+    assertEquals(100, index.getRecords(new GeoBounds(0, 20, 0, 20)).size());
+  }
+
+  @Test
+  public void nullPositionTest() {
+    List<MapRecord> records = makeRecords(10, -20, 20, 40, 70);
+    records.add(new TestMapRecord(null, 10));
+
+    MapRecordIndex index = new MapRecordIndex(records);
+    assertEquals(10,
+      index.getRecords(new GeoBounds(-180, 180, -90, 90)).size());
+  }
+
+  @Test
+  public void emptyTest() {
+    MapRecordIndex index = new MapRecordIndex(new ArrayList<MapRecord>());
+    assertTrue(index.getRecords(new GeoBounds(-180, 180, -90, 90)).isEmpty());
+  }
+}
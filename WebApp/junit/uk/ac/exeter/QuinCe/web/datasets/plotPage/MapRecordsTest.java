@@ -0,0 +1,97 @@
+package uk.ac.exeter.QuinCe.web.datasets.plotPage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.javadocmd.simplelatlng.LatLng;
+
+import uk.ac.exeter.QuinCe.TestBase.BaseTest;
+import uk.ac.exeter.QuinCe.data.Dataset.Coordinate;
+import uk.ac.exeter.QuinCe.data.Dataset.DatasetSensorValues;
+import uk.ac.exeter.QuinCe.data.Dataset.TimeCoordinate;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.Flag;
+
+/**
+ * Tests for {@link MapRecords}.
+ */
+public class MapRecordsTest extends BaseTest {
+
+  private DatasetSensorValues sensorValues;
+
+  private MapRecords records;
+
+  private Coordinate coordinate1;
+
+  private Coordinate coordinate2;
+
+  @BeforeEach
+  public void makeRecords() throws Exception {
+    sensorValues = Mockito.mock(DatasetSensorValues.class);
+    Mockito.when(sensorValues.getFlagScheme()).thenReturn(flagScheme);
+
+    PlotPageData data = Mockito.mock(PlotPageData.class);
+    Mockito.when(data.getAllSensorValues()).thenReturn(sensorValues);
+
+    coordinate1 = new TimeCoordinate(1L, 1L,
+      LocalDateTime.of(2023, 1, 1, 0, 0, 0));
+    coordinate2 = new TimeCoordinate(2L, 1L,
+      LocalDateTime.of(2023, 1, 1, 1, 0, 0));
+
+    records = new MapRecords(2, data);
+    records.add(new PlotPageValueMapRecord(new LatLng(50D, 0D), coordinate1,
+      makeValue("1", flagScheme.getGoodFlag(), coordinate1)));
+    records.add(new PlotPageValueMapRecord(new LatLng(51D, 0D), coordinate2,
+      makeValue("5", flagScheme.getGoodFlag(), coordinate2)));
+  }
+
+  private static PlotPageTableValue makeValue(String value, Flag flag,
+    Coordinate coordinate) {
+    return new SimplePlotPageTableValue(value, flag, null, false,
+      PlotPageTableValue.MEASURED_TYPE, coordinate.getId());
+  }
+
+  @Test
+  public void updateValuesTest() {
+    records.updateValues(Map.of(coordinate2,
+      makeValue("5", flagScheme.getBadFlag(), coordinate2)));
+
+    assertTrue(records.get(0).isGood(sensorValues));
+    assertFalse(records.get(1).isGood(sensorValues));
+  }
+
+  @Test
+  public void updateValuesResetsRangeTest() {
+    assertArrayEquals(new Double[] { 1D, 5D },
+      records.getValueRange(sensorValues, true));
+
+    records.updateValues(Map.of(coordinate2,
+      makeValue("5", flagScheme.getBadFlag(), coordinate2)));
+
+    assertArrayEquals(new Double[] { 1D, 5D },
+      records.getValueRange(sensorValues, false));
+    Double[] goodRange = records.getValueRange(sensorValues, true);
+    assertEquals(1D, goodRange[0], 0.01D);
+    assertEquals(1D, goodRange[1], 0.01D);
+  }
+
+  @Test
+  public void updateUnknownValueTest() throws Exception {
+    Coordinate otherCoordinate = new TimeCoordinate(3L, 1L,
+      LocalDateTime.of(2023, 1, 1, 2, 0, 0));
+
+    records.updateValues(Map.of(otherCoordinate,
+      makeValue("5", flagScheme.getBadFlag(), otherCoordinate)));
+
+    assertTrue(records.get(0).isGood(sensorValues));
+    assertTrue(records.get(1).isGood(sensorValues));
+  }
+}
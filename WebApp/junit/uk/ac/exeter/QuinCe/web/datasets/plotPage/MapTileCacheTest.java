@@ -0,0 +1,85 @@
+package uk.ac.exeter.QuinCe.web.datasets.plotPage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonArray;
+
+import uk.ac.exeter.QuinCe.data.Dataset.GeoBounds;
+
+/**
+ * Tests for {@link MapTileCache}.
+ */
+public class MapTileCacheTest {
+
+  @AfterEach
+  public void clearCache() {
+    MapTileCache.clear();
+  }
+
+  private MapTileCache.MapTile makeTile() {
+    return new MapTileCache.MapTile(new JsonArray(), new JsonArray(),
+      new HashSet<Long>());
+  }
+
+  @Test
+  public void wholeWorldZoomTest() {
+    GeoBounds bounds = new GeoBounds(-180, 180, -90, 90);
+    assertEquals(0, MapTileCache.getZoom(bounds));
+    assertEquals(1, MapTileCache.getTiles(bounds, 0).size());
+  }
+
+  @Test
+  public void tilesCoverViewTest() {
+    GeoBounds bounds = new GeoBounds(-3.7, -1.2, 50.1, 51.9);
+    int zoom = MapTileCache.getZoom(bounds);
+    List<int[]> tiles = MapTileCache.getTiles(bounds, zoom);
+
+    assertTrue(tiles.size() <= 4);
+
+    GeoBounds first = MapTileCache.getTileBounds(zoom, tiles.get(0)[0],
+      tiles.get(0)[1]);
+    GeoBounds last = MapTileCache.getTileBounds(zoom,
+      tiles.get(tiles.size() - 1)[0], tiles.get(tiles.size() - 1)[1]);
+
+    assertTrue(first.getMinLon() <= bounds.getMinLon());
+    assertTrue(first.getMinLat() <= bounds.getMinLat());
+    assertTrue(last.getMaxLon() >= bounds.getMaxLon());
+    assertTrue(last.getMaxLat() >= bounds.getMaxLat());
+  }
+
+  @Test
+  public void tileNumberTest() {
+    assertEquals(0, MapTileCache.getTileX(-180, 2));
+    assertEquals(3, MapTileCache.getTileX(180, 2));
+    assertEquals(2, MapTileCache.getTileX(0, 2));
+    assertEquals(0, MapTileCache.getTileY(-90, 2));
+    assertEquals(1, MapTileCache.getTileY(90, 2));
+  }
+
+  @Test
+  public void cachedTileReusedTest() {
+    MapTileCache.MapTile tile = MapTileCache.getTile("1|a", this::makeTile);
+    assertSame(tile, MapTileCache.getTile("1|a", this::makeTile));
+  }
+
+  @Test
+  public void invalidateTest() {
+    MapTileCache.MapTile tile1 = MapTileCache.getTile("1|a", this::makeTile);
+    MapTileCache.MapTile tile2 = MapTileCache.getTile("2|a", this::makeTile);
+
+    long generation = MapTileCache.getGeneration(1L);
+    assertEquals(generation + 1, MapTileCache.invalidate(1L));
+    assertEquals(generation + 1, MapTileCache.getGeneration(1L));
+
+    assertTrue(tile1 != MapTileCache.getTile("1|a", this::makeTile));
+    assertSame(tile2, MapTileCache.getTile("2|a", this::makeTile));
+  }
+}
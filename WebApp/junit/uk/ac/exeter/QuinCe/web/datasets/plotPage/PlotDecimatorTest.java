@@ -0,0 +1,98 @@
+package uk.ac.exeter.QuinCe.web.datasets.plotPage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link PlotDecimator}.
+ */
+public class PlotDecimatorTest {
+
+  /**
+   * Make a sine wave series. Each value is an array of {@code [x, y]}.
+   *
+   * @param count
+   *          The number of values.
+   * @return The series.
+   */
+  private List<double[]> makeSeries(int count) {
+    List<double[]> result = new ArrayList<double[]>(count);
+    for (int i = 0; i < count; i++) {
+      result.add(new double[] { i, Math.sin(i / 100D) });
+    }
+    return result;
+  }
+
+  private List<double[]> decimate(List<double[]> values, int threshold,
+    int... keep) {
+
+    List<Integer> keepX = new ArrayList<Integer>();
+    for (int k : keep) {
+      keepX.add(k);
+    }
+
+    return PlotDecimator.decimate(values, v -> v[0],
+      v -> Double.isNaN(v[1]) ? null : v[1],
+      v -> keepX.contains((int) v[0]), threshold);
+  }
+
+  @Test
+  public void smallSeriesUnchangedTest() {
+    List<double[]> series = makeSeries(100);
+    assertSame(series, decimate(series, 100));
+  }
+
+  @Test
+  public void thresholdTest() {
+    List<double[]> series = makeSeries(10000);
+    List<double[]> decimated = decimate(series, 500);
+
+    assertEquals(500, decimated.size());
+    assertSame(series.get(0), decimated.get(0));
+    assertSame(series.get(9999), decimated.get(decimated.size() - 1));
+  }
+
+  @Test
+  public void orderPreservedTest() {
+    List<double[]> decimated = decimate(makeSeries(10000), 500);
+
+    for (int i = 1; i < decimated.size(); i++) {
+      assertTrue(decimated.get(i)[0] > decimated.get(i - 1)[0]);
+    }
+  }
+
+  @Test
+  public void keepFlaggedTest() {
+    List<double[]> decimated = decimate(makeSeries(10000), 100, 1001, 1002,
+      1003, 5555);
+
+    assertTrue(decimated.stream().anyMatch(v -> v[0] == 1001));
+    assertTrue(decimated.stream().anyMatch(v -> v[0] == 1002));
+    assertTrue(decimated.stream().anyMatch(v -> v[0] == 1003));
+    assertTrue(decimated.stream().anyMatch(v -> v[0] == 5555));
+  }
+
+  @Test
+  public void peakKeptTest() {
+    List<double[]> series = makeSeries(10000);
+    series.get(4321)[1] = 1000D;
+
+    List<double[]> decimated = decimate(series, 100);
+    assertTrue(decimated.stream().anyMatch(v -> v[0] == 4321));
+  }
+
+  @Test
+  public void missingYRemovedTest() {
+    List<double[]> series = makeSeries(10000);
+    series.get(20)[1] = Double.NaN;
+
+    List<double[]> decimated = decimate(series, 9990);
+    assertTrue(decimated.stream().noneMatch(v -> v[0] == 20));
+  }
+}
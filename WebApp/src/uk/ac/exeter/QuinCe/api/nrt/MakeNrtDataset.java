@@ -17,6 +17,7 @@ import uk.ac.exeter.QuinCe.data.Files.DataFileDB;
 import uk.ac.exeter.QuinCe.data.Instrument.Instrument;
 import uk.ac.exeter.QuinCe.data.Instrument.InstrumentDB;
 import uk.ac.exeter.QuinCe.jobs.JobManager;
+import uk.ac.exeter.QuinCe.jobs.JobRunScheduler;
 import uk.ac.exeter.QuinCe.jobs.files.CreateNrtDataset;
 import uk.ac.exeter.QuinCe.jobs.files.DataSetJob;
 import uk.ac.exeter.QuinCe.utils.DatabaseUtils;
@@ -91,6 +92,9 @@ public class MakeNrtDataset {
           response = Response.status(Status.FORBIDDEN).build();
         } else {
           if (createNrtDataset(conn, instrument)) {
+            // The connection is not in a transaction, so the job has been
+            // committed and can be started
+            JobRunScheduler.dispatch();
             response = Response.status(Status.OK).build();
           } else {
             response = Response.status(Status.NO_CONTENT).build();
@@ -110,6 +114,11 @@ public class MakeNrtDataset {
   /**
    * Attempt to create a NRT dataset for an instrument.
    *
+   * <p>
+   * The dataset is created by a {@link CreateNrtDataset} job. The caller must
+   * call {@link JobRunScheduler#dispatch()} once the job has been committed.
+   * </p>
+   *
    * @param conn
    *          A database connection.
    * @param instrument
@@ -7,6 +7,7 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -28,6 +29,11 @@ import uk.ac.exeter.QuinCe.utils.RecordNotFoundException;
  */
 public class CoordinateDB {
 
+  /**
+   * The number of coordinates inserted in each database batch.
+   */
+  private static final int BATCH_SIZE = 5000;
+
   private static final String STORE_ARGO_COORDINATE_STMT = "INSERT INTO coordinates "
     + "(dataset_id, date, cycle_number, nprof, direction, nlevel, pres, source_file) "
     + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
@@ -166,6 +172,10 @@ public class CoordinateDB {
   /**
    * Store the provided surface coordinates in the database.
    *
+   * <p>
+   * The coordinates are inserted in batches of {@link #BATCH_SIZE}.
+   * </p>
+   *
    * @param conn
    * @param coordinates
    * @throws DatabaseException
@@ -179,26 +189,35 @@ public class CoordinateDB {
       PreparedStatement stmt = conn.prepareStatement(STORE_TIME_COORDINATE_STMT,
         Statement.RETURN_GENERATED_KEYS)) {
 
+      List<Coordinate> batch = new ArrayList<Coordinate>(BATCH_SIZE);
+
       for (Coordinate coordinate : coordinates) {
         if (coordinate.getId() == DatabaseUtils.NO_DATABASE_RECORD) {
           stmt.setLong(1, coordinate.getDatasetId());
           stmt.setLong(2, DateTimeUtils.dateToLong(coordinate.getTime()));
+          stmt.addBatch();
+          batch.add(coordinate);
 
-          stmt.execute();
-
-          try (ResultSet keys = stmt.getGeneratedKeys()) {
-            keys.next();
-            coordinate.setId(keys.getLong(1));
+          if (batch.size() == BATCH_SIZE) {
+            storeBatch(stmt, batch);
           }
         }
       }
+
+      if (batch.size() > 0) {
+        storeBatch(stmt, batch);
+      }
     } catch (SQLException e) {
       throw new DatabaseException("Error while storing coordinates", e);
     }
   }
 
   /**
-   * Store the provided surface coordinates in the database
+   * Store the provided Argo coordinates in the database.
+   *
+   * <p>
+   * The coordinates are inserted in batches of {@link #BATCH_SIZE}.
+   * </p>
    *
    * @param conn
    * @param coordinates
@@ -213,6 +232,8 @@ public class CoordinateDB {
       PreparedStatement stmt = conn.prepareStatement(STORE_ARGO_COORDINATE_STMT,
         Statement.RETURN_GENERATED_KEYS)) {
 
+      List<Coordinate> batch = new ArrayList<Coordinate>(BATCH_SIZE);
+
       for (Coordinate coordinate : coordinates) {
         if (coordinate.getId() == DatabaseUtils.NO_DATABASE_RECORD) {
 
@@ -232,20 +253,51 @@ public class CoordinateDB {
           stmt.setLong(6, coord.getNLevel());
           stmt.setDouble(7, coord.getPres());
           stmt.setString(8, coord.getSourceFile());
+          stmt.addBatch();
+          batch.add(coordinate);
 
-          stmt.execute();
-
-          try (ResultSet keys = stmt.getGeneratedKeys()) {
-            keys.next();
-            coordinate.setId(keys.getLong(1));
+          if (batch.size() == BATCH_SIZE) {
+            storeBatch(stmt, batch);
           }
         }
       }
+
+      if (batch.size() > 0) {
+        storeBatch(stmt, batch);
+      }
     } catch (SQLException e) {
       throw new DatabaseException("Error while storing coordinates", e);
     }
   }
 
+  /**
+   * Execute a batch of coordinate inserts and set the coordinates' database IDs
+   * from the generated keys. The batch list is cleared once the coordinates
+   * have been stored.
+   *
+   * @param stmt
+   *          The insert statement containing the batch.
+   * @param batch
+   *          The coordinates in the batch, in the order they were added.
+   * @throws SQLException
+   *           If the batch cannot be executed.
+   * @throws DatabaseException
+   *           If the generated keys cannot be retrieved.
+   * @throws CoordinateException
+   *           If any of the coordinates already has a database ID.
+   */
+  private static void storeBatch(PreparedStatement stmt,
+    List<Coordinate> batch)
+    throws SQLException, DatabaseException, CoordinateException {
+
+    long[] keys = DatabaseUtils.executeInsertBatch(stmt, batch.size());
+    for (int i = 0; i < keys.length; i++) {
+      batch.get(i).setId(keys[i]);
+    }
+
+    batch.clear();
+  }
+
   /**
    * Retrieve the {@link Coordinates} of the {@link SensorValue}s in a
    * {@link DataSet}.
@@ -30,6 +30,18 @@ public class Calculators {
    * @return Kelvin temperature.
    */
   public static Double kelvin(Double celsius) {
+    return kelvin(celsius.doubleValue());
+  }
+
+  /**
+   * Convert a temperature in °C to °K without boxing.
+   *
+   * @param celsius
+   *          Celsius temperature.
+   * @return Kelvin temperature.
+   * @see #kelvin(Double)
+   */
+  public static double kelvin(double celsius) {
     return celsius + 273.15;
   }
 
@@ -41,6 +53,18 @@ public class Calculators {
    * @return Celsius temperature.
    */
   public static Double celsius(Double kelvin) {
+    return celsius(kelvin.doubleValue());
+  }
+
+  /**
+   * Convert a temperature in °K to °C without boxing.
+   *
+   * @param kelvin
+   *          Kelvin temperature.
+   * @return Celsius temperature.
+   * @see #celsius(Double)
+   */
+  public static double celsius(double kelvin) {
     return kelvin - 273.15;
   }
 
@@ -52,6 +76,18 @@ public class Calculators {
    * @return Pressure in atmospheres.
    */
   public static Double hPaToAtmospheres(Double hPa) {
+    return hPaToAtmospheres(hPa.doubleValue());
+  }
+
+  /**
+   * Convert a pressure in hPa it atmospheres without boxing.
+   *
+   * @param hPa
+   *          Pressure in hPa.
+   * @return Pressure in atmospheres.
+   * @see #hPaToAtmospheres(Double)
+   */
+  public static double hPaToAtmospheres(double hPa) {
     return hPa * 100 * PASCALS_TO_ATMOSPHERES;
   }
 
@@ -71,12 +107,34 @@ public class Calculators {
   public static Double calcfCO2(Double pco2, Double xCO2InGas, Double pressure,
     Double temperature) {
 
-    Double kelvin = Calculators.kelvin(temperature);
-    Double B = -1636.75 + 12.0408 * kelvin - 0.0327957 * Math.pow(kelvin, 2)
-      + (3.16528 * 1e-5) * Math.pow(kelvin, 3);
-    Double delta = 57.7 - 0.118 * kelvin;
+    return calcfCO2(pco2.doubleValue(), xCO2InGas.doubleValue(),
+      pressure.doubleValue(), temperature.doubleValue());
+  }
+
+  /**
+   * Converts pCO<sub>2</sub> to fCO<sub>2</sub> without boxing.
+   *
+   * @param pco2
+   *          pCO<sub>2</sub> at target temperature.
+   * @param xCO2InGas
+   *          The calibrated, dried xCO<sub>2</sub> value.
+   * @param pressure
+   *          The pressure in hPa.
+   * @param temperature
+   *          The temperature in °C
+   * @return The fCO<sub>2</sub> value.
+   * @see #calcfCO2(Double, Double, Double, Double)
+   */
+  public static double calcfCO2(double pco2, double xCO2InGas, double pressure,
+    double temperature) {
+
+    double kelvin = kelvin(temperature);
+    double B = -1636.75 + 12.0408 * kelvin - 0.0327957 * (kelvin * kelvin)
+      + (3.16528 * 1e-5) * (kelvin * kelvin * kelvin);
+    double delta = 57.7 - 0.118 * kelvin;
+    double xCO2Term = 1 - xCO2InGas * 1e-6;
 
-    return pco2 * Math.exp(((B + 2 * Math.pow(1 - xCO2InGas * 1e-6, 2) * delta)
+    return pco2 * Math.exp(((B + 2 * (xCO2Term * xCO2Term) * delta)
       * hPaToAtmospheres(pressure)) / (82.0575 * kelvin));
   }
 
@@ -94,6 +152,25 @@ public class Calculators {
    */
   public static Double calcpCO2TEWet(Double xCO2, Double pressure,
     Double pH2O) {
+    return calcpCO2TEWet(xCO2.doubleValue(), pressure.doubleValue(),
+      pH2O.doubleValue());
+  }
+
+  /**
+   * Calculates pCO<sub>2</sub> in water from xCO<sub>2</sub> measured in a gas
+   * analyser without boxing.
+   *
+   * @param xCO2
+   *          The dry, calibrated xCO<sub>2</sub> value.
+   * @param pressure
+   *          The pressure of equilibration.
+   * @param pH2O
+   *          The water vapour pressure.
+   * @return pCO<sub>2</sub> in water.
+   * @see #calcpCO2TEWet(Double, Double, Double)
+   */
+  public static double calcpCO2TEWet(double xCO2, double pressure,
+    double pH2O) {
     return xCO2 * (hPaToAtmospheres(pressure) - pH2O);
   }
 
@@ -110,7 +187,21 @@ public class Calculators {
    * @return The calculated pH<sub>2</sub>O value.
    */
   public static Double calcPH2O(Double salinity, Double temperature) {
-    double kelvin = Calculators.kelvin(temperature);
+    return calcPH2O(salinity.doubleValue(), temperature.doubleValue());
+  }
+
+  /**
+   * Calculates the water vapour pressure (pH<sub>2</sub>O) without boxing.
+   *
+   * @param salinity
+   *          Salinity.
+   * @param temperature
+   *          Temperature in °C.
+   * @return The calculated pH<sub>2</sub>O value.
+   * @see #calcPH2O(Double, Double)
+   */
+  public static double calcPH2O(double salinity, double temperature) {
+    double kelvin = kelvin(temperature);
     return Math.exp(24.4543 - 67.4509 * (100 / kelvin)
       - 4.8489 * Math.log(kelvin / 100) - 0.000544 * salinity);
   }
@@ -368,7 +459,25 @@ public class Calculators {
    */
   public static Double calcCO2AtSST(Double co2AtEquilibrator, Double eqt,
     Double sst) {
-    return co2AtEquilibrator
-      * Math.exp(0.0423 * (Calculators.kelvin(sst) - Calculators.kelvin(eqt)));
+    return calcCO2AtSST(co2AtEquilibrator.doubleValue(), eqt.doubleValue(),
+      sst.doubleValue());
+  }
+
+  /**
+   * Calculates pCO<sub>2</sub> at the water (sea surface) temperature without
+   * boxing.
+   *
+   * @param co2AtEquilibrator
+   *          The pCO<sub>2</sub> at equilibrator temperature.
+   * @param eqt
+   *          The equilibrator temperature.
+   * @param sst
+   *          The water temperature.
+   * @return The pCO<sub>2</sub> at water temperature.
+   * @see #calcCO2AtSST(Double, Double, Double)
+   */
+  public static double calcCO2AtSST(double co2AtEquilibrator, double eqt,
+    double sst) {
+    return co2AtEquilibrator * Math.exp(0.0423 * (kelvin(sst) - kelvin(eqt)));
   }
 }
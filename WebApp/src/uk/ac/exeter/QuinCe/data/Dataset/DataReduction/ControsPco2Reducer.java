@@ -286,7 +286,7 @@ public class ControsPco2Reducer extends DataReducer {
 
               fCO2 = Calculators.calcfCO2(bdPCO2SST.doubleValue(),
                 bdXCO2.doubleValue(), membranePressure.doubleValue(),
-                waterTemp);
+                waterTemp.doubleValue());
 
               // Make Double values for data reduction record
               zeroS2Beam = bdZeroS2Beam.doubleValue();
@@ -329,6 +329,16 @@ public class ControsPco2Reducer extends DataReducer {
     }
   }
 
+  /**
+   * The drift of the k coefficients is calculated over the whole dataset, and
+   * the zero signals are interpolated from the zero measurements throughout the
+   * dataset, so all measurements must be recalculated after any change.
+   */
+  @Override
+  public boolean usesWholeDataset() {
+    return true;
+  }
+
   @Override
   public List<CalculationParameter> getCalculationParameters() {
     if (null == calculationParameters) {
@@ -20,9 +20,11 @@ import uk.ac.exeter.QuinCe.data.Instrument.Instrument;
 import uk.ac.exeter.QuinCe.data.Instrument.Calibration.CalibrationSet;
 import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorAssignments;
 import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorType;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorsConfiguration;
 import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.Variable;
 import uk.ac.exeter.QuinCe.utils.ExceptionUtils;
 import uk.ac.exeter.QuinCe.utils.StringUtils;
+import uk.ac.exeter.QuinCe.web.system.ResourceManager;
 
 /**
  * A DataReducer will perform all data reduction calculations for a given
@@ -108,61 +110,97 @@ public abstract class DataReducer {
         variable, instrument.getFlagScheme(), getCalculationParameterNames());
 
       doCalculation(instrument, measurement, record, conn);
+      applyQC(instrument, measurement, record, allSensorValues);
 
-      Flag cascadeFlag = instrument.getFlagScheme().getGoodFlag();
-      LinkedHashMap<SensorType, List<String>> messages = new LinkedHashMap<SensorType, List<String>>();
-
-      // Apply QC flags to the data reduction records
-      for (SensorType sensorType : variable.getAllSensorTypes(true, true)) {
-
-        MeasurementValue value = measurement.getMeasurementValue(sensorType);
-
-        if (null != value && !value.isNull()) {
-          // Collect all QC messages together. Do not record the same message
-          // from multiple sources.
-          Flag valueFlag = variable.getCascade(value.getSensorType(),
-            instrument.getFlagScheme(), value.getQcFlag(allSensorValues),
-            instrument.getSensorAssignments());
-
-          /*
-           * If we got a NULL back, then the value's flag has no effect on the
-           * data reduction result. Otherwise, if the flag is not Good, we
-           * cascade it to the data reduction result (assuming it has more
-           * significance than any flag that's already been set).
-           */
-          if (null != valueFlag) {
-            if (!instrument.getFlagScheme().isGood(valueFlag, true)) {
-              if (valueFlag.moreSignificantThan(cascadeFlag)) {
-                cascadeFlag = valueFlag;
-              }
-
-              for (String qcMessage : value.getQcMessages()) {
-                if (!messages.containsKey(sensorType)) {
-                  messages.put(sensorType, new ArrayList<String>());
-                }
-                if (!messages.get(sensorType).contains(qcMessage)) {
-                  messages.get(sensorType).add(qcMessage);
-                }
-              }
-            }
-          }
-        }
+      return record;
+    } catch (Exception e) {
+      if (e instanceof DataReductionException) {
+        throw (DataReductionException) e;
+      } else {
+        throw new DataReductionException(e);
       }
+    }
+  }
 
-      List<String> qcMessages = new ArrayList<String>();
+  /**
+   * Perform the data reduction calculations for a block of {@link Measurement}s
+   * using the reducer's columnar calculations, and set the QC flags on the
+   * resulting {@link DataReductionRecord}s.
+   *
+   * <p>
+   * The input values for all the measurements are extracted into a
+   * {@link ReductionBlock} and passed to
+   * {@link #doColumnarCalculation(ReductionBlock)} in one go, so the
+   * calculations work on primitive {@code double} arrays instead of creating
+   * boxed values for every measurement. Measurements that are missing any of
+   * the {@link #getColumnarInputs()} values are passed to
+   * {@link #doCalculation(Instrument, Measurement, DataReductionRecord, Connection)}
+   * instead. The QC flags are set exactly as for
+   * {@link #performDataReduction(Instrument, Measurement, DatasetSensorValues, Connection)}.
+   * </p>
+   *
+   * <p>
+   * This method must only be called if {@link #supportsColumnarReduction()}
+   * returns {@code true}.
+   * </p>
+   *
+   * @param instrument
+   *          The {@link Instrument} that took the measurements.
+   * @param measurements
+   *          The {@link Measurement}s being processed.
+   * @param allSensorValues
+   *          The complete set of {@link SensorValue}s for the {@link DataSet}
+   *          being processed.
+   * @param conn
+   *          A database connection.
+   * @return The data reduction results, in the same order as the
+   *         measurements.
+   * @throws DataReductionException
+   *           If an error occurs during the calculations.
+   */
+  public List<DataReductionRecord> performColumnarDataReduction(
+    Instrument instrument, List<Measurement> measurements,
+    DatasetSensorValues allSensorValues, Connection conn)
+    throws DataReductionException {
+
+    try {
+      SensorsConfiguration sensorConfig = ResourceManager.getInstance()
+        .getSensorsConfiguration();
 
-      for (Map.Entry<SensorType, List<String>> entry : messages.entrySet()) {
-        StringBuilder builder = new StringBuilder();
-        builder.append(entry.getKey().getShortName());
-        builder.append(' ');
-        builder
-          .append(StringUtils.collectionToDelimited(entry.getValue(), ";"));
-        qcMessages.add(builder.toString());
+      List<SensorType> inputTypes = new ArrayList<SensorType>();
+      for (String input : getColumnarInputs()) {
+        inputTypes.add(sensorConfig.getSensorType(input));
       }
 
-      record.setQc(cascadeFlag, qcMessages);
+      List<String> parameterNames = getCalculationParameterNames();
 
-      return record;
+      ReductionBlock block = new ReductionBlock(measurements, inputTypes,
+        parameterNames);
+
+      doColumnarCalculation(block);
+
+      List<DataReductionRecord> records = new ArrayList<DataReductionRecord>(
+        block.size());
+
+      for (int i = 0; i < block.size(); i++) {
+        Measurement measurement = block.getMeasurement(i);
+
+        DataReductionRecord record = new DataReductionRecord(measurement,
+          variable, instrument.getFlagScheme(), parameterNames);
+
+        if (block.isComplete(i)) {
+          for (String parameter : parameterNames) {
+            record.put(parameter, block.getOutput(parameter)[i]);
+          }
+        } else {
+          doCalculation(instrument, measurement, record, conn);
+        }
+
+        applyQC(instrument, measurement, record, allSensorValues);
+        records.add(record);
+      }
+
+      return records;
     } catch (Exception e) {
       if (e instanceof DataReductionException) {
         throw (DataReductionException) e;
@@ -172,6 +210,80 @@ public abstract class DataReducer {
     }
   }
 
+  /**
+   * Set the QC flag on a {@link DataReductionRecord} from the QC flags of the
+   * {@link Measurement}'s source {@link SensorValue}s by applying the
+   * {@link Variable}'s flag cascade rules.
+   *
+   * @param instrument
+   *          The {@link Instrument} that took the measurement.
+   * @param measurement
+   *          The {@link Measurement} being processed.
+   * @param record
+   *          The data reduction record for the measurement.
+   * @param allSensorValues
+   *          The complete set of {@link SensorValue}s for the {@link DataSet}
+   *          being processed.
+   * @throws Exception
+   *           If the QC flags cannot be determined.
+   */
+  private void applyQC(Instrument instrument, Measurement measurement,
+    DataReductionRecord record, DatasetSensorValues allSensorValues)
+    throws Exception {
+
+    Flag cascadeFlag = instrument.getFlagScheme().getGoodFlag();
+    LinkedHashMap<SensorType, List<String>> messages = new LinkedHashMap<SensorType, List<String>>();
+
+    // Apply QC flags to the data reduction records
+    for (SensorType sensorType : variable.getAllSensorTypes(true, true)) {
+
+      MeasurementValue value = measurement.getMeasurementValue(sensorType);
+
+      if (null != value && !value.isNull()) {
+        // Collect all QC messages together. Do not record the same message
+        // from multiple sources.
+        Flag valueFlag = variable.getCascade(value.getSensorType(),
+          instrument.getFlagScheme(), value.getQcFlag(allSensorValues),
+          instrument.getSensorAssignments());
+
+        /*
+         * If we got a NULL back, then the value's flag has no effect on the
+         * data reduction result. Otherwise, if the flag is not Good, we cascade
+         * it to the data reduction result (assuming it has more significance
+         * than any flag that's already been set).
+         */
+        if (null != valueFlag) {
+          if (!instrument.getFlagScheme().isGood(valueFlag, true)) {
+            if (valueFlag.moreSignificantThan(cascadeFlag)) {
+              cascadeFlag = valueFlag;
+            }
+
+            for (String qcMessage : value.getQcMessages()) {
+              if (!messages.containsKey(sensorType)) {
+                messages.put(sensorType, new ArrayList<String>());
+              }
+              if (!messages.get(sensorType).contains(qcMessage)) {
+                messages.get(sensorType).add(qcMessage);
+              }
+            }
+          }
+        }
+      }
+    }
+
+    List<String> qcMessages = new ArrayList<String>();
+
+    for (Map.Entry<SensorType, List<String>> entry : messages.entrySet()) {
+      StringBuilder builder = new StringBuilder();
+      builder.append(entry.getKey().getShortName());
+      builder.append(' ');
+      builder.append(StringUtils.collectionToDelimited(entry.getValue(), ";"));
+      qcMessages.add(builder.toString());
+    }
+
+    record.setQc(cascadeFlag, qcMessages);
+  }
+
   /**
    * Perform the data reduction calculations for the supplied
    * {@link Measurement} and add the results to the supplied
@@ -192,6 +304,61 @@ public abstract class DataReducer {
     Measurement measurement, DataReductionRecord record, Connection conn)
     throws DataReductionException;
 
+  /**
+   * Indicates whether the reducer can process blocks of measurements using
+   * {@link #doColumnarCalculation(ReductionBlock)}.
+   *
+   * <p>
+   * The default implementation returns {@code false}. Reducers that return
+   * {@code true} must also implement {@link #getColumnarInputs()} and
+   * {@link #doColumnarCalculation(ReductionBlock)}, and the columnar
+   * calculations must give the same results as
+   * {@link #doCalculation(Instrument, Measurement, DataReductionRecord, Connection)}.
+   * </p>
+   *
+   * @return {@code true} if the reducer supports columnar reduction;
+   *         {@code false} if it does not.
+   */
+  public boolean supportsColumnarReduction() {
+    return false;
+  }
+
+  /**
+   * Get the names of the {@link SensorType}s whose values are required by
+   * {@link #doColumnarCalculation(ReductionBlock)}.
+   *
+   * <p>
+   * The default implementation returns an empty list.
+   * </p>
+   *
+   * @return The input {@link SensorType} names.
+   */
+  protected List<String> getColumnarInputs() {
+    return new ArrayList<String>();
+  }
+
+  /**
+   * Perform the data reduction calculations for all the measurements in a
+   * {@link ReductionBlock}, reading the input columns and writing the results
+   * to the output columns.
+   *
+   * <p>
+   * The default implementation throws an exception, since it should only be
+   * called for reducers where {@link #supportsColumnarReduction()} returns
+   * {@code true}.
+   * </p>
+   *
+   * @param block
+   *          The block of measurements.
+   * @throws DataReductionException
+   *           If any errors occur during calculation.
+   */
+  protected void doColumnarCalculation(ReductionBlock block)
+    throws DataReductionException {
+    throw new DataReductionException(
+      "Columnar reduction is not supported by " + getClass().getSimpleName());
+  }
+
   /**
    * Get the names of the calculation parameters generated by the reducer.
    *
@@ -309,4 +476,22 @@ public abstract class DataReducer {
     throws DataReductionException {
     // The default is to do nothing
   }
+
+  /**
+   * Indicates whether the reducer's calculations for each measurement depend on
+   * the complete set of measurements in the {@link DataSet}, or on the extent
+   * of the {@link DataSet}. If so, all measurements must be recalculated
+   * whenever any part of the {@link DataSet} changes.
+   *
+   * <p>
+   * The default implementation returns {@code false}.
+   * </p>
+   *
+   * @return {@code true} if the reducer needs to process the whole
+   *         {@link DataSet}; {@code false} if measurements can be processed
+   *         individually.
+   */
+  public boolean usesWholeDataset() {
+    return false;
+  }
 }
@@ -0,0 +1,181 @@
+package uk.ac.exeter.QuinCe.data.Dataset.DataReduction;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import uk.ac.exeter.QuinCe.data.Dataset.Measurement;
+import uk.ac.exeter.QuinCe.data.Dataset.MeasurementValue;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorType;
+
+/**
+ * A block of {@link Measurement}s laid out as columns of primitive
+ * {@code double} values for columnar data reduction.
+ *
+ * <p>
+ * Each input column holds the calculated values of one {@link SensorType} for
+ * all the measurements in the block, and each output column holds the values
+ * of one calculation parameter. All columns are aligned, so index {@code i} in
+ * every column refers to the {@code i}th measurement. Output columns are
+ * initialised to {@code NaN}.
+ * </p>
+ *
+ * <p>
+ * Measurements that do not have a value for every input {@link SensorType}
+ * are marked as incomplete. Their input values are {@code NaN}, and the
+ * columnar calculation results for them are ignored: they are processed
+ * individually by {@link DataReducer#doCalculation} instead so that they are
+ * handled in exactly the same way as before.
+ * </p>
+ *
+ * @see DataReducer#performColumnarDataReduction
+ */
+public class ReductionBlock {
+
+  /**
+   * The measurements in the block.
+   */
+  private final List<Measurement> measurements;
+
+  /**
+   * The input columns, keyed by {@link SensorType} name.
+   */
+  private final Map<String, double[]> inputs;
+
+  /**
+   * The output columns, keyed by calculation parameter name.
+   */
+  private final Map<String, double[]> outputs;
+
+  /**
+   * Indicates which measurements have values for all the input
+   * {@link SensorType}s.
+   */
+  private final boolean[] complete;
+
+  /**
+   * Build a block from the specified measurements.
+   *
+   * @param measurements
+   *          The measurements.
+   * @param inputTypes
+   *          The {@link SensorType}s to extract as input columns.
+   * @param outputNames
+   *          The names of the output columns.
+   */
+  protected ReductionBlock(List<Measurement> measurements,
+    Collection<SensorType> inputTypes, Collection<String> outputNames) {
+
+    this.measurements = measurements;
+    int size = measurements.size();
+
+    complete = new boolean[size];
+    Arrays.fill(complete, true);
+
+    inputs = new HashMap<String, double[]>();
+    for (SensorType sensorType : inputTypes) {
+      double[] column = new double[size];
+
+      for (int i = 0; i < size; i++) {
+        MeasurementValue value = measurements.get(i)
+          .getMeasurementValue(sensorType);
+
+        if (null == value || null == value.getCalculatedValue()) {
+          column[i] = Double.NaN;
+          complete[i] = false;
+        } else {
+          column[i] = value.getCalculatedValue();
+        }
+      }
+
+      inputs.put(sensorType.getShortName(), column);
+    }
+
+    outputs = new HashMap<String, double[]>();
+    for (String outputName : outputNames) {
+      double[] column = new double[size];
+      Arrays.fill(column, Double.NaN);
+      outputs.put(outputName, column);
+    }
+  }
+
+  /**
+   * Get the number of measurements in the block.
+   *
+   * @return The block size.
+   */
+  public int size() {
+    return measurements.size();
+  }
+
+  /**
+   * Get the measurement at the specified index.
+   *
+   * @param index
+   *          The index.
+   * @return The measurement.
+   */
+  public Measurement getMeasurement(int index) {
+    return measurements.get(index);
+  }
+
+  /**
+   * Determine whether or not the measurement at the specified index has
+   * values for all the input {@link SensorType}s.
+   *
+   * @param index
+   *          The index.
+   * @return {@code true} if all input values are present; {@code false}
+   *         otherwise.
+   */
+  public boolean isComplete(int index) {
+    return complete[index];
+  }
+
+  /**
+   * Get the input column for the specified {@link SensorType}.
+   *
+   * @param sensorType
+   *          The {@link SensorType} name.
+   * @return The column values.
+   * @throws DataReductionException
+   *           If the block does not contain the specified column.
+   */
+  public double[] getInput(String sensorType) throws DataReductionException {
+    double[] column = inputs.get(sensorType);
+    if (null == column) {
+      throw new DataReductionException(
+        "Unrecognised input column '" + sensorType + "'");
+    }
+    return column;
+  }
+
+  /**
+   * Get the output column for the specified calculation parameter.
+   *
+   * @param parameter
+   *          The calculation parameter name.
+   * @return The column values.
+   * @throws DataReductionException
+   *           If the block does not contain the specified column.
+   */
+  public double[] getOutput(String parameter) throws DataReductionException {
+    double[] column = outputs.get(parameter);
+    if (null == column) {
+      throw new DataReductionException(
+        "Unrecognised calculation parameter '" + parameter + "'");
+    }
+    return column;
+  }
+
+  /**
+   * Get the names of the output columns.
+   *
+   * @return The output column names.
+   */
+  protected Collection<String> getOutputNames() {
+    return outputs.keySet();
+  }
+}
@@ -29,6 +29,15 @@ public class SubCTechCO2AirReducer extends UnderwayMarinePco2Reducer {
     super(variable, properties, calculationCoefficients);
   }
 
+  /**
+   * This reducer has its own calculations, so it cannot use the columnar
+   * calculations of its parent class.
+   */
+  @Override
+  public boolean supportsColumnarReduction() {
+    return false;
+  }
+
   @Override
   public void doCalculation(Instrument instrument, Measurement measurement,
     DataReductionRecord record, Connection conn) throws DataReductionException {
@@ -2,6 +2,7 @@ package uk.ac.exeter.QuinCe.data.Dataset.DataReduction;
 
 import java.sql.Connection;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -82,6 +83,60 @@ public class UnderwayMarinePco2Reducer extends DataReducer {
     }
   }
 
+  @Override
+  public boolean supportsColumnarReduction() {
+    return true;
+  }
+
+  @Override
+  protected List<String> getColumnarInputs() {
+    return Arrays.asList("Water Temperature", "Salinity",
+      "Equilibrator Temperature", "Equilibrator Pressure", getXCO2Parameter());
+  }
+
+  /**
+   * Columnar equivalent of
+   * {@link #doCalculation(Instrument, Measurement, DataReductionRecord, Connection)}
+   * using the primitive {@link Calculators} methods.
+   */
+  @Override
+  protected void doColumnarCalculation(ReductionBlock block)
+    throws DataReductionException {
+
+    double[] waterTemperature = block.getInput("Water Temperature");
+    double[] salinity = block.getInput("Salinity");
+    double[] equilibratorTemperature = block
+      .getInput("Equilibrator Temperature");
+    double[] equilibratorPressure = block.getInput("Equilibrator Pressure");
+    double[] xCO2 = block.getInput(getXCO2Parameter());
+
+    double[] deltaT = block.getOutput("ΔT");
+    double[] pH2O = block.getOutput("pH₂O");
+    double[] pCo2TEWet = block.getOutput("pCO₂ TE Wet");
+    double[] fCo2TEWet = block.getOutput("fCO₂ TE Wet");
+    double[] pCO2SST = block.getOutput("pCO₂ SST");
+    double[] fCO2 = block.getOutput("fCO₂");
+
+    for (int i = 0; i < block.size(); i++) {
+      deltaT[i] = equilibratorTemperature[i] - waterTemperature[i];
+
+      // If the ΔT is really large, we don't calculate any other values. The
+      // outputs are left as NaN.
+      if (Math.abs(deltaT[i]) < 100D) {
+        pH2O[i] = Calculators.calcPH2O(salinity[i],
+          equilibratorTemperature[i]);
+        pCo2TEWet[i] = Calculators.calcpCO2TEWet(xCO2[i],
+          equilibratorPressure[i], pH2O[i]);
+        fCo2TEWet[i] = Calculators.calcfCO2(pCo2TEWet[i], xCO2[i],
+          equilibratorPressure[i], equilibratorTemperature[i]);
+        pCO2SST[i] = Calculators.calcCO2AtSST(pCo2TEWet[i],
+          equilibratorTemperature[i], waterTemperature[i]);
+        fCO2[i] = Calculators.calcCO2AtSST(fCo2TEWet[i],
+          equilibratorTemperature[i], waterTemperature[i]);
+      }
+    }
+  }
+
   @Override
   public List<CalculationParameter> getCalculationParameters() {
     if (null == calculationParameters) {
@@ -0,0 +1,191 @@
+package uk.ac.exeter.QuinCe.data.Dataset;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.DataReductionRecord;
+import uk.ac.exeter.QuinCe.utils.DatabaseException;
+import uk.ac.exeter.QuinCe.utils.MissingParam;
+import uk.ac.exeter.QuinCe.utils.MissingParamException;
+
+/**
+ * Writes {@link DataReductionRecord}s to the database as they are produced.
+ *
+ * <p>
+ * Records are held in a buffer until it contains {@code batchSize} records,
+ * at which point they are written using
+ * {@link DataSetDataDB#storeDataReduction(Connection, java.util.Collection)}
+ * and released. This means that the memory used by the writer does not depend
+ * on the size of the dataset being processed.
+ * </p>
+ *
+ * <p>
+ * The supplied {@link Connection} must have {@code autoCommit == false}. All
+ * records are written within the caller's transaction, so rolling back the
+ * transaction removes everything written by this object. The caller must call
+ * {@link #close()} once all records have been added, and before the
+ * transaction is committed or rolled back.
+ * </p>
+ *
+ * <p>
+ * The writer may only be used by the thread that created it, so the
+ * {@link Connection} is never used by any other thread. Records produced on
+ * other threads must be passed back to the creating thread to be written. Any
+ * attempt to use the writer from another thread, or after it has been closed,
+ * fails with a {@link DatabaseException}.
+ * </p>
+ */
+public class DataReductionRecordWriter {
+
+  /**
+   * The database connection.
+   */
+  private final Connection conn;
+
+  /**
+   * The number of records to hold before writing them to the database.
+   */
+  private final int batchSize;
+
+  /**
+   * Records that have been added but not yet written.
+   */
+  private List<DataReductionRecord> buffer;
+
+  /**
+   * The number of records written to the database so far.
+   */
+  private int writtenCount = 0;
+
+  /**
+   * The thread that created the writer. Only this thread may use it.
+   */
+  private final Thread owner;
+
+  /**
+   * Indicates whether the writer has been closed.
+   */
+  private boolean closed = false;
+
+  /**
+   * Create a writer that uses the default batch size of
+   * {@link DataSetDataDB#BATCH_SIZE}.
+   *
+   * @param conn
+   *          A database connection.
+   * @throws MissingParamException
+   *           If the connection is missing.
+   * @throws DatabaseException
+   *           If the connection has {@code autoCommit} enabled.
+   */
+  public DataReductionRecordWriter(Connection conn)
+    throws MissingParamException, DatabaseException {
+    this(conn, DataSetDataDB.BATCH_SIZE);
+  }
+
+  /**
+   * Create a writer with a specified batch size.
+   *
+   * @param conn
+   *          A database connection.
+   * @param batchSize
+   *          The number of records to hold before writing them.
+   * @throws MissingParamException
+   *           If the connection is missing.
+   * @throws DatabaseException
+   *           If the connection has {@code autoCommit} enabled.
+   */
+  public DataReductionRecordWriter(Connection conn, int batchSize)
+    throws MissingParamException, DatabaseException {
+
+    MissingParam.checkMissing(conn, "conn");
+    MissingParam.checkPositive(batchSize, "batchSize");
+
+    try {
+      if (conn.getAutoCommit()) {
+        throw new DatabaseException("Connection must be autoCommit=false");
+      }
+    } catch (SQLException e) {
+      throw new DatabaseException("Error checking connection state", e);
+    }
+
+    this.conn = conn;
+    this.batchSize = batchSize;
+    this.buffer = new ArrayList<DataReductionRecord>(batchSize);
+    this.owner = Thread.currentThread();
+  }
+
+  /**
+   * Add a record to the writer. If the buffer is full, all the buffered
+   * records are written to the database.
+   *
+   * @param record
+   *          The record.
+   * @throws DatabaseException
+   *           If the records cannot be written, or the writer cannot be used.
+   */
+  public void add(DataReductionRecord record) throws DatabaseException {
+    checkUsable();
+    buffer.add(record);
+    if (buffer.size() >= batchSize) {
+      flush();
+    }
+  }
+
+  /**
+   * Write all buffered records to the database.
+   *
+   * @throws DatabaseException
+   *           If the records cannot be written, or the writer cannot be used.
+   */
+  public void flush() throws DatabaseException {
+    checkUsable();
+    if (buffer.size() > 0) {
+      DataSetDataDB.storeDataReduction(conn, buffer);
+      writtenCount += buffer.size();
+      buffer = new ArrayList<DataReductionRecord>(batchSize);
+    }
+  }
+
+  /**
+   * Write all buffered records to the database and close the writer. Any
+   * further attempt to add or write records will fail.
+   *
+   * @throws DatabaseException
+   *           If the records cannot be written, or the writer cannot be used.
+   */
+  public void close() throws DatabaseException {
+    flush();
+    closed = true;
+  }
+
+  /**
+   * Get the number of records written to the database so far. Records that
+   * are still in the buffer are not included.
+   *
+   * @return The number of records written.
+   */
+  public int getWrittenCount() {
+    return writtenCount;
+  }
+
+  /**
+   * Check that the writer is being used by the thread that created it, and
+   * that it has not been closed.
+   *
+   * @throws DatabaseException
+   *           If the writer cannot be used.
+   */
+  private void checkUsable() throws DatabaseException {
+    if (closed) {
+      throw new DatabaseException("DataReductionRecordWriter has been closed");
+    }
+
+    if (Thread.currentThread() != owner) {
+      throw new DatabaseException(
+        "DataReductionRecordWriter used from a different thread");
+    }
+  }
+}
@@ -1286,6 +1286,7 @@ public class DataSetDB {
           setLastNrtStmt.setLong(2, dataset.getInstrumentId());
 
           setLastNrtStmt.execute();
+          InstrumentDB.invalidateInstrument(dataset.getInstrumentId());
         }
       }
     } catch (SQLException e) {
@@ -8,10 +8,12 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -40,6 +42,7 @@ import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorsConfiguration
 import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.Variable;
 import uk.ac.exeter.QuinCe.utils.DatabaseException;
 import uk.ac.exeter.QuinCe.utils.DatabaseUtils;
+import uk.ac.exeter.QuinCe.utils.DateTimeUtils;
 import uk.ac.exeter.QuinCe.utils.MissingParam;
 import uk.ac.exeter.QuinCe.utils.MissingParamException;
 import uk.ac.exeter.QuinCe.utils.RecordNotFoundException;
@@ -160,11 +163,32 @@ public class DataSetDataDB {
     + "measurements WHERE coordinate_id IN "
     + "(SELECT id FROM coordinates WHERE dataset_id = ?)";
 
+  private static final String DELETE_MEASUREMENT_DATA_REDUCTION_STATEMENT = "DELETE FROM "
+    + "data_reduction WHERE measurement_id = ?";
+
+  private static final String DELETE_MEASUREMENT_RUN_TYPE_STATEMENT = "DELETE FROM "
+    + "measurement_run_types WHERE measurement_id = ?";
+
+  private static final String DELETE_MEASUREMENT_STATEMENT = "DELETE FROM "
+    + "measurements WHERE id = ?";
+
+  private static final String GET_MEASUREMENT_TIMES_QUERY = "SELECT "
+    + "m.id, c.date FROM measurements m INNER JOIN coordinates c ON m.coordinate_id = c.id "
+    + "WHERE c.dataset_id = ? ORDER BY c.date ASC, m.id ASC";
+
   private static final String GET_REQUIRED_FLAGS_QUERY = "SELECT "
     + "COUNT(*) FROM sensor_values sv INNER JOIN coordinates c ON sv.coordinate_id = c.id "
     + "WHERE c.dataset_id = ? AND sv.user_qc_flag = '"
     + FlagScheme.NEEDED_FLAG.getValue() + "'";
 
+  private static final String GET_SENSOR_VALUE_COUNT_QUERY = "SELECT "
+    + "COUNT(*) FROM sensor_values sv INNER JOIN coordinates c ON sv.coordinate_id = c.id "
+    + "WHERE c.dataset_id = ?";
+
+  private static final String GET_LAST_SENSOR_VALUE_TIME_QUERY = "SELECT "
+    + "MAX(c.date) FROM sensor_values sv INNER JOIN coordinates c ON sv.coordinate_id = c.id "
+    + "WHERE c.dataset_id = ?";
+
   private static final String GET_DATA_REDUCTION_QUERY = "SELECT "
     + "dr.measurement_id, dr.variable_id, dr.calculation_values, "
     + "dr.qc_flag, dr.qc_message FROM data_reduction dr "
@@ -210,6 +234,12 @@ public class DataSetDataDB {
   private static final String UPDATE_MEASUREMENT_COORDINATE_STATEMENT = "UPDATE "
     + "measurements SET coordinate_id = ? WHERE id = ?";
 
+  /**
+   * The maximum number of statements sent to the database in a single JDBC
+   * batch.
+   */
+  protected static final int BATCH_SIZE = 5000;
+
   /**
    * Take a list of fields, and return those which come from the dataset data.
    * Any others will come from calculation data and will be left alone.
@@ -326,7 +356,9 @@ public class DataSetDataDB {
    * with the generated key. After the coordinates have been stored, the
    * {@link SensorValue}s will be processed. If a {@link SensorValue} has a
    * database ID, it will be updated. Otherwise it will be stored as a new
-   * record, and its ID set to the generated key.
+   * record, and its ID set to the generated key. New records are inserted in
+   * batches of {@link #BATCH_SIZE}, and the generated keys for each batch are
+   * read back together.
    * </p>
    *
    * <p>
@@ -338,18 +370,20 @@ public class DataSetDataDB {
    *          A database connection.
    * @param sensorValues
    *          The sensor values.
+   * @return The number of values stored.
    * @throws Exception
    * @throws MissingParamException
    *           If any required parameters are missing.
    */
-  public static void storeNewSensorValues(Connection conn,
+  public static int storeNewSensorValues(Connection conn,
     NewSensorValues sensorValues) throws Exception {
 
     MissingParam.checkMissing(conn, "conn");
     MissingParam.checkMissing(sensorValues, "sensorValues");
 
     PreparedStatement addStmt = null;
-    ResultSet generatedKeys;
+    List<SensorValue> batch = new ArrayList<SensorValue>(BATCH_SIZE);
+    int stored = 0;
 
     try {
       if (conn.getAutoCommit()) {
@@ -417,19 +451,23 @@ public class DataSetDataDB {
             addStmt.setString(3, value.getValue());
           }
 
-          addStmt.setString(4, value.getAutoQcResult().toJson());
+          addStmt.setString(4, value.getAutoQcResult().encode());
           addStmt.setInt(5, value.getUserQCFlag().getValue());
           addStmt.setString(6, value.getUserQCMessage());
 
-          addStmt.execute();
+          addStmt.addBatch();
+          batch.add(value);
 
-          generatedKeys = addStmt.getGeneratedKeys();
-          if (generatedKeys.next()) {
-            value.setId(generatedKeys.getLong(1));
+          if (batch.size() == BATCH_SIZE) {
+            stored += storeSensorValueBatch(addStmt, batch);
           }
         }
       }
 
+      if (batch.size() > 0) {
+        stored += storeSensorValueBatch(addStmt, batch);
+      }
+
       DatabaseUtils.closeStatements(addStmt);
     } catch (SQLException e) {
       throw new DatabaseException("Error storing sensor values", e);
@@ -439,6 +477,38 @@ public class DataSetDataDB {
     }
 
     sensorValues.clearDirtyFlags();
+    return stored;
+  }
+
+  /**
+   * Execute a batch of new {@link SensorValue} inserts and set the values'
+   * database IDs from the generated keys. The batch list is cleared once the
+   * values have been stored.
+   *
+   * @param addStmt
+   *          The insert statement containing the batch.
+   * @param batch
+   *          The values in the batch, in the order they were added.
+   * @return The number of values stored.
+   * @throws SQLException
+   *           If the batch cannot be executed.
+   * @throws DatabaseException
+   *           If the generated keys cannot be retrieved.
+   * @throws IllegalAccessException
+   *           If any of the values already has a database ID.
+   */
+  private static int storeSensorValueBatch(PreparedStatement addStmt,
+    List<SensorValue> batch)
+    throws SQLException, DatabaseException, IllegalAccessException {
+
+    long[] keys = DatabaseUtils.executeInsertBatch(addStmt, batch.size());
+    for (int i = 0; i < keys.length; i++) {
+      batch.get(i).setId(keys[i]);
+    }
+
+    int count = batch.size();
+    batch.clear();
+    return count;
   }
 
   /**
@@ -526,7 +596,7 @@ public class DataSetDataDB {
         }
 
         if (value.isDirty()) {
-          updateStmt.setString(1, value.getAutoQcResult().toJson());
+          updateStmt.setString(1, value.getAutoQcResult().encode());
           updateStmt.setInt(2, value.getUserQCFlag().getValue());
 
           // Truncate user QC message (except for LOOKUP flags)
@@ -765,7 +835,7 @@ public class DataSetDataDB {
     long coordinateId = record.getLong(2);
     long fileColumnId = record.getLong(3);
     String value = record.getString(4);
-    AutoQCResult autoQC = AutoQCResult.buildFromJson(record.getString(5),
+    AutoQCResult autoQC = AutoQCResult.decode(record.getString(5),
       flagScheme);
     Flag userQCFlag = flagScheme.getFlag(record.getInt(6));
     String userQCMessage = record.getString(7);
@@ -1151,6 +1221,107 @@ public class DataSetDataDB {
     }
   }
 
+  /**
+   * Remove a set of measurements and their details from the database.
+   *
+   * <p>
+   * The deletions are sent to the database in batches of {@link #BATCH_SIZE}
+   * statements.
+   * </p>
+   *
+   * @param conn
+   *          A database connection
+   * @param measurementIds
+   *          The database IDs of the measurements to be removed
+   * @throws DatabaseException
+   *           If a database error occurs
+   * @throws MissingParamException
+   *           If any required parameters are missing
+   */
+  public static void deleteMeasurements(Connection conn,
+    List<Long> measurementIds) throws MissingParamException, DatabaseException {
+
+    MissingParam.checkMissing(conn, "conn");
+    MissingParam.checkMissing(measurementIds, "measurementIds", true);
+
+    try (
+      PreparedStatement delDataReductionStmt = conn
+        .prepareStatement(DELETE_MEASUREMENT_DATA_REDUCTION_STATEMENT);
+      PreparedStatement delRunTypesStmt = conn
+        .prepareStatement(DELETE_MEASUREMENT_RUN_TYPE_STATEMENT);
+      PreparedStatement delMeasurementsStmt = conn
+        .prepareStatement(DELETE_MEASUREMENT_STATEMENT);) {
+
+      int batchCount = 0;
+
+      for (long id : measurementIds) {
+        delDataReductionStmt.setLong(1, id);
+        delDataReductionStmt.addBatch();
+        delRunTypesStmt.setLong(1, id);
+        delRunTypesStmt.addBatch();
+        delMeasurementsStmt.setLong(1, id);
+        delMeasurementsStmt.addBatch();
+        batchCount++;
+
+        if (batchCount == BATCH_SIZE) {
+          delDataReductionStmt.executeBatch();
+          delRunTypesStmt.executeBatch();
+          delMeasurementsStmt.executeBatch();
+          batchCount = 0;
+        }
+      }
+
+      if (batchCount > 0) {
+        delDataReductionStmt.executeBatch();
+        delRunTypesStmt.executeBatch();
+        delMeasurementsStmt.executeBatch();
+      }
+    } catch (SQLException e) {
+      throw new DatabaseException("Error while deleting measurements", e);
+    }
+  }
+
+  /**
+   * Get the database IDs and times of all the measurements in a dataset,
+   * ordered by time. Measurements with the same time are ordered by ID.
+   *
+   * @param conn
+   *          A database connection
+   * @param datasetId
+   *          The database ID of the dataset
+   * @return The measurement times, keyed by measurement ID
+   * @throws DatabaseException
+   *           If a database error occurs
+   * @throws MissingParamException
+   *           If any required parameters are missing
+   */
+  public static LinkedHashMap<Long, LocalDateTime> getMeasurementTimes(
+    Connection conn, long datasetId)
+    throws MissingParamException, DatabaseException {
+
+    MissingParam.checkMissing(conn, "conn");
+    MissingParam.checkDatabaseId(datasetId, "datasetId", false);
+
+    LinkedHashMap<Long, LocalDateTime> result = new LinkedHashMap<Long, LocalDateTime>();
+
+    try (PreparedStatement stmt = conn
+      .prepareStatement(GET_MEASUREMENT_TIMES_QUERY)) {
+
+      stmt.setLong(1, datasetId);
+
+      try (ResultSet records = stmt.executeQuery()) {
+        while (records.next()) {
+          result.put(records.getLong(1),
+            DateTimeUtils.longToDate(records.getLong(2)));
+        }
+      }
+    } catch (SQLException e) {
+      throw new DatabaseException("Error while getting measurement times", e);
+    }
+
+    return result;
+  }
+
   public static int getFlagsRequired(DataSource dataSource, long datasetId)
     throws MissingParamException, DatabaseException {
 
@@ -1176,6 +1347,90 @@ public class DataSetDataDB {
     return result;
   }
 
+  /**
+   * Get the number of {@link SensorValue}s stored for a dataset.
+   *
+   * @param dataSource
+   *          A data source.
+   * @param datasetId
+   *          The dataset ID.
+   * @return The number of sensor values.
+   * @throws MissingParamException
+   *           If any required parameters are missing.
+   * @throws DatabaseException
+   *           If a database error occurs.
+   */
+  public static long getSensorValueCount(DataSource dataSource, long datasetId)
+    throws MissingParamException, DatabaseException {
+
+    MissingParam.checkMissing(dataSource, "dataSource");
+    MissingParam.checkDatabaseId(datasetId, "dataSetId", false);
+
+    long result = 0;
+
+    try (Connection conn = dataSource.getConnection();
+      PreparedStatement stmt = conn
+        .prepareStatement(GET_SENSOR_VALUE_COUNT_QUERY);) {
+
+      stmt.setLong(1, datasetId);
+
+      try (ResultSet records = stmt.executeQuery();) {
+        records.next();
+        result = records.getLong(1);
+      }
+    } catch (SQLException e) {
+      throw new DatabaseException("Error while counting sensor values", e);
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the time of the latest {@link SensorValue} in a dataset.
+   *
+   * <p>
+   * Only meaningful for datasets whose {@link Coordinate}s are time based.
+   * </p>
+   *
+   * @param conn
+   *          A database connection.
+   * @param datasetId
+   *          The dataset's database ID.
+   * @return The time of the latest {@link SensorValue}, or {@code null} if the
+   *         dataset has no {@link SensorValue}s.
+   * @throws MissingParamException
+   *           If any required parameters are missing.
+   * @throws DatabaseException
+   *           If a database error occurs.
+   */
+  public static LocalDateTime getLastSensorValueTime(Connection conn,
+    long datasetId) throws MissingParamException, DatabaseException {
+
+    MissingParam.checkMissing(conn, "conn");
+    MissingParam.checkDatabaseId(datasetId, "dataSetId", false);
+
+    LocalDateTime result = null;
+
+    try (PreparedStatement stmt = conn
+      .prepareStatement(GET_LAST_SENSOR_VALUE_TIME_QUERY)) {
+
+      stmt.setLong(1, datasetId);
+
+      try (ResultSet records = stmt.executeQuery()) {
+        records.next();
+        long lastTime = records.getLong(1);
+        if (!records.wasNull()) {
+          result = DateTimeUtils.longToDate(lastTime);
+        }
+      }
+    } catch (SQLException e) {
+      throw new DatabaseException("Error while getting last sensor value time",
+        e);
+    }
+
+    return result;
+  }
+
   /**
    * Determine whether or not calibration is required for a dataset prior to
    * setting its status.
@@ -1354,26 +1609,60 @@ public class DataSetDataDB {
     }
   }
 
-  public static void storeMeasurementValues(Connection conn,
+  /**
+   * Store the {@link MeasurementValue}s for a set of {@link Measurement}s.
+   *
+   * <p>
+   * The updates are sent to the database in batches of {@link #BATCH_SIZE}
+   * statements.
+   * </p>
+   *
+   * @param conn
+   *          A database connection.
+   * @param measurements
+   *          The measurements whose values are to be stored.
+   * @return The number of measurements written.
+   * @throws MissingParamException
+   *           If any required parameters are missing.
+   * @throws DatabaseException
+   *           If a database error occurs.
+   */
+  public static int storeMeasurementValues(Connection conn,
     Collection<Measurement> measurements)
     throws MissingParamException, DatabaseException {
 
     MissingParam.checkMissing(conn, "conn");
     MissingParam.checkMissing(measurements, "measurements", true);
 
+    int written = 0;
+
     try (PreparedStatement stmt = conn
       .prepareStatement(STORE_MEASUREMENT_VALUES_STATEMENT)) {
 
+      int batchCount = 0;
+
       for (Measurement measurement : measurements) {
         stmt.setString(1, measurement.getMeasurementValuesJson());
         stmt.setLong(2, measurement.getId());
         stmt.addBatch();
+        batchCount++;
+
+        if (batchCount == BATCH_SIZE) {
+          stmt.executeBatch();
+          written += batchCount;
+          batchCount = 0;
+        }
       }
 
-      stmt.executeBatch();
+      if (batchCount > 0) {
+        stmt.executeBatch();
+        written += batchCount;
+      }
     } catch (SQLException e) {
       throw new DatabaseException("Error while storing measurement values", e);
     }
+
+    return written;
   }
 
   public static void deleteDataReduction(Connection conn, long datasetId)
@@ -1527,6 +1816,81 @@ public class DataSetDataDB {
       throw new DatabaseException("Error updating measurement coordinate", e);
     }
   }
+
+  /**
+   * Update the {@link Coordinate}s for a set of {@link Measurement}s in the
+   * database.
+   *
+   * <p>
+   * Any {@link Coordinate}s that are not yet in the database are stored first
+   * (see {@link CoordinateDB#saveCoordinates(Connection, Collection)}). The
+   * measurement records are then updated in batches of {@link #BATCH_SIZE}
+   * statements.
+   * </p>
+   *
+   * @param conn
+   *          A database connection.
+   * @param measurements
+   *          The measurements whose coordinates are to be updated.
+   * @return The number of measurements updated.
+   * @throws MissingParamException
+   *           If any required parameters are missing.
+   * @throws DatabaseException
+   *           If a database error occurs.
+   * @throws CoordinateException
+   *           If any of the coordinates are invalid.
+   * @throws RecordNotFoundException
+   *           If the measurements' dataset does not exist.
+   * @see #updateMeasurementCoordinate(Connection, Measurement)
+   */
+  public static int updateMeasurementCoordinates(Connection conn,
+    Collection<Measurement> measurements) throws MissingParamException,
+    DatabaseException, CoordinateException, RecordNotFoundException {
+
+    MissingParam.checkMissing(conn, "conn");
+    MissingParam.checkMissing(measurements, "measurements", true);
+
+    int written = 0;
+
+    if (measurements.size() > 0) {
+      List<Coordinate> newCoordinates = measurements.stream()
+        .map(m -> m.getCoordinate()).filter(c -> !c.isInDatabase()).toList();
+
+      if (newCoordinates.size() > 0) {
+        CoordinateDB.saveCoordinates(conn, newCoordinates);
+      }
+
+      try (PreparedStatement stmt = conn
+        .prepareStatement(UPDATE_MEASUREMENT_COORDINATE_STATEMENT)) {
+
+        int batchCount = 0;
+
+        for (Measurement measurement : measurements) {
+          stmt.setLong(1, measurement.getCoordinate().getId());
+          stmt.setLong(2, measurement.getId());
+          stmt.addBatch();
+          batchCount++;
+
+          if (batchCount == BATCH_SIZE) {
+            stmt.executeBatch();
+            written += batchCount;
+            batchCount = 0;
+          }
+        }
+
+        if (batchCount > 0) {
+          stmt.executeBatch();
+          written += batchCount;
+        }
+      } catch (SQLException e) {
+        throw new DatabaseException("Error updating measurement coordinates",
+          e);
+      }
+    }
+
+    return written;
+  }
+
 }
 
 class DatasetColumn {
@@ -71,19 +71,24 @@ public class DatasetSensorValues {
 
   /**
    * Cache of all the {@link Coordinate}s in the {@link DataSet}.
+   *
+   * <p>
+   * This and the other {@link Coordinate} caches are built in full before they
+   * are assigned, so objects shared between threads can build them on demand.
+   * </p>
    */
-  private List<Coordinate> coordinatesCache = null;
+  private volatile List<Coordinate> coordinatesCache = null;
 
   /**
    * Cache of all the position value (i.e. after interpolation)
    * {@link Coordinate}s in the {@link DataSet}.
    */
-  private List<Coordinate> positionValueCoordinatesCache = null;
+  private volatile List<Coordinate> positionValueCoordinatesCache = null;
 
   /**
    * Cache of all the raw position {@link Coordinate}s in the {@link DataSet}.
    */
-  private List<Coordinate> rawPositionCoordinatesCache = null;
+  private volatile List<Coordinate> rawPositionCoordinatesCache = null;
 
   /**
    * A special {@link Map} key used to indicate a summed total of flag values.
@@ -107,6 +112,18 @@ public class DatasetSensorValues {
    */
   private TreeSet<Long> optionalColumns = new TreeSet<Long>();
 
+  /**
+   * The IDs of the {@link SensorValue}s that this object has copied from the
+   * object it was copied from.
+   *
+   * <p>
+   * This is {@code null} unless the object was created by {@link #makeCopy()}.
+   * </p>
+   *
+   * @see #getForUpdate(SensorValue)
+   */
+  private Set<Long> copiedValueIds = null;
+
   /**
    * Initialise an empty instance for a {@link DataSet}.
    *
@@ -181,6 +198,149 @@ public class DatasetSensorValues {
     }
   }
 
+  /**
+   * Create a copy of an existing object that shares its {@link SensorValue}s.
+   *
+   * @param source
+   *          The source object.
+   * @throws RecordNotFoundException
+   *           If the {@link Instrument} configuration is invalid.
+   * @see #makeCopy()
+   */
+  private DatasetSensorValues(DatasetSensorValues source)
+    throws RecordNotFoundException {
+
+    this.dataset = source.dataset;
+    valuesById = new HashMap<Long, SensorValue>(source.valuesById);
+    valuesByColumn = new HashMap<Long, SensorValuesList>();
+
+    for (Map.Entry<Long, SensorValuesList> entry : source.valuesByColumn
+      .entrySet()) {
+      valuesByColumn.put(entry.getKey(),
+        copyList(entry.getKey(), entry.getValue()));
+    }
+
+    longitudes = copyList(SensorType.LONGITUDE_ID, source.longitudes);
+    latitudes = copyList(SensorType.LATITUDE_ID, source.latitudes);
+    depths = copyList(SensorType.DEPTH_ID, source.depths);
+    optionalColumns = new TreeSet<Long>(source.optionalColumns);
+
+    // The coordinates are the same, so the caches can be shared
+    coordinatesCache = source.coordinatesCache;
+    positionValueCoordinatesCache = source.positionValueCoordinatesCache;
+    rawPositionCoordinatesCache = source.rawPositionCoordinatesCache;
+
+    copiedValueIds = new HashSet<Long>();
+  }
+
+  /**
+   * Make a copy of this object that can be modified without affecting this
+   * one.
+   *
+   * <p>
+   * The copy starts with the same {@link SensorValue} objects as this object,
+   * so it can be made quickly without copying every value. Values must be
+   * retrieved from the copy using {@link #getForUpdate(SensorValue)} before
+   * they are changed, which replaces them with copies of their own.
+   * </p>
+   *
+   * @return The copy.
+   * @throws RecordNotFoundException
+   *           If the {@link Instrument} configuration is invalid.
+   */
+  public DatasetSensorValues makeCopy() throws RecordNotFoundException {
+    return new DatasetSensorValues(this);
+  }
+
+  /**
+   * Copy a {@link SensorValuesList} for {@link #makeCopy()}.
+   *
+   * @param columnId
+   *          The list's column ID.
+   * @param source
+   *          The source list. May be {@code null}.
+   * @return The copied list, or {@code null} if the source list is
+   *         {@code null}.
+   * @throws RecordNotFoundException
+   *           If the {@link Instrument} configuration is invalid.
+   */
+  private SensorValuesList copyList(long columnId, SensorValuesList source)
+    throws RecordNotFoundException {
+
+    SensorValuesList result = null;
+
+    if (null != source) {
+      result = SensorValuesListFactory.makeSensorValuesList(columnId, this,
+        false);
+      result.copyValues(source);
+    }
+
+    return result;
+  }
+
+  /**
+   * Get a {@link SensorValue} so that it can be modified.
+   *
+   * <p>
+   * If this object was created by {@link #makeCopy()}, the value may also be
+   * used by the object it was copied from. In that case the value is replaced
+   * by a copy the first time it is requested, and the copy is returned. Values
+   * that have already been copied, and the values of objects that were not
+   * created by {@link #makeCopy()}, are returned as they are.
+   * </p>
+   *
+   * @param value
+   *          The value to be modified. May be {@code null}.
+   * @return The value from this object that can be modified.
+   */
+  public SensorValue getForUpdate(SensorValue value) {
+    SensorValue result = value;
+
+    if (null != copiedValueIds && null != value) {
+      SensorValue current = valuesById.get(value.getId());
+
+      if (null != current) {
+        if (copiedValueIds.add(current.getId())) {
+          result = (SensorValue) current.clone();
+          valuesById.put(result.getId(), result);
+
+          SensorValuesList list = getList(result.getColumnId());
+          if (null != list) {
+            list.replace(result);
+          }
+        } else {
+          result = current;
+        }
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the {@link SensorValuesList} that holds the values for the specified
+   * column.
+   *
+   * @param columnId
+   *          The column ID.
+   * @return The list, or {@code null} if there are no values for the column.
+   */
+  private SensorValuesList getList(long columnId) {
+    SensorValuesList result;
+
+    if (columnId == SensorType.LONGITUDE_ID) {
+      result = longitudes;
+    } else if (columnId == SensorType.LATITUDE_ID) {
+      result = latitudes;
+    } else if (columnId == SensorType.DEPTH_ID) {
+      result = depths;
+    } else {
+      result = valuesByColumn.get(columnId);
+    }
+
+    return result;
+  }
+
   /**
    * Add a single {@link SensorValue}.
    *
@@ -509,7 +669,9 @@ public class DatasetSensorValues {
    * @return The coordinates.
    */
   public List<Coordinate> getCoordinates() {
-    if (null == coordinatesCache) {
+    List<Coordinate> result = coordinatesCache;
+
+    if (null == result) {
       TreeSet<Coordinate> coordinates = new TreeSet<Coordinate>();
 
       for (SensorValuesList sensorValues : valuesByColumn.values()) {
@@ -524,58 +686,65 @@ public class DatasetSensorValues {
         coordinates.addAll(depths.getRawCoordinates());
       }
 
-      coordinatesCache = new ArrayList<Coordinate>(coordinates);
+      result = new ArrayList<Coordinate>(coordinates);
+      coordinatesCache = result;
     }
 
-    return coordinatesCache;
+    return result;
   }
 
   public List<Coordinate> getPositionValueCoordinates()
     throws SensorValuesListException {
 
-    if (null == positionValueCoordinatesCache) {
-      TreeSet<Coordinate> result = new TreeSet<Coordinate>();
+    List<Coordinate> result = positionValueCoordinatesCache;
+
+    if (null == result) {
+      TreeSet<Coordinate> coordinates = new TreeSet<Coordinate>();
 
       if (null != longitudes) {
-        result.addAll(longitudes.getValueCoordinates());
+        coordinates.addAll(longitudes.getValueCoordinates());
       }
 
       if (null != latitudes) {
-        result.addAll(latitudes.getValueCoordinates());
+        coordinates.addAll(latitudes.getValueCoordinates());
       }
 
       if (null != depths) {
-        result.addAll(depths.getValueCoordinates());
+        coordinates.addAll(depths.getValueCoordinates());
       }
 
-      positionValueCoordinatesCache = new ArrayList<Coordinate>(result);
+      result = new ArrayList<Coordinate>(coordinates);
+      positionValueCoordinatesCache = result;
     }
 
-    return positionValueCoordinatesCache;
+    return result;
   }
 
   public List<Coordinate> getRawPositionCoordinates() {
 
-    if (null == rawPositionCoordinatesCache) {
+    List<Coordinate> result = rawPositionCoordinatesCache;
 
-      TreeSet<Coordinate> result = new TreeSet<Coordinate>();
+    if (null == result) {
+
+      TreeSet<Coordinate> coordinates = new TreeSet<Coordinate>();
 
       if (null != longitudes) {
-        result.addAll(longitudes.getRawCoordinates());
+        coordinates.addAll(longitudes.getRawCoordinates());
       }
 
       if (null != latitudes) {
-        result.addAll(latitudes.getRawCoordinates());
+        coordinates.addAll(latitudes.getRawCoordinates());
       }
 
       if (null != depths) {
-        result.addAll(depths.getRawCoordinates());
+        coordinates.addAll(depths.getRawCoordinates());
       }
 
-      rawPositionCoordinatesCache = new ArrayList<Coordinate>(result);
+      result = new ArrayList<Coordinate>(coordinates);
+      rawPositionCoordinatesCache = result;
     }
 
-    return rawPositionCoordinatesCache;
+    return result;
   }
 
   /**
@@ -872,11 +1041,11 @@ public class DatasetSensorValues {
       SensorValue other;
 
       if (source.getColumnId() == SensorType.LONGITUDE_ID) {
-        other = getRawSensorValue(SensorType.LATITUDE_ID,
-          source.getCoordinate());
+        other = getForUpdate(getRawSensorValue(SensorType.LATITUDE_ID,
+          source.getCoordinate()));
       } else {
-        other = getRawSensorValue(SensorType.LONGITUDE_ID,
-          source.getCoordinate());
+        other = getForUpdate(getRawSensorValue(SensorType.LONGITUDE_ID,
+          source.getCoordinate()));
       }
 
       if (null != other) {
@@ -892,7 +1061,8 @@ public class DatasetSensorValues {
           .get(assignment.getDatabaseId())
           .getClosestSensorValues(source.getCoordinate());
 
-        for (SensorValue value : affectedSensorValues) {
+        for (SensorValue affectedValue : affectedSensorValues) {
+          SensorValue value = getForUpdate(affectedValue);
           String valueRunType = runTypePeriods
             .getRunType(value.getCoordinate().getTime(), false);
           if (null == valueRunType || affectedSensorAssignments.get(assignment)
@@ -0,0 +1,377 @@
+package uk.ac.exeter.QuinCe.data.Dataset;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import uk.ac.exeter.QuinCe.data.Dataset.QC.FlagScheme;
+import uk.ac.exeter.QuinCe.data.Instrument.Instrument;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorAssignments;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorType;
+import uk.ac.exeter.QuinCe.utils.RecordNotFoundException;
+import uk.ac.exeter.QuinCe.utils.TimeRange;
+
+/**
+ * The period of a {@link DataSet} whose data has changed since it was last
+ * processed, and must therefore be reprocessed.
+ *
+ * <p>
+ * The processing jobs use the window to limit their work to the part of the
+ * dataset that has changed. Because calculations for a given time can use
+ * data from around that time (through interpolation, calibrations against
+ * internal standards, sensor offsets, etc.), the window must be expanded to
+ * include all the times whose calculations may be affected by the changed
+ * data before it is used. The {@code expand} methods perform this task.
+ * </p>
+ *
+ * <p>
+ * A window whose start is after its end is empty, i.e. nothing has changed.
+ * </p>
+ */
+public class DirtyWindow implements TimeRange {
+
+  /**
+   * The start of the window.
+   */
+  private LocalDateTime start;
+
+  /**
+   * The end of the window.
+   */
+  private LocalDateTime end;
+
+  /**
+   * Create a window covering the specified range.
+   *
+   * @param range
+   *          The range.
+   */
+  public DirtyWindow(TimeRange range) {
+    this.start = range.getStart();
+    this.end = range.getEnd();
+  }
+
+  @Override
+  public LocalDateTime getStart() {
+    return start;
+  }
+
+  @Override
+  public LocalDateTime getEnd() {
+    return end;
+  }
+
+  /**
+   * Determine whether or not the window is empty.
+   *
+   * @return {@code true} if the window is empty; {@code false} if it is not.
+   */
+  public boolean isEmpty() {
+    return start.isAfter(end);
+  }
+
+  /**
+   * Determine whether or not the specified time is inside the window. The
+   * start and end of the window are inclusive.
+   *
+   * @param time
+   *          The time.
+   * @return {@code true} if the time is in the window; {@code false} if it is
+   *         not.
+   */
+  public boolean contains(LocalDateTime time) {
+    return !time.isBefore(start) && !time.isAfter(end);
+  }
+
+  /**
+   * Extend the window so that it includes the specified time.
+   *
+   * @param time
+   *          The time.
+   */
+  public void add(LocalDateTime time) {
+    if (time.isBefore(start)) {
+      start = time;
+    }
+
+    if (time.isAfter(end)) {
+      end = time;
+    }
+  }
+
+  /**
+   * Extend the window so that it includes the times of all the specified
+   * {@link SensorValue}s.
+   *
+   * @param sensorValues
+   *          The values.
+   */
+  public void addAll(Collection<SensorValue> sensorValues) {
+    sensorValues.forEach(v -> add(v.getCoordinate().getTime()));
+  }
+
+  /**
+   * Expand the window to include all times whose processing may be affected
+   * by the data inside it.
+   *
+   * <p>
+   * The window is expanded by:
+   * </p>
+   * <ul>
+   * <li>{@link #expandToValues(List, DatasetSensorValues)} for each sensor
+   * column that can be used in measurements.</li>
+   * <li>{@link #expandToRunTypePeriods(RunTypePeriods, Collection)} if the
+   * instrument has run types.</li>
+   * <li>{@link #pad(Duration)} by the maximum sensor offset for the
+   * dataset.</li>
+   * </ul>
+   *
+   * <p>
+   * Empty windows are not changed.
+   * </p>
+   *
+   * @param instrument
+   *          The instrument to which the dataset belongs.
+   * @param dataset
+   *          The dataset.
+   * @param sensorValues
+   *          The dataset's sensor values.
+   * @param runTypePeriods
+   *          The dataset's run type periods. Ignored if the instrument does
+   *          not have run types.
+   * @throws RecordNotFoundException
+   *           If the sensor type or values for a column cannot be retrieved.
+   */
+  public void expand(Instrument instrument, DataSet dataset,
+    DatasetSensorValues sensorValues, RunTypePeriods runTypePeriods)
+    throws RecordNotFoundException {
+
+    if (!isEmpty()) {
+      SensorAssignments sensorAssignments = instrument.getSensorAssignments();
+
+      LocalDateTime originalStart = start;
+      LocalDateTime originalEnd = end;
+
+      LocalDateTime expandedStart = start;
+      LocalDateTime expandedEnd = end;
+
+      for (long columnId : sensorValues.getColumnIds()) {
+        SensorType sensorType = sensorAssignments
+          .getSensorTypeForDBColumn(columnId);
+
+        if (!sensorType.isDiagnostic()
+          && !sensorType.equals(SensorType.RUN_TYPE_SENSOR_TYPE)) {
+
+          // Each column is expanded from the original window
+          start = originalStart;
+          end = originalEnd;
+          expandToValues(sensorValues.getColumnValues(columnId).getRawValues(),
+            sensorValues);
+
+          if (start.isBefore(expandedStart)) {
+            expandedStart = start;
+          }
+
+          if (end.isAfter(expandedEnd)) {
+            expandedEnd = end;
+          }
+        }
+      }
+
+      start = expandedStart;
+      end = expandedEnd;
+
+      if (instrument.hasRunTypes() && null != runTypePeriods) {
+        expandToRunTypePeriods(runTypePeriods,
+          instrument.getInternalCalibrationRunTypes(true));
+      }
+
+      pad(Duration.ofMillis(dataset.getSensorOffsets().getMaximumOffset()));
+    }
+  }
+
+  /**
+   * Expand the window so that it includes the last usable value before it and
+   * the first usable value after it from a single sensor column.
+   *
+   * <p>
+   * Values for times outside the window may be interpolated using values
+   * inside the window, up to and including the first usable values on each
+   * side. A value is usable if it is not {@code NaN} and has a good (or
+   * assumed good) QC flag. If there is no usable value on one side of the
+   * window, the window is expanded to the first or last of the column's
+   * values on that side.
+   * </p>
+   *
+   * @param columnValues
+   *          The column's values, ordered by time.
+   * @param allSensorValues
+   *          All the sensor values for the dataset, used to resolve the QC
+   *          flags of the values.
+   */
+  public void expandToValues(List<SensorValue> columnValues,
+    DatasetSensorValues allSensorValues) {
+
+    if (!isEmpty() && columnValues.size() > 0) {
+      FlagScheme flagScheme = allSensorValues.getFlagScheme();
+
+      LocalDateTime newStart = start;
+      LocalDateTime newEnd = end;
+
+      for (int i = columnValues.size() - 1; i >= 0; i--) {
+        SensorValue value = columnValues.get(i);
+        LocalDateTime time = value.getCoordinate().getTime();
+
+        if (time.isBefore(start)) {
+          newStart = time;
+
+          if (isUsable(value, flagScheme, allSensorValues)) {
+            break;
+          }
+        }
+      }
+
+      for (SensorValue value : columnValues) {
+        LocalDateTime time = value.getCoordinate().getTime();
+
+        if (time.isAfter(end)) {
+          newEnd = time;
+
+          if (isUsable(value, flagScheme, allSensorValues)) {
+            break;
+          }
+        }
+      }
+
+      start = newStart;
+      end = newEnd;
+    }
+  }
+
+  /**
+   * Expand the window to cover complete run type periods, and to include the
+   * nearest run of each internal calibration run type on either side of the
+   * window.
+   *
+   * <p>
+   * Measurements are calibrated using the internal calibration runs before and
+   * after them, so any measurement between the last run before the window and
+   * the first run after it may be affected by changes to a run inside the
+   * window. If there is no run of a given type on one side of the window, the
+   * window is expanded to the beginning or end of the dataset on that side.
+   * </p>
+   *
+   * @param runTypePeriods
+   *          The dataset's run type periods, in time order.
+   * @param calibrationRunTypes
+   *          The instrument's internal calibration run types.
+   */
+  public void expandToRunTypePeriods(RunTypePeriods runTypePeriods,
+    Collection<String> calibrationRunTypes) {
+
+    if (!isEmpty() && runTypePeriods.size() > 0) {
+
+      LocalDateTime newStart = start;
+      LocalDateTime newEnd = end;
+
+      // The last run of each calibration run type before the window, and the
+      // first run after it
+      Map<String, RunTypePeriod> runsBefore = new HashMap<String, RunTypePeriod>();
+      Map<String, RunTypePeriod> runsAfter = new HashMap<String, RunTypePeriod>();
+
+      // The periods containing the start and end of the window
+      RunTypePeriod startPeriod = null;
+      RunTypePeriod endPeriod = null;
+
+      for (RunTypePeriod period : runTypePeriods) {
+
+        if (!period.getStart().isAfter(start)) {
+          startPeriod = period;
+        }
+
+        if (!period.getStart().isAfter(end)) {
+          endPeriod = period;
+        }
+
+        if (calibrationRunTypes.contains(period.getRunType())) {
+          if (period.getEnd().isBefore(start)) {
+            runsBefore.put(period.getRunType(), period);
+          } else if (period.getStart().isAfter(end)
+            && !runsAfter.containsKey(period.getRunType())) {
+            runsAfter.put(period.getRunType(), period);
+          }
+        }
+      }
+
+      if (null != startPeriod) {
+        newStart = earliest(newStart, startPeriod.getStart());
+      }
+
+      if (null != endPeriod) {
+        newEnd = latest(newEnd, endPeriod.getEnd());
+      }
+
+      for (String runType : calibrationRunTypes) {
+        RunTypePeriod before = runsBefore.get(runType);
+        RunTypePeriod after = runsAfter.get(runType);
+
+        newStart = earliest(newStart, null == before
+          ? runTypePeriods.get(0).getStart() : before.getStart());
+
+        newEnd = latest(newEnd,
+          null == after ? runTypePeriods.get(runTypePeriods.size() - 1).getEnd()
+            : after.getEnd());
+      }
+
+      start = newStart;
+      end = newEnd;
+    }
+  }
+
+  /**
+   * Extend both ends of the window by the specified amount.
+   *
+   * @param padding
+   *          The amount to add to each end of the window.
+   */
+  public void pad(Duration padding) {
+    if (!isEmpty() && !padding.isZero()) {
+      start = start.isBefore(LocalDateTime.MIN.plus(padding))
+        ? LocalDateTime.MIN
+        : start.minus(padding);
+      end = end.isAfter(LocalDateTime.MAX.minus(padding)) ? LocalDateTime.MAX
+        : end.plus(padding);
+    }
+  }
+
+  /**
+   * Determine whether or not a value can be used to calculate values at other
+   * times.
+   *
+   * @param value
+   *          The value.
+   * @param flagScheme
+   *          The dataset's flag scheme.
+   * @param allSensorValues
+   *          All the dataset's sensor values.
+   * @return {@code true} if the value is usable; {@code false} otherwise.
+   */
+  private boolean isUsable(SensorValue value, FlagScheme flagScheme,
+    DatasetSensorValues allSensorValues) {
+    return !value.isNaN()
+      && flagScheme.isGood(value.getDisplayFlag(allSensorValues), true);
+  }
+
+  private static LocalDateTime earliest(LocalDateTime time1,
+    LocalDateTime time2) {
+    return time1.isBefore(time2) ? time1 : time2;
+  }
+
+  private static LocalDateTime latest(LocalDateTime time1,
+    LocalDateTime time2) {
+    return time1.isAfter(time2) ? time1 : time2;
+  }
+}
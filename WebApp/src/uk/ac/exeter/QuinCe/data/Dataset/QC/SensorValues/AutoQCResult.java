@@ -4,9 +4,6 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-
 import uk.ac.exeter.QuinCe.data.Dataset.SensorValue;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.Flag;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.FlagScheme;
@@ -43,21 +40,17 @@ public class AutoQCResult extends HashSet<RoutineFlag> {
   }
 
   /**
-   * Build an AutoQCResult from a JSON string, as stored in the database.
+   * Build an AutoQCResult from its database representation.
    *
-   * @param json
-   *          The JSON string.
+   * @param encoded
+   *          The encoded result.
+   * @param flagScheme
+   *          The flag scheme for the result.
    * @return The AutoQCResult.
+   * @see AutoQCResultCodec#decode(String)
    */
-  public static AutoQCResult buildFromJson(String json, FlagScheme flagScheme) {
-    AutoQCResult result = null;
-    if (null == json || json.trim().length() == 0) {
-      result = new AutoQCResult(flagScheme);
-    } else {
-      result = makeGson(flagScheme).fromJson(json, AutoQCResult.class);
-    }
-
-    return result;
+  public static AutoQCResult decode(String encoded, FlagScheme flagScheme) {
+    return AutoQCResultCodec.getInstance(flagScheme).decode(encoded);
   }
 
   /**
@@ -84,18 +77,13 @@ public class AutoQCResult extends HashSet<RoutineFlag> {
   }
 
   /**
-   * Generate a JSON representation of this result.
+   * Generate the database representation of this result.
    *
-   * @return The JSON representation.
+   * @return The encoded result, or {@code null} if the result is empty.
+   * @see AutoQCResultCodec#encode(AutoQCResult)
    */
-  public String toJson() {
-    String json = null;
-
-    if (size() > 0) {
-      json = makeGson(flagScheme).toJson(this);
-    }
-
-    return json;
+  public String encode() {
+    return AutoQCResultCodec.getInstance(flagScheme).encode(this);
   }
 
   /**
@@ -153,10 +141,4 @@ public class AutoQCResult extends HashSet<RoutineFlag> {
   public boolean remove(Routine routine) {
     return removeIf(i -> i.getRoutineName().equals(routine.getName()));
   }
-
-  private static Gson makeGson(FlagScheme flagScheme) {
-    return new GsonBuilder().registerTypeAdapter(AutoQCResult.class,
-      new AutoQCResultSerializer(flagScheme)).create();
-
-  }
 }
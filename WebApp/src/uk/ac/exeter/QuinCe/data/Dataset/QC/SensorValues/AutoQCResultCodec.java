@@ -0,0 +1,286 @@
+package uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import uk.ac.exeter.QuinCe.data.Dataset.QC.FlagScheme;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.RoutineFlag;
+
+/**
+ * Converts {@link AutoQCResult}s to and from the compact text format stored in
+ * the database.
+ *
+ * <p>
+ * The format is the {@link #COMPACT_PREFIX}, followed by one entry for each
+ * {@link RoutineFlag} separated by {@link #FLAG_SEPARATOR}. Each entry
+ * contains the routine name, flag value, required value and actual value,
+ * separated by {@link #FIELD_SEPARATOR}. Decoding is a single pass over the
+ * string with no reflection.
+ * </p>
+ *
+ * <p>
+ * Results were originally stored as JSON (see {@link AutoQCResultSerializer}).
+ * JSON values are still accepted by {@link #decode(String)}, and are also
+ * written by {@link #encode(AutoQCResult)} in the unlikely event that a value
+ * contains one of the separator characters.
+ * </p>
+ *
+ * <p>
+ * One codec is created for each {@link FlagScheme}, and shared by all callers;
+ * see {@link #getInstance(FlagScheme)}.
+ * </p>
+ */
+public class AutoQCResultCodec {
+
+  /**
+   * Marks a value in the compact format. The second character is the format
+   * version.
+   */
+  protected static final String COMPACT_PREFIX = "~1";
+
+  /**
+   * The separator between {@link RoutineFlag} entries.
+   */
+  protected static final char FLAG_SEPARATOR = '\u001E';
+
+  /**
+   * The separator between the fields of a {@link RoutineFlag} entry.
+   */
+  protected static final char FIELD_SEPARATOR = '\u001F';
+
+  /**
+   * The codecs for each {@link FlagScheme}.
+   */
+  private static final Map<FlagScheme, AutoQCResultCodec> instances = new ConcurrentHashMap<FlagScheme, AutoQCResultCodec>();
+
+  /**
+   * The flag scheme for the results.
+   */
+  private final FlagScheme flagScheme;
+
+  /**
+   * Gson instance for reading and writing the legacy JSON format.
+   */
+  private final Gson gson;
+
+  /**
+   * Shared instances of the routine names read by this codec. There are only a
+   * few routines, so this saves creating a new {@link String} for every
+   * decoded {@link RoutineFlag}.
+   */
+  private final Map<String, String> routineNames = new ConcurrentHashMap<String, String>();
+
+  /**
+   * Create a codec for the specified {@link FlagScheme}.
+   *
+   * @param flagScheme
+   *          The flag scheme.
+   */
+  private AutoQCResultCodec(FlagScheme flagScheme) {
+    this.flagScheme = flagScheme;
+    this.gson = new GsonBuilder().registerTypeAdapter(AutoQCResult.class,
+      new AutoQCResultSerializer(flagScheme)).create();
+  }
+
+  /**
+   * Get the codec for the specified {@link FlagScheme}.
+   *
+   * @param flagScheme
+   *          The flag scheme.
+   * @return The codec.
+   */
+  public static AutoQCResultCodec getInstance(FlagScheme flagScheme) {
+    return instances.computeIfAbsent(flagScheme, AutoQCResultCodec::new);
+  }
+
+  /**
+   * Encode an {@link AutoQCResult} for storage in the database.
+   *
+   * @param result
+   *          The result.
+   * @return The encoded result, or {@code null} if the result is empty.
+   */
+  public String encode(AutoQCResult result) {
+    String encoded = null;
+
+    if (result.size() > 0) {
+      StringBuilder builder = new StringBuilder(COMPACT_PREFIX);
+      boolean valid = true;
+      boolean first = true;
+
+      for (RoutineFlag flag : result) {
+        if (!first) {
+          builder.append(FLAG_SEPARATOR);
+        }
+
+        valid = valid && appendField(builder, flag.getRoutineName());
+        builder.append(FIELD_SEPARATOR).append(flag.getValue())
+          .append(FIELD_SEPARATOR);
+        valid = valid && appendField(builder, flag.getRequiredValue());
+        builder.append(FIELD_SEPARATOR);
+        valid = valid && appendField(builder, flag.getActualValue());
+
+        first = false;
+      }
+
+      encoded = valid ? builder.toString() : gson.toJson(result);
+    }
+
+    return encoded;
+  }
+
+  /**
+   * Decode an {@link AutoQCResult} from the database. Values in either the
+   * compact or legacy JSON format are accepted.
+   *
+   * @param encoded
+   *          The encoded result.
+   * @return The result.
+   * @throws IllegalArgumentException
+   *           If the value is not in a recognised format.
+   */
+  public AutoQCResult decode(String encoded) {
+
+    AutoQCResult result;
+
+    if (null == encoded || encoded.isBlank()) {
+      result = new AutoQCResult(flagScheme);
+    } else if (encoded.startsWith(COMPACT_PREFIX)) {
+      result = new AutoQCResult(flagScheme);
+
+      String[] fields = new String[4];
+      int fieldCount = 0;
+      int fieldStart = COMPACT_PREFIX.length();
+
+      for (int i = fieldStart; i <= encoded.length(); i++) {
+        char c = i == encoded.length() ? FLAG_SEPARATOR : encoded.charAt(i);
+
+        if (c == FIELD_SEPARATOR || c == FLAG_SEPARATOR) {
+          if (fieldCount == fields.length) {
+            throw new IllegalArgumentException("Invalid Auto QC value");
+          }
+          fields[fieldCount] = encoded.substring(fieldStart, i);
+          fieldCount++;
+          fieldStart = i + 1;
+
+          if (c == FLAG_SEPARATOR) {
+            if (fieldCount != fields.length) {
+              throw new IllegalArgumentException("Invalid Auto QC value");
+            }
+
+            String routineName = routineNames.computeIfAbsent(fields[0],
+              n -> n);
+
+            result.add(new RoutineFlag(flagScheme, routineName,
+              flagScheme.getFlag(Integer.parseInt(fields[1])), fields[2],
+              fields[3]));
+            fieldCount = 0;
+          }
+        }
+      }
+    } else if (encoded.startsWith("[")) {
+      result = gson.fromJson(encoded, AutoQCResult.class);
+    } else {
+      throw new IllegalArgumentException("Unrecognised Auto QC value");
+    }
+
+    return result;
+  }
+
+  /**
+   * Convert a value in the legacy JSON format to the compact format, without
+   * needing a {@link FlagScheme}. Values that are not JSON, or that cannot be
+   * represented in the compact format, are returned unchanged.
+   *
+   * @param json
+   *          The JSON value.
+   * @return The compact value.
+   */
+  public static String convertLegacyJson(String json) {
+    String result = json;
+
+    if (null != json && json.startsWith("[")) {
+      StringBuilder builder = new StringBuilder(COMPACT_PREFIX);
+      boolean valid = true;
+      boolean first = true;
+
+      for (JsonElement element : JsonParser.parseString(json)
+        .getAsJsonArray()) {
+
+        JsonObject flagObj = element.getAsJsonObject();
+
+        if (!first) {
+          builder.append(FLAG_SEPARATOR);
+        }
+
+        valid = valid
+          && appendField(builder, flagObj.get("routineName").getAsString());
+        builder.append(FIELD_SEPARATOR)
+          .append(flagObj.get("flagValue").getAsInt()).append(FIELD_SEPARATOR);
+        valid = valid && appendField(builder, getLegacyString(flagObj,
+          "requiredValue"));
+        builder.append(FIELD_SEPARATOR);
+        valid = valid
+          && appendField(builder, getLegacyString(flagObj, "actualValue"));
+
+        first = false;
+      }
+
+      // An empty array is stored as NULL
+      if (first) {
+        result = null;
+      } else if (valid) {
+        result = builder.toString();
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Get an optional string property from a legacy JSON {@link RoutineFlag}.
+   *
+   * @param flagObj
+   *          The JSON object.
+   * @param name
+   *          The property name.
+   * @return The property value, or an empty string if it is not present.
+   */
+  private static String getLegacyString(JsonObject flagObj, String name) {
+    return flagObj.has(name) && !flagObj.get(name).isJsonNull()
+      ? flagObj.get(name).getAsString()
+      : "";
+  }
+
+  /**
+   * Append a field to the compact representation of a result. {@code null}
+   * values are written as empty strings.
+   *
+   * @param builder
+   *          The compact representation.
+   * @param value
+   *          The field value.
+   * @return {@code false} if the value contains a separator character and
+   *         cannot be stored in the compact format; {@code true} otherwise.
+   */
+  private static boolean appendField(StringBuilder builder, String value) {
+    boolean ok = true;
+
+    if (null != value) {
+      if (value.indexOf(FLAG_SEPARATOR) > -1
+        || value.indexOf(FIELD_SEPARATOR) > -1) {
+        ok = false;
+      } else {
+        builder.append(value);
+      }
+    }
+
+    return ok;
+  }
+}
@@ -163,8 +163,33 @@ public class SensorOffsets {
     DatasetSensorValues allSensorValues)
     throws SensorGroupsException, CoordinateException {
 
-    LocalDateTime resultTime = source.getTime();
-    boolean noOffset = true;
+    LocalDateTime resultTime = getOffsetTime(source.getTime(), base, target);
+
+    return resultTime.equals(source.getTime()) ? source
+      : TimeCoordinate.getCoordinate(resultTime, source.getDatasetId(),
+        allSensorValues.getCoordinates());
+  }
+
+  /**
+   * Get the time to use for a {@link SensorAssignment} relative to a base
+   * {@link SensorAssignment} taking into account the offsets across sensor
+   * groups, without looking up the matching {@link TimeCoordinate}.
+   *
+   * @param sourceTime
+   *          The time to be offset.
+   * @param base
+   *          The base assignment.
+   * @param target
+   *          The assignment whose offset time is required.
+   * @return The offset time.
+   * @throws SensorGroupsException
+   *           If the sensor groups are invalid.
+   */
+  public LocalDateTime getOffsetTime(LocalDateTime sourceTime,
+    SensorAssignment base, SensorAssignment target)
+    throws SensorGroupsException {
+
+    LocalDateTime resultTime = sourceTime;
 
     SensorGroup baseGroup = sensorGroups.getGroup(base);
     int baseGroupIndex = sensorGroups.getGroupIndex(baseGroup);
@@ -173,7 +198,6 @@ public class SensorOffsets {
     int offsetGroupIndex = sensorGroups.getGroupIndex(offsetGroup);
 
     if (baseGroupIndex != offsetGroupIndex) {
-      noOffset = false;
 
       int startIndex = Math.min(baseGroupIndex, offsetGroupIndex);
       SensorGroup startGroup = startIndex == baseGroupIndex ? baseGroup
@@ -197,7 +221,7 @@ public class SensorOffsets {
       boolean finished = false;
       while (!finished) {
 
-        LocalDateTime timeToOffset = source.getTime().plus(totalOffset);
+        LocalDateTime timeToOffset = sourceTime.plus(totalOffset);
 
         totalOffset = totalOffset
           .plus(Duration.ofMillis(getOffset(currentPair, timeToOffset)));
@@ -211,16 +235,14 @@ public class SensorOffsets {
       // If the base group was first, we add the offset. Otherwise we subtract
       // it
       if (baseGroupIndex < offsetGroupIndex) {
-        resultTime = source.getTime().plus(totalOffset);
+        resultTime = sourceTime.plus(totalOffset);
       } else {
-        resultTime = source.getTime().minus(totalOffset);
+        resultTime = sourceTime.minus(totalOffset);
       }
 
     }
 
-    return noOffset ? source
-      : TimeCoordinate.getCoordinate(resultTime, source.getDatasetId(),
-        allSensorValues.getCoordinates());
+    return resultTime;
   }
 
   public TimeCoordinate offsetToFirstGroup(TimeCoordinate source,
@@ -234,6 +256,45 @@ public class SensorOffsets {
       allSensorValues);
   }
 
+  /**
+   * Get the time of a value from a {@link SensorAssignment} offset to the first
+   * sensor group, without looking up the matching {@link TimeCoordinate}.
+   *
+   * @param sourceTime
+   *          The time to be offset.
+   * @param baseAssignment
+   *          The assignment that the time belongs to.
+   * @return The offset time.
+   * @throws SensorGroupsException
+   *           If the sensor groups are invalid.
+   */
+  public LocalDateTime offsetToFirstGroup(LocalDateTime sourceTime,
+    SensorAssignment baseAssignment) throws SensorGroupsException {
+
+    SensorAssignment firstGroupAssignment = sensorGroups.first().getMembers()
+      .first();
+
+    return getOffsetTime(sourceTime, baseAssignment, firstGroupAssignment);
+  }
+
+  /**
+   * Get the largest time difference that the offsets can apply between any two
+   * sensor groups. This is the sum of the largest absolute offset defined for
+   * each group pair.
+   *
+   * @return The maximum offset in milliseconds.
+   */
+  public long getMaximumOffset() {
+    long result = 0L;
+
+    for (TreeSet<SensorOffset> pairOffsets : offsets.values()) {
+      result += pairOffsets.stream().mapToLong(o -> Math.abs(o.getOffset()))
+        .max().orElse(0L);
+    }
+
+    return result;
+  }
+
   private static boolean containsTime(TreeSet<SensorOffset> offsets,
     LocalDateTime time) {
 
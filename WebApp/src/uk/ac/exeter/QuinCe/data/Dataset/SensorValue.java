@@ -3,6 +3,7 @@ package uk.ac.exeter.QuinCe.data.Dataset;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -92,6 +93,32 @@ public class SensorValue implements Comparable<SensorValue>, Cloneable {
    */
   private boolean dirty;
 
+  /**
+   * The automatic QC result held by the value before its automatic QC was
+   * cleared by {@link #clearAutomaticQC()}. This, along with
+   * {@link #cleanUserQCFlag} and {@link #cleanUserQCMessage}, records the state
+   * of the value as it is stored in the database so the {@link #dirty} flag
+   * can be removed if the QC is re-run and produces the same result.
+   *
+   * @see #clearUnchangedDirtyFlags(Collection)
+   */
+  private AutoQCResult cleanAutoQC = null;
+
+  /**
+   * The user QC flag held by the value before its automatic QC was cleared.
+   *
+   * @see #cleanAutoQC
+   */
+  private Flag cleanUserQCFlag = null;
+
+  /**
+   * The user QC message held by the value before its automatic QC was
+   * cleared.
+   *
+   * @see #cleanAutoQC
+   */
+  private String cleanUserQCMessage = null;
+
   /**
    * Indicates whether or not this value can be saved to the database.
    */
@@ -310,6 +337,14 @@ public class SensorValue implements Comparable<SensorValue>, Cloneable {
       throw new RecordNotFoundException(
         "SensorValue has not been stored in the database");
     }
+
+    // Record the stored state so we can tell later if it has really changed
+    if (!dirty) {
+      cleanAutoQC = autoQC;
+      cleanUserQCFlag = userQCFlag;
+      cleanUserQCMessage = userQCMessage;
+    }
+
     autoQC = new AutoQCResult(flagScheme);
 
     // Reset the user QC if it hasn't been set by the user
@@ -482,7 +517,53 @@ public class SensorValue implements Comparable<SensorValue>, Cloneable {
   public static void clearDirtyFlag(Collection<SensorValue> sensorValues) {
     for (SensorValue value : sensorValues) {
       value.dirty = false;
+      value.cleanAutoQC = null;
+      value.cleanUserQCFlag = null;
+      value.cleanUserQCMessage = null;
+    }
+  }
+
+  /**
+   * Clear the {@code dirty} flag on those SensorValues whose QC information
+   * has been cleared and recalculated by {@link #clearAutomaticQC()} but has
+   * ended up identical to the information stored in the database.
+   *
+   * <p>
+   * Re-running the automatic QC marks every value as dirty, but usually only a
+   * small proportion of them end up with different flags. Calling this method
+   * before the values are stored means that only the values that have really
+   * changed are written to the database.
+   * </p>
+   *
+   * @param sensorValues
+   *          The values to be checked
+   * @return The values that are still dirty
+   */
+  public static List<SensorValue> clearUnchangedDirtyFlags(
+    Collection<SensorValue> sensorValues) {
+
+    List<SensorValue> result = new ArrayList<SensorValue>();
+
+    for (SensorValue value : sensorValues) {
+      if (value.dirty && null != value.cleanAutoQC) {
+        if (Objects.equals(value.cleanUserQCFlag, value.userQCFlag)
+          && Objects.equals(value.cleanUserQCMessage, value.userQCMessage)
+          && Objects.equals(value.cleanAutoQC.encode(),
+            value.autoQC.encode())) {
+
+          value.dirty = false;
+          value.cleanAutoQC = null;
+          value.cleanUserQCFlag = null;
+          value.cleanUserQCMessage = null;
+        }
+      }
+
+      if (value.dirty) {
+        result.add(value);
+      }
     }
+
+    return result;
   }
 
   /**
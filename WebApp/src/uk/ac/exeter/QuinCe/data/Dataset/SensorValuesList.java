@@ -88,14 +88,16 @@ public abstract class SensorValuesList {
 
   /**
    * A cached copy of the {@link Coordinate}s from the {@link SensorValues}
-   * stored in {@link #list}.
+   * stored in {@link #list}. It is built in full before it is assigned, so
+   * lists shared between threads can build it on demand.
    */
-  protected List<Coordinate> rawCoordinates = null;
+  protected volatile List<Coordinate> rawCoordinates = null;
 
   /**
    * A cached copy of the {@link Coordinate}s from the {@link #outputValues}.
+   * It is built in full before it is assigned.
    */
-  private List<Coordinate> outputCoordinates = null;
+  private volatile List<Coordinate> outputCoordinates = null;
 
   /**
    * The list of {@link FileColumn} database IDs whose {@link SensorValue}s are
@@ -314,6 +316,39 @@ public abstract class SensorValuesList {
     return list.remove(sensorValue);
   }
 
+  /**
+   * Replace the value in the list that has the same {@link Coordinate} as the
+   * specified value.
+   *
+   * @param value
+   *          The replacement value.
+   * @return {@code true} if a value was replaced; {@code false} if there is no
+   *         value with the same {@link Coordinate}.
+   * @see DatasetSensorValues#getForUpdate(SensorValue)
+   */
+  protected boolean replace(SensorValue value) {
+    int index = Collections.binarySearch(list, value, COORDINATE_COMPARATOR);
+    if (index >= 0) {
+      list.set(index, value);
+      resetOutput();
+    }
+
+    return index >= 0;
+  }
+
+  /**
+   * Add all the values from another list with the same columns. The source
+   * list is already in order, so the values are added without checking them.
+   *
+   * @param source
+   *          The source list.
+   * @see DatasetSensorValues#makeCopy()
+   */
+  protected void copyValues(SensorValuesList source) {
+    list.addAll(source.list);
+    resetOutput();
+  }
+
   /**
    * Determine whether or not the list is empty.
    *
@@ -401,15 +436,13 @@ public abstract class SensorValuesList {
   }
 
   public List<Coordinate> getRawCoordinates() {
-    if (null == rawCoordinates) {
-      buildRawCoordinates();
+    List<Coordinate> result = rawCoordinates;
+    if (null == result) {
+      result = list.stream().map(SensorValue::getCoordinate).toList();
+      rawCoordinates = result;
     }
 
-    return rawCoordinates;
-  }
-
-  private void buildRawCoordinates() {
-    rawCoordinates = list.stream().map(SensorValue::getCoordinate).toList();
+    return result;
   }
 
   /**
@@ -572,6 +605,7 @@ public abstract class SensorValuesList {
    */
   public void resetOutput() {
     rawCoordinates = null;
+    outputCoordinates = null;
     listContentsUpdated();
   }
 
@@ -599,12 +633,13 @@ public abstract class SensorValuesList {
    */
   protected List<Coordinate> getOutputCoordinates()
     throws SensorValuesListException {
-    if (null == outputCoordinates) {
-      outputCoordinates = getOutputValues().stream().map(v -> v.getCoordinate())
-        .toList();
+    List<Coordinate> result = outputCoordinates;
+    if (null == result) {
+      result = getOutputValues().stream().map(v -> v.getCoordinate()).toList();
+      outputCoordinates = result;
     }
 
-    return outputCoordinates;
+    return result;
   };
 
   /**
@@ -14,7 +14,11 @@ import uk.ac.exeter.QuinCe.utils.RecordNotFoundException;
  */
 public class SimpleSensorValuesList extends SensorValuesList {
 
-  private List<SingleSensorValuesListValue> outputValues = null;
+  /**
+   * The output values. They are built in full before they are assigned, so
+   * lists shared between threads can build them on demand.
+   */
+  private volatile List<SingleSensorValuesListValue> outputValues = null;
 
   protected SimpleSensorValuesList(long columnId,
     DatasetSensorValues allSensorValues, boolean forceString)
@@ -34,13 +38,10 @@ public class SimpleSensorValuesList extends SensorValuesList {
 
     SingleSensorValuesListOutput result = null;
 
-    if (null == outputValues) {
-      buildOutputValues();
-    }
+    List<SingleSensorValuesListValue> values = getOutput();
 
     int index = Collections.binarySearch(getOutputCoordinates(), coordinate);
-    SingleSensorValuesListValue value = index >= 0 ? outputValues.get(index)
-      : null;
+    SingleSensorValuesListValue value = index >= 0 ? values.get(index) : null;
 
     if (null != value) {
       result = new SingleSensorValuesListOutput(value);
@@ -49,28 +50,46 @@ public class SimpleSensorValuesList extends SensorValuesList {
     return result;
   }
 
-  private void buildOutputValues() throws SensorValuesListException {
+  private List<SingleSensorValuesListValue> buildOutputValues()
+    throws SensorValuesListException {
 
-    outputValues = new ArrayList<SingleSensorValuesListValue>(list.size());
+    List<SingleSensorValuesListValue> result = new ArrayList<SingleSensorValuesListValue>(
+      list.size());
 
     for (SensorValue value : list) {
       try {
-        outputValues.add(
+        result.add(
           new SingleSensorValuesListValue(value, sensorType, allSensorValues));
       } catch (RoutineException e) {
         throw new SensorValuesListException(e);
       }
     }
+
+    return result;
   }
 
-  @Override
-  protected List<? extends SensorValuesListValue> getOutputValues()
+  /**
+   * Get the output values for the list, building them if required.
+   *
+   * @return The output values.
+   * @throws SensorValuesListException
+   *           If the values cannot be built.
+   */
+  private List<SingleSensorValuesListValue> getOutput()
     throws SensorValuesListException {
-    if (null == outputValues) {
-      buildOutputValues();
+    List<SingleSensorValuesListValue> result = outputValues;
+    if (null == result) {
+      result = buildOutputValues();
+      outputValues = result;
     }
 
-    return outputValues;
+    return result;
+  }
+
+  @Override
+  protected List<? extends SensorValuesListValue> getOutputValues()
+    throws SensorValuesListException {
+    return getOutput();
   }
 
   @Override
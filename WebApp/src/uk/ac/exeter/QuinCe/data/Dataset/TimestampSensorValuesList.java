@@ -1,6 +1,7 @@
 package uk.ac.exeter.QuinCe.data.Dataset;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -8,7 +9,6 @@ import java.util.List;
 import java.util.Optional;
 import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.function.IntPredicate;
 
 import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.Calculators;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.Flag;
@@ -76,6 +76,11 @@ public class TimestampSensorValuesList extends SensorValuesList {
    */
   private static final long CONTINUOUS_MEASUREMENT_LIMIT = 300;
 
+  /**
+   * The number of nanoseconds in a second.
+   */
+  private static final long NANOS_PER_SECOND = 1000000000L;
+
   /**
    * The threshold group size between PERIODIC and CONTINUOUS measurements.
    *
@@ -103,8 +108,13 @@ public class TimestampSensorValuesList extends SensorValuesList {
 
   /**
    * The measurement mode of these {@link SensorValue}s.
+   *
+   * <p>
+   * This is volatile so that a thread that sees the calculated mode also sees
+   * the {@link #periodicGroupTimeInterval} calculated with it.
+   * </p>
    */
-  private int measurementMode = -1;
+  private volatile int measurementMode = -1;
 
   /**
    * For periodic mode, the interval between groups of measurements (in
@@ -113,15 +123,18 @@ public class TimestampSensorValuesList extends SensorValuesList {
   private long periodicGroupTimeInterval = -1L;
 
   /**
-   * The set of values to be returned to the rest of the application from this
-   * list, based on its measurement mode.
-   */
-  private List<TimestampSensorValuesListValue> outputValues;
-
-  /**
-   * A cache of the timestamps of the entries in {@link #outputValues}.
+   * The values to be returned to the rest of the application from this list,
+   * based on its measurement mode.
+   *
+   * <p>
+   * The lists are shared between threads, so the output values are built in
+   * full and then published in one step. Readers must take a local copy of
+   * this field and use it for the whole of an operation.
+   * </p>
+   *
+   * @see #getOutput()
    */
-  private List<TimeCoordinate> valueCoordinatesCache = null;
+  private volatile OutputValues output = null;
 
   /**
    * Indicates whether or not String values can be used to determine groups when
@@ -132,9 +145,10 @@ public class TimestampSensorValuesList extends SensorValuesList {
   private boolean allowStringPeriodicGroups = false;
 
   /**
-   * A cache of the {@link TimeCoordinate}s in this list keyed by time.
+   * A cache of the {@link TimeCoordinate}s in this list keyed by time. It is
+   * built in full before it is assigned, and never modified afterwards.
    */
-  private TreeMap<LocalDateTime, TimeCoordinate> coordinatesMap;
+  private volatile TreeMap<LocalDateTime, TimeCoordinate> coordinatesMap;
 
   /**
    * Create a list for a single file column.
@@ -214,21 +228,22 @@ public class TimestampSensorValuesList extends SensorValuesList {
    * be constructed using consecutive measurements with the same value.)
    * </p>
    *
+   * @return The output values.
    * @throws SensorValuesListException
    * @throws CoordinateException
    */
-  private void buildOutputValues() throws SensorValuesListException {
+  private OutputValues buildOutputValues() throws SensorValuesListException {
 
-    outputValues = new ArrayList<TimestampSensorValuesListValue>();
+    List<TimestampSensorValuesListValue> values = new ArrayList<TimestampSensorValuesListValue>();
 
     switch (getMeasurementMode()) {
     case MODE_CONTINUOUS: {
-      buildContinuousOutputValues();
+      buildContinuousOutputValues(values);
       break;
     }
     case MODE_PERIODIC: {
       try {
-        buildPeriodicOutputValues();
+        buildPeriodicOutputValues(values);
       } catch (CoordinateException e) {
         throw new SensorValuesListException("Error building list output", e);
       }
@@ -239,8 +254,110 @@ public class TimestampSensorValuesList extends SensorValuesList {
     }
     }
 
-    valueCoordinatesCache = outputValues.stream()
-      .map(v -> (TimeCoordinate) v.getCoordinate()).toList();
+    return new OutputValues(values);
+  }
+
+  /**
+   * Get the output values for the list, building them if required.
+   *
+   * <p>
+   * Only one thread builds the values. Other threads wait for it to finish and
+   * then use the same values.
+   * </p>
+   *
+   * @return The output values.
+   * @throws SensorValuesListException
+   *           If the values cannot be built.
+   */
+  private OutputValues getOutput() throws SensorValuesListException {
+    OutputValues result = output;
+
+    if (null == result) {
+      synchronized (this) {
+        result = output;
+        if (null == result) {
+          result = buildOutputValues();
+          output = result;
+        }
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Convert a time to nanoseconds since the epoch. Unlike epoch milliseconds or
+   * seconds, this keeps the full precision of the {@link LocalDateTime}, so
+   * comparisons give exactly the same results as comparing the times
+   * themselves.
+   *
+   * @param time
+   *          The time.
+   * @return The time in nanoseconds.
+   */
+  private static long toEpochNanos(LocalDateTime time) {
+    return time.toEpochSecond(ZoneOffset.UTC) * NANOS_PER_SECOND
+      + time.getNano();
+  }
+
+  /**
+   * Find the index of the entry in a set of {@link OutputValues} with the
+   * specified time.
+   *
+   * <p>
+   * The result is the same as {@link Collections#binarySearch(List, Object)}
+   * on {@link #getValueCoordinates()}: the index of the entry if there is one,
+   * or {@code (-(insertion point) - 1)} if there is not. The search starts at
+   * the {@link OutputValues#searchCursor} and gallops forwards, so a series of
+   * lookups in increasing time order takes amortised constant time. Earlier
+   * times fall back to a binary search of the whole list.
+   * </p>
+   *
+   * @param output
+   *          The output values to search.
+   * @param time
+   *          The time in nanoseconds since the epoch.
+   * @return The search result.
+   */
+  private static int findValueIndex(OutputValues output, long time) {
+    long[] times = output.times;
+
+    int low = 0;
+    int high = times.length - 1;
+
+    int cursor = output.searchCursor;
+    if (cursor < times.length && times[cursor] <= time) {
+      low = cursor;
+
+      // Gallop forward to find an upper bound for the search
+      int step = 1;
+      int next = cursor + step;
+      while (next < times.length && times[next] <= time) {
+        low = next;
+        step *= 2;
+        next = cursor + step;
+      }
+
+      high = Math.min(next, times.length - 1);
+    }
+
+    int result = -(low + 1);
+
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (times[mid] < time) {
+        low = mid + 1;
+        result = -(low + 1);
+      } else if (times[mid] > time) {
+        high = mid - 1;
+      } else {
+        result = mid;
+        break;
+      }
+    }
+
+    output.searchCursor = result >= 0 ? result : Math.max(0, -result - 2);
+    return result;
   }
 
   /**
@@ -252,15 +369,19 @@ public class TimestampSensorValuesList extends SensorValuesList {
    * flag.
    * </p>
    *
+   * @param values
+   *          The list to which the output values are added.
    * @throws SensorValuesListException
    */
-  private void buildContinuousOutputValues() throws SensorValuesListException {
+  private void buildContinuousOutputValues(
+    List<TimestampSensorValuesListValue> values)
+    throws SensorValuesListException {
     for (SensorValue sensorValue : list) {
       // We skip null values
       if (null != sensorValue.getValue()
         && !sensorValue.getUserQCFlag().equals(FlagScheme.FLUSHING_FLAG)) {
         try {
-          outputValues.add(new TimestampSensorValuesListValue(sensorValue,
+          values.add(new TimestampSensorValuesListValue(sensorValue,
             sensorType, allSensorValues, forceString));
         } catch (RoutineException e) {
           throw new SensorValuesListException(e);
@@ -277,15 +398,18 @@ public class TimestampSensorValuesList extends SensorValuesList {
    * contains string or numeric values.
    * </p>
    *
+   * @param values
+   *          The list to which the output values are added.
    * @throws SensorValuesListException
    * @throws CoordinateException
    */
-  private void buildPeriodicOutputValues()
+  private void buildPeriodicOutputValues(
+    List<TimestampSensorValuesListValue> values)
     throws SensorValuesListException, CoordinateException {
     if (containsStringValue()) {
-      buildPeriodicStringOutputValues();
+      buildPeriodicStringOutputValues(values);
     } else {
-      buildPeriodicNumericOutputValues();
+      buildPeriodicNumericOutputValues(values);
     }
   }
 
@@ -322,10 +446,13 @@ public class TimestampSensorValuesList extends SensorValuesList {
    * these regardless of its QC flag.
    * </p>
    *
+   * @param values
+   *          The list to which the output values are added.
    * @throws SensorValuesListException
    * @throws CoordinateException
    */
-  private void buildPeriodicNumericOutputValues()
+  private void buildPeriodicNumericOutputValues(
+    List<TimestampSensorValuesListValue> values)
     throws SensorValuesListException, CoordinateException {
 
     // Collect the members of a group together
@@ -347,7 +474,7 @@ public class TimestampSensorValuesList extends SensorValuesList {
             LocalDateTime groupStartTime = groupMembers.get(0).getCoordinate()
               .getTime();
 
-            outputValues
+            values
               .add(makeNumericValue(groupMembers,
                 getCoordinate(
                   DateTimeUtils.midPoint(groupStartTime, groupEndTime)),
@@ -365,7 +492,7 @@ public class TimestampSensorValuesList extends SensorValuesList {
         .getTime();
       LocalDateTime groupEndTime = groupMembers.get(groupMembers.size() - 1)
         .getCoordinate().getTime();
-      outputValues.add(makeNumericValue(groupMembers,
+      values.add(makeNumericValue(groupMembers,
         getCoordinate(DateTimeUtils.midPoint(groupStartTime, groupEndTime)),
         false));
     }
@@ -388,13 +515,15 @@ public class TimestampSensorValuesList extends SensorValuesList {
    * The timestamp for each group will be the midpoint between the first and
    * last entries in the group.
    * </p>
+   *
+   * @param values
+   *          The list to which the output values are added.
    */
-  private void buildPeriodicStringOutputValues()
+  private void buildPeriodicStringOutputValues(
+    List<TimestampSensorValuesListValue> values)
     throws SensorValuesListException {
 
     try {
-      outputValues = new ArrayList<TimestampSensorValuesListValue>();
-
       TimeCoordinate groupStartTime = null;
       TimeCoordinate groupEndTime = null;
       String groupValue = null;
@@ -437,7 +566,7 @@ public class TimestampSensorValuesList extends SensorValuesList {
                 groupMembers, sensorType, firstValue.getValue(),
                 firstValue.getDisplayFlag(allSensorValues),
                 firstValue.getDisplayQCMessage(allSensorValues), false);
-              outputValues.add(outputValue);
+              values.add(outputValue);
 
               // End time and group members updated outside this block below
               groupStartTime = (TimeCoordinate) sensorValue.getCoordinate();
@@ -465,7 +594,7 @@ public class TimestampSensorValuesList extends SensorValuesList {
           groupMembers, sensorType, firstValue.getValue(),
           firstValue.getDisplayFlag(allSensorValues),
           firstValue.getDisplayQCMessage(allSensorValues), false);
-        outputValues.add(outputValue);
+        values.add(outputValue);
       }
     } catch (Exception e) {
       throw new SensorValuesListException(e);
@@ -487,11 +616,7 @@ public class TimestampSensorValuesList extends SensorValuesList {
   @Override
   public List<Coordinate> getValueCoordinates()
     throws SensorValuesListException {
-    if (null == outputValues) {
-      buildOutputValues();
-    }
-
-    return Collections.unmodifiableList(valueCoordinatesCache);
+    return Collections.unmodifiableList(getOutput().coordinates);
   }
 
   /**
@@ -499,7 +624,7 @@ public class TimestampSensorValuesList extends SensorValuesList {
    * using the values in this list.
    *
    * <p>
-   * The value will be constructed from the {@link #outputValues}. If there is a
+   * The value will be constructed from the {@link #output} values. If there is a
    * value exactly corresponding to the specified time it will be used as the
    * result. Otherwise the {@link TimestampSensorValuesListValue} will be
    * constructed from an interpolation as follows:
@@ -541,22 +666,22 @@ public class TimestampSensorValuesList extends SensorValuesList {
   public SensorValuesListOutput getValue(Coordinate time,
     boolean allowInterpolation) throws SensorValuesListException {
 
-    if (null == outputValues) {
-      buildOutputValues();
-    }
+    OutputValues output = getOutput();
 
     TimestampSensorValuesListOutput result;
 
-    if (outputValues.size() == 0) {
+    if (output.values.size() == 0) {
       result = null;
     } else {
       switch (getMeasurementMode()) {
       case MODE_CONTINUOUS: {
-        result = getValueContinuous((TimeCoordinate) time, allowInterpolation);
+        result = getValueContinuous(output, (TimeCoordinate) time,
+          allowInterpolation);
         break;
       }
       case MODE_PERIODIC: {
-        result = getValuePeriodic((TimeCoordinate) time, allowInterpolation);
+        result = getValuePeriodic(output, (TimeCoordinate) time,
+          allowInterpolation);
         break;
       }
       default: {
@@ -572,6 +697,8 @@ public class TimestampSensorValuesList extends SensorValuesList {
    * Construct a {@link TimestampSensorValuesListValue} for the list in
    * CONTINUOUS mode.
    *
+   * @param output
+   *          The list's output values.
    * @param time
    *          The required time.
    * @return The constructed {@link TimestampSensorValuesListValue}.
@@ -580,16 +707,17 @@ public class TimestampSensorValuesList extends SensorValuesList {
    * @see #getValue(LocalDateTime)
    */
   private TimestampSensorValuesListOutput getValueContinuous(
-    TimeCoordinate time, boolean allowInterpolation)
+    OutputValues output, TimeCoordinate time, boolean allowInterpolation)
     throws SensorValuesListException {
 
     TimestampSensorValuesListOutput result;
 
-    int searchIndex = Collections.binarySearch(getValueCoordinates(), time);
+    long searchTime = toEpochNanos(time.getTime());
+    int searchIndex = findValueIndex(output, searchTime);
     TimestampSensorValuesListValue exactMatch = null;
 
     if (searchIndex >= 0) {
-      exactMatch = outputValues.get(searchIndex);
+      exactMatch = output.values.get(searchIndex);
     }
 
     /*
@@ -620,10 +748,10 @@ public class TimestampSensorValuesList extends SensorValuesList {
       int postIndex = searchIndex >= 0 ? searchIndex + 1
         : Math.abs(searchIndex) - 1;
 
-      TimestampSensorValuesListOutput prior = findInterpContinuousValue(
-        priorIndex, time.getTime(), -1, (x) -> x >= 0);
-      TimestampSensorValuesListOutput post = findInterpContinuousValue(
-        postIndex, time.getTime(), 1, (x) -> x < outputValues.size());
+      TimestampSensorValuesListOutput prior = findInterpContinuousValue(output,
+        priorIndex, searchTime, -1);
+      TimestampSensorValuesListOutput post = findInterpContinuousValue(output,
+        postIndex, searchTime, 1);
 
       TimestampSensorValuesListOutput interpolated = buildInterpolatedValue(
         prior, post, time,
@@ -655,9 +783,9 @@ public class TimestampSensorValuesList extends SensorValuesList {
    *
    * <p>
    * The search will start at {@code startIndex}, and proceed in the direction
-   * specified by {@link stepDirection}. The value must have a timestamp within
-   * the {@link #CONTINUOUS_MEASUREMENT_LIMIT} of the {@code referenceTime}, and
-   * also pass the test predicate provided by {@code limitTest}.
+   * specified by {@link stepDirection} until it reaches either end of the
+   * list. The value must have a timestamp within the
+   * {@link #CONTINUOUS_MEASUREMENT_LIMIT} of the {@code referenceTime}.
    * </p>
    *
    * <p>
@@ -665,19 +793,22 @@ public class TimestampSensorValuesList extends SensorValuesList {
    * above criteria.
    * </p>
    *
+   * @param output
+   *          The list's output values.
    * @param startIndex
    *          The start point for the search.
    * @param referenceTime
-   *          The time used to determine the temporal limit of the search.
+   *          The time used to determine the temporal limit of the search, in
+   *          nanoseconds since the epoch.
    * @param stepDirection
    *          The search direction.
-   * @param limitTest
-   *          An additional test that the value must meet.
    * @return The found value.
    */
   private TimestampSensorValuesListOutput findInterpContinuousValue(
-    int startIndex, LocalDateTime referenceTime, int stepDirection,
-    IntPredicate limitTest) {
+    OutputValues output, int startIndex, long referenceTime,
+    int stepDirection) {
+
+    List<TimestampSensorValuesListValue> outputValues = output.values;
 
     TimestampSensorValuesListOutput result = null;
     boolean stopSearch = false;
@@ -685,16 +816,17 @@ public class TimestampSensorValuesList extends SensorValuesList {
     int currentIndex = startIndex;
 
     // If the start point is already outside the bounds, abort.
-    if (!limitTest.test(currentIndex)) {
+    if (currentIndex < 0 || currentIndex >= outputValues.size()) {
       stopSearch = true;
     }
 
     while (!stopSearch) {
       TimestampSensorValuesListValue testValue = outputValues.get(currentIndex);
 
-      // Check that we're still within the interpolation limit
-      if (Math.abs(DateTimeUtils.secondsBetween(referenceTime,
-        testValue.getCoordinate().getTime())) > CONTINUOUS_MEASUREMENT_LIMIT) {
+      // Check that we're still within the interpolation limit. Whole
+      // seconds are compared, matching DateTimeUtils.secondsBetween
+      if (Math.abs(output.times[currentIndex] - referenceTime)
+        / NANOS_PER_SECOND > CONTINUOUS_MEASUREMENT_LIMIT) {
         stopSearch = true;
       } else {
         if (allSensorValues.getFlagScheme().isGood(testValue.getQCFlag(),
@@ -725,7 +857,7 @@ public class TimestampSensorValuesList extends SensorValuesList {
 
           // Prepare for the next iteration
           currentIndex = currentIndex + stepDirection;
-          if (!limitTest.test(currentIndex)) {
+          if (currentIndex < 0 || currentIndex >= outputValues.size()) {
             // We fell off the end of the list
             stopSearch = true;
           }
@@ -740,15 +872,19 @@ public class TimestampSensorValuesList extends SensorValuesList {
    * Construct a {@link TimestampSensorValuesListValue} for the list in PERIODIC
    * mode.
    *
+   * @param output
+   *          The list's output values.
    * @param time
    *          The required time.
    * @return The constructed {@link TimestampSensorValuesListValue}.
    * @throws SensorValuesListException
    *           If the value cannot be constructed.
    */
-  private TimestampSensorValuesListOutput getValuePeriodic(TimeCoordinate time,
-    boolean allowInterpolation) throws SensorValuesListException {
+  private TimestampSensorValuesListOutput getValuePeriodic(OutputValues output,
+    TimeCoordinate time, boolean allowInterpolation)
+    throws SensorValuesListException {
 
+    List<TimestampSensorValuesListValue> outputValues = output.values;
     TimestampSensorValuesListOutput result;
 
     /*
@@ -757,7 +893,7 @@ public class TimestampSensorValuesList extends SensorValuesList {
      * index of that group. 2. If we fall between groups, we get the negative
      * result per a standard binary search.
      */
-    int searchIndex = Collections.binarySearch(getValueCoordinates(), time);
+    int searchIndex = Collections.binarySearch(output.coordinates, time);
 
     TimestampSensorValuesListValue exactMatch = searchIndex >= 0
       ? outputValues.get(searchIndex)
@@ -911,8 +1047,6 @@ public class TimestampSensorValuesList extends SensorValuesList {
 
     if (groupsByTime > 1 && (meanGroupSize <= MAX_PERIODIC_GROUP_SIZE
       && largeGroupCount <= LARGE_GROUP_LIMIT)) {
-      measurementMode = MODE_PERIODIC;
-
       // Calculate the mean time between groups
       MeanCalculator mean = new MeanCalculator();
       for (int i = 1; i < groupStartTimes.size(); i++) {
@@ -920,6 +1054,7 @@ public class TimestampSensorValuesList extends SensorValuesList {
           groupStartTimes.get(i)));
       }
       periodicGroupTimeInterval = Math.round(mean.mean());
+      measurementMode = MODE_PERIODIC;
     } else {
       measurementMode = MODE_CONTINUOUS;
     }
@@ -961,18 +1096,15 @@ public class TimestampSensorValuesList extends SensorValuesList {
   public TimestampSensorValuesListValue getValueOnOrBefore(Coordinate time)
     throws SensorValuesListException {
 
-    if (null == outputValues) {
-      buildOutputValues();
-    }
+    OutputValues output = getOutput();
 
     TimestampSensorValuesListValue result = null;
 
-    List<Coordinate> times = getValueCoordinates();
-    int searchIndex = Collections.binarySearch(times, time);
+    int searchIndex = Collections.binarySearch(output.coordinates, time);
 
     // A >= 0 = an exact match
     if (searchIndex >= 0) {
-      result = outputValues.get(searchIndex);
+      result = output.values.get(searchIndex);
     } else {
 
       /*
@@ -983,7 +1115,7 @@ public class TimestampSensorValuesList extends SensorValuesList {
       if (searchIndex < -1) {
         int getIndex = Math.abs(searchIndex) - 2;
         if (getIndex >= 0) {
-          result = outputValues.get(getIndex);
+          result = output.values.get(getIndex);
         }
       }
     }
@@ -1445,16 +1577,12 @@ public class TimestampSensorValuesList extends SensorValuesList {
   @Override
   protected List<? extends SensorValuesListValue> getOutputValues()
     throws SensorValuesListException {
-    if (null == outputValues) {
-      buildOutputValues();
-    }
-
-    return outputValues;
+    return getOutput().values;
   }
 
   @Override
   protected void listContentsUpdated() {
-    outputValues = null;
+    output = null;
     coordinatesMap = null;
   }
 
@@ -1501,8 +1629,10 @@ public class TimestampSensorValuesList extends SensorValuesList {
   public SensorValuesListOutput getValueForPeriod(
     TimestampSensorValuesListValue timeReference) throws RoutineException {
 
+    TreeMap<LocalDateTime, TimeCoordinate> coordinatesMap = this.coordinatesMap;
     if (null == coordinatesMap) {
-      buildCoordinatesMap();
+      coordinatesMap = buildCoordinatesMap();
+      this.coordinatesMap = coordinatesMap;
     }
 
     SensorValuesListOutput result = null;
@@ -1560,9 +1690,65 @@ public class TimestampSensorValuesList extends SensorValuesList {
     return result;
   }
 
-  private void buildCoordinatesMap() {
-    coordinatesMap = new TreeMap<LocalDateTime, TimeCoordinate>();
+  private TreeMap<LocalDateTime, TimeCoordinate> buildCoordinatesMap() {
+    TreeMap<LocalDateTime, TimeCoordinate> result = new TreeMap<LocalDateTime, TimeCoordinate>();
     getRawCoordinates().stream()
-      .forEach(c -> coordinatesMap.put(c.getTime(), (TimeCoordinate) c));
+      .forEach(c -> result.put(c.getTime(), (TimeCoordinate) c));
+    return result;
+  }
+
+  /**
+   * The output values of a list, with the indexes used to search them. All the
+   * parts are built together and never change, so they can be published to
+   * other threads in one step.
+   */
+  private static class OutputValues {
+
+    /**
+     * The output values.
+     */
+    private final List<TimestampSensorValuesListValue> values;
+
+    /**
+     * The coordinates of the output values.
+     */
+    private final List<Coordinate> coordinates;
+
+    /**
+     * The times of the output values in nanoseconds since the epoch (see
+     * {@link TimestampSensorValuesList#toEpochNanos(LocalDateTime)}), used for
+     * fast lookups.
+     */
+    private final long[] times;
+
+    /**
+     * The index of the most recent lookup.
+     *
+     * <p>
+     * Values are usually requested in increasing time order, so searches start
+     * from this position and move forwards. It is only a starting point: any
+     * index gives the correct result, so it does not need to be synchronised
+     * between threads.
+     * </p>
+     *
+     * @see TimestampSensorValuesList#findValueIndex(OutputValues, long)
+     */
+    private int searchCursor = 0;
+
+    /**
+     * Build the search indexes for a set of output values.
+     *
+     * @param values
+     *          The output values.
+     */
+    private OutputValues(List<TimestampSensorValuesListValue> values) {
+      this.values = Collections.unmodifiableList(values);
+      this.coordinates = values.stream().map(v -> v.getCoordinate()).toList();
+
+      this.times = new long[values.size()];
+      for (int i = 0; i < times.length; i++) {
+        times[i] = toEpochNanos(values.get(i).getCoordinate().getTime());
+      }
+    }
   }
 }
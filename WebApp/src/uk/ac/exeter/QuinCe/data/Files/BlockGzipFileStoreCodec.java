@@ -0,0 +1,584 @@
+package uk.ac.exeter.QuinCe.data.Files;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * {@link FileStoreCodec} that compresses files as a series of independently
+ * gzipped blocks, with an index of the blocks at the end of the file.
+ *
+ * <p>
+ * Because each block can be decompressed on its own, any part of a file can
+ * be read without decompressing the whole file. The lines of a file are read
+ * one block at a time (see {@link #getLines(File)}), so only one decompressed
+ * block is held in memory.
+ * </p>
+ *
+ * <p>
+ * The file layout is:
+ * </p>
+ * <ul>
+ * <li>Header: {@link #MAGIC}, format version (byte), uncompressed block size
+ * (int)</li>
+ * <li>The gzipped blocks. Every block except the last contains exactly the
+ * block size of uncompressed data.</li>
+ * <li>Index: block count (int), then the file position (long) and compressed
+ * length (int) of each block</li>
+ * <li>Footer: uncompressed content length (long), index position (long),
+ * {@link #MAGIC}</li>
+ * </ul>
+ */
+public class BlockGzipFileStoreCodec implements FileStoreCodec {
+
+  /**
+   * The codec name.
+   */
+  public static final String NAME = "gzip_blocks";
+
+  /**
+   * The marker at the start and end of every file written by this codec.
+   */
+  private static final byte[] MAGIC = { 'Q', 'C', 'G', 'Z' };
+
+  /**
+   * The current format version.
+   */
+  private static final byte VERSION = 1;
+
+  /**
+   * The length of the file header.
+   */
+  private static final int HEADER_LENGTH = MAGIC.length + 1 + 4;
+
+  /**
+   * The length of the file footer.
+   */
+  private static final int FOOTER_LENGTH = 8 + 8 + MAGIC.length;
+
+  /**
+   * The default uncompressed block size.
+   */
+  private static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+  /**
+   * The uncompressed block size used when writing files.
+   */
+  private final int blockSize;
+
+  /**
+   * Create a codec that writes blocks of the default size.
+   */
+  public BlockGzipFileStoreCodec() {
+    this(DEFAULT_BLOCK_SIZE);
+  }
+
+  /**
+   * Create a codec that writes blocks of the specified size.
+   *
+   * @param blockSize
+   *          The uncompressed block size.
+   */
+  protected BlockGzipFileStoreCodec(int blockSize) {
+    this.blockSize = blockSize;
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public boolean canRead(File file) throws IOException {
+    boolean result = false;
+
+    if (file.length() >= HEADER_LENGTH + FOOTER_LENGTH) {
+      try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+        byte[] start = new byte[MAGIC.length];
+        in.readFully(start);
+
+        byte[] end = new byte[MAGIC.length];
+        in.seek(in.length() - MAGIC.length);
+        in.readFully(end);
+
+        result = Arrays.equals(MAGIC, start) && Arrays.equals(MAGIC, end);
+      }
+    }
+
+    return result;
+  }
+
+  @Override
+  public void write(InputStream in, File file) throws IOException {
+
+    long[] blockPositions = new long[16];
+    int[] blockLengths = new int[16];
+    int blockCount = 0;
+    long contentLength = 0;
+
+    try (DataOutputStream out = new DataOutputStream(
+      new BufferedOutputStream(new FileOutputStream(file)))) {
+
+      out.write(MAGIC);
+      out.writeByte(VERSION);
+      out.writeInt(blockSize);
+
+      long position = HEADER_LENGTH;
+      byte[] block = new byte[blockSize];
+      int read;
+
+      while ((read = in.readNBytes(block, 0, blockSize)) > 0) {
+        byte[] compressed = compress(block, read);
+        out.write(compressed);
+
+        if (blockCount == blockPositions.length) {
+          blockPositions = Arrays.copyOf(blockPositions, blockCount * 2);
+          blockLengths = Arrays.copyOf(blockLengths, blockCount * 2);
+        }
+
+        blockPositions[blockCount] = position;
+        blockLengths[blockCount] = compressed.length;
+        blockCount++;
+
+        position += compressed.length;
+        contentLength += read;
+      }
+
+      long indexPosition = position;
+      out.writeInt(blockCount);
+      for (int i = 0; i < blockCount; i++) {
+        out.writeLong(blockPositions[i]);
+        out.writeInt(blockLengths[i]);
+      }
+
+      out.writeLong(contentLength);
+      out.writeLong(indexPosition);
+      out.write(MAGIC);
+    }
+  }
+
+  @Override
+  public byte[] read(File file) throws IOException {
+    try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+      BlockIndex index = new BlockIndex(file, in);
+
+      if (index.contentLength > Integer.MAX_VALUE) {
+        throw new IOException(
+          "File " + file.getAbsolutePath() + " is too large to read");
+      }
+
+      byte[] result = new byte[(int) index.contentLength];
+      for (int i = 0; i < index.blockCount(); i++) {
+        byte[] block = index.readBlock(in, i);
+        System.arraycopy(block, 0, result, (int) index.getBlockStart(i),
+          block.length);
+      }
+
+      return result;
+    }
+  }
+
+  /**
+   * Get an {@link InputStream} for the file's contents. The contents are
+   * decompressed one block at a time as the stream is read (see
+   * {@link BlockInputStream}).
+   */
+  @Override
+  public InputStream getInputStream(File file) throws IOException {
+    RandomAccessFile in = new RandomAccessFile(file, "r");
+
+    try {
+      return new BlockInputStream(in, new BlockIndex(file, in));
+    } catch (IOException e) {
+      in.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public long getContentLength(File file) throws IOException {
+    try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+      return new BlockIndex(file, in).contentLength;
+    }
+  }
+
+  @Override
+  public List<String> getLines(File file) throws IOException {
+    return new BlockLineList(file, Charset.defaultCharset());
+  }
+
+  /**
+   * Gzip a block of data.
+   *
+   * @param data
+   *          The data.
+   * @param length
+   *          The number of bytes from {@code data} to compress.
+   * @return The compressed block.
+   * @throws IOException
+   *           If the data cannot be compressed.
+   */
+  private static byte[] compress(byte[] data, int length) throws IOException {
+    ByteArrayOutputStream result = new ByteArrayOutputStream(length / 4);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(result)) {
+      gzip.write(data, 0, length);
+    }
+
+    return result.toByteArray();
+  }
+
+  /**
+   * The block index of a compressed file.
+   */
+  private static class BlockIndex {
+
+    /**
+     * The file.
+     */
+    private final File file;
+
+    /**
+     * The uncompressed block size.
+     */
+    private final int blockSize;
+
+    /**
+     * The total uncompressed length of the file's contents.
+     */
+    private final long contentLength;
+
+    /**
+     * The file position of each block.
+     */
+    private final long[] blockPositions;
+
+    /**
+     * The compressed length of each block.
+     */
+    private final int[] blockLengths;
+
+    /**
+     * Read the index from a file.
+     *
+     * @param file
+     *          The file.
+     * @param in
+     *          An open reader for the file.
+     * @throws IOException
+     *           If the index cannot be read.
+     */
+    private BlockIndex(File file, RandomAccessFile in) throws IOException {
+      this.file = file;
+
+      in.seek(MAGIC.length);
+      byte version = in.readByte();
+      if (version != VERSION) {
+        throw new IOException("Unrecognised compression format version "
+          + version + " in file " + file.getAbsolutePath());
+      }
+      blockSize = in.readInt();
+
+      in.seek(in.length() - FOOTER_LENGTH);
+      contentLength = in.readLong();
+      long indexPosition = in.readLong();
+
+      in.seek(indexPosition);
+      int blockCount = in.readInt();
+      blockPositions = new long[blockCount];
+      blockLengths = new int[blockCount];
+      for (int i = 0; i < blockCount; i++) {
+        blockPositions[i] = in.readLong();
+        blockLengths[i] = in.readInt();
+      }
+    }
+
+    /**
+     * Get the number of blocks in the file.
+     *
+     * @return The block count.
+     */
+    private int blockCount() {
+      return blockPositions.length;
+    }
+
+    /**
+     * Get the position within the uncompressed contents of the first byte of
+     * a block.
+     *
+     * @param block
+     *          The block index.
+     * @return The block's start position.
+     */
+    private long getBlockStart(int block) {
+      return (long) block * blockSize;
+    }
+
+    /**
+     * Read and decompress a block.
+     *
+     * @param in
+     *          An open reader for the file.
+     * @param block
+     *          The block index.
+     * @return The decompressed block.
+     * @throws IOException
+     *           If the block cannot be read.
+     */
+    private byte[] readBlock(RandomAccessFile in, int block)
+      throws IOException {
+
+      byte[] compressed = new byte[blockLengths[block]];
+      in.seek(blockPositions[block]);
+      in.readFully(compressed);
+
+      int expectedLength = (int) Math.min(blockSize,
+        contentLength - getBlockStart(block));
+
+      byte[] result;
+      try (GZIPInputStream gzip = new GZIPInputStream(
+        new ByteArrayInputStream(compressed))) {
+        result = gzip.readNBytes(expectedLength);
+      }
+
+      if (result.length != expectedLength) {
+        throw new IOException("Block " + block + " of file "
+          + file.getAbsolutePath() + " is shorter than expected");
+      }
+
+      return result;
+    }
+  }
+
+  /**
+   * {@link InputStream} that decompresses a file one block at a time, so only
+   * one decompressed block is held in memory.
+   */
+  private static class BlockInputStream extends InputStream {
+
+    /**
+     * The open file.
+     */
+    private final RandomAccessFile in;
+
+    /**
+     * The file's block index.
+     */
+    private final BlockIndex index;
+
+    /**
+     * The index of the next block to be read from the file.
+     */
+    private int nextBlock = 0;
+
+    /**
+     * The block currently being read.
+     */
+    private byte[] block = new byte[0];
+
+    /**
+     * The position of the next byte to be read from {@link #block}.
+     */
+    private int blockPosition = 0;
+
+    /**
+     * Create a stream for an open file.
+     *
+     * @param in
+     *          The open file. This is closed when the stream is closed.
+     * @param index
+     *          The file's block index.
+     */
+    private BlockInputStream(RandomAccessFile in, BlockIndex index) {
+      this.in = in;
+      this.index = index;
+    }
+
+    @Override
+    public int read() throws IOException {
+      return nextBlock() ? block[blockPosition++] & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+      Objects.checkFromIndexSize(offset, length, bytes.length);
+
+      int result;
+
+      if (length == 0) {
+        result = 0;
+      } else if (!nextBlock()) {
+        result = -1;
+      } else {
+        result = Math.min(length, block.length - blockPosition);
+        System.arraycopy(block, blockPosition, bytes, offset, result);
+        blockPosition += result;
+      }
+
+      return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+
+    /**
+     * Make sure that {@link #block} has bytes left to read, reading the next
+     * block from the file if required.
+     *
+     * @return {@code true} if there are bytes to read; {@code false} if the
+     *         end of the file has been reached.
+     * @throws IOException
+     *           If a block cannot be read.
+     */
+    private boolean nextBlock() throws IOException {
+      while (blockPosition == block.length
+        && nextBlock < index.blockCount()) {
+        block = index.readBlock(in, nextBlock);
+        nextBlock++;
+        blockPosition = 0;
+      }
+
+      return blockPosition < block.length;
+    }
+  }
+
+  /**
+   * {@link IndexedLineList} that reads lines from a compressed file, holding
+   * only the most recently read block in memory.
+   *
+   * <p>
+   * The file is only held open while the line index is built and while each
+   * block is read. If the file is replaced in the file store after the list is
+   * built (see {@link FileStore#recodeFiles(String, FileStoreCodec, int)}),
+   * reading a block fails instead of returning lines from the new file.
+   * </p>
+   */
+  private static class BlockLineList extends IndexedLineList {
+
+    /**
+     * The file.
+     */
+    private final File file;
+
+    /**
+     * The version of the file that the list was built from (see
+     * {@link FileStore#getFileVersion(File)}).
+     */
+    private final String version;
+
+    /**
+     * The file, while it is held open to build the line index.
+     */
+    private RandomAccessFile indexFile = null;
+
+    /**
+     * The file's block index.
+     */
+    private final BlockIndex index;
+
+    /**
+     * The index of the block held in {@link #currentBlock}.
+     */
+    private int currentBlockIndex = -1;
+
+    /**
+     * The most recently read block.
+     */
+    private byte[] currentBlock = null;
+
+    /**
+     * Read the block index of the specified file and build the line index.
+     *
+     * @param file
+     *          The file.
+     * @param charset
+     *          The character set used to decode the lines.
+     * @throws IOException
+     *           If the file cannot be read.
+     */
+    private BlockLineList(File file, Charset charset) throws IOException {
+      super(charset);
+      this.file = file;
+
+      try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+        version = FileStore.getFileVersion(file);
+        if (null == version) {
+          throw new FileNotFoundException(file.getAbsolutePath());
+        }
+
+        index = new BlockIndex(file, in);
+
+        indexFile = in;
+        buildIndex();
+      } finally {
+        indexFile = null;
+      }
+    }
+
+    @Override
+    protected long getLength() {
+      return index.contentLength;
+    }
+
+    @Override
+    protected synchronized void getBytes(long position, byte[] bytes)
+      throws IOException {
+
+      int copied = 0;
+      while (copied < bytes.length) {
+        long contentPosition = position + copied;
+        loadBlock((int) (contentPosition / index.blockSize));
+        int offset = (int) (contentPosition % index.blockSize);
+        int length = Math.min(bytes.length - copied,
+          currentBlock.length - offset);
+
+        System.arraycopy(currentBlock, offset, bytes, copied, length);
+        copied += length;
+      }
+    }
+
+    /**
+     * Make sure that the specified block is held in {@link #currentBlock}.
+     *
+     * @param block
+     *          The block index.
+     * @throws IOException
+     *           If the block cannot be read.
+     */
+    private void loadBlock(int block) throws IOException {
+      if (block != currentBlockIndex) {
+        if (null != indexFile) {
+          currentBlock = index.readBlock(indexFile, block);
+        } else {
+          try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+
+            // The version is checked after the file is opened, so the open
+            // file is the one that was checked
+            if (!version.equals(FileStore.getFileVersion(file))) {
+              throw new IOException("File " + file.getAbsolutePath()
+                + " has been replaced since it was loaded");
+            }
+
+            currentBlock = index.readBlock(in, block);
+          }
+        }
+
+        currentBlockIndex = block;
+      }
+    }
+  }
+}
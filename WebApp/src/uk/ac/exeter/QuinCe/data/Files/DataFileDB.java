@@ -168,7 +168,7 @@ public class DataFileDB {
    * @throws RecordNotFoundException
    * @see #ADD_FILE_STATEMENT
    * @see #REPLACE_FILE_STATEMENT
-   * @see FileStore#storeFile(String, DataFile)
+   * @see FileStore#storeFile(String, FileStoreCodec, DataFile)
    */
   public static void storeFile(DataSource dataSource, Properties appConfig,
     Instrument instrument, DataFile dataFile, long replacementId)
@@ -216,7 +216,7 @@ public class DataFileDB {
    * @throws DatabaseException
    *           If an error occurs while storing the file
    * @see #ADD_FILE_STATEMENT
-   * @see FileStore#storeFile(String, DataFile)
+   * @see FileStore#storeFile(String, FileStoreCodec, DataFile)
    */
   private static void storeNewFile(Connection conn, Properties appConfig,
     Instrument instrument, DataFile dataFile)
@@ -249,7 +249,8 @@ public class DataFileDB {
         dataFile.setDatabaseId(generatedKeys.getLong(1));
 
         // Store the file
-        FileStore.storeFile(appConfig.getProperty("filestore"), dataFile);
+        FileStore.storeFile(appConfig.getProperty("filestore"),
+          FileStore.getCodec(appConfig), dataFile);
       }
     } catch (FileExistsException e) {
       throw e;
@@ -282,7 +283,7 @@ public class DataFileDB {
    * @throws DatabaseException
    *           If an error occurs while storing the file
    * @see #REPLACE_FILE_STATEMENT
-   * @see FileStore#storeFile(String, DataFile)
+   * @see FileStore#storeFile(String, FileStoreCodec, DataFile)
    */
   private static void replaceFile(Connection conn, Properties appConfig,
     DataFile dataFile, long replacementId)
@@ -325,7 +326,8 @@ public class DataFileDB {
         dataFile.setDatabaseId(replacementId);
 
         // Store the file - automatically replaces the old one
-        FileStore.storeFile(appConfig.getProperty("filestore"), dataFile);
+        FileStore.storeFile(appConfig.getProperty("filestore"),
+          FileStore.getCodec(appConfig), dataFile);
 
         conn.commit();
 
@@ -864,6 +866,29 @@ public class DataFileDB {
     }
   }
 
+  /**
+   * Rewrite files in the file store that were not written with the currently
+   * configured {@link FileStoreCodec}, e.g. to compress files that were stored
+   * before compression was enabled.
+   *
+   * @param appConfig
+   *          The application configuration
+   * @param maxFiles
+   *          The maximum number of files to rewrite
+   * @return The number of files rewritten
+   * @throws FileStoreException
+   *           If the configured codec is not recognised
+   * @throws IOException
+   *           If a file cannot be rewritten
+   * @see FileStore#recodeFiles(String, FileStoreCodec, int)
+   */
+  public static int recodeFileStore(Properties appConfig, int maxFiles)
+    throws FileStoreException, IOException {
+
+    return FileStore.recodeFiles(appConfig.getProperty("filestore"),
+      FileStore.getCodec(appConfig), maxFiles);
+  }
+
   /**
    * Get the last date that any data file was modified for a given instrument.
    * <p>
@@ -1,11 +1,18 @@
 package uk.ac.exeter.QuinCe.data.Files;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.Writer;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.sql.DataSource;
 
@@ -26,29 +33,62 @@ import uk.ac.exeter.QuinCe.utils.MissingParamException;
  */
 public class FileStore {
 
+  /**
+   * Application configuration property specifying the name of the
+   * {@link FileStoreCodec} used to write files.
+   */
+  public static final String CODEC_PROPERTY = "filestore.codec";
+
+  /**
+   * The available {@link FileStoreCodec}s. The {@link PlainFileStoreCodec} can
+   * read any file, so it must be last.
+   */
+  private static final List<FileStoreCodec> CODECS = List
+    .of(new BlockGzipFileStoreCodec(), new PlainFileStoreCodec());
+
+  /**
+   * The suffix added to files while they are being written.
+   */
+  private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+  /**
+   * Lock held while files are replaced or deleted, so that a recoded file
+   * cannot replace a file that has just been stored or deleted.
+   */
+  private static final Object LOCK = new Object();
+
+  /**
+   * The {@link FileStoreCodec} that each file was written with, keyed by the
+   * file's path. Files are added when they are stored or checked by
+   * {@link #recodeFiles(String, FileStoreCodec, int)}, so each file is only
+   * opened once to find out whether it needs recoding.
+   */
+  private static final Map<String, FileStoreCodec> fileCodecs = new ConcurrentHashMap<String, FileStoreCodec>();
+
   /**
    * Store a file in the file store. This will overwrite any existing file.
    *
    * @param fileStore
    *          The location of the file store
-   * @param fileDefinitionId
-   *          The ID of the file's {@link FileDefinition}.
-   * @param fileId
-   *          The ID of the file.
+   * @param codec
+   *          The codec used to write the file
+   * @param dataFile
+   *          The file to be stored
    * @throws MissingParamException
    *           If any of the parameters are missing
    * @throws FileStoreException
    *           If an error occurs while storing the file
    * @see DataFileDB#storeFile(DataSource, Properties, DataFile)
    */
-  protected static void storeFile(String fileStore, DataFile dataFile)
-    throws MissingParamException, FileStoreException {
+  protected static void storeFile(String fileStore, FileStoreCodec codec,
+    DataFile dataFile) throws MissingParamException, FileStoreException {
 
     MissingParam.checkMissing(fileStore, "fileStore");
+    MissingParam.checkMissing(codec, "codec");
     MissingParam.checkMissing(dataFile, "dataFile");
 
-    FileWriter fileWriter = null;
     File file = null;
+    File tempFile = null;
 
     try {
       checkInstrumentDirectory(fileStore,
@@ -56,21 +96,25 @@ public class FileStore {
 
       file = getFileObject(fileStore,
         dataFile.getFileDefinition().getDatabaseId(), dataFile.getDatabaseId());
-      if (file.exists()) {
-        file.delete();
-      }
 
-      fileWriter = new FileWriter(file);
-      fileWriter.write(dataFile.getContentsAsString());
-      fileWriter.close();
+      byte[] bytes = dataFile.getContentsAsString()
+        .getBytes(Charset.defaultCharset());
 
-    } catch (Exception e) {
-
-      closeWriter(fileWriter);
-      deleteFile(file);
+      tempFile = writeTempFile(codec, new ByteArrayInputStream(bytes), file);
 
+      synchronized (LOCK) {
+        replaceFile(tempFile, file);
+        fileCodecs.put(file.getAbsolutePath(), codec);
+      }
+    } catch (Exception e) {
+      if (null != file) {
+        deleteFile(file);
+        fileCodecs.remove(file.getAbsolutePath());
+      }
       throw new FileStoreException("An error occurred while storing the file",
         e);
+    } finally {
+      deleteFile(tempFile);
     }
   }
 
@@ -93,7 +137,11 @@ public class FileStore {
 
     File fileToDelete = getFileObject(fileStore,
       dataFile.getFileDefinition().getDatabaseId(), dataFile.getDatabaseId());
-    deleteFile(fileToDelete);
+
+    synchronized (LOCK) {
+      deleteFile(fileToDelete);
+      fileCodecs.remove(fileToDelete.getAbsolutePath());
+    }
   }
 
   /**
@@ -110,29 +158,273 @@ public class FileStore {
   protected static byte[] getBytes(String fileStore, long fileDefinitionId,
     long fileId) throws IOException {
 
-    byte[] fileData;
     File readFile = getFileObject(fileStore, fileDefinitionId, fileId);
+    return getReadCodec(readFile).read(readFile);
+  }
 
-    FileInputStream inputStream = null;
-    try {
-      inputStream = new FileInputStream(readFile);
-      int fileLength = (int) readFile.length();
-      fileData = new byte[fileLength];
-      int bytesRead = inputStream.read(fileData);
-      if (bytesRead < fileLength) {
-        throw new IOException(
-          "Too few bytes read from file " + readFile.getAbsolutePath()
-            + ": got " + bytesRead + ", expected " + fileLength);
+  /**
+   * Get the lines of a file. The file's contents are read on demand, and are
+   * not loaded into memory all at once.
+   *
+   * @param fileStore
+   *          The file store
+   * @param fileDefinitionId
+   *          The ID of the file's {@link FileDefinition}
+   * @param fileId
+   *          The ID of the file
+   * @return The file's lines
+   * @throws IOException
+   *           If the file cannot be read
+   */
+  protected static List<String> getLines(String fileStore,
+    long fileDefinitionId, long fileId) throws IOException {
+
+    File readFile = getFileObject(fileStore, fileDefinitionId, fileId);
+    return getReadCodec(readFile).getLines(readFile);
+  }
+
+  /**
+   * Get the {@link FileStoreCodec} to be used for writing files, as specified
+   * by the {@link #CODEC_PROPERTY} in the application configuration. If the
+   * property is not set, the {@link BlockGzipFileStoreCodec} is used.
+   *
+   * @param appConfig
+   *          The application configuration
+   * @return The codec
+   * @throws FileStoreException
+   *           If the configured codec is not recognised
+   */
+  protected static FileStoreCodec getCodec(Properties appConfig)
+    throws FileStoreException {
+
+    String name = appConfig.getProperty(CODEC_PROPERTY,
+      BlockGzipFileStoreCodec.NAME);
+
+    return CODECS.stream().filter(c -> c.getName().equals(name)).findAny()
+      .orElseThrow(
+        () -> new FileStoreException("Unrecognised file store codec " + name));
+  }
+
+  /**
+   * Get the {@link FileStoreCodec} that can read the specified file.
+   *
+   * @param file
+   *          The file
+   * @return The codec
+   * @throws IOException
+   *           If the file cannot be read
+   */
+  private static FileStoreCodec getReadCodec(File file) throws IOException {
+    FileStoreCodec result = null;
+
+    for (FileStoreCodec codec : CODECS) {
+      if (codec.canRead(file)) {
+        result = codec;
+        break;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Rewrite files in the file store that were not written with the specified
+   * {@link FileStoreCodec}.
+   *
+   * <p>
+   * Files are rewritten one at a time. Each file is written to a temporary file
+   * which replaces the original once it is complete and its contents have been
+   * checked, so readers of the file are never given an incomplete file. The
+   * global lock is only held while the original file is replaced. A maximum of
+   * {@code maxFiles} files are rewritten in each call.
+   * </p>
+   *
+   * <p>
+   * Files whose codec is already known (see {@link #fileCodecs}) are not
+   * opened again.
+   * </p>
+   *
+   * @param fileStore
+   *          The location of the file store
+   * @param codec
+   *          The codec to be used for all files
+   * @param maxFiles
+   *          The maximum number of files to rewrite
+   * @return The number of files rewritten
+   * @throws IOException
+   *           If a file cannot be rewritten
+   */
+  protected static int recodeFiles(String fileStore, FileStoreCodec codec,
+    int maxFiles) throws IOException {
+
+    int recoded = 0;
+
+    File[] directories = new File(fileStore).listFiles(
+      f -> f.isDirectory() && f.getName().matches("[0-9]+"));
+
+    if (null != directories) {
+      for (File directory : directories) {
+        File[] files = directory.listFiles(
+          f -> f.isFile() && f.getName().matches("[0-9]+"));
+
+        if (null != files) {
+          for (File file : files) {
+            if (recoded >= maxFiles) {
+              break;
+            }
+
+            if (fileCodecs.get(file.getAbsolutePath()) != codec
+              && recodeFile(codec, file)) {
+              recoded++;
+            }
+          }
+        }
+      }
+    }
+
+    return recoded;
+  }
+
+  /**
+   * Rewrite a single file using the specified {@link FileStoreCodec}, if it
+   * was written with a different codec.
+   *
+   * <p>
+   * The file is not replaced if it is stored again or deleted while it is
+   * being rewritten.
+   * </p>
+   *
+   * @param codec
+   *          The codec
+   * @param file
+   *          The file
+   * @return {@code true} if the file was rewritten; {@code false} if it did not
+   *         need to be.
+   * @throws IOException
+   *           If the file cannot be rewritten
+   */
+  private static boolean recodeFile(FileStoreCodec codec, File file)
+    throws IOException {
+
+    boolean result = false;
+
+    String version = getFileVersion(file);
+
+    if (null != version) {
+      FileStoreCodec currentCodec = getReadCodec(file);
+
+      if (currentCodec == codec) {
+        fileCodecs.put(file.getAbsolutePath(), codec);
+      } else {
+        File tempFile = null;
+
+        try {
+          long contentLength = currentCodec.getContentLength(file);
+
+          try (InputStream in = currentCodec.getInputStream(file)) {
+            tempFile = writeTempFile(codec, in, file);
+          }
+
+          if (codec.getContentLength(tempFile) != contentLength) {
+            throw new IOException("Recoded contents of "
+              + file.getAbsolutePath() + " do not match");
+          }
+
+          synchronized (LOCK) {
+            if (version.equals(getFileVersion(file))) {
+              replaceFile(tempFile, file);
+              fileCodecs.put(file.getAbsolutePath(), codec);
+              result = true;
+            }
+          }
+        } catch (IOException e) {
+          // Ignore errors caused by the file being deleted while it was being
+          // read
+          if (null != getFileVersion(file)) {
+            throw e;
+          }
+        } finally {
+          deleteFile(tempFile);
+        }
       }
+    }
+
+    return result;
+  }
+
+  /**
+   * Get a value that identifies the current version of a file. The value
+   * changes whenever the file is replaced.
+   *
+   * @param file
+   *          The file
+   * @return The version, or {@code null} if the file does not exist
+   * @throws IOException
+   *           If the file's attributes cannot be read
+   */
+  static String getFileVersion(File file) throws IOException {
+    String result = null;
+
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(file.toPath(),
+        BasicFileAttributes.class);
+
+      result = attributes.fileKey() + "|" + attributes.lastModifiedTime() + "|"
+        + attributes.size();
+    } catch (NoSuchFileException e) {
+      // The file has been deleted
+    }
+
+    return result;
+  }
+
+  /**
+   * Write a file's contents to a new temporary file in the same directory. The
+   * temporary file has a unique name, so files can be written at the same
+   * time.
+   *
+   * @param codec
+   *          The codec used to write the file
+   * @param in
+   *          The file contents
+   * @param file
+   *          The file that the temporary file will replace
+   * @return The temporary file
+   * @throws IOException
+   *           If the file cannot be written
+   * @see #replaceFile(File, File)
+   */
+  private static File writeTempFile(FileStoreCodec codec, InputStream in,
+    File file) throws IOException {
+
+    File tempFile = File.createTempFile(file.getName() + ".", TEMP_FILE_SUFFIX,
+      file.getParentFile());
+
+    try {
+      codec.write(in, tempFile);
     } catch (IOException e) {
+      deleteFile(tempFile);
       throw e;
-    } finally {
-      if (null != inputStream) {
-        inputStream.close();
-      }
     }
 
-    return fileData;
+    return tempFile;
+  }
+
+  /**
+   * Replace a file with a completed temporary file in a single operation.
+   *
+   * @param tempFile
+   *          The temporary file
+   * @param file
+   *          The file to be replaced
+   * @throws IOException
+   *           If the file cannot be replaced
+   * @see #writeTempFile(FileStoreCodec, InputStream, File)
+   */
+  private static void replaceFile(File tempFile, File file)
+    throws IOException {
+    Files.move(tempFile.toPath(), file.toPath(),
+      StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
   }
 
   /**
@@ -210,23 +502,6 @@ public class FileStore {
       + File.separator + fileId);
   }
 
-  /**
-   * Close a writer. Not strictly a database thing, but it's in the same spirit
-   * and used in the same places.
-   *
-   * @param writer
-   *          The writer
-   */
-  private static void closeWriter(Writer writer) {
-    if (null != writer) {
-      try {
-        writer.close();
-      } catch (IOException e) {
-        // Do nothing
-      }
-    }
-  }
-
   /**
    * Delete a file from the file system. If the file does not exist, no action
    * is taken.
@@ -0,0 +1,98 @@
+package uk.ac.exeter.QuinCe.data.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Defines the format in which files are written to the {@link FileStore}.
+ *
+ * <p>
+ * Each codec must be able to recognise files that it has written (see
+ * {@link #canRead(File)}) so that the {@link FileStore} can choose the correct
+ * codec when a file is read, regardless of the codec currently configured for
+ * writing.
+ * </p>
+ *
+ * @see FileStore#getCodec(java.util.Properties)
+ */
+public interface FileStoreCodec {
+
+  /**
+   * Get the name of the codec, as used in the application configuration.
+   *
+   * @return The codec name.
+   */
+  public String getName();
+
+  /**
+   * Determine whether or not the specified file was written by this codec.
+   *
+   * @param file
+   *          The file.
+   * @return {@code true} if the file can be read by this codec; {@code false}
+   *         if it cannot.
+   * @throws IOException
+   *           If the file cannot be read.
+   */
+  public boolean canRead(File file) throws IOException;
+
+  /**
+   * Write the contents of a stream to a file, replacing any existing file.
+   *
+   * @param in
+   *          The stream containing the file contents.
+   * @param file
+   *          The destination file.
+   * @throws IOException
+   *           If the file cannot be written.
+   */
+  public void write(InputStream in, File file) throws IOException;
+
+  /**
+   * Read the complete decoded contents of a file.
+   *
+   * @param file
+   *          The file.
+   * @return The file contents.
+   * @throws IOException
+   *           If the file cannot be read.
+   */
+  public byte[] read(File file) throws IOException;
+
+  /**
+   * Get a stream of the decoded contents of a file.
+   *
+   * @param file
+   *          The file.
+   * @return The stream.
+   * @throws IOException
+   *           If the file cannot be read.
+   */
+  public InputStream getInputStream(File file) throws IOException;
+
+  /**
+   * Get the decoded length of a file's contents, without reading the whole
+   * file.
+   *
+   * @param file
+   *          The file.
+   * @return The length of the file's contents.
+   * @throws IOException
+   *           If the file cannot be read.
+   */
+  public long getContentLength(File file) throws IOException;
+
+  /**
+   * Get the lines of a file. The lines are read from the file on demand, so
+   * the whole file is not held in memory.
+   *
+   * @param file
+   *          The file.
+   * @return The file's lines.
+   * @throws IOException
+   *           If the file cannot be read.
+   */
+  public List<String> getLines(File file) throws IOException;
+}
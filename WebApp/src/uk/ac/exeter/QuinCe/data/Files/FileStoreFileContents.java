@@ -1,11 +1,17 @@
 package uk.ac.exeter.QuinCe.data.Files;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Arrays;
-
-import uk.ac.exeter.QuinCe.utils.StringUtils;
 
+/**
+ * Contents of a file held in the {@link FileStore}.
+ *
+ * <p>
+ * Individual lines are read from disk as they are needed instead of the whole
+ * file being held in memory. Uncompressed files are memory-mapped (see
+ * {@link MappedLineList}); compressed files are decompressed one block at a
+ * time (see {@link BlockGzipFileStoreCodec#getLines(java.io.File)}).
+ * </p>
+ */
 public class FileStoreFileContents extends FileContents {
 
   private String fileStore;
@@ -23,13 +29,8 @@ public class FileStoreFileContents extends FileContents {
 
   @Override
   protected void loadAction() throws DataFileException {
-
     try {
-      String fileContent = new String(getBytes());
-      contents = new ArrayList<String>(
-        Arrays.asList(fileContent.split("[\\r\\n]+")));
-
-      StringUtils.removeBlankTailLines(contents);
+      contents = FileStore.getLines(fileStore, fileDefinitionId, fileId);
     } catch (IOException e) {
       throw new DataFileException(fileId, -1, e);
     }
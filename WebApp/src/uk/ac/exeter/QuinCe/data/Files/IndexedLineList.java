@@ -0,0 +1,239 @@
+package uk.ac.exeter.QuinCe.data.Files;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.Arrays;
+
+/**
+ * A read-only {@link java.util.List} of the lines in a file, where the text of
+ * each line is only read from the file when it is requested.
+ *
+ * <p>
+ * The file is scanned once by {@link #buildIndex()} to build an index of the
+ * position and length of each line. The text of a line is only decoded when it
+ * is requested with {@link #get(int)}, so the file's contents are never held
+ * in the heap as a whole. Subclasses provide access to the bytes of the file.
+ * </p>
+ *
+ * <p>
+ * Lines are split in the same way as {@code String.split("[\\r\\n]+")}:
+ * any sequence of line break characters ends a line, so blank lines are not
+ * included in the list (except for an empty first line if the file begins
+ * with a line break). Blank lines at the end of the file are also removed, in
+ * the same way as
+ * {@link uk.ac.exeter.QuinCe.utils.StringUtils#removeBlankTailLines(java.util.List)}.
+ * </p>
+ *
+ * <p>
+ * The character set used to decode the lines must be one in which the
+ * {@code \r} and {@code \n} bytes only appear as line break characters (e.g.
+ * UTF-8 or ISO-8859-1).
+ * </p>
+ */
+public abstract class IndexedLineList extends AbstractList<String> {
+
+  /**
+   * The initial capacity of the line index.
+   */
+  private static final int INITIAL_CAPACITY = 1024;
+
+  /**
+   * The number of bytes read from the file at a time by {@link #buildIndex()}.
+   */
+  private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * The character set used to decode the lines.
+   */
+  private final Charset charset;
+
+  /**
+   * The position in the file of the first byte of each line.
+   */
+  private long[] lineStarts;
+
+  /**
+   * The length in bytes of each line.
+   */
+  private int[] lineLengths;
+
+  /**
+   * The number of lines in the file.
+   */
+  private int lineCount = 0;
+
+  /**
+   * Basic constructor.
+   *
+   * @param charset
+   *          The character set used to decode the lines.
+   */
+  protected IndexedLineList(Charset charset) {
+    this.charset = charset;
+  }
+
+  /**
+   * Scan the file to find the start position and length of each line. This
+   * must be called by subclass constructors once the file is accessible.
+   *
+   * @throws IOException
+   *           If the file cannot be read, or a line is too long to be
+   *           decoded.
+   */
+  protected void buildIndex() throws IOException {
+    lineStarts = new long[INITIAL_CAPACITY];
+    lineLengths = new int[INITIAL_CAPACITY];
+    lineCount = 0;
+
+    long fileSize = getLength();
+    long lineStart = 0;
+    boolean inLineBreak = false;
+
+    // The file is read in chunks rather than a byte at a time
+    byte[] buffer = new byte[(int) Math.min(SCAN_BUFFER_SIZE, fileSize)];
+
+    for (long bufferStart = 0; bufferStart < fileSize;
+      bufferStart += SCAN_BUFFER_SIZE) {
+
+      int bufferLength = (int) Math.min(SCAN_BUFFER_SIZE,
+        fileSize - bufferStart);
+      if (bufferLength < buffer.length) {
+        buffer = new byte[bufferLength];
+      }
+
+      getBytes(bufferStart, buffer);
+
+      for (int i = 0; i < bufferLength; i++) {
+        long pos = bufferStart + i;
+        boolean lineBreak = isLineBreak(buffer[i]);
+
+        if (lineBreak && !inLineBreak) {
+          // A file starting with a line break has an empty first line
+          if (pos > lineStart || lineCount == 0) {
+            addLine(lineStart, pos - lineStart);
+          }
+        } else if (!lineBreak && inLineBreak) {
+          lineStart = pos;
+        }
+
+        inLineBreak = lineBreak;
+      }
+    }
+
+    if (!inLineBreak && fileSize > lineStart) {
+      addLine(lineStart, fileSize - lineStart);
+    }
+
+    while (lineCount > 0 && isBlank(lineCount - 1)) {
+      lineCount--;
+    }
+  }
+
+  /**
+   * Add a line to the index.
+   *
+   * @param start
+   *          The position of the line's first byte.
+   * @param length
+   *          The length of the line in bytes.
+   * @throws IOException
+   *           If the line is too long to be decoded.
+   */
+  private void addLine(long start, long length) throws IOException {
+    if (length > Integer.MAX_VALUE) {
+      throw new IOException("Line " + (lineCount + 1) + " is too long");
+    }
+
+    if (lineCount == lineStarts.length) {
+      int newCapacity = lineStarts.length * 2;
+      lineStarts = Arrays.copyOf(lineStarts, newCapacity);
+      lineLengths = Arrays.copyOf(lineLengths, newCapacity);
+    }
+
+    lineStarts[lineCount] = start;
+    lineLengths[lineCount] = (int) length;
+    lineCount++;
+  }
+
+  /**
+   * Determine whether or not a line contains only whitespace, using the same
+   * definition of whitespace as {@link String#trim()}.
+   *
+   * @param line
+   *          The line index.
+   * @return {@code true} if the line is blank; {@code false} otherwise.
+   * @throws IOException
+   *           If the file cannot be read.
+   */
+  private boolean isBlank(int line) throws IOException {
+    boolean result = true;
+
+    byte[] bytes = new byte[lineLengths[line]];
+    getBytes(lineStarts[line], bytes);
+
+    for (int i = 0; result && i < bytes.length; i++) {
+      if ((bytes[i] & 0xff) > ' ') {
+        result = false;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Determine whether or not a byte is a line break character.
+   *
+   * @param b
+   *          The byte.
+   * @return {@code true} if the byte is {@code \r} or {@code \n};
+   *         {@code false} otherwise.
+   */
+  private static boolean isLineBreak(byte b) {
+    return b == '\n' || b == '\r';
+  }
+
+  @Override
+  public String get(int index) {
+    if (index < 0 || index >= lineCount) {
+      throw new IndexOutOfBoundsException(
+        "Index " + index + " out of bounds for length " + lineCount);
+    }
+
+    byte[] bytes = new byte[lineLengths[index]];
+
+    try {
+      getBytes(lineStarts[index], bytes);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read line " + index, e);
+    }
+
+    return new String(bytes, charset);
+  }
+
+  @Override
+  public int size() {
+    return lineCount;
+  }
+
+  /**
+   * Get the length of the file in bytes.
+   *
+   * @return The file length.
+   */
+  protected abstract long getLength();
+
+  /**
+   * Fill the supplied array with bytes from the file, starting at the
+   * specified position.
+   *
+   * @param position
+   *          The position of the first byte to be read.
+   * @param bytes
+   *          The array to be filled.
+   * @throws IOException
+   *           If the file cannot be read.
+   */
+  protected abstract void getBytes(long position, byte[] bytes)
+    throws IOException;
+}
@@ -0,0 +1,97 @@
+package uk.ac.exeter.QuinCe.data.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An {@link IndexedLineList} that reads lines directly from a memory-mapped
+ * copy of an uncompressed file.
+ *
+ * <p>
+ * Files larger than 2Gb are mapped in multiple segments.
+ * </p>
+ */
+public class MappedLineList extends IndexedLineList {
+
+  /**
+   * The maximum size of each mapped segment of the file.
+   */
+  private static final long SEGMENT_SIZE = Integer.MAX_VALUE;
+
+  /**
+   * The mapped segments of the file.
+   */
+  private final MappedByteBuffer[] segments;
+
+  /**
+   * The length of the file.
+   */
+  private final long length;
+
+  /**
+   * Map the specified file and build the line index, using the platform's
+   * default character set to decode the lines.
+   *
+   * @param file
+   *          The file.
+   * @throws IOException
+   *           If the file cannot be read.
+   */
+  public MappedLineList(File file) throws IOException {
+    this(file, Charset.defaultCharset());
+  }
+
+  /**
+   * Map the specified file and build the line index.
+   *
+   * @param file
+   *          The file.
+   * @param charset
+   *          The character set used to decode the lines.
+   * @throws IOException
+   *           If the file cannot be read.
+   */
+  public MappedLineList(File file, Charset charset) throws IOException {
+    super(charset);
+
+    try (FileChannel channel = FileChannel.open(file.toPath(),
+      StandardOpenOption.READ)) {
+
+      length = channel.size();
+      int segmentCount = (int) ((length + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+      segments = new MappedByteBuffer[segmentCount];
+
+      for (int i = 0; i < segmentCount; i++) {
+        long position = i * SEGMENT_SIZE;
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+          Math.min(SEGMENT_SIZE, length - position));
+      }
+    }
+
+    buildIndex();
+  }
+
+  @Override
+  protected long getLength() {
+    return length;
+  }
+
+  @Override
+  protected void getBytes(long position, byte[] bytes) {
+    int copied = 0;
+    while (copied < bytes.length) {
+      long filePosition = position + copied;
+      int segment = (int) (filePosition / SEGMENT_SIZE);
+      int offset = (int) (filePosition % SEGMENT_SIZE);
+      int length = Math.min(bytes.length - copied,
+        segments[segment].capacity() - offset);
+
+      segments[segment].get(offset, bytes, copied, length);
+      copied += length;
+    }
+  }
+}
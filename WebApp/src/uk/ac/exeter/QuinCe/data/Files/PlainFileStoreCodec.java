@@ -0,0 +1,66 @@
+package uk.ac.exeter.QuinCe.data.Files;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * {@link FileStoreCodec} that stores files exactly as they were uploaded.
+ *
+ * <p>
+ * This is the format used for all files written before codecs were
+ * introduced, so it will read any file in the {@link FileStore}. It must
+ * therefore be the last codec checked when finding the codec for a file.
+ * </p>
+ */
+public class PlainFileStoreCodec implements FileStoreCodec {
+
+  /**
+   * The codec name.
+   */
+  public static final String NAME = "plain";
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public boolean canRead(File file) {
+    return true;
+  }
+
+  @Override
+  public void write(InputStream in, File file) throws IOException {
+    Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  @Override
+  public byte[] read(File file) throws IOException {
+    if (file.length() > Integer.MAX_VALUE) {
+      throw new IOException(
+        "File " + file.getAbsolutePath() + " is too large to read");
+    }
+
+    return Files.readAllBytes(file.toPath());
+  }
+
+  @Override
+  public InputStream getInputStream(File file) throws IOException {
+    return new FileInputStream(file);
+  }
+
+  @Override
+  public long getContentLength(File file) {
+    return file.length();
+  }
+
+  @Override
+  public List<String> getLines(File file) throws IOException {
+    return new MappedLineList(file);
+  }
+}
@@ -8,6 +8,8 @@ import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -103,6 +105,47 @@ public abstract class CalibrationDB {
   private static final Type coefficientsType = new TypeToken<Map<String, String>>() {
   }.getType();
 
+  /**
+   * The maximum number of {@link CalibrationSet}s held in
+   * {@link #calibrationSetCache}.
+   */
+  private static final int CALIBRATION_SET_CACHE_SIZE = 200;
+
+  /**
+   * Cache of previously built {@link CalibrationSet}s, shared by all
+   * {@link CalibrationDB} implementations.
+   *
+   * <p>
+   * Entries are keyed by calibration type, {@link Instrument} ID and time
+   * period (see {@link #makeCacheKey(Instrument, LocalDateTime, LocalDateTime)}).
+   * The cache holds the most recently used {@link #CALIBRATION_SET_CACHE_SIZE}
+   * sets. Entries for an {@link Instrument} are removed whenever its
+   * {@link Calibration}s are changed; see
+   * {@link #invalidateCalibrationSets(long)}.
+   * </p>
+   *
+   * <p>
+   * Callers are given copies of the cached {@link CalibrationSet}s (see
+   * {@link CalibrationSet#makeCopy()}), so the cached sets are never modified.
+   * </p>
+   */
+  @SuppressWarnings("serial")
+  private static final Map<String, CalibrationSet> calibrationSetCache = Collections
+    .synchronizedMap(new LinkedHashMap<String, CalibrationSet>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(
+        Map.Entry<String, CalibrationSet> eldest) {
+        return size() > CALIBRATION_SET_CACHE_SIZE;
+      }
+    });
+
+  /**
+   * Version stamp for {@link #calibrationSetCache}, incremented whenever any
+   * calibrations are changed. Sets built while calibrations were being changed
+   * are not cached, since they may be out of date.
+   */
+  private static long calibrationSetCacheVersion = 0L;
+
   /**
    * Empty constructor.
    *
@@ -545,11 +588,89 @@ public abstract class CalibrationDB {
     throws DatabaseException, RecordNotFoundException, InstrumentException,
     CalibrationException {
 
-    TreeMap<String, TreeSet<Calibration>> allCalibrations = getCalibrations(
-      conn, instrument);
+    String cacheKey = makeCacheKey(instrument, start, end);
+    CalibrationSet result;
+    long version;
+
+    synchronized (calibrationSetCache) {
+      result = calibrationSetCache.get(cacheKey);
+      version = calibrationSetCacheVersion;
+    }
+
+    if (null == result) {
+      TreeMap<String, TreeSet<Calibration>> allCalibrations = getCalibrations(
+        conn, instrument);
+
+      result = new CalibrationSet(getTargets(conn, instrument), start, end,
+        this, allCalibrations);
+
+      // Don't cache the set if the calibrations changed while it was being
+      // built
+      synchronized (calibrationSetCache) {
+        if (version == calibrationSetCacheVersion) {
+          calibrationSetCache.put(cacheKey, result);
+        }
+      }
+    }
+
+    return result.makeCopy();
+  }
 
-    return new CalibrationSet(getTargets(conn, instrument), start, end, this,
-      allCalibrations);
+  /**
+   * Generate the key for a {@link CalibrationSet} in the
+   * {@link #calibrationSetCache}.
+   *
+   * @param instrument
+   *          The instrument.
+   * @param start
+   *          The start of the period covered by the set.
+   * @param end
+   *          The end of the period covered by the set.
+   * @return The cache key.
+   */
+  private String makeCacheKey(Instrument instrument, LocalDateTime start,
+    LocalDateTime end) {
+    return makeCacheKeyPrefix(instrument.getId()) + getCalibrationType() + "|"
+      + start + "|" + end;
+  }
+
+  /**
+   * Generate the prefix shared by all keys for an {@link Instrument} in the
+   * {@link #calibrationSetCache}.
+   *
+   * @param instrumentId
+   *          The instrument's database ID.
+   * @return The key prefix.
+   */
+  private static String makeCacheKeyPrefix(long instrumentId) {
+    return instrumentId + "|";
+  }
+
+  /**
+   * Remove all cached {@link CalibrationSet}s for the specified
+   * {@link Instrument}. This must be called whenever the instrument's
+   * {@link Calibration}s are changed.
+   *
+   * @param instrumentId
+   *          The instrument's database ID.
+   */
+  public static void invalidateCalibrationSets(long instrumentId) {
+    String prefix = makeCacheKeyPrefix(instrumentId);
+
+    synchronized (calibrationSetCache) {
+      calibrationSetCacheVersion++;
+      calibrationSetCache.keySet().removeIf(k -> k.startsWith(prefix));
+    }
+  }
+
+  /**
+   * Remove all cached {@link CalibrationSet}s.
+   */
+  public static void clearCalibrationSetCache() {
+    synchronized (calibrationSetCache) {
+      calibrationSetCacheVersion++;
+      calibrationSetCache.clear();
+    }
   }
 
   /**
@@ -706,6 +827,8 @@ public abstract class CalibrationDB {
       DatabaseUtils.rollBack(conn);
       throw new DatabaseException("Error storing calibration edits", e);
     } finally {
+      edits.stream().map(e -> e.getInstrument().getId()).distinct()
+        .forEach(CalibrationDB::invalidateCalibrationSets);
       DatabaseUtils.closeConnection(conn);
     }
   }
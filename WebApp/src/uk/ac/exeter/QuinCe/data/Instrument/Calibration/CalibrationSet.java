@@ -2,6 +2,7 @@ package uk.ac.exeter.QuinCe.data.Instrument.Calibration;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -150,6 +151,73 @@ public class CalibrationSet {
     populate(calibrations);
   }
 
+  /**
+   * Copy constructor. All the {@link Calibration}s in the source set are
+   * copied, so the new set shares no mutable state with it.
+   *
+   * @param source
+   *          The set to be copied.
+   * @see #makeCopy()
+   */
+  private CalibrationSet(CalibrationSet source) {
+    this.targets = new TreeSet<String>(source.targets);
+    this.start = source.start;
+    this.end = source.end;
+    this.timeAffectsCalibration = source.timeAffectsCalibration;
+    this.allowInterim = source.allowInterim;
+    this.includePost = source.includePost;
+
+    // The same Calibration appears under many times, so only copy each one
+    // once
+    Map<Calibration, Calibration> copies = new IdentityHashMap<Calibration, Calibration>();
+    this.priors = copyCalibrations(source.priors, copies);
+    this.posts = copyCalibrations(source.posts, copies);
+  }
+
+  /**
+   * Create a deep copy of this {@code CalibrationSet}.
+   *
+   * @return The copy.
+   */
+  public CalibrationSet makeCopy() {
+    return new CalibrationSet(this);
+  }
+
+  /**
+   * Copy a set of {@link Calibration}s organised by time.
+   *
+   * @param calibrations
+   *          The {@link Calibration}s to copy.
+   * @param copies
+   *          The {@link Calibration}s that have already been copied, mapped to
+   *          their copies.
+   * @return The copied {@link Calibration}s.
+   */
+  private static TreeMap<LocalDateTime, TreeMap<String, Calibration>> copyCalibrations(
+    TreeMap<LocalDateTime, TreeMap<String, Calibration>> calibrations,
+    Map<Calibration, Calibration> copies) {
+
+    TreeMap<LocalDateTime, TreeMap<String, Calibration>> result = new TreeMap<LocalDateTime, TreeMap<String, Calibration>>();
+
+    for (Map.Entry<LocalDateTime, TreeMap<String, Calibration>> entry : calibrations
+      .entrySet()) {
+
+      TreeMap<String, Calibration> timeCalibrations = new TreeMap<String, Calibration>();
+
+      for (Map.Entry<String, Calibration> calibration : entry.getValue()
+        .entrySet()) {
+        timeCalibrations.put(calibration.getKey(),
+          null == calibration.getValue() ? null
+            : copies.computeIfAbsent(calibration.getValue(),
+              Calibration::makeCopy));
+      }
+
+      result.put(entry.getKey(), timeCalibrations);
+    }
+
+    return result;
+  }
+
   /**
    * Build the {@code CalibrationSet} from the supplied collection of
    * {@link Calibration}s.
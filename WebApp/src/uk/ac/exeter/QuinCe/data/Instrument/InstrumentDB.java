@@ -30,6 +30,7 @@ import uk.ac.exeter.QuinCe.data.Dataset.DataSet;
 import uk.ac.exeter.QuinCe.data.Dataset.DataSetDB;
 import uk.ac.exeter.QuinCe.data.Files.DataFileDB;
 import uk.ac.exeter.QuinCe.data.Files.FileStoreException;
+import uk.ac.exeter.QuinCe.data.Instrument.Calibration.CalibrationDB;
 import uk.ac.exeter.QuinCe.data.Instrument.DataFormats.DateTimeSpecification;
 import uk.ac.exeter.QuinCe.data.Instrument.DataFormats.LatitudeSpecification;
 import uk.ac.exeter.QuinCe.data.Instrument.DataFormats.LongitudeSpecification;
@@ -269,6 +270,27 @@ public class InstrumentDB {
   private static final String SET_OWNER_STATEMENT = "UPDATE instrument"
     + " set owner = ? WHERE id = ?";
 
+  /**
+   * Cache of the instrument details loaded from the database, keyed by
+   * instrument ID.
+   *
+   * <p>
+   * Loading an instrument requires several queries, and instruments are loaded
+   * by most jobs, API calls and pages. The details are therefore loaded once
+   * and kept until the instrument is changed. Every method that changes an
+   * instrument must call {@link #invalidateInstrument(long)} once the change
+   * is complete.
+   * </p>
+   */
+  private static final Map<Long, InstrumentSnapshot> instrumentCache = new HashMap<Long, InstrumentSnapshot>();
+
+  /**
+   * Version stamp for {@link #instrumentCache}, incremented whenever an
+   * instrument is changed. Details loaded while an instrument was being
+   * changed are not cached, since they may be out of date.
+   */
+  private static long instrumentCacheVersion = 0L;
+
   /**
    * Store a new instrument in the database
    *
@@ -397,6 +419,7 @@ public class InstrumentDB {
       }
 
       conn.commit();
+      invalidateInstrument(instrument.getId());
     } catch (SQLException e) {
       boolean rollbackOK = true;
 
@@ -817,6 +840,14 @@ public class InstrumentDB {
   /**
    * Returns a complete instrument object for the specified instrument ID
    *
+   * <p>
+   * The instrument's details are only loaded from the database the first time
+   * they are requested after the instrument is changed; see
+   * {@link #instrumentCache}. Each call returns a new {@link Instrument}
+   * object, so callers can change its properties without affecting anyone
+   * else.
+   * </p>
+   *
    * @param conn
    *          A database connection
    * @param instrumentId
@@ -843,12 +874,56 @@ public class InstrumentDB {
     MissingParam.checkMissing(conn, "conn");
     MissingParam.checkDatabaseId(instrumentId, "instrumentId", false);
 
+    InstrumentSnapshot snapshot;
+    long version;
+
+    synchronized (instrumentCache) {
+      snapshot = instrumentCache.get(instrumentId);
+      version = instrumentCacheVersion;
+    }
+
+    if (null == snapshot) {
+      snapshot = loadInstrumentSnapshot(conn, instrumentId);
+
+      // Don't cache the snapshot if the instrument changed while it was being
+      // loaded
+      synchronized (instrumentCache) {
+        if (version == instrumentCacheVersion) {
+          instrumentCache.put(instrumentId, snapshot);
+        }
+      }
+    }
+
+    return snapshot.makeInstrument(conn);
+  }
+
+  /**
+   * Load the details of an instrument from the database.
+   *
+   * @param conn
+   *          A database connection
+   * @param instrumentId
+   *          The instrument ID
+   * @return The instrument details
+   * @throws DatabaseException
+   *           If an error occurs while retrieving the instrument details
+   * @throws RecordNotFoundException
+   *           If the specified instrument cannot be found
+   * @throws InstrumentException
+   *           If any instrument values are invalid
+   * @throws ClassNotFoundException
+   * @throws MissingParamException
+   */
+  private static InstrumentSnapshot loadInstrumentSnapshot(Connection conn,
+    long instrumentId) throws DatabaseException, RecordNotFoundException,
+    InstrumentException, MissingParamException, ClassNotFoundException {
+
     SensorsConfiguration sensorConfig = ResourceManager.getInstance()
       .getSensorsConfiguration();
     RunTypeCategoryConfiguration runTypeConfig = ResourceManager.getInstance()
       .getRunTypeCategoryConfiguration();
 
-    Instrument instrument = null;
+    InstrumentSnapshot snapshot = null;
 
     List<PreparedStatement> stmts = new ArrayList<PreparedStatement>();
     List<ResultSet> resultSets = new ArrayList<ResultSet>();
@@ -856,7 +931,6 @@ public class InstrumentDB {
     try {
       // Get the shared users
       List<Long> sharedUsers = new ArrayList<Long>();
-
       PreparedStatement sharedStmt = conn.prepareStatement(SHARED_USERS_QUERY);
       sharedStmt.setLong(1, instrumentId);
       stmts.add(sharedStmt);
@@ -907,8 +981,8 @@ public class InstrumentDB {
         SensorAssignments sensorAssignments = getSensorAssignments(conn,
           instrumentId, files, sensorConfig, runTypeConfig);
 
-        instrument = new Instrument(UserDB.getUser(conn, owner), instrumentId,
-          name, sharedUsers, files, variables, variableProperties,
+        snapshot = new InstrumentSnapshot(owner, instrumentId, name,
+          sharedUsers, files, variables, variableProperties,
           sensorAssignments, platformName, platformCode, basis, nrt,
           lastNrtExport, propertiesJson, created);
       }
@@ -922,7 +996,7 @@ public class InstrumentDB {
       DatabaseUtils.closeStatements(stmts);
     }
 
-    return instrument;
+    return snapshot;
   }
 
   /**
@@ -1454,6 +1528,12 @@ public class InstrumentDB {
       }
 
       conn.commit();
+
+      // The file definitions don't know which instrument they belong to.
+      // External standard calibration sets use the run types as their
+      // targets, so they must be rebuilt too.
+      clearInstrumentCache();
+      CalibrationDB.clearCalibrationSetCache();
     } catch (SQLException e) {
       DatabaseUtils.rollBack(conn);
       throw new DatabaseException("Error while storing run type assignments",
@@ -1832,6 +1912,8 @@ public class InstrumentDB {
       stmt.setString(1, instrument.getPropertiesJson());
       stmt.setLong(2, instrument.getId());
       stmt.execute();
+
+      invalidateInstrument(instrument.getId());
     } catch (SQLException e) {
       throw new DatabaseException("Error saving instrument properties", e);
     }
@@ -1871,6 +1953,9 @@ public class InstrumentDB {
       runDeleteStatement(conn, DELETE_INSTRUMENT_STATEMENT, instrumentId);
     } catch (SQLException e) {
       throw new DatabaseException("Error deleting instrument", e);
+    } finally {
+      CalibrationDB.invalidateCalibrationSets(instrumentId);
+      invalidateInstrument(instrumentId);
     }
   }
 
@@ -1932,6 +2017,7 @@ public class InstrumentDB {
         stmt.execute();
 
         instrument.addShare(user);
+        invalidateInstrument(instrument.getId());
       } catch (SQLException e) {
         throw new DatabaseException("Error adding share", e);
       }
@@ -1976,6 +2062,7 @@ public class InstrumentDB {
       stmt.execute();
 
       instrument.removeShare(user);
+      invalidateInstrument(instrument.getId());
 
     } catch (SQLException e) {
       throw new DatabaseException("Error removing share", e);
@@ -2041,6 +2128,7 @@ public class InstrumentDB {
             instrument.removeShare(newOwner);
             instrument.setOwner(newOwner);
             instrument.addShare(existingOwner);
+            invalidateInstrument(instrument.getId());
           }
         }
 
@@ -2051,4 +2139,186 @@ public class InstrumentDB {
     }
 
   }
+
+  /**
+   * Remove an instrument's details from {@link #instrumentCache}, so they are
+   * reloaded from the database the next time the instrument is requested.
+   *
+   * @param instrumentId
+   *          The instrument's database ID.
+   */
+  public static void invalidateInstrument(long instrumentId) {
+    synchronized (instrumentCache) {
+      instrumentCacheVersion++;
+      instrumentCache.remove(instrumentId);
+    }
+  }
+
+  /**
+   * Remove all instruments' details from {@link #instrumentCache}.
+   */
+  public static void clearInstrumentCache() {
+    synchronized (instrumentCache) {
+      instrumentCacheVersion++;
+      instrumentCache.clear();
+    }
+  }
+
+  /**
+   * The details of an instrument as loaded from the database, from which
+   * {@link Instrument} objects are built.
+   *
+   * <p>
+   * Snapshots are shared between all users of an instrument and never change.
+   * The file definitions, variables and sensor assignments are shared with the
+   * {@link Instrument} objects built from the snapshot; the owner, shares and
+   * properties are created afresh for each object, since these are changed by
+   * some callers.
+   * </p>
+   *
+   * <p>
+   * The shared objects are used by many threads at once, so they must not be
+   * modified once they are loaded. The only state they build lazily is the
+   * {@link SensorAssignments} column lookup cache, which is thread safe.
+   * </p>
+   */
+  private static class InstrumentSnapshot {
+
+    /**
+     * The database ID of the instrument's owner.
+     */
+    private final long owner;
+
+    /**
+     * The instrument's database ID.
+     */
+    private final long id;
+
+    /**
+     * The name of the instrument.
+     */
+    private final String name;
+
+    /**
+     * The database IDs of the users with which the instrument is shared.
+     */
+    private final List<Long> sharedUsers;
+
+    /**
+     * The instrument's file definitions.
+     */
+    private final InstrumentFileSet files;
+
+    /**
+     * The variables measured by the instrument.
+     */
+    private final List<Variable> variables;
+
+    /**
+     * The properties set for the variables.
+     */
+    private final Map<Variable, Properties> variableProperties;
+
+    /**
+     * The assignments of file columns to sensors.
+     */
+    private final SensorAssignments sensorAssignments;
+
+    /**
+     * The name of the platform on which the instrument is deployed.
+     */
+    private final String platformName;
+
+    /**
+     * The code for the platform on which the instrument is deployed.
+     */
+    private final String platformCode;
+
+    /**
+     * The instrument's measurement basis.
+     */
+    private final int basis;
+
+    /**
+     * Indicates whether or not the instrument supplies NRT data.
+     */
+    private final boolean nrt;
+
+    /**
+     * The time at which an NRT dataset was last exported.
+     */
+    private final LocalDateTime lastNrtExport;
+
+    /**
+     * The instrument properties as a JSON string.
+     */
+    private final String propertiesJson;
+
+    /**
+     * The time when the instrument was created.
+     */
+    private final LocalDateTime created;
+
+    /**
+     * Create the snapshot. The parameters are the same as those for the
+     * {@link Instrument} constructor, except that the owner is given as a
+     * database ID.
+     */
+    private InstrumentSnapshot(long owner, long id, String name,
+      List<Long> sharedUsers, InstrumentFileSet files, List<Variable> variables,
+      Map<Variable, Properties> variableProperties,
+      SensorAssignments sensorAssignments, String platformName,
+      String platformCode, int basis, boolean nrt, LocalDateTime lastNrtExport,
+      String propertiesJson, LocalDateTime created) {
+
+      this.owner = owner;
+      this.id = id;
+      this.name = name;
+      this.sharedUsers = sharedUsers;
+      this.files = files;
+      this.variables = variables;
+      this.variableProperties = variableProperties;
+      this.sensorAssignments = sensorAssignments;
+      this.platformName = platformName;
+      this.platformCode = platformCode;
+      this.basis = basis;
+      this.nrt = nrt;
+      this.lastNrtExport = lastNrtExport;
+      this.propertiesJson = propertiesJson;
+      this.created = created;
+    }
+
+    /**
+     * Build an {@link Instrument} object from the snapshot.
+     *
+     * @param conn
+     *          A database connection.
+     * @return The instrument.
+     * @throws DatabaseException
+     *           If the instrument's owner cannot be retrieved.
+     * @throws MissingParamException
+     *           If any required parameters are missing.
+     * @throws InstrumentException
+     *           If any instrument values are invalid.
+     */
+    private Instrument makeInstrument(Connection conn)
+      throws DatabaseException, MissingParamException, InstrumentException {
+
+      Map<Variable, Properties> instrumentVariableProperties = new HashMap<Variable, Properties>();
+      variableProperties.forEach((variable, properties) -> {
+        Properties copy = null;
+        if (null != properties) {
+          copy = new Properties();
+          copy.putAll(properties);
+        }
+        instrumentVariableProperties.put(variable, copy);
+      });
+
+      return new Instrument(UserDB.getUser(conn, owner), id, name,
+        new ArrayList<Long>(sharedUsers), files,
+        new ArrayList<Variable>(variables), instrumentVariableProperties,
+        sensorAssignments, platformName, platformCode, basis, nrt,
+        lastNrtExport, propertiesJson, created);
+    }
+  }
 }
@@ -12,6 +12,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -60,7 +61,14 @@ public class SensorAssignments
    */
   private List<Long> variableIDs;
 
-  private HashMap<Long, SensorType> dbColumnSensorTypeCache = new HashMap<Long, SensorType>();
+  /**
+   * Cache of the {@link SensorType}s for file column database IDs, filled as
+   * they are looked up. Assignments loaded from the database are shared
+   * between threads, so this must be thread safe.
+   *
+   * @see #getSensorTypeForDBColumn(long)
+   */
+  private final ConcurrentHashMap<Long, SensorType> dbColumnSensorTypeCache = new ConcurrentHashMap<Long, SensorType>();
 
   /**
    * Initialise the assignments for the specified list of {@link Variable}s,
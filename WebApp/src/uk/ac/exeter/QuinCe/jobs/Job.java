@@ -47,11 +47,42 @@ public abstract class Job {
    */
   public static final String KILLED_STATUS = "KILLED";
 
+  /**
+   * Priority for jobs processing Near Real Time data. These are run before all
+   * other jobs.
+   */
+  public static final int PRIORITY_NRT = 0;
+
+  /**
+   * Priority for jobs started by a user working with a single dataset
+   */
+  public static final int PRIORITY_INTERACTIVE = 1;
+
+  /**
+   * Priority for bulk reprocessing jobs, e.g. recalculating all datasets after
+   * calibrations are changed
+   */
+  public static final int PRIORITY_BULK = 2;
+
+  /**
+   * The default estimate of the memory required to run a job, in bytes
+   *
+   * @see #getEstimatedMemory()
+   */
+  public static final long DEFAULT_MEMORY_ESTIMATE = 16L * 1024 * 1024;
+
   /**
    * The job's ID
    */
   protected long id = 0;
 
+  /**
+   * The job's priority
+   *
+   * @see JobSchedulingPolicy
+   */
+  protected int priority = PRIORITY_INTERACTIVE;
+
   /**
    * The User ID of the job's owner.
    */
@@ -176,6 +207,12 @@ public abstract class Job {
   /**
    * Set the progress for the job, as a percentage.
    *
+   * <p>
+   * The progress is recorded in the {@link JobProgressRegistry}. A database
+   * connection is only taken when the registry allows the progress to be
+   * written, so jobs can report their progress as often as they like.
+   * </p>
+   *
    * @param progress
    *          The progress.
    * @throws BadProgressException
@@ -189,15 +226,23 @@ public abstract class Job {
    */
   protected void setProgress(double progress) throws MissingParamException,
     BadProgressException, NoSuchJobException, DatabaseException {
-    Connection conn = null;
-    try {
-      conn = dataSource.getConnection();
-      JobManager.setProgress(conn, id, progress);
-    } catch (SQLException e) {
-      throw new DatabaseException(
-        "An error occurred while retrieving a database connection", e);
-    } finally {
-      DatabaseUtils.closeConnection(conn);
+
+    if (progress < 0 || progress > 100) {
+      throw new BadProgressException();
+    }
+
+    if (JobProgressRegistry.update(id, progress,
+      System.currentTimeMillis())) {
+      Connection conn = null;
+      try {
+        conn = dataSource.getConnection();
+        JobManager.storeProgress(conn, id, progress);
+      } catch (SQLException e) {
+        throw new DatabaseException(
+          "An error occurred while retrieving a database connection", e);
+      } finally {
+        DatabaseUtils.closeConnection(conn);
+      }
     }
   }
 
@@ -308,6 +353,16 @@ public abstract class Job {
     }
   }
 
+  /**
+   * Write an informational message about the job to the application log.
+   *
+   * @param message
+   *          The message.
+   */
+  protected void logInfo(String message) {
+    System.out.println("Job " + id + " (" + getJobName() + "): " + message);
+  }
+
   /**
    * Get the job's database ID.
    *
@@ -317,6 +372,30 @@ public abstract class Job {
     return id;
   }
 
+  /**
+   * Get an estimate of the heap memory that the job will need while it runs.
+   * The {@link JobThreadPool} uses this to avoid running more jobs than the
+   * available memory can support.
+   *
+   * <p>
+   * Jobs that work with large amounts of data should override this method.
+   * </p>
+   *
+   * @return The estimated memory requirement, in bytes.
+   */
+  public long getEstimatedMemory() {
+    return DEFAULT_MEMORY_ESTIMATE;
+  }
+
+  /**
+   * Get the job's priority.
+   *
+   * @return The priority.
+   */
+  public int getPriority() {
+    return priority;
+  }
+
   /**
    * Destroys the job object, releasing its database connection.
    */
@@ -27,6 +27,7 @@ import uk.ac.exeter.QuinCe.data.Dataset.DataSet;
 import uk.ac.exeter.QuinCe.data.Dataset.DataSetDB;
 import uk.ac.exeter.QuinCe.data.Dataset.InvalidDataSetStatusException;
 import uk.ac.exeter.QuinCe.data.Files.DataFileDB;
+import uk.ac.exeter.QuinCe.jobs.files.CreateNrtDataset;
 import uk.ac.exeter.QuinCe.jobs.files.DataSetJob;
 import uk.ac.exeter.QuinCe.jobs.files.FileJob;
 import uk.ac.exeter.QuinCe.utils.DatabaseException;
@@ -74,7 +75,17 @@ public class JobManager {
   /**
    * SQL statement to create a job record
    */
-  private static final String CREATE_JOB_STATEMENT = "INSERT INTO job (owner, created, class, properties) VALUES (?, ?, ?, ?)";
+  private static final String CREATE_JOB_STATEMENT = "INSERT INTO job "
+    + "(owner, created, class, properties, priority, instrument_id) "
+    + "VALUES (?, ?, ?, ?, ?, ?)";
+
+  /**
+   * Statement to add a job that is started immediately by an existing thread
+   */
+  private static final String CREATE_RUNNING_JOB_STATEMENT = "INSERT INTO job "
+    + "(owner, created, class, properties, priority, instrument_id, status, "
+    + "started, thread_name) VALUES (?, ?, ?, ?, ?, ?, '" + Job.RUNNING_STATUS
+    + "', ?, ?)";
 
   /**
    * SQL statement to see if a job with a given ID exists
@@ -124,12 +135,14 @@ public class JobManager {
   /**
    * SQL statement to retrieve a job's class and paremeters
    */
-  private static final String GET_JOB_QUERY = "SELECT id, owner, class, properties FROM job WHERE id = ?";
+  private static final String GET_JOB_QUERY = "SELECT id, owner, class, properties, priority FROM job WHERE id = ?";
 
   /**
-   * SQL statement to retrieve the next queued job
+   * Query to get the scheduling details of all jobs with a given status
    */
-  private static final String GET_NEXT_JOB_QUERY = "SELECT id, owner, class, properties FROM job WHERE status='WAITING' ORDER BY created ASC LIMIT 1";
+  private static final String GET_SCHEDULING_DETAILS_QUERY = "SELECT id, owner, "
+    + "class, properties, priority, instrument_id, created FROM job "
+    + "WHERE status = ? ORDER BY created ASC, id ASC";
 
   /**
    * Statement to get the number of jobs of each status
@@ -141,6 +154,11 @@ public class JobManager {
    */
   private static final String GET_JOB_STATUS_QUERY = "SELECT status FROM job WHERE id = ?";
 
+  /**
+   * Statement to retrieve the priority of a given job
+   */
+  private static final String GET_JOB_PRIORITY_QUERY = "SELECT priority FROM job WHERE id = ?";
+
   /**
    * Statement to retrieve the owner of a given job
    */
@@ -175,7 +193,8 @@ public class JobManager {
   private static final String GET_EXISTING_JOBS_QUERY = "SELECT id FROM job WHERE class = ? AND status IN ('WAITING', 'RUNNING')";
 
   /**
-   * Adds a job to the database.
+   * Adds a job to the database with {@link Job#PRIORITY_INTERACTIVE}
+   * priority.
    *
    * <p>
    * If the job is linked to a {@link DataSet} (implied by the presence of
@@ -222,18 +241,75 @@ public class JobManager {
     InvalidJobClassTypeException, InvalidJobConstructorException, JobException,
     InvalidDataSetStatusException, NumberFormatException, CoordinateException {
 
+    return addJob(dataSource, owner, jobClass, properties,
+      Job.PRIORITY_INTERACTIVE);
+  }
+
+  /**
+   * Adds a job to the database with the specified priority.
+   *
+   * <p>
+   * If the job is linked to a {@link DataSet} (implied by the presence of
+   * {@link DataSetJob#ID_PARAM} in the job's properties), its status is
+   * automatically set to {@link DataSet#STATUS_WAITING}. It is the job's
+   * responsibility to set the appropriate status when processing starts.
+   * </p>
+   *
+   * @param dataSource
+   *          A data source
+   * @param owner
+   *          The job's owner (can be {@code null}
+   * @param jobClass
+   *          The class name of the job to be run
+   * @param properties
+   *          The parameters for the job
+   * @param priority
+   *          The job's priority. Jobs processing NRT datasets are always given
+   *          {@link Job#PRIORITY_NRT}.
+   * @return The database ID of the created job
+   * @throws DatabaseException
+   *           If a database error occurs
+   * @throws MissingParamException
+   *           Generated by internal checks - should never be thrown
+   * @throws NoSuchUserException
+   *           If the supplied user does not exist in the database
+   * @throws JobClassNotFoundException
+   *           If the specified job class does not exist
+   * @throws InvalidJobClassTypeException
+   *           If the specified job class is not of the correct type
+   * @throws InvalidJobConstructorException
+   *           If the specified job class does not have the correct constructor
+   * @throws JobException
+   *           If an unknown problem is found with the specified job class
+   * @throws InvalidDataSetStatusException
+   *           If an invalid {@link DataSet} status is set. In theory this
+   *           should never be thrown.
+   * @throws RecordNotFoundException
+   *           If the underlying database records for the specified job
+   *           parameters (DataSet, owner etc.) cannot be found.
+   * @throws CoordinateException
+   * @throws NumberFormatException
+   */
+  public static long addJob(DataSource dataSource, User owner, String jobClass,
+    Properties properties, int priority) throws DatabaseException, MissingParamException,
+    RecordNotFoundException, NoSuchUserException, JobClassNotFoundException,
+    InvalidJobClassTypeException, InvalidJobConstructorException, JobException,
+    InvalidDataSetStatusException, NumberFormatException, CoordinateException {
+
     long result = -1;
     Connection conn = null;
 
     try {
       conn = dataSource.getConnection();
-      result = addJob(conn, owner, jobClass, properties);
+      result = storeJob(conn, owner, jobClass, properties, priority, null);
 
       if (properties.containsKey(DataSetJob.ID_PARAM)) {
         DataSetDB.setDatasetStatus(conn,
           Long.parseLong((String) properties.get(DataSetJob.ID_PARAM)),
           DataSet.STATUS_WAITING);
       }
+
+      JobRunScheduler.dispatch();
     } catch (SQLException e) {
       throw new DatabaseException("An error occurred while adding the job", e);
     } catch (DatabaseException | MissingParamException | NoSuchUserException
@@ -248,7 +324,15 @@ public class JobManager {
   }
 
   /**
-   * Adds a job to the database
+   * Adds a job to the database.
+   *
+   * <p>
+   * The {@link JobRunScheduler} is not notified, because the connection may be
+   * part of a transaction and the job will not be visible until it is
+   * committed. Callers should call {@link JobRunScheduler#dispatch()} once the
+   * job has been committed so it can be started immediately. Otherwise it will
+   * be started by the scheduler's next regular check.
+   * </p>
    *
    * @param conn
    *          A database connection
@@ -279,6 +363,55 @@ public class JobManager {
     throws DatabaseException, NoSuchUserException, JobClassNotFoundException,
     InvalidJobClassTypeException, InvalidJobConstructorException, JobException {
 
+    return storeJob(conn, owner, jobClass, properties,
+      Job.PRIORITY_INTERACTIVE, null);
+  }
+
+  /**
+   * Store a job in the database. If a thread name is supplied, the job is
+   * stored as running in that thread; otherwise it is queued.
+   *
+   * <p>
+   * The instrument that the job works on is stored with the job so the
+   * {@link JobSchedulingPolicy} can share the job threads between instruments.
+   * Jobs for NRT datasets are given {@link Job#PRIORITY_NRT} regardless of the
+   * requested priority.
+   * </p>
+   *
+   * @param conn
+   *          A database connection
+   * @param owner
+   *          The job's owner (can be {@code null}
+   * @param jobClass
+   *          The class name of the job to be run
+   * @param properties
+   *          The parameters for the job
+   * @param priority
+   *          The job's priority
+   * @param threadName
+   *          The thread that is running the job, or {@code null} if the job is
+   *          to be queued
+   * @return The database ID of the created job
+   * @throws DatabaseException
+   *           If a database error occurs
+   * @throws MissingParamException
+   *           Generated by internal checks - should never be thrown
+   * @throws NoSuchUserException
+   *           If the supplied user does not exist in the database
+   * @throws JobClassNotFoundException
+   *           If the specified job class does not exist
+   * @throws InvalidJobClassTypeException
+   *           If the specified job class is not of the correct type
+   * @throws InvalidJobConstructorException
+   *           If the specified job class does not have the correct constructor
+   * @throws JobException
+   *           If an unknown problem is found with the specified job class
+   */
+  private static long storeJob(Connection conn, User owner, String jobClass,
+    Properties properties, int priority, String threadName)
+    throws DatabaseException, NoSuchUserException, JobClassNotFoundException,
+    InvalidJobClassTypeException, InvalidJobConstructorException, JobException {
+
     MissingParam.checkMissing(conn, "conn");
     MissingParam.checkMissing(owner, "owner");
     MissingParam.checkMissing(jobClass, "jobClass");
@@ -328,7 +461,9 @@ public class JobManager {
       ResultSet generatedKeys = null;
 
       try {
-        stmt = conn.prepareStatement(CREATE_JOB_STATEMENT,
+        stmt = conn.prepareStatement(
+          null == threadName ? CREATE_JOB_STATEMENT
+            : CREATE_RUNNING_JOB_STATEMENT,
           Statement.RETURN_GENERATED_KEYS);
         if (NO_OWNER == ownerID) {
           stmt.setNull(1, java.sql.Types.INTEGER);
@@ -340,6 +475,40 @@ public class JobManager {
         stmt.setString(3, jobClass);
         stmt.setString(4, new Gson().toJson(properties));
 
+        Long instrumentId = null;
+        int jobPriority = priority;
+
+        if (jobClass.equals(CreateNrtDataset.class.getCanonicalName())) {
+          // This job's ID parameter is the instrument ID
+          instrumentId = Long
+            .parseLong(properties.getProperty(DataSetJob.ID_PARAM));
+          jobPriority = Job.PRIORITY_NRT;
+        } else if (isDataSetJob(jobClass)
+          && properties.containsKey(DataSetJob.ID_PARAM)) {
+          try {
+            DataSet dataset = DataSetDB.getDataSet(conn,
+              Long.parseLong(properties.getProperty(DataSetJob.ID_PARAM)));
+            instrumentId = dataset.getInstrumentId();
+            if (dataset.isNrt()) {
+              jobPriority = Job.PRIORITY_NRT;
+            }
+          } catch (RecordNotFoundException e) {
+            // The job will report the missing dataset when it runs
+          }
+        }
+
+        stmt.setInt(5, jobPriority);
+        if (null == instrumentId) {
+          stmt.setNull(6, java.sql.Types.INTEGER);
+        } else {
+          stmt.setLong(6, instrumentId);
+        }
+
+        if (null != threadName) {
+          stmt.setTimestamp(7, new Timestamp(System.currentTimeMillis()));
+          stmt.setString(8, threadName);
+        }
+
         stmt.execute();
 
         generatedKeys = stmt.getGeneratedKeys();
@@ -419,7 +588,10 @@ public class JobManager {
 
     try {
       conn = resourceManager.getDBDataSource().getConnection();
-      long jobID = addJob(conn, owner, jobClass, properties);
+
+      // Don't notify the scheduler, since we start the job ourselves
+      long jobID = storeJob(conn, owner, jobClass, properties,
+        Job.PRIORITY_INTERACTIVE, null);
       JobThread jobThread = JobThreadPool.getInstance()
         .getInstantJobThread(JobManager.getJob(resourceManager, config, jobID));
       logJobStarted(conn, jobID, jobThread.getName());
@@ -432,6 +604,82 @@ public class JobManager {
     }
   }
 
+  /**
+   * Create a job that follows on from a job that has just finished, to be run
+   * immediately in the same thread.
+   *
+   * <p>
+   * The job is stored as already running, so it will not be picked up by the
+   * {@link JobRunScheduler}, and the {@link Job} object is built directly
+   * instead of being read back from the database. The job is given the priority
+   * that was stored for it, which may differ from the previous job's priority
+   * (see {@link #storeJob(Connection, User, String, Properties, int, String)}).
+   * </p>
+   *
+   * @param resourceManager
+   *          The application's resource manager
+   * @param previousJob
+   *          The job that has just finished
+   * @param nextJob
+   *          The details of the job to be run
+   * @param threadName
+   *          The name of the thread that will run the job
+   * @return The job object
+   * @throws DatabaseException
+   *           If a database error occurs
+   * @throws NoSuchUserException
+   *           If the job's owner does not exist in the database
+   * @throws JobClassNotFoundException
+   *           If the specified job class does not exist
+   * @throws InvalidJobClassTypeException
+   *           If the specified job class is not of the correct type
+   * @throws InvalidJobConstructorException
+   *           If the specified job class does not have the correct constructor
+   * @throws JobException
+   *           If an unknown problem is found with the specified job class
+   * @throws JobFailedException
+   *           If the job object cannot be created
+   */
+  public static Job startChainedJob(ResourceManager resourceManager,
+    Job previousJob, NextJobInfo nextJob, String threadName)
+    throws DatabaseException, NoSuchUserException, JobClassNotFoundException,
+    InvalidJobClassTypeException, InvalidJobConstructorException, JobException,
+    JobFailedException {
+
+    MissingParam.checkMissing(resourceManager, "resourceManager");
+    MissingParam.checkMissing(previousJob, "previousJob");
+    MissingParam.checkMissing(nextJob, "nextJob");
+    MissingParam.checkMissing(threadName, "threadName");
+
+    Connection conn = null;
+    Job job;
+
+    try {
+      conn = resourceManager.getDBDataSource().getConnection();
+      long jobId = storeJob(conn, previousJob.owner, nextJob.jobClass,
+        nextJob.properties, previousJob.priority, threadName);
+
+      if (nextJob.properties.containsKey(DataSetJob.ID_PARAM)) {
+        DataSetDB.setDatasetStatus(conn,
+          Long.parseLong((String) nextJob.properties.get(DataSetJob.ID_PARAM)),
+          DataSet.STATUS_WAITING);
+      }
+
+      job = createJob(resourceManager, resourceManager.getConfig(), jobId,
+        previousJob.owner, nextJob.jobClass, nextJob.properties);
+      job.priority = getJobPriority(conn, jobId);
+      job.transferData = nextJob.transferData;
+    } catch (SQLException | RecordNotFoundException
+      | InvalidDataSetStatusException | CoordinateException
+      | NoSuchJobException e) {
+      throw new DatabaseException("An error occurred while adding the job", e);
+    } finally {
+      DatabaseUtils.closeConnection(conn);
+    }
+
+    return job;
+  }
+
   /**
    * Sets the status of a job
    *
@@ -629,7 +877,6 @@ public class JobManager {
    * @throws SQLException
    *           If a database error occurs
    */
-  @SuppressWarnings("unchecked")
   private static Job getJobFromResultSet(Connection conn, ResultSet result,
     ResourceManager resourceManager, Properties config)
     throws JobFailedException, SQLException {
@@ -638,17 +885,53 @@ public class JobManager {
 
     try {
       jobId = result.getLong(1);
+      Job job = createJob(resourceManager, config, jobId,
+        UserDB.getUser(conn, result.getLong(2)), result.getString(3),
+        new Gson().fromJson(result.getString(4), Properties.class));
+      job.priority = result.getInt(5);
+      return job;
+    } catch (SQLException e) {
+      throw e;
+    } catch (JobFailedException e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new JobFailedException(jobId, "Error while creating job object", e);
+    }
+  }
+
+  /**
+   * Create a {@link Job} object.
+   *
+   * @param resourceManager
+   *          The application's resource manager
+   * @param config
+   *          The application configuration
+   * @param jobId
+   *          The job's database ID
+   * @param owner
+   *          The job's owner
+   * @param jobClass
+   *          The class name of the job
+   * @param properties
+   *          The parameters for the job
+   * @return The Job object
+   * @throws JobFailedException
+   *           If the Job object could not be created
+   */
+  @SuppressWarnings("unchecked")
+  private static Job createJob(ResourceManager resourceManager,
+    Properties config, long jobId, User owner, String jobClass,
+    Properties properties) throws JobFailedException {
+
+    try {
       Class<? extends Job> jobClazz = (Class<? extends Job>) Class
-        .forName(result.getString(3));
+        .forName(jobClass);
       Constructor<? extends Job> jobConstructor = jobClazz.getConstructor(
         ResourceManager.class, Properties.class, long.class, User.class,
         Properties.class);
 
-      return jobConstructor.newInstance(resourceManager, config,
-        result.getLong(1), UserDB.getUser(conn, result.getLong(2)),
-        new Gson().fromJson(result.getString(4), Properties.class));
-    } catch (SQLException e) {
-      throw e;
+      return jobConstructor.newInstance(resourceManager, config, jobId, owner,
+        properties);
     } catch (Throwable e) {
       throw new JobFailedException(jobId, "Error while creating job object", e);
     }
@@ -679,6 +962,8 @@ public class JobManager {
       throw new NoSuchJobException(jobID);
     }
 
+    flushProgress(conn, jobID);
+
     PreparedStatement stmt = null;
 
     try {
@@ -719,6 +1004,8 @@ public class JobManager {
       throw new NoSuchJobException(jobID);
     }
 
+    flushProgress(conn, jobID);
+
     PreparedStatement stmt = null;
 
     try {
@@ -759,6 +1046,8 @@ public class JobManager {
       throw new NoSuchJobException(jobID);
     }
 
+    flushProgress(conn, jobID);
+
     PreparedStatement stmt = null;
 
     try {
@@ -780,7 +1069,13 @@ public class JobManager {
 
   /**
    * Set the progress for a job. The progress must be a percentage (between 0
-   * and 100 inclusive)
+   * and 100 inclusive).
+   *
+   * <p>
+   * The progress is recorded in the {@link JobProgressRegistry}, and is only
+   * written to the database at the rate allowed by the registry. The check for
+   * whether the job exists is only made when the progress is written.
+   * </p>
    *
    * @param conn
    *          A database connection
@@ -808,22 +1103,62 @@ public class JobManager {
       throw new BadProgressException();
     }
 
-    if (!jobExists(conn, jobID)) {
-      throw new NoSuchJobException(jobID);
+    if (JobProgressRegistry.update(jobID, progress,
+      System.currentTimeMillis())) {
+      storeProgress(conn, jobID, progress);
     }
+  }
 
-    PreparedStatement stmt = null;
+  /**
+   * Write a job's progress to the database.
+   *
+   * @param conn
+   *          A database connection
+   * @param jobID
+   *          The ID of the job
+   * @param progress
+   *          The progress
+   * @throws NoSuchJobException
+   *           If the specified job does not exist
+   * @throws DatabaseException
+   *           If an error occurs while storing the progress in the database
+   */
+  protected static void storeProgress(Connection conn, long jobID,
+    double progress) throws NoSuchJobException, DatabaseException {
 
-    try {
-      stmt = conn.prepareStatement(SET_PROGRESS_STATEMENT);
+    try (PreparedStatement stmt = conn
+      .prepareStatement(SET_PROGRESS_STATEMENT)) {
       stmt.setDouble(1, progress);
       stmt.setLong(2, jobID);
-      stmt.execute();
+
+      if (stmt.executeUpdate() == 0) {
+        throw new NoSuchJobException(jobID);
+      }
     } catch (SQLException e) {
       throw new DatabaseException("An error occurred while setting the status",
         e);
-    } finally {
-      DatabaseUtils.closeStatements(stmt);
+    }
+  }
+
+  /**
+   * Remove a job from the {@link JobProgressRegistry} when it stops running,
+   * writing any progress that has not yet been stored.
+   *
+   * @param conn
+   *          A database connection
+   * @param jobID
+   *          The ID of the job
+   * @throws NoSuchJobException
+   *           If the specified job does not exist
+   * @throws DatabaseException
+   *           If an error occurs while storing the progress in the database
+   */
+  private static void flushProgress(Connection conn, long jobID)
+    throws NoSuchJobException, DatabaseException {
+
+    Double progress = JobProgressRegistry.remove(jobID);
+    if (null != progress) {
+      storeProgress(conn, jobID, progress);
     }
   }
 
@@ -872,46 +1207,79 @@ public class JobManager {
   }
 
   /**
-   * Retrieve the next queued job (i.e. the job with the oldest submission date)
-   * from the database
+   * Retrieve the next queued job from the database, as chosen by the
+   * {@link JobSchedulingPolicy}. The caller is expected to start the job.
    *
    * @param resourceManager
    *          The application's resource manager
    * @param config
    *          The application configuration
-   * @return The next queued job, or {@code null} if there are no jobs.
+   * @return The next queued job, or {@code null} if there are no jobs that can
+   *         be run. This includes the case where the chosen job needs more
+   *         memory than is currently available in the {@link JobThreadPool}.
    * @throws JobFailedException
    *           If the Job object cannot be created
    * @throws MissingParamException
    *           If the data source is not supplied
    * @throws DatabaseException
    *           If an error occurs while retrieving details from the database.
+   * @throws JobThreadPoolNotInitialisedException
+   *           If the {@link JobThreadPool} has not been initialised
    */
   public static Job getNextJob(ResourceManager resourceManager,
-    Properties config)
-    throws JobFailedException, DatabaseException, MissingParamException {
+    Properties config) throws JobFailedException, DatabaseException,
+    MissingParamException, JobThreadPoolNotInitialisedException {
 
     MissingParam.checkMissing(resourceManager, "resourceManager");
 
     Job job = null;
     Connection connection = null;
-    PreparedStatement stmt = null;
-    ResultSet result = null;
     long nextJobId = -1;
 
     try {
       DataSource dataSource = resourceManager.getDBDataSource();
       connection = dataSource.getConnection();
-      stmt = connection.prepareStatement(GET_NEXT_JOB_QUERY);
 
-      result = stmt.executeQuery();
-      if (result.next()) {
-        nextJobId = result.getLong(1);
-        job = getJobFromResultSet(connection, result, resourceManager, config);
+      List<QueuedJob> waiting = getSchedulingDetails(connection,
+        Job.WAITING_STATUS);
+
+      if (waiting.size() > 0) {
+        JobSchedulingPolicy policy = JobSchedulingPolicy.getInstance();
+        long now = System.currentTimeMillis();
+
+        QueuedJob nextJob = policy.selectJob(waiting,
+          getSchedulingDetails(connection, Job.RUNNING_STATUS), now);
+
+        if (null != nextJob) {
+          nextJobId = nextJob.getId();
+
+          User owner;
+          try {
+            owner = UserDB.getUser(connection, nextJob.getOwnerId());
+          } catch (Exception e) {
+            throw new JobFailedException(nextJobId,
+              "Error while creating job object", e);
+          }
+
+          job = createJob(resourceManager, config, nextJobId, owner,
+            nextJob.getJobClass(),
+            new Gson().fromJson(nextJob.getProperties(), Properties.class));
+          job.priority = nextJob.getPriority();
+
+          // If there isn't enough memory to run the job, leave it in the
+          // queue. No other jobs are started until it has run.
+          if (JobThreadPool.getInstance()
+            .canAdmit(job.getEstimatedMemory())) {
+            policy.recordStart(nextJob, now);
+          } else {
+            job.destroy();
+            job = null;
+          }
+        }
       }
     } catch (JobFailedException e) {
       try {
-        if (null != result) {
+        if (-1 != nextJobId) {
           logJobError(connection, nextJobId, e.getCause());
         }
       } catch (Exception e2) {
@@ -925,14 +1293,49 @@ public class JobManager {
       throw new DatabaseException(
         "Error while retrieving details for next queued job", e);
     } finally {
-      DatabaseUtils.closeResultSets(result);
-      DatabaseUtils.closeStatements(stmt);
       DatabaseUtils.closeConnection(connection);
     }
 
     return job;
   }
 
+  /**
+   * Get the scheduling details of all jobs with the specified status.
+   *
+   * @param conn
+   *          A database connection
+   * @param status
+   *          The job status
+   * @return The job details
+   * @throws SQLException
+   *           If a database error occurs
+   */
+  private static List<QueuedJob> getSchedulingDetails(Connection conn,
+    String status) throws SQLException {
+
+    List<QueuedJob> result = new ArrayList<QueuedJob>();
+
+    try (PreparedStatement stmt = conn
+      .prepareStatement(GET_SCHEDULING_DETAILS_QUERY)) {
+      stmt.setString(1, status);
+
+      try (ResultSet records = stmt.executeQuery()) {
+        while (records.next()) {
+          Long instrumentId = records.getLong(6);
+          if (records.wasNull()) {
+            instrumentId = null;
+          }
+
+          result.add(new QueuedJob(records.getLong(1), records.getLong(2),
+            records.getString(3), records.getString(4), records.getInt(5),
+            instrumentId, records.getTimestamp(7).getTime()));
+        }
+      }
+    }
+
+    return result;
+  }
+
   /**
    * Checks a class name to see if it a valid {@link Job} class
    *
@@ -1085,6 +1488,12 @@ public class JobManager {
         double progress = records.getDouble(8);
         String stackTrace = records.getString(9);
 
+        // Running jobs have their latest progress in the registry
+        Double liveProgress = JobProgressRegistry.getProgress(id);
+        if (null != liveProgress) {
+          progress = liveProgress;
+        }
+
         result.add(new JobSummary(id, owner, className, created, status,
           started, ended, progress, stackTrace));
       }
@@ -1126,7 +1535,13 @@ public class JobManager {
     throws MissingParamException, JobFailedException, DatabaseException,
     JobThreadPoolNotInitialisedException, NoSuchJobException {
     boolean jobStarted = false;
-    Job nextJob = getNextJob(resourceManager, config);
+
+    // Don't choose a job if there's no thread to run it
+    Job nextJob = null;
+    if (JobThreadPool.getInstance().getAvailableThreads() > 0) {
+      nextJob = getNextJob(resourceManager, config);
+    }
+
     if (null != nextJob) {
       JobThread thread = JobThreadPool.getInstance().getJobThread(nextJob);
       if (null != thread) {
@@ -1301,6 +1716,42 @@ public class JobManager {
     return result;
   }
 
+  /**
+   * Get the priority of a job, as stored in the database.
+   *
+   * @param conn
+   *          A database connection
+   * @param jobId
+   *          The job's database ID
+   * @return The job's priority
+   * @throws NoSuchJobException
+   *           If the job doesn't exist in the database
+   * @throws DatabaseException
+   *           If a database error occurs
+   */
+  private static int getJobPriority(Connection conn, long jobId)
+    throws NoSuchJobException, DatabaseException {
+
+    int result;
+
+    try (PreparedStatement stmt = conn
+      .prepareStatement(GET_JOB_PRIORITY_QUERY)) {
+      stmt.setLong(1, jobId);
+
+      try (ResultSet record = stmt.executeQuery()) {
+        if (!record.next()) {
+          throw new NoSuchJobException(jobId);
+        }
+
+        result = record.getInt(1);
+      }
+    } catch (SQLException e) {
+      throw new DatabaseException("Error while retrieving job priority", e);
+    }
+
+    return result;
+  }
+
   /**
    * Get the owner of a job
    *
@@ -1391,6 +1842,12 @@ public class JobManager {
    * Place a set of jobs in the {@link Job#WAITING_STATUS} state so they can be
    * re-run.
    *
+   * <p>
+   * As with {@link #addJob(Connection, User, String, Properties)}, the
+   * {@link JobRunScheduler} is not notified. Callers should call
+   * {@link JobRunScheduler#dispatch()} once the change has been committed.
+   * </p>
+   *
    * @param conn
    *          A database connection
    * @param jobIds
@@ -1418,14 +1875,6 @@ public class JobManager {
     } catch (SQLException e) {
       throw new DatabaseException("An error occurred while requeuing jobs", e);
     }
-
-    // Start the next job in the queue
-    try {
-      startNextJob(ResourceManager.getInstance(),
-        ResourceManager.getInstance().getConfig());
-    } catch (Exception e) {
-      // Don't sweat it
-    }
   }
 
   /**
@@ -1451,6 +1900,9 @@ public class JobManager {
     try {
       conn = dataSource.getConnection();
       requeueJobs(conn, jobIds);
+
+      // Start the next job in the queue
+      JobRunScheduler.dispatch();
     } catch (SQLException e) {
       throw new DatabaseException("An error occurred while requeuing jobs", e);
     } finally {
@@ -1628,6 +2080,26 @@ public class JobManager {
     }
   }
 
+  /**
+   * Determines whether or not a job will operate on a dataset, by checking
+   * whether it is a subclass of {@link DataSetJob}.
+   *
+   * @param jobClass
+   *          The job class to check
+   * @return {@code true} if the job will operate on a dataset; {@code false}
+   *         if it will not
+   * @throws JobClassNotFoundException
+   *           If any job classes are not found while performing the checks
+   */
+  private static boolean isDataSetJob(String jobClass)
+    throws JobClassNotFoundException {
+    try {
+      return DataSetJob.class.isAssignableFrom(Class.forName(jobClass));
+    } catch (ClassNotFoundException e) {
+      throw new JobClassNotFoundException(jobClass);
+    }
+  }
+
   /**
    * Kill any jobs associated with a set of data files
    *
@@ -0,0 +1,145 @@
+package uk.ac.exeter.QuinCe.jobs;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory record of the progress of running jobs.
+ *
+ * <p>
+ * Jobs can report their progress very frequently, and writing every update to
+ * the database would compete with the jobs' own database work. Progress
+ * updates are stored here, and are only written to the database if
+ * {@link #FLUSH_INTERVAL} has passed since the last write, or if the job has
+ * just started or completed its work (progress {@code 0} or {@code 100}).
+ * Pending progress is written when the job's state changes (see
+ * {@link #remove(long)}).
+ * </p>
+ *
+ * <p>
+ * Progress displays in the application read from this registry, so they show
+ * the latest value regardless of what has been written to the database.
+ * </p>
+ */
+public class JobProgressRegistry {
+
+  /**
+   * The minimum time (in milliseconds) between database writes of a job's
+   * progress
+   */
+  public static final long FLUSH_INTERVAL = 5000L;
+
+  /**
+   * The progress of each running job
+   */
+  private static Map<Long, ProgressEntry> entries = new ConcurrentHashMap<Long, ProgressEntry>();
+
+  /**
+   * Record the progress of a job, and determine whether it should be written
+   * to the database.
+   *
+   * @param jobId
+   *          The job's database ID
+   * @param progress
+   *          The progress
+   * @param now
+   *          The current time, in milliseconds since the epoch
+   * @return {@code true} if the progress should be written to the database;
+   *         {@code false} if not
+   */
+  protected static boolean update(long jobId, double progress, long now) {
+    ProgressEntry entry = entries.computeIfAbsent(jobId,
+      k -> new ProgressEntry());
+
+    boolean flush = false;
+
+    synchronized (entry) {
+      entry.progress = progress;
+
+      if (!entry.stored) {
+        flush = true;
+      } else if (progress != entry.storedProgress) {
+        flush = progress == 0D || progress == 100D
+          || now - entry.storedTime >= FLUSH_INTERVAL;
+      }
+
+      if (flush) {
+        entry.stored = true;
+        entry.storedProgress = progress;
+        entry.storedTime = now;
+      }
+    }
+
+    return flush;
+  }
+
+  /**
+   * Get the latest progress of a job.
+   *
+   * @param jobId
+   *          The job's database ID
+   * @return The progress, or {@code null} if there is no progress recorded for
+   *         the job
+   */
+  public static Double getProgress(long jobId) {
+    ProgressEntry entry = entries.get(jobId);
+
+    Double result = null;
+    if (null != entry) {
+      synchronized (entry) {
+        result = entry.progress;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Remove a job from the registry when it stops running.
+   *
+   * @param jobId
+   *          The job's database ID
+   * @return The job's progress if it has not yet been written to the
+   *         database; {@code null} otherwise
+   */
+  protected static Double remove(long jobId) {
+    ProgressEntry entry = entries.remove(jobId);
+
+    Double result = null;
+    if (null != entry) {
+      synchronized (entry) {
+        if (!entry.stored || entry.progress != entry.storedProgress) {
+          result = entry.progress;
+        }
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * The progress details for a single job
+   */
+  private static class ProgressEntry {
+
+    /**
+     * The latest progress
+     */
+    private double progress = 0D;
+
+    /**
+     * Indicates whether any progress has been written to the database
+     */
+    private boolean stored = false;
+
+    /**
+     * The progress last written to the database
+     */
+    private double storedProgress = 0D;
+
+    /**
+     * The time that the progress was last written to the database
+     */
+    private long storedTime = 0L;
+  }
+}
@@ -1,5 +1,6 @@
 package uk.ac.exeter.QuinCe.jobs;
 
+import javax.servlet.ServletContextEvent;
 import javax.servlet.annotation.WebListener;
 
 import uk.ac.exeter.QuinCe.utils.BackgroundTask;
@@ -7,11 +8,57 @@ import uk.ac.exeter.QuinCe.utils.BackgroundTaskException;
 import uk.ac.exeter.QuinCe.web.system.ResourceManager;
 
 /**
- * Monitors the job queue and runs jobs if needed
+ * Monitors the job queue and runs jobs if needed.
+ *
+ * <p>
+ * The scheduler is notified via {@link #dispatch()} whenever a queued job has
+ * been committed or a job thread becomes free, and starts waiting jobs
+ * immediately. The queue is also checked at a slow regular interval to recover
+ * any jobs that were missed (e.g. jobs queued by another process) and to
+ * requeue interrupted jobs.
+ * </p>
  */
 @WebListener
 public class JobRunScheduler extends BackgroundTask {
 
+  /**
+   * The interval (in seconds) between regular checks of the job queue.
+   */
+  private static final long FALLBACK_INTERVAL = 60;
+
+  /**
+   * The active scheduler instance.
+   *
+   * <p>
+   * This is set by the servlet container's thread and read from request and
+   * job threads, so it must be {@code volatile}.
+   * </p>
+   */
+  private static volatile JobRunScheduler instance = null;
+
+  @Override
+  public void contextInitialized(ServletContextEvent arg0) {
+    super.contextInitialized(arg0);
+    instance = this;
+  }
+
+  @Override
+  public void contextDestroyed(ServletContextEvent arg0) {
+    instance = null;
+    super.contextDestroyed(arg0);
+  }
+
+  /**
+   * Start any waiting jobs as soon as possible. Does nothing if the scheduler
+   * is not running.
+   */
+  public static void dispatch() {
+    JobRunScheduler scheduler = instance;
+    if (null != scheduler) {
+      scheduler.runNow();
+    }
+  }
+
   protected void doTask() throws BackgroundTaskException {
     ResourceManager resourceManager = ResourceManager.getInstance();
     try {
@@ -29,6 +76,6 @@ public class JobRunScheduler extends BackgroundTask {
 
   @Override
   protected long getRunInterval() {
-    return 1;
+    return FALLBACK_INTERVAL;
   }
 }
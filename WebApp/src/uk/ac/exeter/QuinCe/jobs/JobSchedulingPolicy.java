@@ -0,0 +1,426 @@
+package uk.ac.exeter.QuinCe.jobs;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import uk.ac.exeter.QuinCe.web.system.ResourceManager;
+
+/**
+ * Chooses which queued job should be run next.
+ *
+ * <p>
+ * Each job has a priority ({@link Job#PRIORITY_NRT},
+ * {@link Job#PRIORITY_INTERACTIVE} or {@link Job#PRIORITY_BULK}). The next job
+ * is chosen using the following rules, in order:
+ * </p>
+ * <ol>
+ * <li>Jobs for an instrument that already has the maximum number of jobs
+ * running are not started. The maximum is set by the
+ * {@link #MAX_JOBS_PER_INSTRUMENT_PROPERTY} in the application configuration.
+ * By default there is no maximum, so an instrument's jobs can use every job
+ * thread when no other instruments have jobs waiting.</li>
+ * <li>Higher priority jobs are run first. Jobs are promoted by one priority
+ * level for every {@link #AGING_INTERVAL} they have been waiting, so lower
+ * priority jobs are never starved.</li>
+ * <li>Jobs at the same level are shared between instruments (or owners, for
+ * jobs that are not linked to an instrument). Instruments with fewer running
+ * jobs are preferred, followed by the instrument that least recently had a job
+ * started.</li>
+ * <li>Finally, the oldest job is run first.</li>
+ * </ol>
+ *
+ * <p>
+ * The policy also records how long the jobs at each priority wait before they
+ * are started, for display on the Jobs page.
+ * </p>
+ */
+public class JobSchedulingPolicy {
+
+  /**
+   * Application configuration property specifying the maximum number of jobs
+   * that can run at the same time for a single instrument. Zero means there is
+   * no maximum.
+   */
+  public static final String MAX_JOBS_PER_INSTRUMENT_PROPERTY = "jobs.max_per_instrument";
+
+  /**
+   * The maximum number of jobs that can run at the same time for a single
+   * instrument if it is not set in the application configuration. Zero means
+   * there is no maximum.
+   */
+  public static final int DEFAULT_MAX_JOBS_PER_INSTRUMENT = 0;
+
+  /**
+   * The time (in milliseconds) a job must wait before it is promoted to the
+   * next priority level
+   */
+  public static final long AGING_INTERVAL = 15 * 60 * 1000L;
+
+  /**
+   * The names of the priority levels
+   */
+  private static final String[] PRIORITY_NAMES = { "NRT", "Interactive",
+    "Bulk" };
+
+  /**
+   * The singleton instance of the policy
+   */
+  private static JobSchedulingPolicy instance = null;
+
+  /**
+   * The order in which each share key was last given a job. Larger values were
+   * served more recently.
+   */
+  private Map<String, Long> lastServed = new HashMap<String, Long>();
+
+  /**
+   * The maximum number of jobs that can run at the same time for a single
+   * instrument, or zero if there is no maximum
+   */
+  private final int maxJobsPerInstrument;
+
+  /**
+   * Counter used to build {@link #lastServed}
+   */
+  private long serveCounter = 0;
+
+  /**
+   * The number of jobs waiting at each priority when the queue was last
+   * checked
+   */
+  private int[] waitingCount = new int[PRIORITY_NAMES.length];
+
+  /**
+   * The longest time (in milliseconds) that a job at each priority had been
+   * waiting when the queue was last checked
+   */
+  private long[] longestWaiting = new long[PRIORITY_NAMES.length];
+
+  /**
+   * The number of jobs started at each priority
+   */
+  private long[] startedCount = new long[PRIORITY_NAMES.length];
+
+  /**
+   * The total time (in milliseconds) that jobs started at each priority have
+   * waited
+   */
+  private long[] totalWait = new long[PRIORITY_NAMES.length];
+
+  /**
+   * The longest time (in milliseconds) that a job started at each priority has
+   * waited
+   */
+  private long[] maxWait = new long[PRIORITY_NAMES.length];
+
+  /**
+   * Create a policy that uses the {@link #DEFAULT_MAX_JOBS_PER_INSTRUMENT}.
+   */
+  protected JobSchedulingPolicy() {
+    this(DEFAULT_MAX_JOBS_PER_INSTRUMENT);
+  }
+
+  /**
+   * Create a policy that allows the specified number of jobs to run for each
+   * instrument.
+   *
+   * @param maxJobsPerInstrument
+   *          The maximum number of jobs that can run at the same time for a
+   *          single instrument, or zero for no maximum
+   */
+  protected JobSchedulingPolicy(int maxJobsPerInstrument) {
+    this.maxJobsPerInstrument = Math.max(0, maxJobsPerInstrument);
+  }
+
+  /**
+   * Get the policy instance used by the {@link JobManager}.
+   *
+   * @return The policy
+   */
+  public static synchronized JobSchedulingPolicy getInstance() {
+    if (null == instance) {
+      instance = new JobSchedulingPolicy(
+        getMaxJobsPerInstrument(ResourceManager.getInstance().getConfig()));
+    }
+
+    return instance;
+  }
+
+  /**
+   * Get the maximum number of jobs that can run at the same time for a single
+   * instrument, as set by the {@link #MAX_JOBS_PER_INSTRUMENT_PROPERTY} in the
+   * application configuration.
+   *
+   * @param config
+   *          The application configuration
+   * @return The maximum number of jobs, or zero for no maximum
+   */
+  private static int getMaxJobsPerInstrument(Properties config) {
+    int result = DEFAULT_MAX_JOBS_PER_INSTRUMENT;
+
+    if (null != config) {
+      try {
+        result = Integer.parseInt(config.getProperty(
+          MAX_JOBS_PER_INSTRUMENT_PROPERTY,
+          String.valueOf(DEFAULT_MAX_JOBS_PER_INSTRUMENT)));
+      } catch (NumberFormatException e) {
+        // Use the default
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Choose the next job to run from the queue.
+   *
+   * @param waiting
+   *          The jobs waiting to run
+   * @param running
+   *          The jobs that are currently running
+   * @param now
+   *          The current time, in milliseconds since the epoch
+   * @return The job to run, or {@code null} if no job can be run
+   */
+  public synchronized QueuedJob selectJob(List<QueuedJob> waiting,
+    List<QueuedJob> running, long now) {
+
+    Map<Long, Integer> instrumentRunCounts = new HashMap<Long, Integer>();
+    Map<String, Integer> shareRunCounts = new HashMap<String, Integer>();
+
+    for (QueuedJob job : running) {
+      if (null != job.getInstrumentId()) {
+        instrumentRunCounts.merge(job.getInstrumentId(), 1, Integer::sum);
+      }
+      shareRunCounts.merge(job.getShareKey(), 1, Integer::sum);
+    }
+
+    waitingCount = new int[PRIORITY_NAMES.length];
+    longestWaiting = new long[PRIORITY_NAMES.length];
+
+    QueuedJob selected = null;
+    long[] selectedRank = null;
+
+    for (QueuedJob job : waiting) {
+      int priority = getPriorityIndex(job.getPriority());
+      long waitTime = Math.max(0, now - job.getCreated());
+      waitingCount[priority]++;
+      longestWaiting[priority] = Math.max(longestWaiting[priority], waitTime);
+
+      boolean instrumentAvailable = null == job.getInstrumentId()
+        || maxJobsPerInstrument == 0
+        || instrumentRunCounts.getOrDefault(job.getInstrumentId(),
+          0) < maxJobsPerInstrument;
+
+      if (instrumentAvailable) {
+        long[] rank = new long[] {
+          Math.max(0, priority - waitTime / AGING_INTERVAL),
+          shareRunCounts.getOrDefault(job.getShareKey(), 0),
+          lastServed.getOrDefault(job.getShareKey(), 0L), job.getCreated(),
+          job.getId() };
+
+        if (null == selected || compareRanks(rank, selectedRank) < 0) {
+          selected = job;
+          selectedRank = rank;
+        }
+      }
+    }
+
+    return selected;
+  }
+
+  /**
+   * Record that a job selected by
+   * {@link #selectJob(List, List, long)} has been started.
+   *
+   * @param job
+   *          The job
+   * @param now
+   *          The current time, in milliseconds since the epoch
+   */
+  public synchronized void recordStart(QueuedJob job, long now) {
+    serveCounter++;
+    lastServed.put(job.getShareKey(), serveCounter);
+
+    int priority = getPriorityIndex(job.getPriority());
+    long waitTime = Math.max(0, now - job.getCreated());
+
+    startedCount[priority]++;
+    totalWait[priority] += waitTime;
+    maxWait[priority] = Math.max(maxWait[priority], waitTime);
+
+    waitingCount[priority] = Math.max(0, waitingCount[priority] - 1);
+  }
+
+  /**
+   * Get the queue wait time statistics for each priority.
+   *
+   * @return The statistics
+   */
+  public synchronized List<WaitStats> getWaitStats() {
+    List<WaitStats> result = new ArrayList<WaitStats>(PRIORITY_NAMES.length);
+
+    for (int i = 0; i < PRIORITY_NAMES.length; i++) {
+      result.add(new WaitStats(PRIORITY_NAMES[i], waitingCount[i],
+        longestWaiting[i], startedCount[i],
+        startedCount[i] == 0 ? 0 : totalWait[i] / startedCount[i],
+        maxWait[i]));
+    }
+
+    return result;
+  }
+
+  /**
+   * Convert a job priority to an index into the statistics arrays. Unknown
+   * priorities are treated as {@link Job#PRIORITY_BULK}.
+   *
+   * @param priority
+   *          The priority
+   * @return The index
+   */
+  private int getPriorityIndex(int priority) {
+    return priority < 0 || priority >= PRIORITY_NAMES.length
+      ? Job.PRIORITY_BULK
+      : priority;
+  }
+
+  /**
+   * Compare the ranks of two jobs. Lower ranks are run first.
+   *
+   * @param rank1
+   *          The first rank
+   * @param rank2
+   *          The second rank
+   * @return A negative value if the first rank is lower, positive if it is
+   *         higher, or zero if they are equal
+   */
+  private int compareRanks(long[] rank1, long[] rank2) {
+    int result = 0;
+
+    for (int i = 0; result == 0 && i < rank1.length; i++) {
+      result = Long.compare(rank1[i], rank2[i]);
+    }
+
+    return result;
+  }
+
+  /**
+   * Queue wait time statistics for a job priority. All times are in seconds.
+   */
+  public static class WaitStats {
+
+    /**
+     * The priority name
+     */
+    private final String name;
+
+    /**
+     * The number of waiting jobs
+     */
+    private final int waiting;
+
+    /**
+     * The longest time that a waiting job has been waiting
+     */
+    private final long longestWaiting;
+
+    /**
+     * The number of jobs started
+     */
+    private final long started;
+
+    /**
+     * The mean time that started jobs waited
+     */
+    private final long meanWait;
+
+    /**
+     * The longest time that a started job waited
+     */
+    private final long maxWait;
+
+    /**
+     * Simple constructor. All times are in milliseconds.
+     *
+     * @param name
+     *          The priority name
+     * @param waiting
+     *          The number of waiting jobs
+     * @param longestWaiting
+     *          The longest time that a waiting job has been waiting
+     * @param started
+     *          The number of jobs started
+     * @param meanWait
+     *          The mean time that started jobs waited
+     * @param maxWait
+     *          The longest time that a started job waited
+     */
+    private WaitStats(String name, int waiting, long longestWaiting,
+      long started, long meanWait, long maxWait) {
+      this.name = name;
+      this.waiting = waiting;
+      this.longestWaiting = longestWaiting / 1000;
+      this.started = started;
+      this.meanWait = meanWait / 1000;
+      this.maxWait = maxWait / 1000;
+    }
+
+    /**
+     * Get the priority name.
+     *
+     * @return The name
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Get the number of jobs waiting when the queue was last checked.
+     *
+     * @return The number of waiting jobs
+     */
+    public int getWaiting() {
+      return waiting;
+    }
+
+    /**
+     * Get the longest time that a waiting job had been waiting when the queue
+     * was last checked.
+     *
+     * @return The wait time in seconds
+     */
+    public long getLongestWaiting() {
+      return longestWaiting;
+    }
+
+    /**
+     * Get the number of jobs that have been started.
+     *
+     * @return The number of jobs
+     */
+    public long getStarted() {
+      return started;
+    }
+
+    /**
+     * Get the mean time that started jobs waited in the queue.
+     *
+     * @return The wait time in seconds
+     */
+    public long getMeanWait() {
+      return meanWait;
+    }
+
+    /**
+     * Get the longest time that a started job waited in the queue.
+     *
+     * @return The wait time in seconds
+     */
+    public long getMaxWait() {
+      return maxWait;
+    }
+  }
+}
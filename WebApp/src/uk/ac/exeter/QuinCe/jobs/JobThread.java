@@ -106,12 +106,17 @@ public class JobThread extends Thread implements Comparable<JobThread> {
           if (null == nextJob) {
             job = null;
           } else {
-            long nextJobId = JobManager.addJob(
-              ResourceManager.getInstance().getDBDataSource(), job.owner,
-              nextJob.jobClass, nextJob.properties);
-            job = JobManager.getJob(ResourceManager.getInstance(),
-              ResourceManager.getInstance().getConfig(), nextJobId);
-            job.transferData = nextJob.transferData;
+            // Run the next job straight away in this thread if there is
+            // enough memory. Otherwise put it in the queue to wait its turn.
+            job = JobManager.startChainedJob(ResourceManager.getInstance(),
+              job, nextJob, getName());
+
+            if (!JobThreadPool.getInstance().admitChainedJob(this, job)) {
+              JobManager.requeueJob(
+                ResourceManager.getInstance().getDBDataSource(), job.getId());
+              job.destroy();
+              job = null;
+            }
           }
           break;
         }
@@ -148,8 +153,10 @@ public class JobThread extends Thread implements Comparable<JobThread> {
     } finally {
       setName(WAITING_THREAD_NAME);
       try {
-        // Return ourselves to the thread pool
+        // Return ourselves to the thread pool, and let the scheduler know
+        // that a thread is available for any waiting jobs
         JobThreadPool.getInstance().returnThread(this);
+        JobRunScheduler.dispatch();
       } catch (JobThreadPoolNotInitialisedException e) {
         // If the thread pool is gone, what happens to this thread
         // is irrelevant.
@@ -1,6 +1,8 @@
 package uk.ac.exeter.QuinCe.jobs;
 
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Stack;
 import java.util.TreeSet;
 
@@ -11,6 +13,13 @@ import uk.ac.exeter.QuinCe.utils.MissingParamException;
  * However, high priority jobs will always be given a thread, so the true number
  * of threads may occasionally be larger. Any extra threads will be destroyed
  * when they are finished.
+ *
+ * <p>
+ * The pool also limits the total estimated memory of the running jobs (see
+ * {@link Job#getEstimatedMemory()}). Queued jobs are not given a thread if
+ * their estimate would take the total over the limit, unless no other jobs are
+ * running. They remain in the queue until enough memory is released.
+ * </p>
  */
 public class JobThreadPool {
 
@@ -25,6 +34,11 @@ public class JobThreadPool {
    */
   public static final int THREAD_INTERRUPTED = 1;
 
+  /**
+   * The proportion of the JVM's maximum heap that can be used by running jobs
+   */
+  public static final double JOB_MEMORY_FRACTION = 0.5;
+
   /**
    * The singleton instance of the thread pool
    */
@@ -45,14 +59,32 @@ public class JobThreadPool {
    */
   private Collection<JobThread> allocatedThreads = new TreeSet<JobThread>();
 
+  /**
+   * The maximum total estimated memory of running jobs, in bytes
+   */
+  private long memoryLimit;
+
+  /**
+   * The estimated memory of the job running in each allocated thread
+   */
+  private Map<JobThread, Long> memoryReservations = new HashMap<JobThread, Long>();
+
+  /**
+   * The total estimated memory of all running jobs
+   */
+  private long reservedMemory = 0;
+
   /**
    * Creates the thread pool and fills it with waiting job threads
    *
    * @param maxThreads
    *          The maximum number of threads in the pool
+   * @param memoryLimit
+   *          The maximum total estimated memory of running jobs, in bytes
    */
-  private JobThreadPool(int maxThreads) {
+  protected JobThreadPool(int maxThreads, long memoryLimit) {
     this.maxThreads = maxThreads;
+    this.memoryLimit = memoryLimit;
 
     synchronized (threads) {
       for (int i = 0; i < maxThreads; i++) {
@@ -63,24 +95,26 @@ public class JobThreadPool {
 
   /**
    * Retrieves a job thread from the pool and configures it ready to execute a
-   * job. If there are no available threads in the stack, {@code null} is
-   * returned.
+   * job. If there are no available threads in the stack, or there is not
+   * enough memory to run the job, {@code null} is returned.
    *
    * @param job
    *          The job to be executed
-   * @return A configured job thread, or {@code null} if the thread stack is
-   *         empty
+   * @return A configured job thread, or {@code null} if the job cannot be
+   *         started
    * @throws MissingParamException
    *           If any of the required parameters are null
    */
   public JobThread getJobThread(Job job) throws MissingParamException {
 
     JobThread thread = null;
+    long estimatedMemory = job.getEstimatedMemory();
 
     synchronized (threads) {
-      if (!threads.isEmpty()) {
+      if (!threads.isEmpty() && canAdmit(estimatedMemory)) {
         thread = threads.pop();
         allocatedThreads.add(thread);
+        reserveMemory(thread, estimatedMemory);
       }
     }
 
@@ -91,6 +125,75 @@ public class JobThreadPool {
     return thread;
   }
 
+  /**
+   * Determine whether or not a job with the specified estimated memory can be
+   * started without exceeding the memory limit. A job can always be started if
+   * no other jobs are running.
+   *
+   * @param estimatedMemory
+   *          The job's estimated memory, in bytes
+   * @return {@code true} if the job can be started; {@code false} if it cannot
+   */
+  public boolean canAdmit(long estimatedMemory) {
+    synchronized (threads) {
+      return allocatedThreads.isEmpty()
+        || reservedMemory + estimatedMemory <= memoryLimit;
+    }
+  }
+
+  /**
+   * Determine whether a thread can move directly on to a follow-on job (see
+   * {@link NextJobInfo}) without exceeding the memory limit, and if so reserve
+   * the job's memory in place of the previous job's.
+   *
+   * <p>
+   * The follow-on job is admitted using the same rules as
+   * {@link #canAdmit(long)}, ignoring the memory of the thread's previous job.
+   * If it is not admitted, the thread's reservation is unchanged; the thread
+   * should requeue the job and return itself to the pool.
+   * </p>
+   *
+   * @param thread
+   *          The thread
+   * @param job
+   *          The follow-on job
+   * @return {@code true} if the job can run in the thread; {@code false} if it
+   *         must wait in the queue
+   */
+  public boolean admitChainedJob(JobThread thread, Job job) {
+    long estimatedMemory = job.getEstimatedMemory();
+    boolean admitted = false;
+
+    synchronized (threads) {
+      if (allocatedThreads.contains(thread)) {
+        Long current = memoryReservations.get(thread);
+        long otherMemory = reservedMemory - (null == current ? 0 : current);
+
+        if (allocatedThreads.size() == 1
+          || otherMemory + estimatedMemory <= memoryLimit) {
+          reserveMemory(thread, estimatedMemory);
+          admitted = true;
+        }
+      }
+    }
+
+    return admitted;
+  }
+
+  /**
+   * Record the estimated memory for a thread's job, replacing any previous
+   * reservation. Must be called while synchronized on {@link #threads}.
+   *
+   * @param thread
+   *          The thread
+   * @param estimatedMemory
+   *          The estimated memory, in bytes
+   */
+  private void reserveMemory(JobThread thread, long estimatedMemory) {
+    Long previous = memoryReservations.put(thread, estimatedMemory);
+    reservedMemory += estimatedMemory - (null == previous ? 0 : previous);
+  }
+
   /**
    * Returns the number of threads available in the pool
    *
@@ -105,7 +208,8 @@ public class JobThreadPool {
    * job. If there are no available threads in the stack, an overflow thread is
    * created instead. The overflow thread will not be returned to the stack when
    * the job is finished. This method should only be used for high priority jobs
-   * that cannot wait for a normal thread to become available.
+   * that cannot wait for a normal thread to become available. The job's
+   * estimated memory is recorded, but is not checked against the memory limit.
    *
    * @param job
    *          The job to be executed
@@ -116,6 +220,7 @@ public class JobThreadPool {
   public JobThread getInstantJobThread(Job job) throws MissingParamException {
 
     JobThread thread = null;
+    long estimatedMemory = job.getEstimatedMemory();
 
     synchronized (threads) {
       if (!threads.isEmpty()) {
@@ -125,6 +230,7 @@ public class JobThreadPool {
       }
 
       allocatedThreads.add(thread);
+      reserveMemory(thread, estimatedMemory);
     }
 
     thread.setupJob(job);
@@ -146,6 +252,12 @@ public class JobThreadPool {
 
     synchronized (threads) {
       allocatedThreads.remove(thread);
+
+      Long reservation = memoryReservations.remove(thread);
+      if (null != reservation) {
+        reservedMemory -= reservation;
+      }
+
       if (!thread.isOverflowThread() && threads.size() < maxThreads) {
         threads.push(new JobThread(false));
       }
@@ -181,7 +293,8 @@ public class JobThreadPool {
     }
 
     if (null == instance) {
-      instance = new JobThreadPool(maxThreads);
+      instance = new JobThreadPool(maxThreads,
+        (long) (Runtime.getRuntime().maxMemory() * JOB_MEMORY_FRACTION));
     }
   }
 
@@ -226,6 +339,26 @@ public class JobThreadPool {
     return maxThreads;
   }
 
+  /**
+   * Get the maximum total estimated memory of running jobs
+   *
+   * @return The memory limit, in bytes
+   */
+  public long getMemoryLimit() {
+    return memoryLimit;
+  }
+
+  /**
+   * Get the total estimated memory of the running jobs
+   *
+   * @return The reserved memory, in bytes
+   */
+  public long getReservedMemory() {
+    synchronized (threads) {
+      return reservedMemory;
+    }
+  }
+
   /**
    * Get the number of currently running threads
    *
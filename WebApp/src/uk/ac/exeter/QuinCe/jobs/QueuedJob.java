@@ -0,0 +1,148 @@
+package uk.ac.exeter.QuinCe.jobs;
+
+/**
+ * The scheduling details of a job in the queue, as used by the
+ * {@link JobSchedulingPolicy}.
+ */
+public class QueuedJob {
+
+  /**
+   * The job's database ID
+   */
+  private final long id;
+
+  /**
+   * The database ID of the job's owner
+   */
+  private final long ownerId;
+
+  /**
+   * The job's class name
+   */
+  private final String jobClass;
+
+  /**
+   * The job's properties as stored in the database
+   */
+  private final String properties;
+
+  /**
+   * The job's priority
+   */
+  private final int priority;
+
+  /**
+   * The database ID of the instrument that the job works on, if known
+   */
+  private final Long instrumentId;
+
+  /**
+   * The time that the job was created, in milliseconds since the epoch
+   */
+  private final long created;
+
+  /**
+   * Simple constructor.
+   *
+   * @param id
+   *          The job's database ID
+   * @param ownerId
+   *          The database ID of the job's owner
+   * @param jobClass
+   *          The job's class name
+   * @param properties
+   *          The job's properties as stored in the database
+   * @param priority
+   *          The job's priority
+   * @param instrumentId
+   *          The database ID of the instrument that the job works on, or
+   *          {@code null} if it is not known
+   * @param created
+   *          The time that the job was created, in milliseconds since the
+   *          epoch
+   */
+  public QueuedJob(long id, long ownerId, String jobClass, String properties,
+    int priority, Long instrumentId, long created) {
+    this.id = id;
+    this.ownerId = ownerId;
+    this.jobClass = jobClass;
+    this.properties = properties;
+    this.priority = priority;
+    this.instrumentId = instrumentId;
+    this.created = created;
+  }
+
+  /**
+   * Get the job's database ID.
+   *
+   * @return The job ID
+   */
+  public long getId() {
+    return id;
+  }
+
+  /**
+   * Get the database ID of the job's owner.
+   *
+   * @return The owner ID
+   */
+  public long getOwnerId() {
+    return ownerId;
+  }
+
+  /**
+   * Get the job's class name.
+   *
+   * @return The class name
+   */
+  public String getJobClass() {
+    return jobClass;
+  }
+
+  /**
+   * Get the job's properties as stored in the database.
+   *
+   * @return The properties
+   */
+  public String getProperties() {
+    return properties;
+  }
+
+  /**
+   * Get the job's priority.
+   *
+   * @return The priority
+   */
+  public int getPriority() {
+    return priority;
+  }
+
+  /**
+   * Get the database ID of the instrument that the job works on.
+   *
+   * @return The instrument ID, or {@code null} if it is not known
+   */
+  public Long getInstrumentId() {
+    return instrumentId;
+  }
+
+  /**
+   * Get the time that the job was created.
+   *
+   * @return The creation time, in milliseconds since the epoch
+   */
+  public long getCreated() {
+    return created;
+  }
+
+  /**
+   * Get the key used to share job slots fairly between jobs. Jobs are grouped
+   * by instrument, or by owner if the instrument is not known.
+   *
+   * @return The share key
+   */
+  protected String getShareKey() {
+    return null == instrumentId ? "owner " + ownerId
+      : "instrument " + instrumentId;
+  }
+}
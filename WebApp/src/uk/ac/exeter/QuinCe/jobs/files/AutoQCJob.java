@@ -2,12 +2,17 @@ package uk.ac.exeter.QuinCe.jobs.files;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import uk.ac.exeter.QuinCe.User.User;
@@ -15,6 +20,7 @@ import uk.ac.exeter.QuinCe.data.Dataset.DataSet;
 import uk.ac.exeter.QuinCe.data.Dataset.DataSetDB;
 import uk.ac.exeter.QuinCe.data.Dataset.DataSetDataDB;
 import uk.ac.exeter.QuinCe.data.Dataset.DatasetSensorValues;
+import uk.ac.exeter.QuinCe.data.Dataset.DirtyWindow;
 import uk.ac.exeter.QuinCe.data.Dataset.RunTypePeriods;
 import uk.ac.exeter.QuinCe.data.Dataset.SensorValue;
 import uk.ac.exeter.QuinCe.data.Dataset.SensorValuesList;
@@ -22,6 +28,7 @@ import uk.ac.exeter.QuinCe.data.Dataset.SensorValuesListFactory;
 import uk.ac.exeter.QuinCe.data.Dataset.SensorValuesListValue;
 import uk.ac.exeter.QuinCe.data.Dataset.TimeDataSet;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.FlagScheme;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.RoutineException;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.ExternalStandards.ExternalStandardsQCRoutine;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.AbstractAutoQCRoutine;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.AbstractQCRoutinesConfiguration;
@@ -49,6 +56,7 @@ import uk.ac.exeter.QuinCe.utils.DatabaseUtils;
 import uk.ac.exeter.QuinCe.utils.ExceptionUtils;
 import uk.ac.exeter.QuinCe.utils.MissingParamException;
 import uk.ac.exeter.QuinCe.utils.RecordNotFoundException;
+import uk.ac.exeter.QuinCe.utils.TimeRange;
 import uk.ac.exeter.QuinCe.web.system.ResourceManager;
 
 /**
@@ -81,6 +89,15 @@ import uk.ac.exeter.QuinCe.web.system.ResourceManager;
  * {@link Instrument#BASIS_TIME}.
  * </p>
  *
+ * <p>
+ * If the job is given the range of data that has changed since the dataset
+ * was last processed (see {@link DataSetJob#getDirtyWindow()}), the existing
+ * measurements are kept, and the range is extended to include any values whose
+ * QC has changed before it is passed to the {@link LocateMeasurementsJob}. The
+ * QC routines are still run over the complete dataset because some of them
+ * (e.g. outlier detection) use statistics calculated from all values.
+ * </p>
+ *
  * @see AutoQCResult
  * @see FlagScheme#getGoodFlag()
  * @see FlagScheme#getAssumedGoodFlag()
@@ -92,6 +109,12 @@ public class AutoQCJob extends DataSetJob {
    */
   private final String jobName = "Sensor Quality Control";
 
+  /**
+   * Application property specifying the number of threads used to run the
+   * auto QC routines for different columns simultaneously.
+   */
+  public static final String QC_THREADS_PROPERTY = "auto_qc.threads";
+
   /**
    * The Run Type strings for the {@link Instrument} that indicate measurements
    * (as opposed to calibrations or other statuses).
@@ -142,16 +165,26 @@ public class AutoQCJob extends DataSetJob {
     try {
       conn = dataSource.getConnection();
 
-      // After automatic QC, all measurements must be recalculated.
-      // Therefore before we start, destroy any existing measurements
-      // in the data set
-      reset(conn);
-
       // Get the data set from the database
       DataSet dataSet = getDataset(conn);
       Instrument instrument = getInstrument(conn);
       FlagScheme flagScheme = dataSet.getFlagScheme();
 
+      /*
+       * If we know which part of the dataset has changed, the later jobs only
+       * need to recalculate the measurements affected by the change. Otherwise
+       * all measurements must be recalculated, so before we start we destroy
+       * any existing measurements in the data set.
+       */
+      DirtyWindow dirtyWindow = null;
+      TimeRange changedRange = getDirtyWindow();
+      if (null != changedRange
+        && instrument.getBasis() == Instrument.BASIS_TIME) {
+        dirtyWindow = new DirtyWindow(changedRange);
+      } else {
+        reset(conn);
+      }
+
       @SuppressWarnings("unchecked")
       Collection<SensorValue> rawSensorValues = (Collection<SensorValue>) getTransferData(
         SENSOR_VALUES);
@@ -218,15 +251,18 @@ public class AutoQCJob extends DataSetJob {
           speedQC.qc(null, null);
         }
 
-        // Run the auto QC routines for each column
+        /*
+         * Collect the groups of values to be QCed for each column. Where sensors
+         * have internal calibrations, their values need to be QCed in separate
+         * groups for each run type.
+         */
+        List<ColumnQCGroup> qcGroups = new ArrayList<ColumnQCGroup>();
+
         for (long columnId : sensorValues.getColumnIds()) {
 
           SensorType sensorType = sensorAssignments
             .getSensorTypeForDBColumn(columnId);
 
-          // Where sensors have internal calibrations, their values need to be
-          // //
-          // QCed in separate groups.
           Map<String, SensorValuesList> valuesForQC = new HashMap<String, SensorValuesList>();
 
           if (!sensorType.hasInternalCalibration()) {
@@ -249,30 +285,55 @@ public class AutoQCJob extends DataSetJob {
             }
           }
 
-          // QC each group of sensor values in turn
           for (Map.Entry<String, SensorValuesList> values : valuesForQC
             .entrySet()) {
+            qcGroups.add(new ColumnQCGroup(sensorType, values.getKey(),
+              values.getValue()));
+          }
+        }
 
-            SensorValue.clearAutoQC(values.getValue());
-
-            /*
-             * We don't auto-QC values that the user has already flagged.
-             */
-            List<SensorValue> filteredValues = values.getValue().getRawValues()
-              .stream()
-              .filter(x -> !(flagScheme.isGood(x.getUserQCFlag(), false)
-                || x.getUserQCFlag().isUserAssignable()))
-              .collect(Collectors.toList());
-
-            if (values.getKey().equals("")
-              || measurementRunTypes.contains(values.getKey())) {
-              // Loop through all routines
-              for (AbstractAutoQCRoutine routine : qcRoutinesConfig
-                .getRoutines(sensorType)) {
+        /*
+         * Run the auto QC routines for each group. Each group contains a
+         * distinct set of SensorValues, so the groups can be processed at the
+         * same time.
+         */
+        int threadCount = Math.min(getQCThreadCount(), qcGroups.size());
+        final RunTypePeriods finalRunTypePeriods = runTypePeriods;
 
-                ((AutoQCRoutine) routine).qc(filteredValues, runTypePeriods);
+        if (threadCount <= 1) {
+          for (ColumnQCGroup group : qcGroups) {
+            runQCRoutines(group, qcRoutinesConfig, flagScheme, runTypePeriods);
+          }
+        } else {
+          ForkJoinPool pool = new ForkJoinPool(threadCount);
+
+          try {
+            List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(
+              qcGroups.size());
+
+            for (ColumnQCGroup group : qcGroups) {
+              tasks.add(() -> {
+                runQCRoutines(group, qcRoutinesConfig, flagScheme,
+                  finalRunTypePeriods);
+                return null;
+              });
+            }
+
+            // Check the results in order so any failure is reported
+            // consistently
+            for (Future<Void> result : pool.invokeAll(tasks)) {
+              try {
+                result.get();
+              } catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception) {
+                  throw (Exception) e.getCause();
+                } else {
+                  throw e;
+                }
               }
             }
+          } finally {
+            pool.shutdownNow();
           }
         }
 
@@ -285,14 +346,14 @@ public class AutoQCJob extends DataSetJob {
             .getInstance()
             .getExternalStandardsRoutinesConfiguration(flagScheme.getBasis());
 
+          CalibrationSet calibrationSet = ExternalStandardDB.getInstance()
+            .getCalibrationSet(conn, castDataset);
+
           for (long columnId : sensorValues.getColumnIds()) {
 
             SensorType sensorType = sensorAssignments
               .getSensorTypeForDBColumn(columnId);
 
-            CalibrationSet calibrationSet = ExternalStandardDB.getInstance()
-              .getCalibrationSet(conn, castDataset);
-
             if (sensorType.hasInternalCalibration()) {
               for (AbstractAutoQCRoutine routine : externalStandardsRoutinesConfig
                 .getRoutines(sensorType)) {
@@ -321,10 +382,20 @@ public class AutoQCJob extends DataSetJob {
           depthQCCascade.run(instrument, sensorValues, runTypePeriods);
         }
 
-        // Send all sensor values to be stored. The storeSensorValues method
-        // only
-        // writes those values whose 'dirty' flag is set.
-        DataSetDataDB.updateSensorValues(conn, sensorValues.getAll());
+        /*
+         * Send all sensor values to be stored. The storeSensorValues method
+         * only writes those values whose 'dirty' flag is set, so we first
+         * clear the flag on values whose QC has been recalculated but not
+         * changed.
+         */
+        List<SensorValue> changedValues = SensorValue
+          .clearUnchangedDirtyFlags(sensorValues.getAll());
+        DataSetDataDB.updateSensorValues(conn, changedValues);
+
+        // Values whose QC has changed must also be reprocessed
+        if (null != dirtyWindow) {
+          dirtyWindow.addAll(changedValues);
+        }
 
         // Trigger the Locate Measurements job
         dataSet.setStatus(DataSet.STATUS_DATA_REDUCTION);
@@ -336,9 +407,17 @@ public class AutoQCJob extends DataSetJob {
       Properties jobProperties = new Properties();
       jobProperties.setProperty(DataSetJob.ID_PARAM, String
         .valueOf(Long.parseLong(properties.getProperty(DataSetJob.ID_PARAM))));
+
+      // Keep the dirty window if the job is requeued and loses its transfer
+      // data
+      setDirtyWindow(jobProperties, dirtyWindow);
+
       NextJobInfo nextJob = new NextJobInfo(
         LocateMeasurementsJob.class.getCanonicalName(), jobProperties);
       nextJob.putTransferData(SENSOR_VALUES, rawSensorValues);
+      if (null != dirtyWindow) {
+        nextJob.putTransferData(DIRTY_WINDOW, dirtyWindow);
+      }
       return nextJob;
     } catch (Exception e) {
       ExceptionUtils.printStackTrace(e);
@@ -371,6 +450,80 @@ public class AutoQCJob extends DataSetJob {
     }
   }
 
+  /**
+   * Run the auto QC routines for a group of {@link SensorValue}s from a single
+   * column.
+   *
+   * <p>
+   * The routines are run in the order they are configured. Flags are only set
+   * on the {@link SensorValue}s in the group, so groups can be processed on
+   * separate threads without affecting each other.
+   * </p>
+   *
+   * @param group
+   *          The group of values.
+   * @param qcRoutinesConfig
+   *          The QC routines configuration.
+   * @param flagScheme
+   *          The dataset's flag scheme.
+   * @param runTypePeriods
+   *          The dataset's run type periods.
+   * @throws RoutineException
+   *           If any QC routine fails.
+   * @throws RecordNotFoundException
+   *           If any values are not in the database.
+   */
+  private void runQCRoutines(ColumnQCGroup group,
+    AbstractQCRoutinesConfiguration qcRoutinesConfig, FlagScheme flagScheme,
+    RunTypePeriods runTypePeriods)
+    throws RoutineException, RecordNotFoundException {
+
+    SensorValue.clearAutoQC(group.values);
+
+    /*
+     * We don't auto-QC values that the user has already flagged.
+     */
+    List<SensorValue> filteredValues = group.values.getRawValues().stream()
+      .filter(x -> !(flagScheme.isGood(x.getUserQCFlag(), false)
+        || x.getUserQCFlag().isUserAssignable()))
+      .collect(Collectors.toList());
+
+    if (group.runType.equals("")
+      || measurementRunTypes.contains(group.runType)) {
+      // Loop through all routines
+      for (AbstractAutoQCRoutine routine : qcRoutinesConfig
+        .getRoutines(group.sensorType)) {
+
+        ((AutoQCRoutine) routine).qc(filteredValues, runTypePeriods);
+      }
+    }
+  }
+
+  /**
+   * Get the number of threads to use for running the auto QC routines, as set
+   * in the {@link #QC_THREADS_PROPERTY} application property.
+   *
+   * <p>
+   * If the property is not set or is invalid, the routines are run on a single
+   * thread.
+   * </p>
+   *
+   * @return The number of threads.
+   */
+  private int getQCThreadCount() {
+    int result = 1;
+
+    if (null != config) {
+      try {
+        result = Integer.parseInt(config.getProperty(QC_THREADS_PROPERTY, "1"));
+      } catch (NumberFormatException e) {
+        // Fall back to serial processing
+      }
+    }
+
+    return result;
+  }
+
   @Override
   public String getJobName() {
     return jobName;
@@ -396,4 +549,34 @@ public class AutoQCJob extends DataSetJob {
       throw new JobFailedException(id, "Error while resetting dataset", e);
     }
   }
+
+  /**
+   * A group of {@link SensorValue}s from a single column that are QCed
+   * together.
+   */
+  private static class ColumnQCGroup {
+
+    /**
+     * The sensor type of the column.
+     */
+    private final SensorType sensorType;
+
+    /**
+     * The run type of the values, or an empty String if the values are not
+     * grouped by run type.
+     */
+    private final String runType;
+
+    /**
+     * The values.
+     */
+    private final SensorValuesList values;
+
+    private ColumnQCGroup(SensorType sensorType, String runType,
+      SensorValuesList values) {
+      this.sensorType = sensorType;
+      this.runType = runType;
+      this.values = values;
+    }
+  }
 }
@@ -18,6 +18,7 @@ import uk.ac.exeter.QuinCe.jobs.InvalidJobParametersException;
 import uk.ac.exeter.QuinCe.jobs.Job;
 import uk.ac.exeter.QuinCe.jobs.JobFailedException;
 import uk.ac.exeter.QuinCe.jobs.JobManager;
+import uk.ac.exeter.QuinCe.jobs.JobRunScheduler;
 import uk.ac.exeter.QuinCe.jobs.JobThread;
 import uk.ac.exeter.QuinCe.jobs.NextJobInfo;
 import uk.ac.exeter.QuinCe.utils.DatabaseException;
@@ -74,10 +75,8 @@ public class CreateNrtDataset extends Job {
 
       Instrument instrument = InstrumentDB.getInstrument(conn, instrumentId);
 
-      // Delete the existing NRT dataset
-      DataSetDB.deleteNrtDataSet(conn, instrumentId);
-
-      // Now create the new dataset
+      TimeDataSet existingNrtDataset = (TimeDataSet) DataSetDB
+        .getNrtDataSet(conn, instrumentId);
 
       // The NRT dataset will start immediately after the last 'real' dataset.
       // If there isn't one, it will start at the beginning of the first
@@ -98,10 +97,36 @@ public class CreateNrtDataset extends Job {
         }
       }
 
+      LocalDateTime endDate = null;
       if (null != nrtStartDate) {
-        TreeSet<DataFile> files = DataFileDB.getFiles(conn, instrument);
+        endDate = ((TimeDataFile) instrumentFiles.last()).getRawEndTime();
+      }
+
+      boolean extendExisting = canExtend(existingNrtDataset, nrtStartDate,
+        endDate);
+
+      if (extendExisting) {
+
+        // Add the new data to the existing dataset instead of rebuilding it
+        existingNrtDataset.setEndTime(endDate);
+        existingNrtDataset.setStatus(DataSet.STATUS_WAITING);
+        DataSetDB.updateDataSet(conn, existingNrtDataset);
 
-        LocalDateTime endDate = ((TimeDataFile) files.last()).getRawEndTime();
+        Properties jobProperties = new Properties();
+        jobProperties.setProperty(DataSetJob.ID_PARAM,
+          String.valueOf(existingNrtDataset.getId()));
+        jobProperties.setProperty(ExtractDataSetJob.INCREMENTAL_PARAM,
+          String.valueOf(true));
+
+        JobManager.addJob(conn, instrument.getOwner(),
+          ExtractDataSetJob.class.getCanonicalName(), jobProperties);
+      } else {
+        // Delete the existing NRT dataset
+        DataSetDB.deleteNrtDataSet(conn, instrumentId);
+      }
+
+      // Now create the new dataset
+      if (!extendExisting && null != nrtStartDate) {
 
         boolean canCreateNrt = true;
 
@@ -132,6 +157,9 @@ public class CreateNrtDataset extends Job {
       }
 
       conn.commit();
+
+      // Any extraction job can only be started now it has been committed
+      JobRunScheduler.dispatch();
     } catch (Exception e) {
       ExceptionUtils.printStackTrace(e);
       DatabaseUtils.rollBack(conn);
@@ -142,6 +170,44 @@ public class CreateNrtDataset extends Job {
     return null;
   }
 
+  /**
+   * Determine whether the existing NRT dataset can be extended to include new
+   * data instead of being deleted and recreated.
+   *
+   * <p>
+   * This is only possible if the dataset has finished processing, it still
+   * starts at the required time, and the new data is entirely after its
+   * current end time.
+   * </p>
+   *
+   * @param existingDataset
+   *          The existing NRT dataset
+   * @param nrtStartDate
+   *          The required start date of the NRT dataset
+   * @param endDate
+   *          The end date of the available data
+   * @return {@code true} if the existing dataset can be extended;
+   *         {@code false} if it must be recreated
+   */
+  private boolean canExtend(TimeDataSet existingDataset,
+    LocalDateTime nrtStartDate, LocalDateTime endDate) {
+
+    boolean result = false;
+
+    if (null != existingDataset && null != nrtStartDate && null != endDate) {
+      int status = existingDataset.getStatus();
+      boolean processed = status == DataSet.STATUS_USER_QC
+        || status == DataSet.STATUS_CALIBRATION_REQUIRED
+        || status == DataSet.STATUS_READY_FOR_SUBMISSION;
+
+      result = processed
+        && existingDataset.getStartTime().equals(nrtStartDate)
+        && endDate.isAfter(existingDataset.getEndTime());
+    }
+
+    return result;
+  }
+
   private String buildNrtDatasetName(Instrument instrument) {
     StringBuilder result = new StringBuilder("NRT");
     result.append(instrument.getPlatformCode());
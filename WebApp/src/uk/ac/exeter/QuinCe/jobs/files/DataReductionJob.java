@@ -3,12 +3,24 @@ package uk.ac.exeter.QuinCe.jobs.files;
 import java.sql.Connection;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import uk.ac.exeter.QuinCe.User.User;
+import uk.ac.exeter.QuinCe.data.Dataset.DataReductionRecordWriter;
 import uk.ac.exeter.QuinCe.data.Dataset.DataSet;
 import uk.ac.exeter.QuinCe.data.Dataset.DataSetDB;
 import uk.ac.exeter.QuinCe.data.Dataset.DataSetDataDB;
@@ -23,6 +35,7 @@ import uk.ac.exeter.QuinCe.data.Dataset.SensorValue;
 import uk.ac.exeter.QuinCe.data.Dataset.TimeCoordinate;
 import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.DataReducer;
 import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.DataReducerFactory;
+import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.DataReductionException;
 import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.DataReductionRecord;
 import uk.ac.exeter.QuinCe.data.Instrument.Instrument;
 import uk.ac.exeter.QuinCe.data.Instrument.Calibration.CalculationCoefficientDB;
@@ -53,6 +66,61 @@ public class DataReductionJob extends DataSetJob {
    */
   private final String jobName = "Data Reduction";
 
+  /**
+   * Application property specifying the number of threads used to run the
+   * data reducers for different variables simultaneously.
+   */
+  public static final String REDUCTION_THREADS_PROPERTY = "data_reduction.threads";
+
+  /**
+   * Job parameter giving the largest database ID of the {@link Measurement}s
+   * that were kept from the previous processing of the dataset. These
+   * measurements already have their values and data reduction records, so
+   * only the measurements with larger IDs are processed. If the parameter is
+   * not set, all measurements are processed.
+   *
+   * @see LocateMeasurementsJob
+   */
+  public static final String LAST_EXISTING_MEASUREMENT_PARAM = "lastExistingMeasurement";
+
+  /**
+   * The number of {@link Measurement}s passed to reducers that support
+   * columnar data reduction in each block.
+   *
+   * @see DataReducer#supportsColumnarReduction()
+   */
+  private static final int REDUCTION_BLOCK_SIZE = 1024;
+
+  /**
+   * The maximum number of {@link DataReductionRecord}s that parallel reducers
+   * can produce before the job thread writes them to the database. Reducers
+   * wait if the queue is full, which limits the memory used by the job.
+   */
+  private static final int RECORD_QUEUE_SIZE = 10000;
+
+  /**
+   * The time in milliseconds that the job thread waits for new records from
+   * parallel reducers before checking whether the reducers have finished.
+   */
+  private static final long RECORD_QUEUE_POLL_TIME = 100L;
+
+  /**
+   * A destination for the {@link DataReductionRecord}s produced by a reducer.
+   */
+  @FunctionalInterface
+  private interface RecordSink {
+
+    /**
+     * Accept a record.
+     *
+     * @param record
+     *          The record.
+     * @throws Exception
+     *           If the record cannot be accepted.
+     */
+    void add(DataReductionRecord record) throws Exception;
+  }
+
   /**
    * Constructor for a data reduction job to be run on a specific data file. The
    * job record must already have been created in the database.
@@ -89,7 +157,16 @@ public class DataReductionJob extends DataSetJob {
 
     try {
       conn = dataSource.getConnection();
-      reset(conn);
+
+      /*
+       * Measurements with IDs up to and including this have already been
+       * processed.
+       */
+      long lastExistingMeasurement = getLastExistingMeasurement();
+      if (lastExistingMeasurement < 0) {
+        reset(conn);
+      }
+
       DataSet dataSet = getDataset(conn);
       Instrument instrument = getInstrument(conn);
       SensorsConfiguration sensorConfig = ResourceManager.getInstance()
@@ -119,40 +196,23 @@ public class DataReductionJob extends DataSetJob {
       CalibrationSet calculationCoefficients = CalculationCoefficientDB
         .getInstance().getCalibrationSet(conn, dataSet);
 
-      ArrayList<DataReductionRecord> dataReductionRecords = new ArrayList<DataReductionRecord>();
+      /*
+       * Measurements whose values and coordinates have been changed. These are
+       * written to the database in bulk once they have all been calculated.
+       */
+      List<Measurement> updatedValueMeasurements = new ArrayList<Measurement>();
+      List<Measurement> updatedCoordinateMeasurements = new ArrayList<Measurement>();
 
-      // First we calculate measurement values for all measurements
+      // First we calculate measurement values for all new measurements
       for (Measurement measurement : allMeasurements.getOrderedMeasurements()) {
 
-        // Work out which variables this measurement is relevant for.
-        Set<Variable> variablesToProcess = new TreeSet<Variable>();
-
-        // Get the combinations of Variable/Run Type for the measurement
-        for (Map.Entry<Long, String> runTypeEntry : measurement.getRunTypes()
-          .entrySet()) {
-
-          // See if this run type is for the GENERIC variable - this is a value
-          // from the Run Type column which determines which variable(s) it
-          // belongs to
-          if (runTypeEntry.getKey() == Measurement.RUN_TYPE_DEFINES_VARIABLE) {
-
-            for (Variable variable : instrument.getVariables()) {
-              if (instrument.isRunTypeForVariable(variable,
-                runTypeEntry.getValue())) {
-
-                variablesToProcess.add(variable);
-              }
-            }
-          } else {
-            // The run type entry contains the variable ID so we can add it
-            // directly.
-            variablesToProcess
-              .add(sensorConfig.getInstrumentVariable(runTypeEntry.getKey()));
-          }
+        if (measurement.getId() <= lastExistingMeasurement) {
+          continue;
         }
 
-        dataReductionRecords.ensureCapacity(
-          dataReductionRecords.size() + variablesToProcess.size());
+        // Work out which variables this measurement is relevant for.
+        Set<Variable> variablesToProcess = getMeasurementVariables(instrument,
+          sensorConfig, measurement);
 
         /*
          * A store of one of the values we will calculate. This is used later on
@@ -179,14 +239,16 @@ public class DataReductionJob extends DataSetJob {
             }
           });
 
-          DataSetDataDB.storeMeasurementValues(conn, measurement);
-
           // Store this variable for use below
           if (null == usedVariable) {
             usedVariable = variable;
           }
         }
 
+        if (variablesToProcess.size() > 0) {
+          updatedValueMeasurements.add(measurement);
+        }
+
         /*
          * Finally we adjust the measurement time. The original measurement time
          * was the time of the value from the core sensor type. We apply an
@@ -198,49 +260,79 @@ public class DataReductionJob extends DataSetJob {
         if (instrument.getBasis() == Instrument.BASIS_TIME
           && null != usedVariable) {
 
-          SensorType coreSensorType = usedVariable.getCoreSensorType();
-          SensorAssignment coreAssignment = instrument.getSensorAssignments()
-            .get(coreSensorType).first();
           TimeCoordinate offsetMeasurementTime = dataSet.getSensorOffsets()
             .offsetToFirstGroup((TimeCoordinate) measurement.getCoordinate(),
-              coreAssignment, allSensorValues);
+              getCoreAssignment(instrument, usedVariable), allSensorValues);
           measurement.setCoordinate(offsetMeasurementTime);
-          DataSetDataDB.updateMeasurementCoordinate(conn, measurement);
+          updatedCoordinateMeasurements.add(measurement);
         }
       }
 
-      // Now run all the data reducers
-      for (Variable variable : instrument.getVariables()) {
+      long storeStart = System.currentTimeMillis();
+      int valuesWritten = DataSetDataDB.storeMeasurementValues(conn,
+        updatedValueMeasurements);
+      int coordinatesWritten = DataSetDataDB.updateMeasurementCoordinates(conn,
+        updatedCoordinateMeasurements);
+      logInfo("Stored " + valuesWritten + " measurement values and "
+        + coordinatesWritten + " measurement coordinates in "
+        + (System.currentTimeMillis() - storeStart) + "ms");
+
+      /*
+       * Some reducers need all the measurements in the dataset to be
+       * recalculated whenever any part of it changes. If any of these are
+       * used we remove all existing data reduction records.
+       */
+      long lastReducedMeasurement = lastExistingMeasurement;
+      if (lastExistingMeasurement >= 0
+        && usesWholeDataset(instrument, dataSet, calculationCoefficients)) {
+        DataSetDataDB.deleteDataReduction(conn, dataSet.getId());
+        lastReducedMeasurement = -1L;
+      }
+
+      // Now run all the data reducers, writing the records as they are created
+      DataReductionRecordWriter dataReductionWriter = new DataReductionRecordWriter(
+        conn);
 
+      /*
+       * Create and preprocess all the reducers before any of them are run.
+       * Preprocessing can update the dataset's properties, so it must be
+       * finished before the reducers are run in parallel.
+       */
+      Map<Variable, DataReducer> reducers = new LinkedHashMap<Variable, DataReducer>();
+      for (Variable variable : instrument.getVariables()) {
         DataReducer reducer = DataReducerFactory.getReducer(variable,
           dataSet.getAllProperties(), calculationCoefficients);
-
         reducer.preprocess(conn, instrument, dataSet,
           allMeasurements.getOrderedMeasurements());
+        reducers.put(variable, reducer);
+      }
 
-        for (Measurement measurement : allMeasurements
-          .getOrderedMeasurements()) {
-
-          if (instrument.isRunTypeForVariable(variable,
-            measurement.getRunType(variable))
-            || instrument.isRunTypeForVariable(variable,
-              measurement.getRunType(Measurement.RUN_TYPE_DEFINES_VARIABLE))) {
+      int threadCount = Math.min(getReductionThreadCount(), reducers.size());
 
-            DataReductionRecord dataReductionRecord = reducer
-              .performDataReduction(instrument, measurement, allSensorValues,
-                conn);
+      boolean interrupted = false;
 
-            dataReductionRecords.add(dataReductionRecord);
-          }
+      if (threadCount <= 1) {
+        for (Map.Entry<Variable, DataReducer> entry : reducers.entrySet()) {
+          reduceVariable(conn, instrument, entry.getKey(), entry.getValue(),
+            allMeasurements, allSensorValues, lastReducedMeasurement,
+            dataReductionWriter::add);
+        }
+      } else {
+        try {
+          reduceVariablesInParallel(threadCount, instrument, reducers,
+            allMeasurements, allSensorValues, lastReducedMeasurement,
+            dataReductionWriter);
+        } catch (InterruptedException e) {
+          interrupted = true;
         }
       }
 
-      DataSetDataDB.storeDataReduction(conn, dataReductionRecords);
+      dataReductionWriter.close();
 
       NextJobInfo nextJob = null;
 
       // If the thread was interrupted, undo everything
-      if (thread.isInterrupted()) {
+      if (interrupted || thread.isInterrupted()) {
         conn.rollback();
 
         // Requeue the data reduction job
@@ -288,11 +380,400 @@ public class DataReductionJob extends DataSetJob {
     }
   }
 
+  /**
+   * Get the {@link Variable}s that a {@link Measurement} is relevant for,
+   * according to its run types.
+   *
+   * @param instrument
+   *          The instrument to which the measurement belongs.
+   * @param sensorConfig
+   *          The sensors configuration.
+   * @param measurement
+   *          The measurement.
+   * @return The measurement's variables, in their natural order.
+   * @throws Exception
+   *           If the variables cannot be determined.
+   */
+  static Set<Variable> getMeasurementVariables(Instrument instrument,
+    SensorsConfiguration sensorConfig, Measurement measurement)
+    throws Exception {
+
+    Set<Variable> result = new TreeSet<Variable>();
+
+    // Get the combinations of Variable/Run Type for the measurement
+    for (Map.Entry<Long, String> runTypeEntry : measurement.getRunTypes()
+      .entrySet()) {
+
+      // See if this run type is for the GENERIC variable - this is a value
+      // from the Run Type column which determines which variable(s) it
+      // belongs to
+      if (runTypeEntry.getKey() == Measurement.RUN_TYPE_DEFINES_VARIABLE) {
+
+        for (Variable variable : instrument.getVariables()) {
+          if (instrument.isRunTypeForVariable(variable,
+            runTypeEntry.getValue())) {
+
+            result.add(variable);
+          }
+        }
+      } else {
+        // The run type entry contains the variable ID so we can add it
+        // directly.
+        result.add(sensorConfig.getInstrumentVariable(runTypeEntry.getKey()));
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the {@link SensorAssignment} for the core sensor type of a
+   * {@link Variable}. The times of measurements for the variable are offset
+   * from this assignment to the first sensor group.
+   *
+   * @param instrument
+   *          The instrument.
+   * @param variable
+   *          The variable.
+   * @return The core sensor assignment.
+   */
+  static SensorAssignment getCoreAssignment(Instrument instrument,
+    Variable variable) {
+
+    SensorType coreSensorType = variable.getCoreSensorType();
+    return instrument.getSensorAssignments().get(coreSensorType).first();
+  }
+
+  /**
+   * Run the data reducer for a single {@link Variable} over the measurements in
+   * the dataset that have not already been processed.
+   *
+   * <p>
+   * The reducer must already have been preprocessed. Reducers only read from
+   * the supplied {@link DatasetSensorValues} and {@link Measurement}s, so this
+   * method can be run for several variables at the same time. In that case no
+   * database connection is given, and the records are passed back to the job
+   * thread to be written.
+   * </p>
+   *
+   * <p>
+   * If the reducer supports columnar reduction, the measurements are passed to
+   * it in blocks of {@link #REDUCTION_BLOCK_SIZE}. Otherwise they are
+   * processed one at a time.
+   * </p>
+   *
+   * <p>
+   * Processing stops early if the current thread is interrupted.
+   * </p>
+   *
+   * @param conn
+   *          A database connection, or {@code null} if the method is not being
+   *          run on the job thread.
+   * @param instrument
+   *          The instrument to which the dataset belongs.
+   * @param variable
+   *          The variable to be processed.
+   * @param reducer
+   *          The preprocessed reducer for the variable.
+   * @param allMeasurements
+   *          The dataset's measurements.
+   * @param allSensorValues
+   *          The dataset's sensor values.
+   * @param lastExistingMeasurement
+   *          The largest ID of the measurements that have already been
+   *          processed, or {@code -1} if all measurements are to be processed.
+   * @param sink
+   *          The destination for the data reduction records.
+   * @throws Exception
+   *           If the data reduction fails.
+   */
+  private void reduceVariable(Connection conn, Instrument instrument,
+    Variable variable, DataReducer reducer,
+    DatasetMeasurements allMeasurements, DatasetSensorValues allSensorValues,
+    long lastExistingMeasurement, RecordSink sink)
+    throws Exception {
+
+    boolean columnar = reducer.supportsColumnarReduction();
+    List<Measurement> block = new ArrayList<Measurement>(
+      columnar ? REDUCTION_BLOCK_SIZE : 0);
+
+    for (Measurement measurement : allMeasurements.getOrderedMeasurements()) {
+
+      if (Thread.currentThread().isInterrupted()) {
+        break;
+      }
+
+      if (measurement.getId() <= lastExistingMeasurement) {
+        continue;
+      }
+
+      if (instrument.isRunTypeForVariable(variable,
+        measurement.getRunType(variable))
+        || instrument.isRunTypeForVariable(variable,
+          measurement.getRunType(Measurement.RUN_TYPE_DEFINES_VARIABLE))) {
+
+        if (columnar) {
+          block.add(measurement);
+          if (block.size() == REDUCTION_BLOCK_SIZE) {
+            reduceBlock(conn, instrument, reducer, block, allSensorValues,
+              sink);
+          }
+        } else {
+          DataReductionRecord dataReductionRecord = reducer
+            .performDataReduction(instrument, measurement, allSensorValues,
+              conn);
+
+          sink.add(dataReductionRecord);
+        }
+      }
+    }
+
+    if (!Thread.currentThread().isInterrupted() && block.size() > 0) {
+      reduceBlock(conn, instrument, reducer, block, allSensorValues, sink);
+    }
+  }
+
+  /**
+   * Pass a block of {@link Measurement}s to a reducer's columnar data
+   * reduction, send the resulting records to the sink, and empty the block.
+   *
+   * @param conn
+   *          A database connection.
+   * @param instrument
+   *          The instrument to which the dataset belongs.
+   * @param reducer
+   *          The reducer.
+   * @param block
+   *          The measurements to be processed.
+   * @param allSensorValues
+   *          The dataset's sensor values.
+   * @param sink
+   *          The destination for the data reduction records.
+   * @throws Exception
+   *           If the data reduction fails.
+   */
+  private void reduceBlock(Connection conn, Instrument instrument,
+    DataReducer reducer, List<Measurement> block,
+    DatasetSensorValues allSensorValues, RecordSink sink) throws Exception {
+
+    for (DataReductionRecord record : reducer.performColumnarDataReduction(
+      instrument, block, allSensorValues, conn)) {
+      sink.add(record);
+    }
+
+    block.clear();
+  }
+
+  /**
+   * Run the preprocessed data reducers for all the instrument's variables on a
+   * bounded thread pool.
+   *
+   * <p>
+   * The reducer threads do not use the database. They place their records on a
+   * bounded queue, which the calling thread drains into the
+   * {@link DataReductionRecordWriter}, so all database access stays on the job
+   * thread. The {@code data_reduction} table is keyed on measurement and
+   * variable, so the stored result is identical to running
+   * {@link #reduceVariable} for each variable in turn.
+   * </p>
+   *
+   * <p>
+   * If any reducer fails, or the job thread is interrupted while waiting for
+   * the reducers, the remaining reducers are cancelled. This method does not
+   * return until every reducer thread has stopped, so the caller can safely
+   * roll back the transaction.
+   * </p>
+   *
+   * @param threadCount
+   *          The number of threads to use.
+   * @param instrument
+   *          The instrument to which the dataset belongs.
+   * @param reducers
+   *          The preprocessed reducers for each variable.
+   * @param allMeasurements
+   *          The dataset's measurements.
+   * @param allSensorValues
+   *          The dataset's sensor values.
+   * @param lastExistingMeasurement
+   *          The largest ID of the measurements that have already been
+   *          processed, or {@code -1} if all measurements are to be processed.
+   * @param writer
+   *          The writer to which the data reduction records are sent.
+   * @throws InterruptedException
+   *           If the job thread is interrupted.
+   * @throws Exception
+   *           If any of the reducers fail.
+   */
+  private void reduceVariablesInParallel(int threadCount,
+    Instrument instrument, Map<Variable, DataReducer> reducers,
+    DatasetMeasurements allMeasurements, DatasetSensorValues allSensorValues,
+    long lastExistingMeasurement, DataReductionRecordWriter writer)
+    throws Exception {
+
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    CompletionService<Void> completion = new ExecutorCompletionService<Void>(
+      executor);
+    BlockingQueue<DataReductionRecord> queue = new ArrayBlockingQueue<DataReductionRecord>(
+      RECORD_QUEUE_SIZE);
+
+    try {
+      for (Map.Entry<Variable, DataReducer> entry : reducers.entrySet()) {
+        completion.submit(() -> {
+          reduceVariable(null, instrument, entry.getKey(), entry.getValue(),
+            allMeasurements, allSensorValues, lastExistingMeasurement,
+            queue::put);
+          return null;
+        });
+      }
+
+      int running = reducers.size();
+      List<DataReductionRecord> drained = new ArrayList<DataReductionRecord>();
+
+      while (running > 0 || !queue.isEmpty()) {
+        DataReductionRecord record = queue.poll(RECORD_QUEUE_POLL_TIME,
+          TimeUnit.MILLISECONDS);
+
+        if (null != record) {
+          writer.add(record);
+          queue.drainTo(drained);
+          for (DataReductionRecord drainedRecord : drained) {
+            writer.add(drainedRecord);
+          }
+          drained.clear();
+        }
+
+        // Check for finished reducers, which will throw any errors
+        Future<Void> finished = completion.poll();
+        while (null != finished) {
+          finished.get();
+          running--;
+          finished = completion.poll();
+        }
+      }
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof Exception) {
+        throw (Exception) e.getCause();
+      } else {
+        throw e;
+      }
+    } finally {
+      executor.shutdownNow();
+      awaitTermination(executor);
+    }
+  }
+
+  /**
+   * Wait for all the threads of an {@link ExecutorService} that has been shut
+   * down to finish. If the current thread is interrupted while waiting, the
+   * wait continues and the interrupt flag is restored afterwards.
+   *
+   * @param executor
+   *          The executor.
+   */
+  private void awaitTermination(ExecutorService executor) {
+    boolean interrupted = false;
+
+    while (!executor.isTerminated()) {
+      try {
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Determine whether any of the data reducers for the instrument's variables
+   * must be run on all measurements whenever any part of the dataset changes.
+   *
+   * @param instrument
+   *          The instrument to which the dataset belongs.
+   * @param dataSet
+   *          The dataset being processed.
+   * @param calculationCoefficients
+   *          The calculation coefficients for the dataset.
+   * @return {@code true} if any reducer needs the whole dataset;
+   *         {@code false} otherwise.
+   * @throws DataReductionException
+   *           If a reducer cannot be created.
+   * @see DataReducer#usesWholeDataset()
+   */
+  private boolean usesWholeDataset(Instrument instrument, DataSet dataSet,
+    CalibrationSet calculationCoefficients) throws DataReductionException {
+
+    boolean result = false;
+
+    for (Variable variable : instrument.getVariables()) {
+      if (DataReducerFactory
+        .getReducer(variable, dataSet.getAllProperties(),
+          calculationCoefficients)
+        .usesWholeDataset()) {
+        result = true;
+        break;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the value of the {@link #LAST_EXISTING_MEASUREMENT_PARAM} job
+   * parameter.
+   *
+   * @return The parameter value, or {@code -1} if it is not set.
+   */
+  private long getLastExistingMeasurement() {
+    return Long.parseLong(
+      properties.getProperty(LAST_EXISTING_MEASUREMENT_PARAM, "-1"));
+  }
+
+  /**
+   * Get the number of threads to use for running data reducers, as set in the
+   * {@link #REDUCTION_THREADS_PROPERTY} application property.
+   *
+   * <p>
+   * If the property is not set or is invalid, the reducers are run on a single
+   * thread.
+   * </p>
+   *
+   * @return The number of threads.
+   */
+  private int getReductionThreadCount() {
+    int result = 1;
+
+    if (null != config) {
+      try {
+        result = Integer
+          .parseInt(config.getProperty(REDUCTION_THREADS_PROPERTY, "1"));
+      } catch (NumberFormatException e) {
+        // Fall back to serial processing
+      }
+    }
+
+    return result;
+  }
+
   @Override
   public String getJobName() {
     return jobName;
   }
 
+  @Override
+  protected void validateParameters() throws InvalidJobParametersException {
+    super.validateParameters();
+
+    try {
+      getLastExistingMeasurement();
+    } catch (NumberFormatException e) {
+      throw new InvalidJobParametersException(
+        LAST_EXISTING_MEASUREMENT_PARAM + " is not numeric");
+    }
+  }
+
   /**
    * Reset the data set processing.
    *
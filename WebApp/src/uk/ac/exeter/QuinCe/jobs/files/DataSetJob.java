@@ -1,19 +1,28 @@
 package uk.ac.exeter.QuinCe.jobs.files;
 
 import java.sql.Connection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Properties;
 
 import uk.ac.exeter.QuinCe.User.User;
 import uk.ac.exeter.QuinCe.data.Dataset.DataSet;
 import uk.ac.exeter.QuinCe.data.Dataset.DataSetDB;
+import uk.ac.exeter.QuinCe.data.Dataset.DataSetDataDB;
+import uk.ac.exeter.QuinCe.data.Dataset.SensorValue;
 import uk.ac.exeter.QuinCe.data.Instrument.Instrument;
 import uk.ac.exeter.QuinCe.data.Instrument.InstrumentDB;
 import uk.ac.exeter.QuinCe.jobs.InvalidJobParametersException;
 import uk.ac.exeter.QuinCe.jobs.Job;
 import uk.ac.exeter.QuinCe.jobs.JobFailedException;
 import uk.ac.exeter.QuinCe.utils.DatabaseException;
+import uk.ac.exeter.QuinCe.utils.DateTimeUtils;
+import uk.ac.exeter.QuinCe.utils.ExceptionUtils;
 import uk.ac.exeter.QuinCe.utils.MissingParamException;
 import uk.ac.exeter.QuinCe.utils.RecordNotFoundException;
+import uk.ac.exeter.QuinCe.utils.TimeRange;
+import uk.ac.exeter.QuinCe.utils.TimeRangeBuilder;
 import uk.ac.exeter.QuinCe.web.system.ResourceManager;
 
 /**
@@ -31,6 +40,14 @@ public abstract class DataSetJob extends Job {
 
   protected static final String MEASUREMENTS = "MEASUREMENTS";
 
+  /**
+   * Transfer data key for the {@link uk.ac.exeter.QuinCe.utils.TimeRange} of
+   * the data that has changed since the dataset was last processed. If this is
+   * not present, the complete dataset must be processed. If no data has
+   * changed, the range's start will be after its end.
+   */
+  protected static final String DIRTY_WINDOW = "DIRTY_WINDOW";
+
   /**
    * The parameter name for the {@link DataSet}'s database ID. All
    * {@link DataSetJob}s must contain a parameter with this ID in the properties
@@ -38,6 +55,56 @@ public abstract class DataSetJob extends Job {
    */
   public static final String ID_PARAM = "id";
 
+  /**
+   * The parameter name for the start of the dirty window, in milliseconds
+   * since the epoch.
+   *
+   * @see #DIRTY_WINDOW
+   * @see #setDirtyWindow(Properties, TimeRange)
+   */
+  public static final String DIRTY_START_PARAM = "dirtyStart";
+
+  /**
+   * The parameter name for the end of the dirty window, in milliseconds since
+   * the epoch.
+   *
+   * @see #DIRTY_WINDOW
+   * @see #setDirtyWindow(Properties, TimeRange)
+   */
+  public static final String DIRTY_END_PARAM = "dirtyEnd";
+
+  /**
+   * The approximate amount of memory used by each {@link SensorValue} loaded
+   * by a job, including its QC details and the structures that hold it.
+   */
+  protected static final long BYTES_PER_SENSOR_VALUE = 1024L;
+
+  /**
+   * The maximum number of memory estimates held in {@link #estimateCache}.
+   */
+  private static final int ESTIMATE_CACHE_SIZE = 100;
+
+  /**
+   * Memory estimates for recently checked jobs, keyed by job ID.
+   *
+   * <p>
+   * A new job object is created every time the job scheduler checks the queue.
+   * A job that is too big to start is checked repeatedly until it can run, so
+   * its estimate is kept here instead of being recalculated from the database
+   * each time.
+   * </p>
+   *
+   * @see #getEstimatedMemory()
+   */
+  @SuppressWarnings("serial")
+  private static final Map<Long, Long> estimateCache = Collections
+    .synchronizedMap(new LinkedHashMap<Long, Long>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+        return size() > ESTIMATE_CACHE_SIZE;
+      }
+    });
+
   /**
    * The {@link DataSet} being processed.
    */
@@ -48,6 +115,11 @@ public abstract class DataSetJob extends Job {
    */
   private Instrument instrument = null;
 
+  /**
+   * The cached result of {@link #getEstimatedMemory()}.
+   */
+  private long estimatedMemory = -1;
+
   /**
    * Initialise the job object so it is ready to run.
    *
@@ -90,6 +162,105 @@ public abstract class DataSetJob extends Job {
     return Long.parseLong(properties.getProperty(ID_PARAM));
   }
 
+  /**
+   * Add the time range of the data that has changed in a {@link DataSet} to a
+   * set of job parameters, so that the job only needs to reprocess that part
+   * of the dataset.
+   *
+   * <p>
+   * Empty ranges are not added, so the job will process the complete dataset.
+   * </p>
+   *
+   * @param jobProperties
+   *          The job parameters.
+   * @param range
+   *          The changed time range.
+   */
+  public static void setDirtyWindow(Properties jobProperties,
+    TimeRange range) {
+
+    if (null != range && !range.getStart().isAfter(range.getEnd())) {
+      jobProperties.setProperty(DIRTY_START_PARAM,
+        String.valueOf(DateTimeUtils.dateToLong(range.getStart())));
+      jobProperties.setProperty(DIRTY_END_PARAM,
+        String.valueOf(DateTimeUtils.dateToLong(range.getEnd())));
+    }
+  }
+
+  /**
+   * Get the time range of the data that has changed since the {@link DataSet}
+   * was last processed.
+   *
+   * <p>
+   * The range is taken from the {@link #DIRTY_WINDOW} transfer data passed
+   * from the previous job if it is present, or from the
+   * {@link #DIRTY_START_PARAM} and {@link #DIRTY_END_PARAM} job parameters.
+   * If neither is present, {@code null} is returned and the complete dataset
+   * must be processed.
+   * </p>
+   *
+   * @return The changed time range, or {@code null} if the complete dataset
+   *         must be processed.
+   */
+  protected TimeRange getDirtyWindow() {
+    TimeRange result = (TimeRange) getTransferData(DIRTY_WINDOW);
+
+    if (null == result && properties.containsKey(DIRTY_START_PARAM)
+      && properties.containsKey(DIRTY_END_PARAM)) {
+
+      TimeRangeBuilder builder = new TimeRangeBuilder();
+      builder.add(
+        DateTimeUtils.longToDate(properties.getProperty(DIRTY_START_PARAM)));
+      builder.add(
+        DateTimeUtils.longToDate(properties.getProperty(DIRTY_END_PARAM)));
+      result = builder;
+    }
+
+    return result;
+  }
+
+  /**
+   * Estimate the memory required by the job using
+   * {@link #calculateEstimatedMemory()}. The estimate is only calculated once
+   * for each job ID (see {@link #estimateCache}).
+   */
+  @Override
+  public long getEstimatedMemory() {
+    if (estimatedMemory < 0) {
+      Long cached = estimateCache.get(id);
+
+      if (null != cached) {
+        estimatedMemory = cached;
+      } else {
+        try {
+          estimatedMemory = Math.max(DEFAULT_MEMORY_ESTIMATE,
+            calculateEstimatedMemory());
+        } catch (Exception e) {
+          ExceptionUtils.printStackTrace(e);
+          estimatedMemory = DEFAULT_MEMORY_ESTIMATE;
+        }
+
+        estimateCache.put(id, estimatedMemory);
+      }
+    }
+
+    return estimatedMemory;
+  }
+
+  /**
+   * Calculate the memory required by the job. By default this is based on the
+   * number of {@link SensorValue}s in the {@link DataSet}.
+   *
+   * @return The estimated memory requirement, in bytes.
+   * @throws Exception
+   *           If the estimate cannot be calculated.
+   * @see #getEstimatedMemory()
+   */
+  protected long calculateEstimatedMemory() throws Exception {
+    return DataSetDataDB.getSensorValueCount(dataSource, getDatsetId())
+      * BYTES_PER_SENSOR_VALUE;
+  }
+
   /**
    * Retrieve the {@link DataSet} that this job is processing from the database.
    *
@@ -149,5 +320,18 @@ public abstract class DataSetJob extends Job {
     } catch (NumberFormatException e) {
       throw new InvalidJobParametersException(ID_PARAM + "is not numeric");
     }
+
+    try {
+      if (properties.containsKey(DIRTY_START_PARAM)) {
+        Long.parseLong(properties.getProperty(DIRTY_START_PARAM));
+      }
+
+      if (properties.containsKey(DIRTY_END_PARAM)) {
+        Long.parseLong(properties.getProperty(DIRTY_END_PARAM));
+      }
+    } catch (NumberFormatException e) {
+      throw new InvalidJobParametersException(
+        "Dirty window parameters are not numeric");
+    }
   }
 }
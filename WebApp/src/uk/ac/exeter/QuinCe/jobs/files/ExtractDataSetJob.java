@@ -2,15 +2,25 @@ package uk.ac.exeter.QuinCe.jobs.files;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 import uk.ac.exeter.QuinCe.User.User;
+import uk.ac.exeter.QuinCe.data.Dataset.ArgoDataSet;
 import uk.ac.exeter.QuinCe.data.Dataset.DataSet;
 import uk.ac.exeter.QuinCe.data.Dataset.DataSetDB;
 import uk.ac.exeter.QuinCe.data.Dataset.DataSetDataDB;
 import uk.ac.exeter.QuinCe.data.Dataset.InvalidDataSetStatusException;
 import uk.ac.exeter.QuinCe.data.Dataset.NewSensorValues;
+import uk.ac.exeter.QuinCe.data.Dataset.TimeDataSet;
+import uk.ac.exeter.QuinCe.data.Files.ArgoDataFile;
+import uk.ac.exeter.QuinCe.data.Files.DataFile;
+import uk.ac.exeter.QuinCe.data.Files.DataFileDB;
+import uk.ac.exeter.QuinCe.data.Files.TimeDataFile;
 import uk.ac.exeter.QuinCe.data.Instrument.Instrument;
+import uk.ac.exeter.QuinCe.data.Instrument.InstrumentDB;
 import uk.ac.exeter.QuinCe.jobs.InvalidJobParametersException;
 import uk.ac.exeter.QuinCe.jobs.JobException;
 import uk.ac.exeter.QuinCe.jobs.JobFailedException;
@@ -21,6 +31,7 @@ import uk.ac.exeter.QuinCe.utils.DatabaseUtils;
 import uk.ac.exeter.QuinCe.utils.ExceptionUtils;
 import uk.ac.exeter.QuinCe.utils.MissingParamException;
 import uk.ac.exeter.QuinCe.utils.RecordNotFoundException;
+import uk.ac.exeter.QuinCe.utils.TimeRange;
 import uk.ac.exeter.QuinCe.web.system.ResourceManager;
 
 /**
@@ -33,6 +44,14 @@ public class ExtractDataSetJob extends DataSetJob {
    */
   private final String jobName = "Dataset Extraction";
 
+  /**
+   * The parameter name for the incremental extraction flag. If this is set to
+   * {@code true}, only data after the last extracted value is added to the
+   * dataset (see {@link TimeDataSetExtractor#TimeDataSetExtractor(LocalDateTime)}).
+   * Otherwise the dataset is cleared and extracted from scratch.
+   */
+  public static final String INCREMENTAL_PARAM = "incremental";
+
   /**
    * Initialise the job object so it is ready to run
    *
@@ -68,9 +87,22 @@ public class ExtractDataSetJob extends DataSetJob {
       conn = dataSource.getConnection();
       conn.setAutoCommit(false);
 
+      Instrument instrument = getInstrument(conn);
+
+      // Incremental extraction carries on from the last extracted value. If
+      // there isn't one we extract the whole dataset.
+      LocalDateTime extractAfter = null;
+      if (Boolean.parseBoolean(properties.getProperty(INCREMENTAL_PARAM))
+        && instrument.getBasis() == Instrument.BASIS_TIME) {
+        extractAfter = DataSetDataDB.getLastSensorValueTime(conn,
+          getDataset(conn).getId());
+      }
+
       // Clear any existing data for the DataSet
-      resetDataset(conn);
-      conn.commit();
+      if (null == extractAfter) {
+        resetDataset(conn);
+        conn.commit();
+      }
 
       // Get the new data set from the database and set its status
       DataSet dataSet = getDataset(conn);
@@ -81,10 +113,9 @@ public class ExtractDataSetJob extends DataSetJob {
       // Process the dataset
       DataSetExtractor extractor;
 
-      Instrument instrument = getInstrument(conn);
       switch (instrument.getBasis()) {
       case Instrument.BASIS_TIME: {
-        extractor = new TimeDataSetExtractor();
+        extractor = new TimeDataSetExtractor(extractAfter);
         break;
       }
       case Instrument.BASIS_ARGO:
@@ -105,7 +136,11 @@ public class ExtractDataSetJob extends DataSetJob {
       NewSensorValues sensorValues = extractor.getSensorValues();
 
       if (sensorValues.size() > 0) {
-        DataSetDataDB.storeNewSensorValues(conn, sensorValues);
+        long storeStart = System.currentTimeMillis();
+        int stored = DataSetDataDB.storeNewSensorValues(conn, sensorValues);
+        long storeTime = Math.max(1L, System.currentTimeMillis() - storeStart);
+        logInfo("Stored " + stored + " sensor values in " + storeTime + "ms ("
+          + (stored * 1000L / storeTime) + " rows/s)");
       }
 
       conn.commit();
@@ -122,7 +157,20 @@ public class ExtractDataSetJob extends DataSetJob {
         .valueOf(Long.parseLong(properties.getProperty(DataSetJob.ID_PARAM))));
       NextJobInfo nextJob = new NextJobInfo(AutoQCJob.class.getCanonicalName(),
         jobProperties);
-      nextJob.putTransferData(SENSOR_VALUES, sensorValues.toSet());
+
+      // An incremental extraction only holds the new values, so the next job
+      // must load the complete set from the database. Tell it which part of
+      // the dataset has changed.
+      if (null == extractAfter) {
+        nextJob.putTransferData(SENSOR_VALUES, sensorValues.toSet());
+      } else {
+        TimeRange extractedRange = ((TimeDataSetExtractor) extractor)
+          .getExtractedRange();
+        logInfo("Extracted " + sensorValues.size()
+          + " new sensor values after " + extractAfter);
+        nextJob.putTransferData(DIRTY_WINDOW, extractedRange);
+      }
+
       return nextJob;
     } catch (Exception e) {
       ExceptionUtils.printStackTrace(e);
@@ -155,6 +203,73 @@ public class ExtractDataSetJob extends DataSetJob {
     }
   }
 
+  /**
+   * Estimate the memory required for the extraction from the data files that
+   * will be read.
+   *
+   * <p>
+   * The dataset's existing sensor values are not a reliable guide
+   * because a new dataset will not have any. Instead the estimate is based on
+   * the number of records in each file multiplied by the number of sensors
+   * assigned to it. The record counts are stored in the database so the files
+   * themselves are not read.
+   * </p>
+   */
+  @Override
+  protected long calculateEstimatedMemory() throws Exception {
+
+    Connection conn = null;
+    long valueCount = 0;
+
+    try {
+      conn = dataSource.getConnection();
+
+      // Load the dataset and instrument locally so the job's own copies are
+      // not loaded before the job runs.
+      DataSet dataSet = DataSetDB.getDataSet(conn, getDatsetId());
+      Instrument instrument = InstrumentDB.getInstrument(conn,
+        dataSet.getInstrumentId());
+
+      List<DataFile> allFiles = new ArrayList<DataFile>(
+        DataFileDB.getFiles(conn, instrument));
+
+      List<? extends DataFile> files;
+
+      switch (instrument.getBasis()) {
+      case Instrument.BASIS_TIME: {
+        TimeDataSet timeDataSet = (TimeDataSet) dataSet;
+        files = TimeDataFile.filter(
+          allFiles.stream().map(f -> (TimeDataFile) f).toList(),
+          timeDataSet.getStartTime(), timeDataSet.getEndTime(), true);
+        break;
+      }
+      case Instrument.BASIS_ARGO: {
+        ArgoDataSet argoDataSet = (ArgoDataSet) dataSet;
+        files = ArgoDataFile.filter(
+          allFiles.stream().map(f -> (ArgoDataFile) f).toList(),
+          argoDataSet.getStartCycle(), argoDataSet.getEndCycle());
+        break;
+      }
+      default: {
+        throw new JobException(
+          "Unrecognised instrument basis " + instrument.getBasis());
+      }
+      }
+
+      for (DataFile file : files) {
+        valueCount += (long) file.getRecordCount()
+          * instrument.getSensorAssignments()
+            .getFileAssignments(
+              file.getFileDefinition().getFileDescription())
+            .size();
+      }
+    } finally {
+      DatabaseUtils.closeConnection(conn);
+    }
+
+    return valueCount * BYTES_PER_SENSOR_VALUE;
+  }
+
   @Override
   public String getJobName() {
     return jobName;
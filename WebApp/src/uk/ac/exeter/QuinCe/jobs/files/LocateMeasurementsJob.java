@@ -2,9 +2,13 @@ package uk.ac.exeter.QuinCe.jobs.files;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -17,11 +21,15 @@ import uk.ac.exeter.QuinCe.data.Dataset.DataSet;
 import uk.ac.exeter.QuinCe.data.Dataset.DataSetDB;
 import uk.ac.exeter.QuinCe.data.Dataset.DataSetDataDB;
 import uk.ac.exeter.QuinCe.data.Dataset.DatasetSensorValues;
+import uk.ac.exeter.QuinCe.data.Dataset.DirtyWindow;
 import uk.ac.exeter.QuinCe.data.Dataset.InvalidDataSetStatusException;
 import uk.ac.exeter.QuinCe.data.Dataset.Measurement;
 import uk.ac.exeter.QuinCe.data.Dataset.MeasurementLocator;
+import uk.ac.exeter.QuinCe.data.Dataset.RunTypePeriods;
 import uk.ac.exeter.QuinCe.data.Dataset.SensorValue;
 import uk.ac.exeter.QuinCe.data.Instrument.Instrument;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorsConfiguration;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.Variable;
 import uk.ac.exeter.QuinCe.jobs.InvalidJobParametersException;
 import uk.ac.exeter.QuinCe.jobs.JobFailedException;
 import uk.ac.exeter.QuinCe.jobs.JobManager;
@@ -32,11 +40,19 @@ import uk.ac.exeter.QuinCe.utils.DatabaseUtils;
 import uk.ac.exeter.QuinCe.utils.ExceptionUtils;
 import uk.ac.exeter.QuinCe.utils.MissingParamException;
 import uk.ac.exeter.QuinCe.utils.RecordNotFoundException;
+import uk.ac.exeter.QuinCe.utils.TimeRange;
 import uk.ac.exeter.QuinCe.web.system.ResourceManager;
 
 /**
  * Identifies individual measurements in a dataset and stores them in the
  * database.
+ *
+ * <p>
+ * If the job is given the range of data that has changed since the dataset
+ * was last processed, only the measurements affected by the change are
+ * replaced. The {@link DataReductionJob} is then told which measurements are
+ * new so it only processes those.
+ * </p>
  */
 // TODO The detailed selection operations are not yet implemented.
 public class LocateMeasurementsJob extends DataSetJob {
@@ -85,7 +101,19 @@ public class LocateMeasurementsJob extends DataSetJob {
       DataSet dataSet = getDataset(conn);
       Instrument instrument = getInstrument(conn);
 
-      reset(conn);
+      /*
+       * If we know which part of the dataset has changed, we keep the existing
+       * measurements outside that part. Otherwise we start from scratch.
+       */
+      DirtyWindow dirtyWindow = null;
+      TimeRange changedRange = getDirtyWindow();
+      if (null != changedRange
+        && instrument.getBasis() == Instrument.BASIS_TIME) {
+        dirtyWindow = new DirtyWindow(changedRange);
+      } else {
+        reset(conn);
+      }
+
       conn.setAutoCommit(false);
 
       @SuppressWarnings("unchecked")
@@ -126,16 +154,34 @@ public class LocateMeasurementsJob extends DataSetJob {
        * case it becomes relevant in the future.
        */
       ensureUniqueCoordinates(rawSensorValues, measurements.values());
-      DataSetDataDB.storeMeasurements(conn, measurements.values());
+
+      Properties jobProperties = new Properties();
+      jobProperties.setProperty(DataSetJob.ID_PARAM, String
+        .valueOf(Long.parseLong(properties.getProperty(DataSetJob.ID_PARAM))));
+
+      if (null == dirtyWindow) {
+        DataSetDataDB.storeMeasurements(conn, measurements.values());
+      } else {
+        RunTypePeriods runTypePeriods = instrument.hasRunTypes()
+          ? DataSetDataDB.getRunTypePeriods(conn, dataSet)
+          : null;
+
+        dirtyWindow.expand(instrument, dataSet, sensorValues, runTypePeriods);
+
+        long lastExistingMeasurement = replaceMeasurements(conn, instrument,
+          dataSet, dirtyWindow, measurements.values());
+
+        if (lastExistingMeasurement >= 0) {
+          jobProperties.setProperty(
+            DataReductionJob.LAST_EXISTING_MEASUREMENT_PARAM,
+            String.valueOf(lastExistingMeasurement));
+        }
+      }
 
       // Trigger the Build Measurements job
       dataSet.setStatus(DataSet.STATUS_DATA_REDUCTION);
       DataSetDB.updateDataSet(conn, dataSet);
       conn.commit();
-
-      Properties jobProperties = new Properties();
-      jobProperties.setProperty(DataSetJob.ID_PARAM, String
-        .valueOf(Long.parseLong(properties.getProperty(DataSetJob.ID_PARAM))));
       NextJobInfo nextJob = new NextJobInfo(
         DataReductionJob.class.getCanonicalName(), jobProperties);
       nextJob.putTransferData(SENSOR_VALUES, rawSensorValues);
@@ -171,6 +217,184 @@ public class LocateMeasurementsJob extends DataSetJob {
     }
   }
 
+  /**
+   * Replace the stored {@link Measurement}s inside a {@link DirtyWindow} with
+   * newly located {@link Measurement}s, keeping the stored measurements
+   * outside the window.
+   *
+   * <p>
+   * The stored measurements have had their times adjusted by the
+   * {@link DataReductionJob} to account for sensor offsets, so the same
+   * adjustment is applied to the newly located measurements outside the window
+   * before they are compared with the stored measurements. If {@code n} new
+   * measurements are located before the window and {@code m} after it, the
+   * first {@code n} and last {@code m} stored measurements are kept and the
+   * rest are replaced.
+   * </p>
+   *
+   * <p>
+   * If the times of the kept stored measurements do not exactly match the
+   * located measurements outside the window, all the stored measurements are
+   * replaced.
+   * </p>
+   *
+   * @param conn
+   *          A database connection.
+   * @param instrument
+   *          The instrument to which the dataset belongs.
+   * @param dataSet
+   *          The dataset being processed.
+   * @param dirtyWindow
+   *          The expanded dirty window.
+   * @param locatedMeasurements
+   *          All the measurements located in the dataset.
+   * @return The largest database ID of the kept measurements, or {@code -1}
+   *         if all measurements have been replaced.
+   * @throws Exception
+   *           If the measurements cannot be replaced.
+   */
+  private long replaceMeasurements(Connection conn, Instrument instrument,
+    DataSet dataSet, DirtyWindow dirtyWindow,
+    Collection<Measurement> locatedMeasurements) throws Exception {
+
+    long result = -1L;
+
+    SensorsConfiguration sensorConfig = ResourceManager.getInstance()
+      .getSensorsConfiguration();
+
+    LinkedHashMap<Long, LocalDateTime> storedTimes = DataSetDataDB
+      .getMeasurementTimes(conn, dataSet.getId());
+
+    List<Measurement> newMeasurements = new ArrayList<Measurement>();
+    List<LocalDateTime> beforeTimes = new ArrayList<LocalDateTime>();
+    List<LocalDateTime> afterTimes = new ArrayList<LocalDateTime>();
+
+    for (Measurement measurement : locatedMeasurements) {
+      LocalDateTime time = measurement.getCoordinate().getTime();
+      if (time.isBefore(dirtyWindow.getStart())) {
+        beforeTimes.add(getStoredTime(instrument, sensorConfig, dataSet,
+          measurement));
+      } else if (time.isAfter(dirtyWindow.getEnd())) {
+        afterTimes.add(getStoredTime(instrument, sensorConfig, dataSet,
+          measurement));
+      } else {
+        newMeasurements.add(measurement);
+      }
+    }
+
+    Collections.sort(beforeTimes);
+    Collections.sort(afterTimes);
+
+    List<Long> replacedIds = getReplacedMeasurementIds(storedTimes,
+      beforeTimes, afterTimes);
+
+    if (null == replacedIds) {
+      logInfo("Stored measurements do not match dirty window - replacing all");
+      DataSetDataDB.deleteMeasurements(conn, dataSet.getId());
+      DataSetDataDB.storeMeasurements(conn, locatedMeasurements);
+    } else {
+      Set<Long> replacedIdSet = new HashSet<Long>(replacedIds);
+
+      result = 0L;
+      for (long id : storedTimes.keySet()) {
+        if (!replacedIdSet.contains(id)) {
+          result = Math.max(result, id);
+        }
+      }
+
+      DataSetDataDB.deleteMeasurements(conn, replacedIds);
+      DataSetDataDB.storeMeasurements(conn, newMeasurements);
+
+      logInfo("Replaced " + replacedIds.size() + " of " + storedTimes.size()
+        + " measurements with " + newMeasurements.size()
+        + " new measurements");
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the time that a newly located {@link Measurement} will have once it
+   * has been stored and processed by the {@link DataReductionJob}.
+   *
+   * @param instrument
+   *          The instrument to which the dataset belongs.
+   * @param sensorConfig
+   *          The sensors configuration.
+   * @param dataSet
+   *          The dataset being processed.
+   * @param measurement
+   *          The measurement.
+   * @return The stored time of the measurement.
+   * @throws Exception
+   *           If the time cannot be calculated.
+   */
+  private LocalDateTime getStoredTime(Instrument instrument,
+    SensorsConfiguration sensorConfig, DataSet dataSet,
+    Measurement measurement) throws Exception {
+
+    LocalDateTime result = measurement.getCoordinate().getTime();
+
+    Set<Variable> variables = DataReductionJob
+      .getMeasurementVariables(instrument, sensorConfig, measurement);
+
+    if (variables.size() > 0) {
+      result = dataSet.getSensorOffsets().offsetToFirstGroup(result,
+        DataReductionJob.getCoreAssignment(instrument,
+          variables.iterator().next()));
+    }
+
+    return result;
+  }
+
+  /**
+   * Work out which stored {@link Measurement}s must be replaced when the
+   * dataset is partially reprocessed.
+   *
+   * <p>
+   * The first {@code beforeTimes.size()} and last {@code afterTimes.size()}
+   * stored measurements are kept, and the ones in between are replaced. The
+   * kept measurements must have exactly the times of the newly located
+   * measurements outside the dirty window. If any of them differ, the stored
+   * measurements cannot be partially replaced and {@code null} is returned.
+   * </p>
+   *
+   * @param storedTimes
+   *          The times of the stored measurements keyed by ID, in time order.
+   * @param beforeTimes
+   *          The sorted stored times of the located measurements before the
+   *          dirty window.
+   * @param afterTimes
+   *          The sorted stored times of the located measurements after the
+   *          dirty window.
+   * @return The IDs of the stored measurements to be replaced, or {@code null}
+   *         if all the measurements must be replaced.
+   */
+  static List<Long> getReplacedMeasurementIds(
+    LinkedHashMap<Long, LocalDateTime> storedTimes,
+    List<LocalDateTime> beforeTimes, List<LocalDateTime> afterTimes) {
+
+    List<Long> result = null;
+
+    if (beforeTimes.size() + afterTimes.size() <= storedTimes.size()) {
+      List<Long> ids = new ArrayList<Long>(storedTimes.keySet());
+      List<LocalDateTime> times = new ArrayList<LocalDateTime>(
+        storedTimes.values());
+
+      int replaceEnd = ids.size() - afterTimes.size();
+
+      boolean match = times.subList(0, beforeTimes.size()).equals(beforeTimes)
+        && times.subList(replaceEnd, times.size()).equals(afterTimes);
+
+      if (match) {
+        result = new ArrayList<Long>(
+          ids.subList(beforeTimes.size(), replaceEnd));
+      }
+    }
+
+    return result;
+  }
+
   private void addMeasurements(Map<Coordinate, Measurement> target,
     List<Measurement> newMeasurements) {
 
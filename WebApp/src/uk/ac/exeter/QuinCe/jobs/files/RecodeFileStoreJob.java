@@ -0,0 +1,43 @@
+package uk.ac.exeter.QuinCe.jobs.files;
+
+import javax.servlet.annotation.WebListener;
+
+import uk.ac.exeter.QuinCe.data.Files.DataFileDB;
+import uk.ac.exeter.QuinCe.data.Files.FileStoreCodec;
+import uk.ac.exeter.QuinCe.utils.BackgroundTask;
+import uk.ac.exeter.QuinCe.utils.BackgroundTaskException;
+import uk.ac.exeter.QuinCe.web.system.ResourceManager;
+
+/**
+ * Job to rewrite files in the file store that were not written with the
+ * configured {@link FileStoreCodec}. This compresses files that were stored
+ * before compression was enabled.
+ *
+ * <p>
+ * A limited number of files is processed each time the job runs so that the
+ * server is not overloaded.
+ * </p>
+ */
+@WebListener
+public class RecodeFileStoreJob extends BackgroundTask {
+
+  /**
+   * The maximum number of files rewritten in each run.
+   */
+  private static final int FILES_PER_RUN = 50;
+
+  @Override
+  protected void doTask() throws BackgroundTaskException {
+    try {
+      DataFileDB.recodeFileStore(ResourceManager.getInstance().getConfig(),
+        FILES_PER_RUN);
+    } catch (Exception e) {
+      throw new BackgroundTaskException(e);
+    }
+  }
+
+  @Override
+  protected long getRunInterval() {
+    return 300;
+  }
+}
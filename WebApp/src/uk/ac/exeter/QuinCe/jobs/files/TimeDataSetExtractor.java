@@ -14,6 +14,7 @@ import java.util.TreeSet;
 import uk.ac.exeter.QuinCe.data.Dataset.Coordinate;
 import uk.ac.exeter.QuinCe.data.Dataset.DataSet;
 import uk.ac.exeter.QuinCe.data.Dataset.DataSetDB;
+import uk.ac.exeter.QuinCe.data.Dataset.DataSetDataDB;
 import uk.ac.exeter.QuinCe.data.Dataset.GeoBounds;
 import uk.ac.exeter.QuinCe.data.Dataset.Measurement;
 import uk.ac.exeter.QuinCe.data.Dataset.NewSensorValues;
@@ -49,6 +50,45 @@ public class TimeDataSetExtractor extends DataSetExtractor {
    */
   private static final String JOB_NAME = "Time Basis Dataset Extraction";
 
+  /**
+   * The time after which values will be extracted when extending a dataset
+   * that has already been extracted. If {@code null}, the complete dataset is
+   * extracted.
+   */
+  private final LocalDateTime extractAfter;
+
+  /**
+   * The time range covered by the extracted values.
+   */
+  private TimeRangeBuilder extractedRange = null;
+
+  /**
+   * Create an extractor that will extract the complete dataset.
+   */
+  public TimeDataSetExtractor() {
+    this(null);
+  }
+
+  /**
+   * Create an extractor that will only extract values after the specified
+   * time.
+   *
+   * <p>
+   * This is used to extend a dataset that has already been extracted when new
+   * data files arrive. Only files containing data after {@code extractAfter}
+   * are read, and existing values are not touched. The dataset's existing Run
+   * Type periods are used when flagging values in flushing periods so that
+   * periods that span the old and new data are handled correctly.
+   * </p>
+   *
+   * @param extractAfter
+   *          The time after which values will be extracted, or {@code null} to
+   *          extract the complete dataset.
+   */
+  public TimeDataSetExtractor(LocalDateTime extractAfter) {
+    this.extractAfter = extractAfter;
+  }
+
   public void extract(Connection conn, Instrument instrument, DataSet dataSet)
     throws Exception {
 
@@ -71,13 +111,17 @@ public class TimeDataSetExtractor extends DataSetExtractor {
 
     usedFiles = new HashSet<DataFile>(potentialFiles.size());
     sensorValues = new NewSensorValues(dataSet);
+    extractedRange = new TimeRangeBuilder();
 
     if (!dataSet.fixedPosition()) {
-      geoBounds = new GeoBounds();
+      geoBounds = isIncremental() ? dataSet.getBounds() : new GeoBounds();
     }
 
-    // We want to store when run types begin and end
-    RunTypePeriods runTypePeriods = new RunTypePeriods();
+    // We want to store when run types begin and end. When extending a
+    // dataset we continue from its existing run types.
+    RunTypePeriods runTypePeriods = isIncremental()
+      ? DataSetDataDB.getRunTypePeriods(conn, dataSet)
+      : new RunTypePeriods();
 
     CalibrationSet sensorCalibrations = SensorCalibrationDB.getInstance()
       .getCalibrationSet(conn, castDataSet);
@@ -98,10 +142,14 @@ public class TimeDataSetExtractor extends DataSetExtractor {
       fileDefinitionRanges.get(castFile.getFileDefinition()).add(castFile);
     }
 
-    LocalDateTime filesLatestStart = TimeRange
-      .getLatestStart(fileDefinitionRanges.values(), 3600);
-    if (filesLatestStart.isAfter(castDataSet.getStartTime())) {
-      castDataSet.setStartTime(filesLatestStart);
+    // The start of an extended dataset has already been set, and moving it
+    // now would leave existing values outside the dataset
+    if (!isIncremental()) {
+      LocalDateTime filesLatestStart = TimeRange
+        .getLatestStart(fileDefinitionRanges.values(), 3600);
+      if (filesLatestStart.isAfter(castDataSet.getStartTime())) {
+        castDataSet.setStartTime(filesLatestStart);
+      }
     }
 
     LocalDateTime filesEarliestEnd = TimeRange
@@ -110,7 +158,16 @@ public class TimeDataSetExtractor extends DataSetExtractor {
       castDataSet.setEndTime(filesEarliestEnd);
     }
 
-    for (DataFile file : potentialFiles) {
+    // When extending a dataset, only read the files that contain new data
+    LocalDateTime extractStart = isIncremental() ? extractAfter
+      : castDataSet.getStartTime();
+
+    List<TimeDataFile> extractFiles = isIncremental()
+      ? TimeDataFile.filter(potentialFiles, extractAfter,
+        castDataSet.getEndTime(), true)
+      : potentialFiles;
+
+    for (DataFile file : extractFiles) {
       FileDefinition fileDefinition = file.getFileDefinition();
       int currentLine = file.getFirstDataLine();
       while (currentLine < file.getContentLineCount()) {
@@ -153,13 +210,14 @@ public class TimeDataSetExtractor extends DataSetExtractor {
           LocalDateTime time = ((TimeDataFile) file).getOffsetTime(line);
           TimeCoordinate coordinate = new TimeCoordinate(dataSet.getId(), time);
 
-          if ((time.equals(castDataSet.getStartTime())
-            || time.isAfter(castDataSet.getStartTime()))
+          if (((!isIncremental() && time.equals(extractStart))
+            || time.isAfter(extractStart))
             && (time.isBefore(castDataSet.getEndTime())
               || time.isEqual(castDataSet.getEndTime()))) {
 
             // We're using this file
             usedFiles.add(file);
+            extractedRange.add(time);
 
             if (!dataSet.fixedPosition() && fileDefinition.hasPosition()) {
               extractLongitude(dataSet, file, currentLine, line, coordinate);
@@ -227,6 +285,16 @@ public class TimeDataSetExtractor extends DataSetExtractor {
     // The last run type will cover the rest of time
     runTypePeriods.finish();
 
+    // An extended dataset still uses all its existing files
+    if (isIncremental()) {
+      for (DataFile existingFile : DataFileDB.getDatasetFiles(conn, dataSet)) {
+        if (usedFiles.stream().noneMatch(
+          f -> f.getDatabaseId() == existingFile.getDatabaseId())) {
+          usedFiles.add(existingFile);
+        }
+      }
+    }
+
     // Now flag all the values that have internal calibrations and are within
     // the instrument's pre- and post-flushing periods (if they're defined),
     // or are in an INGORED run type
@@ -282,6 +350,30 @@ public class TimeDataSetExtractor extends DataSetExtractor {
     }
   }
 
+  /**
+   * Determine whether this extractor is extending a dataset that has already
+   * been extracted.
+   *
+   * @return {@code true} if only new values are being extracted;
+   *         {@code false} if the complete dataset is being extracted.
+   */
+  public boolean isIncremental() {
+    return null != extractAfter;
+  }
+
+  /**
+   * Get the time range covered by the extracted values.
+   *
+   * <p>
+   * If no values were extracted, the range's start will be after its end.
+   * </p>
+   *
+   * @return The extracted time range.
+   */
+  public TimeRange getExtractedRange() {
+    return extractedRange;
+  }
+
   private boolean inFlushingPeriod(Coordinate coordinate,
     RunTypePeriod runTypePeriod, Instrument instrument)
     throws MissingRunTypeException, RunTypeCategoryException {
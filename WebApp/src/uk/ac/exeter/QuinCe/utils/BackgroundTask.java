@@ -34,6 +34,18 @@ public abstract class BackgroundTask
    */
   private boolean running = false;
 
+  /**
+   * Indicates that the task was requested while it was already running, so it
+   * should be run again as soon as the current run finishes.
+   */
+  private boolean rerunRequested = false;
+
+  /**
+   * Indicates that a run requested by {@link #runNow()} is waiting to start.
+   * Further requests are ignored until it does.
+   */
+  private boolean runQueued = false;
+
   /**
    * Shut down the scheduler for the task when the application is shut down
    */
@@ -55,9 +67,33 @@ public abstract class BackgroundTask
     scheduler.scheduleAtFixedRate(this, 30, getRunInterval(), TimeUnit.SECONDS);
   }
 
+  /**
+   * Request that the task is run as soon as possible, in addition to its
+   * regular schedule. If the task is currently running, it will be run again
+   * once the current run has finished. Requests made before the task has been
+   * initialised are ignored.
+   */
+  protected void runNow() {
+    if (null != scheduler && !scheduler.isShutdown()) {
+      boolean queueRun = false;
+
+      synchronized (lock) {
+        if (!runQueued) {
+          runQueued = true;
+          queueRun = true;
+        }
+      }
+
+      if (queueRun) {
+        scheduler.execute(this);
+      }
+    }
+  }
+
   /**
    * Runs the task. Sets the {@link #running} flag to ensure that only one
-   * instance of the task can run at any one time.
+   * instance of the task can run at any one time. If the task is requested
+   * while it is running, it is repeated when the current run is finished.
    */
   @Override
   public void run() {
@@ -65,13 +101,16 @@ public abstract class BackgroundTask
     boolean doRun = false;
 
     synchronized (lock) {
+      runQueued = false;
       if (!running) {
         running = true;
         doRun = true;
+      } else {
+        rerunRequested = true;
       }
     }
 
-    if (doRun) {
+    while (doRun) {
       try {
         doTask();
       } catch (Exception e) {
@@ -79,7 +118,9 @@ public abstract class BackgroundTask
         ExceptionUtils.printStackTrace(e);
       } finally {
         synchronized (lock) {
-          running = false;
+          doRun = rerunRequested;
+          rerunRequested = false;
+          running = doRun;
         }
       }
     }
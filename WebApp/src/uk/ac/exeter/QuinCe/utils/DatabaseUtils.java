@@ -234,4 +234,44 @@ public class DatabaseUtils {
 
     return result;
   }
+
+  /**
+   * Execute a batch of inserts on a statement prepared with
+   * {@link java.sql.Statement#RETURN_GENERATED_KEYS}, and return the generated
+   * keys in the order that the inserts were added to the batch.
+   *
+   * @param stmt
+   *          The statement containing the batch.
+   * @param batchSize
+   *          The number of inserts in the batch.
+   * @return The generated keys.
+   * @throws SQLException
+   *           If the batch cannot be executed.
+   * @throws DatabaseException
+   *           If the number of generated keys does not match the batch size.
+   */
+  public static long[] executeInsertBatch(PreparedStatement stmt,
+    int batchSize) throws SQLException, DatabaseException {
+
+    stmt.executeBatch();
+
+    long[] result = new long[batchSize];
+    int count = 0;
+
+    try (ResultSet keys = stmt.getGeneratedKeys()) {
+      while (keys.next()) {
+        if (count < batchSize) {
+          result[count] = keys.getLong(1);
+        }
+        count++;
+      }
+    }
+
+    if (count != batchSize) {
+      throw new DatabaseException(
+        "Expected " + batchSize + " generated keys, got " + count);
+    }
+
+    return result;
+  }
 }
@@ -23,7 +23,7 @@ public class TimeRangeBuilder implements TimeRange {
         start = time;
       }
 
-      if (end.isAfter(end)) {
+      if (time.isAfter(end)) {
         end = time;
       }
     }
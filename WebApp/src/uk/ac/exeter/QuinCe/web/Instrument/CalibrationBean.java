@@ -997,7 +997,8 @@ public abstract class CalibrationBean extends BaseManagedBean {
           jobProperties.setProperty(DataSetJob.ID_PARAM,
             String.valueOf(entry.getKey().getId()));
           JobManager.addJob(getDataSource(), getUser(),
-            reprocessJobClass.getCanonicalName(), jobProperties);
+            reprocessJobClass.getCanonicalName(), jobProperties,
+            Job.PRIORITY_BULK);
         }
       }
     } catch (Exception e) {
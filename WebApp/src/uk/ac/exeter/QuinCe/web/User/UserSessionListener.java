@@ -1,5 +1,7 @@
 package uk.ac.exeter.QuinCe.web.User;
 
+import java.util.Collections;
+
 import javax.servlet.http.HttpSession;
 import javax.servlet.http.HttpSessionEvent;
 import javax.servlet.http.HttpSessionListener;
@@ -7,6 +9,7 @@ import javax.servlet.http.HttpSessionListener;
 import uk.ac.exeter.QuinCe.User.UserDB;
 import uk.ac.exeter.QuinCe.User.UserPreferences;
 import uk.ac.exeter.QuinCe.utils.ExceptionUtils;
+import uk.ac.exeter.QuinCe.web.datasets.plotPage.PlotPageBean;
 import uk.ac.exeter.QuinCe.web.system.ServletUtils;
 
 /**
@@ -33,6 +36,15 @@ public class UserSessionListener implements HttpSessionListener {
       ExceptionUtils.printStackTrace(e);
     }
 
+    // Release the data held by any plot pages
+    try {
+      Collections.list(session.getAttributeNames()).stream()
+        .map(session::getAttribute).filter(a -> a instanceof PlotPageBean)
+        .forEach(a -> ((PlotPageBean) a).sessionDestroyed());
+    } catch (Exception e) {
+      ExceptionUtils.printStackTrace(e);
+    }
+
     session.removeAttribute(LoginBean.USER_SESSION_ATTR);
     session.setAttribute("SESSION_EXPIRED", "true");
   }
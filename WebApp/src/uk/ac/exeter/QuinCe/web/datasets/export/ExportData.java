@@ -83,14 +83,24 @@ public class ExportData extends ManualQCData {
     }
   }
 
+  /**
+   * The exported data is filtered and modified according to the export
+   * options, so it cannot be shared with the QC pages.
+   */
+  @Override
+  protected boolean useSharedData() {
+    return false;
+  }
+
   /**
    * Different data can be loaded depending on the export options.
    */
   @Override
   public void loadDataAction(Progress progress) throws Exception {
 
-    // Load all data
+    // Load all data. The export needs the data reduction values straight away.
     super.loadDataAction(progress);
+    awaitDataReduction();
 
     /*
      * Filter measurements to only contain those with Good QC flags if required
@@ -314,8 +324,8 @@ public class ExportData extends ManualQCData {
 
       Measurement measurement = measurements.get(coordinates.get(rowId));
       if (null != measurement) {
-        if (dataReduction.containsKey(measurement.getId())) {
-          DataReductionRecord record = dataReduction.get(measurement.getId())
+        if (getDataReduction().containsKey(measurement.getId())) {
+          DataReductionRecord record = getDataReduction().get(measurement.getId())
             .get(variable);
 
           if (null != record) {
@@ -1,5 +1,6 @@
 package uk.ac.exeter.QuinCe.web.datasets.plotPage;
 
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
@@ -182,6 +183,15 @@ public class ArgoPlot extends Plot {
     }
   }
 
+  /**
+   * Profile plots only contain a single profile, so they are simply rebuilt.
+   */
+  @Override
+  protected void updatePlotValues(Collection<Coordinate> coordinates)
+    throws Exception {
+    makePlotValues();
+  }
+
   private LinkedHashMap<Coordinate, PlotPageTableValue> sortValues(
     Map<Coordinate, PlotPageTableValue> source) {
 
@@ -295,6 +295,7 @@ public class InternalCalibrationData extends PlotPageData {
       conn.setAutoCommit(false);
       DataSetDataDB.updateSensorValues(conn, sensorValues);
       conn.commit();
+      invalidateMapTiles();
     } catch (Exception e) {
       DatabaseUtils.rollBack(conn);
       throw new DatabaseException("Error while applying QC flag", e);
@@ -336,6 +337,7 @@ public class InternalCalibrationData extends PlotPageData {
       conn.setAutoCommit(false);
       DataSetDataDB.updateSensorValues(conn, sensorValues);
       conn.commit();
+      invalidateMapTiles();
 
       initPlots();
     } catch (Exception e) {
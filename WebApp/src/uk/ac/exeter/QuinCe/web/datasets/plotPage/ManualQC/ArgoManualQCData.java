@@ -253,7 +253,7 @@ public class ArgoManualQCData extends ManualQCData {
 
         if (null != measurementId) {
           // Retrieve the data reduction data
-          dataReductionData = dataReduction.get(measurementId);
+          dataReductionData = getDataReduction().get(measurementId);
         }
 
         for (long columnId : sensorColumnIds) {
@@ -283,7 +283,8 @@ public class ArgoManualQCData extends ManualQCData {
    * Build map records based on cycle numbers, with one record per cycle.
    */
   @Override
-  protected void buildMapCache(PlotPageColumnHeading column) throws Exception {
+  protected MapRecords buildMapCache(PlotPageColumnHeading column)
+    throws Exception {
 
     MapRecords records = new MapRecords(0, this,
       StringUtils::formatNumberToInt);
@@ -307,6 +308,7 @@ public class ArgoManualQCData extends ManualQCData {
     }
 
     mapCache.put(column, records);
+    return records;
   }
 
   @Override
@@ -5,6 +5,8 @@ import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -13,6 +15,10 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 import javax.sql.DataSource;
@@ -53,6 +59,8 @@ import uk.ac.exeter.QuinCe.utils.DateTimeUtils;
 import uk.ac.exeter.QuinCe.utils.MissingParamException;
 import uk.ac.exeter.QuinCe.utils.RecordNotFoundException;
 import uk.ac.exeter.QuinCe.utils.StringUtils;
+import uk.ac.exeter.QuinCe.utils.TimeRange;
+import uk.ac.exeter.QuinCe.utils.TimeRangeBuilder;
 import uk.ac.exeter.QuinCe.utils.ValueCounter;
 import uk.ac.exeter.QuinCe.web.Progress;
 import uk.ac.exeter.QuinCe.web.datasets.plotPage.DataLatLng;
@@ -65,6 +73,7 @@ import uk.ac.exeter.QuinCe.web.datasets.plotPage.PlotPageTableRecord;
 import uk.ac.exeter.QuinCe.web.datasets.plotPage.PlotPageTableValue;
 import uk.ac.exeter.QuinCe.web.datasets.plotPage.SensorValuePlotPageTableValue;
 import uk.ac.exeter.QuinCe.web.datasets.plotPage.SimplePlotPageTableValue;
+import uk.ac.exeter.QuinCe.web.system.ResourceManager;
 
 /**
  * A version of {@link PlotPageData} used for the main manual QC page.
@@ -129,9 +138,49 @@ public class ManualQCData extends PlotPageData {
   protected DatasetSensorValues sensorValues = null;
 
   /**
-   * The values calculated by data reduction.
+   * The loaded data for the dataset. The data reduction values may still be
+   * loading in the background.
+   *
+   * @see #getDataReduction()
+   */
+  private ManualQCDataCache.DatasetData loadedData = null;
+
+  /**
+   * Indicates whether the page has been updated with the data reduction values
+   * since they finished loading.
+   *
+   * @see #isAllDataLoaded()
+   */
+  private boolean dataReductionShown = false;
+
+  /**
+   * The IDs of the columns that hold values calculated by data reduction.
    */
-  protected Map<Long, Map<Variable, ReadOnlyDataReductionRecord>> dataReduction = null;
+  private Set<Long> dataReductionColumnIds = new HashSet<Long>();
+
+  /**
+   * The application property that sets the number of threads used to load
+   * data for the QC pages.
+   *
+   * @see #getLoaderThreads()
+   */
+  public static final String LOADER_THREADS_PROPERTY = "manual_qc.loader_threads";
+
+  /**
+   * The number of loader threads used if {@link #LOADER_THREADS_PROPERTY} is
+   * not set.
+   */
+  private static final int DEFAULT_LOADER_THREADS = 6;
+
+  /**
+   * The threads used to load the different parts of the dataset's data at the
+   * same time. The data reduction values can continue loading after
+   * {@link #loadDataAction(Progress)} has finished, so the threads are not
+   * tied to the request that started them.
+   *
+   * @see #getLoaderThreads()
+   */
+  private static ExecutorService loaderThreads = null;
 
   /**
    * The list of sensor column IDs in the same order as they are represented in
@@ -160,6 +209,24 @@ public class ManualQCData extends PlotPageData {
    */
   private PlotPageTableValue fixedDepthValue = null;
 
+  /**
+   * The time range covered by the values whose QC has been changed by the
+   * user.
+   */
+  private TimeRangeBuilder changedRange = new TimeRangeBuilder();
+
+  /**
+   * The entry in the {@link ManualQCDataCache} that holds this object's data,
+   * if the data is shared with other users.
+   */
+  private ManualQCDataCache.Entry sharedData = null;
+
+  /**
+   * Indicates that this object has its own copy of the dataset's data, which
+   * it can modify.
+   */
+  private boolean privateData = false;
+
   /**
    * Construct the data object.
    *
@@ -188,42 +255,383 @@ public class ManualQCData extends PlotPageData {
   /**
    * Load all the data for the dataset.
    *
-   * @param dataSource
-   *          A data source.
+   * <p>
+   * If {@link #useSharedData()} returns {@code true}, the data is shared with
+   * other users viewing the same dataset through the
+   * {@link ManualQCDataCache}.
+   * </p>
+   *
+   * @param progress
+   *          The progress of the load.
    * @throws Exception
    *           If the data cannot be loaded.
    */
   @Override
   public void loadDataAction(Progress progress) throws Exception {
 
-    try (Connection conn = dataSource.getConnection()) {
+    // Fake value after "initialising" message
+    progress.setValue(5F);
+
+    releaseSharedData();
+
+    ManualQCDataCache.DatasetData data;
 
-      // Fake value after "initialising" message
-      progress.setValue(5F);
+    if (useSharedData() && !privateData) {
+      progress.setName("Loading data");
+      sharedData = ManualQCDataCache.acquire(getSharedDataKey(),
+        getSharedDataVersion(), () -> loadDatasetData(progress));
+      data = sharedData.getData();
+    } else {
+      data = loadDatasetData(progress);
+    }
 
-      progress.setName("Loading sensor data");
-      sensorValues = DataSetDataDB.getSensorValues(conn, dataset, false, true);
-      progress.setValue(33F);
+    loadedData = data;
+    dataReductionShown = data.isDataReductionLoaded();
+    sensorValues = data.getSensorValues();
+    measurements = data.getMeasurements();
+
+    buildRowIDs();
+    progress.setValue(100F);
+  }
+
+  /**
+   * Load the dataset's data from the database.
+   *
+   * <p>
+   * The sensor values, measurements and data reduction values are loaded at
+   * the same time on separate database connections. This method returns once
+   * the sensor values and measurements are loaded, which is enough to display
+   * the table and plots. The data reduction values continue to load in the
+   * background.
+   * </p>
+   *
+   * @param progress
+   *          The progress of the load.
+   * @return The loaded data.
+   * @throws Exception
+   *           If the data cannot be loaded.
+   * @see #isAllDataLoaded()
+   */
+  protected ManualQCDataCache.DatasetData loadDatasetData(Progress progress)
+    throws Exception {
+
+    progress.setName("Loading sensor data and measurements");
+
+    CompletableFuture<DatasetSensorValues> sensorValuesLoader = loadAsync(
+      conn -> {
+        DatasetSensorValues loadedSensorValues = DataSetDataDB
+          .getSensorValues(conn, dataset, false, true);
+
+        // Build the coordinate lists now so they aren't built by several
+        // users at once if the data is shared.
+        loadedSensorValues.getCoordinates();
+        loadedSensorValues.getRawPositionCoordinates();
+        loadedSensorValues.getPositionValueCoordinates();
+        return loadedSensorValues;
+      });
 
-      progress.setName("Loading measurements");
-      List<Measurement> measurementsList = DataSetDataDB.getMeasurements(conn,
-        dataset);
-      progress.setValue(66F);
+    CompletableFuture<TreeMap<Coordinate, Measurement>> measurementsLoader = loadAsync(
+      conn -> {
+        TreeMap<Coordinate, Measurement> loadedMeasurements = new TreeMap<Coordinate, Measurement>();
+        DataSetDataDB.getMeasurements(conn, dataset)
+          .forEach(m -> loadedMeasurements.put(m.getCoordinate(), m));
+        return loadedMeasurements;
+      });
 
-      measurements = new TreeMap<Coordinate, Measurement>();
+    CompletableFuture<Map<Long, Map<Variable, ReadOnlyDataReductionRecord>>> dataReductionLoader = loadAsync(
+      conn -> DataSetDataDB.getDataReductionData(conn, instrument, dataset));
 
-      measurementsList.forEach(m -> measurements.put(m.getCoordinate(), m));
+    DatasetSensorValues loadedSensorValues;
+    TreeMap<Coordinate, Measurement> loadedMeasurements;
 
-      progress.setName("Loading data reduction");
-      dataReduction = DataSetDataDB.getDataReductionData(conn, instrument,
-        dataset);
-      progress.setValue(100F);
+    try {
+      loadedSensorValues = await(sensorValuesLoader);
+      progress.setValue(50F);
 
-      // Build the row IDs
-      coordinates = new LinkedHashMap<Long, Coordinate>();
-      sensorValues.getCoordinates().forEach(v -> coordinates.put(v.getId(), v));
-      rowIDs = new ArrayList<Long>(coordinates.keySet());
+      loadedMeasurements = await(measurementsLoader);
+      progress.setValue(90F);
+    } catch (Exception e) {
+      // The data can't be used, so don't hold connections loading the rest
+      sensorValuesLoader.cancel(false);
+      measurementsLoader.cancel(false);
+      dataReductionLoader.cancel(false);
+      throw e;
     }
+
+    return new ManualQCDataCache.DatasetData(loadedSensorValues,
+      loadedMeasurements, dataReductionLoader);
+  }
+
+  /**
+   * Run a database query on one of the {@link #loaderThreads} using its own
+   * connection.
+   *
+   * <p>
+   * If the returned object is cancelled before the query starts, the query is
+   * skipped and no connection is taken. Queries that are already running are
+   * left to finish, and their results are discarded.
+   * </p>
+   *
+   * @param <T>
+   *          The type of the query result.
+   * @param query
+   *          The query.
+   * @return Completed with the query result once it has finished.
+   */
+  private <T> CompletableFuture<T> loadAsync(DataQuery<T> query) {
+    CompletableFuture<T> result = new CompletableFuture<T>();
+
+    getLoaderThreads().execute(() -> {
+      if (!result.isDone()) {
+        try (Connection conn = dataSource.getConnection()) {
+          result.complete(query.run(conn));
+        } catch (Throwable e) {
+          result.completeExceptionally(e);
+        }
+      }
+    });
+
+    return result;
+  }
+
+  /**
+   * Get the {@link #loaderThreads}, creating them if required.
+   *
+   * <p>
+   * Each loader thread holds one database connection while it runs, and each
+   * page load uses three of them. The number of threads is fixed (set by
+   * {@link #LOADER_THREADS_PROPERTY}) so that page loads can't use more than
+   * a small part of the database connection pool. Loads beyond that wait for
+   * a free thread.
+   * </p>
+   *
+   * @return The loader threads.
+   */
+  private static synchronized ExecutorService getLoaderThreads() {
+    if (null == loaderThreads) {
+      int threadCount = DEFAULT_LOADER_THREADS;
+
+      ResourceManager resourceManager = ResourceManager.getInstance();
+      if (null != resourceManager && null != resourceManager.getConfig()) {
+        try {
+          threadCount = Integer.parseInt(resourceManager.getConfig()
+            .getProperty(LOADER_THREADS_PROPERTY,
+              String.valueOf(DEFAULT_LOADER_THREADS)));
+        } catch (NumberFormatException e) {
+          // Use the default
+        }
+      }
+
+      loaderThreads = Executors.newFixedThreadPool(Math.max(1, threadCount),
+        r -> {
+          Thread thread = new Thread(r, "ManualQCData loader");
+          thread.setDaemon(true);
+          return thread;
+        });
+    }
+
+    return loaderThreads;
+  }
+
+  /**
+   * Wait for a query started by {@link #loadAsync(DataQuery)} to finish.
+   *
+   * @param <T>
+   *          The type of the query result.
+   * @param query
+   *          The running query.
+   * @return The query result.
+   * @throws Exception
+   *           If the query failed.
+   */
+  private static <T> T await(CompletableFuture<T> query) throws Exception {
+    try {
+      return query.get();
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+    }
+  }
+
+  /**
+   * Get the values calculated by data reduction. These are loaded after the
+   * rest of the data, so this will return an empty map until they are
+   * available.
+   *
+   * @return The data reduction values.
+   * @see #isAllDataLoaded()
+   */
+  protected Map<Long, Map<Variable, ReadOnlyDataReductionRecord>> getDataReduction() {
+    return null == loadedData
+      ? Collections.<Long, Map<Variable, ReadOnlyDataReductionRecord>> emptyMap()
+      : loadedData.getDataReduction();
+  }
+
+  /**
+   * Wait for the data reduction values to finish loading.
+   *
+   * @throws Exception
+   *           If the data reduction values could not be loaded.
+   */
+  protected void awaitDataReduction() throws Exception {
+    if (null != loadedData) {
+      loadedData.awaitDataReduction();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>
+   * The data reduction values are loaded in the background after the rest of
+   * the data, so this returns {@code false} until they are available. If they
+   * fail to load, the error is reported and this returns {@code true}.
+   * </p>
+   *
+   * <p>
+   * The first time the values are found to be available, this object's map
+   * records for the data reduction columns are discarded so the maps are
+   * redrawn with the complete data. The shared map tiles are left alone: tiles
+   * drawn while a column was loading are stored under a different key (see
+   * {@link #isColumnLoading(PlotPageColumnHeading)}), so they are not used for
+   * the complete data.
+   * </p>
+   */
+  @Override
+  public boolean isAllDataLoaded() {
+    boolean result = super.isAllDataLoaded();
+
+    if (result && null != loadedData) {
+      result = loadedData.isDataReductionLoaded();
+
+      if (result && !dataReductionShown) {
+        dataReductionShown = true;
+
+        try {
+          loadedData.awaitDataReduction();
+        } catch (Exception e) {
+          error("Error while loading data reduction values", e);
+        }
+
+        mapCache.keySet()
+          .removeIf(c -> dataReductionColumnIds.contains(c.getId()));
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * The data reduction columns are loading until the data reduction values
+   * are available.
+   */
+  @Override
+  protected boolean isColumnLoading(PlotPageColumnHeading column) {
+    return null != loadedData && !loadedData.isDataReductionLoaded()
+      && dataReductionColumnIds.contains(column.getId());
+  }
+
+  /**
+   * Build the row IDs and the {@link Coordinate} lookup table from the loaded
+   * data.
+   *
+   * @throws Exception
+   *           If the row IDs cannot be built.
+   */
+  protected void buildRowIDs() throws Exception {
+    coordinates = new LinkedHashMap<Long, Coordinate>();
+    sensorValues.getCoordinates().forEach(v -> coordinates.put(v.getId(), v));
+    rowIDs = new ArrayList<Long>(coordinates.keySet());
+  }
+
+  /**
+   * Indicates whether the dataset's data can be shared with other users
+   * through the {@link ManualQCDataCache}. Subclasses that modify the data
+   * other than by setting QC flags must not share it.
+   *
+   * <p>
+   * The default implementation returns {@code true}.
+   * </p>
+   *
+   * @return {@code true} if the data can be shared; {@code false} if not.
+   */
+  protected boolean useSharedData() {
+    return true;
+  }
+
+  /**
+   * Get the key for this object's data in the {@link ManualQCDataCache}.
+   *
+   * <p>
+   * Different subclasses load different data, so the class name is included
+   * in the key.
+   * </p>
+   *
+   * @return The cache key.
+   */
+  private String getSharedDataKey() {
+    return dataset.getId() + "|" + getClass().getName();
+  }
+
+  /**
+   * Get the version of the dataset's data for the {@link ManualQCDataCache}.
+   * This changes whenever the dataset is processed.
+   *
+   * @return The data version.
+   */
+  private String getSharedDataVersion() {
+    return dataset.getProcessingVersion() + "|" + dataset.getStatusDate();
+  }
+
+  /**
+   * Make sure that this object has its own copy of the dataset's data before
+   * it is modified.
+   *
+   * <p>
+   * If the data came from the {@link ManualQCDataCache}, it is removed from
+   * the cache and this object switches to a copy of the sensor values made by
+   * {@link DatasetSensorValues#makeCopy()}. The copy shares the unchanged
+   * values with the cached data, so other users who are still reading it are
+   * not affected. Values must be retrieved with
+   * {@link DatasetSensorValues#getForUpdate(SensorValue)} before they are
+   * changed.
+   * </p>
+   *
+   * <p>
+   * The data is copied even if no one else is using the cache entry, since
+   * copies made by earlier users may still share its values.
+   * </p>
+   *
+   * @throws Exception
+   *           If the data cannot be copied.
+   * @see ManualQCDataCache#detach(ManualQCDataCache.Entry)
+   */
+  private void makeDataPrivate() throws Exception {
+    if (null != sharedData) {
+      ManualQCDataCache.detach(sharedData);
+      sharedData = null;
+      privateData = true;
+
+      sensorValues = sensorValues.makeCopy();
+      loadedData = loadedData.withSensorValues(sensorValues);
+      initTableDataGson();
+    }
+  }
+
+  /**
+   * Release this object's entry in the {@link ManualQCDataCache}, if it has
+   * one.
+   */
+  private void releaseSharedData() {
+    if (null != sharedData) {
+      ManualQCDataCache.release(sharedData);
+      sharedData = null;
+    }
+  }
+
+  @Override
+  public void destroy() {
+    releaseSharedData();
+    super.destroy();
   }
 
   /**
@@ -376,6 +784,7 @@ public class ManualQCData extends PlotPageData {
 
     // We use a TreeSet to maintain order and uniqueness
     measurementSensorTypes = new TreeSet<MeasurementValueSensorType>();
+    dataReductionColumnIds = new HashSet<Long>();
 
     // Each of the instrument variables
     for (Variable variable : instrument.getVariables()) {
@@ -398,6 +807,8 @@ public class ManualQCData extends PlotPageData {
             variableHeadings.size());
           variableHeadings.stream()
             .forEach(x -> variableQCHeadings.add(new PlotPageColumnHeading(x)));
+          variableQCHeadings
+            .forEach(h -> dataReductionColumnIds.add(h.getId()));
 
           columnHeadings.put(variable.getName(), variableQCHeadings);
           extendedColumnHeadings.put(variable.getName(), variableQCHeadings);
@@ -522,7 +933,7 @@ public class ManualQCData extends PlotPageData {
 
         if (null != measurementId) {
           // Retrieve the data reduction data
-          dataReductionData = dataReduction.get(measurementId);
+          dataReductionData = getDataReduction().get(measurementId);
         }
 
         addDataReductionColumns(record, dataReductionData);
@@ -647,26 +1058,33 @@ public class ManualQCData extends PlotPageData {
    */
   public void acceptAutoQC() {
 
+    resetTableUpdates();
+
     Connection conn = null;
     try {
+      makeDataPrivate();
+
       List<SensorValue> selectedValues = getSelectedSensorValues();
 
       List<SensorValue> changedValues = new ArrayList<SensorValue>(
         selectedValues.size() * 2);
 
-      for (SensorValue sensorValue : selectedValues) {
+      for (SensorValue selectedValue : selectedValues) {
         // Only override the existing user QC if it has Needs Flag or Assumed
         // Good
 
+        SensorValue sensorValue = sensorValues.getForUpdate(selectedValue);
         SensorValue otherPositionValue = null;
 
         if (SensorType.isPosition(sensorValue.getColumnId())) {
           if (sensorValue.getColumnId() == SensorType.LONGITUDE_ID) {
-            otherPositionValue = sensorValues.getRawSensorValue(
-              SensorType.LATITUDE_ID, sensorValue.getCoordinate());
+            otherPositionValue = sensorValues
+              .getForUpdate(sensorValues.getRawSensorValue(
+                SensorType.LATITUDE_ID, sensorValue.getCoordinate()));
           } else {
-            otherPositionValue = sensorValues.getRawSensorValue(
-              SensorType.LONGITUDE_ID, sensorValue.getCoordinate());
+            otherPositionValue = sensorValues
+              .getForUpdate(sensorValues.getRawSensorValue(
+                SensorType.LONGITUDE_ID, sensorValue.getCoordinate()));
           }
         }
 
@@ -689,8 +1107,9 @@ public class ManualQCData extends PlotPageData {
       conn.setAutoCommit(false);
       DataSetDataDB.updateSensorValues(conn, changedValues);
       conn.commit();
+      changedValues.forEach(v -> changedRange.add(v.getCoordinate().getTime()));
       clearSelection();
-      initPlots();
+      qcFlagsChanged(getValueCoordinates(changedValues));
     } catch (Exception e) {
       DatabaseUtils.rollBack(conn);
       error("Error while updating QC flags", e);
@@ -699,6 +1118,31 @@ public class ManualQCData extends PlotPageData {
     }
   }
 
+  /**
+   * Get the time range covered by the values whose QC has been changed by the
+   * user. If no values have been changed, the range's start will be after its
+   * end.
+   *
+   * @return The changed time range.
+   */
+  public TimeRange getChangedRange() {
+    return changedRange;
+  }
+
+  /**
+   * Get the distinct coordinates of a set of {@link SensorValue}s.
+   *
+   * @param values
+   *          The values.
+   * @return The coordinates.
+   */
+  private TreeSet<Coordinate> getValueCoordinates(
+    Collection<SensorValue> values) {
+    TreeSet<Coordinate> result = new TreeSet<Coordinate>();
+    values.forEach(v -> result.add(v.getCoordinate()));
+    return result;
+  }
+
   /**
    * Get the {@link SensorValue}s for the current selection.
    *
@@ -765,23 +1209,30 @@ public class ManualQCData extends PlotPageData {
   }
 
   public void applyManualFlag() {
+    resetTableUpdates();
+
     Connection conn = null;
     try {
+      makeDataPrivate();
+
       Set<SensorValue> changedValues = new HashSet<SensorValue>();
 
       List<SensorValue> selectedValues = getSelectedSensorValues();
 
-      for (SensorValue value : selectedValues) {
+      for (SensorValue selectedValue : selectedValues) {
 
+        SensorValue value = sensorValues.getForUpdate(selectedValue);
         SensorValue otherPositionValue = null;
 
         if (SensorType.isPosition(value.getColumnId())) {
           if (value.getColumnId() == SensorType.LONGITUDE_ID) {
             otherPositionValue = sensorValues
-              .getRawSensorValue(SensorType.LATITUDE_ID, value.getCoordinate());
+              .getForUpdate(sensorValues.getRawSensorValue(
+                SensorType.LATITUDE_ID, value.getCoordinate()));
           } else {
-            otherPositionValue = sensorValues.getRawSensorValue(
-              SensorType.LONGITUDE_ID, value.getCoordinate());
+            otherPositionValue = sensorValues
+              .getForUpdate(sensorValues.getRawSensorValue(
+                SensorType.LONGITUDE_ID, value.getCoordinate()));
           }
         }
 
@@ -803,9 +1254,10 @@ public class ManualQCData extends PlotPageData {
       conn.setAutoCommit(false);
       DataSetDataDB.updateSensorValues(conn, changedValues);
       conn.commit();
+      changedValues.forEach(v -> changedRange.add(v.getCoordinate().getTime()));
 
       clearSelection();
-      initPlots();
+      qcFlagsChanged(getValueCoordinates(changedValues));
 
     } catch (Exception e) {
       DatabaseUtils.rollBack(conn);
@@ -921,19 +1373,9 @@ public class ManualQCData extends PlotPageData {
       SensorType sensorType = instrument.getSensorAssignments()
         .getSensorTypeForDBColumn(column.getId());
 
-      // For some reason doing this in a single if statement didn't work.
-      // ¯\_(ツ)_/¯
-      boolean useAllValues = true;
-      if (isCoreSensorType(sensorType)) {
-        useAllValues = false;
-      }
-      if (sensorType.hasInternalCalibration()) {
-        useAllValues = false;
-      }
-
       SensorValuesList svList = sensorValues.getColumnValues(column.getId());
       if (null != svList) {
-        if (useAllValues) {
+        if (useAllValues(sensorType)) {
           for (SensorValue sensorValue : svList.getRawValues()) {
 
             result.put(sensorValue.getCoordinate(),
@@ -984,8 +1426,8 @@ public class ManualQCData extends PlotPageData {
         for (Map.Entry<Coordinate, Measurement> measurement : measurements
           .entrySet()) {
 
-          if (dataReduction.containsKey(measurement.getValue().getId())) {
-            DataReductionRecord record = dataReduction
+          if (getDataReduction().containsKey(measurement.getValue().getId())) {
+            DataReductionRecord record = getDataReduction()
               .get(measurement.getValue().getId()).get(variable);
             if (null != record) {
               result.put(measurement.getKey(),
@@ -1000,6 +1442,84 @@ public class ManualQCData extends PlotPageData {
     return result;
   }
 
+  /**
+   * Sensor values and diagnostic values are looked up individually. All other
+   * columns use the default implementation.
+   */
+  @Override
+  protected TreeMap<Coordinate, PlotPageTableValue> getColumnValues(
+    PlotPageColumnHeading column, Collection<Coordinate> coordinates)
+    throws Exception {
+
+    TreeMap<Coordinate, PlotPageTableValue> result;
+
+    if (column.getId() == FileDefinition.TIME_COLUMN_ID) {
+      result = new TreeMap<Coordinate, PlotPageTableValue>();
+      for (Coordinate coordinate : coordinates) {
+        result.put(coordinate, new SimplePlotPageTableValue(coordinate,
+          sensorValues.getFlagScheme()));
+      }
+    } else if (instrument.getSensorAssignments().getSensorColumnIds()
+      .contains(column.getId())
+      || instrument.getSensorAssignments().getDiagnosticColumnIds()
+        .contains(column.getId())) {
+
+      result = new TreeMap<Coordinate, PlotPageTableValue>();
+
+      SensorType sensorType = instrument.getSensorAssignments()
+        .getSensorTypeForDBColumn(column.getId());
+      boolean useAllValues = useAllValues(sensorType);
+
+      for (Coordinate coordinate : coordinates) {
+        SensorValue sensorValue = sensorValues
+          .getRawSensorValue(column.getId(), coordinate);
+
+        if (null != sensorValue) {
+          boolean useValue = useAllValues;
+
+          if (!useValue) {
+            Measurement concurrentMeasurement = getConcurrentMeasurement(
+              coordinate);
+            useValue = null != concurrentMeasurement
+              && isMeasurementForAnyVariable(concurrentMeasurement);
+          }
+
+          if (useValue) {
+            result.put(coordinate,
+              new SensorValuePlotPageTableValue(sensorValue));
+          }
+        }
+      }
+    } else {
+      result = super.getColumnValues(column, coordinates);
+    }
+
+    return result;
+  }
+
+  /**
+   * Determine whether all the values for a {@link SensorType} are shown in
+   * plots, or only those taken during measurements.
+   *
+   * @param sensorType
+   *          The sensor type.
+   * @return {@code true} if all values are shown; {@code false} if only values
+   *         taken during measurements are shown.
+   */
+  private boolean useAllValues(SensorType sensorType) {
+    // For some reason doing this in a single if statement didn't work.
+    // ¯\_(ツ)_/¯
+    boolean useAllValues = true;
+    if (isCoreSensorType(sensorType)) {
+      useAllValues = false;
+    }
+    if (sensorType.hasInternalCalibration()) {
+      useAllValues = false;
+    }
+
+    return useAllValues;
+  }
+
   @Override
   protected PlotPageColumnHeading getDefaultYAxis1() throws Exception {
     // The first sensor
@@ -1112,8 +1632,8 @@ public class ManualQCData extends PlotPageData {
 
         Measurement measurement = measurements.get(coordinate);
         if (null != measurement) {
-          if (dataReduction.containsKey(measurement.getId())) {
-            DataReductionRecord record = dataReduction.get(measurement.getId())
+          if (getDataReduction().containsKey(measurement.getId())) {
+            DataReductionRecord record = getDataReduction().get(measurement.getId())
               .get(variable);
             if (null != record) {
               result = new DataReductionRecordPlotPageTableValue(record,
@@ -1139,7 +1659,7 @@ public class ManualQCData extends PlotPageData {
     Measurement measurement = measurements.get(coordinates.get(rowId));
 
     if (null != measurement) {
-      Map<Variable, ReadOnlyDataReductionRecord> rowRecords = dataReduction
+      Map<Variable, ReadOnlyDataReductionRecord> rowRecords = getDataReduction()
         .get(measurement.getId());
       if (null != rowRecords) {
         result = rowRecords.get(variable);
@@ -1313,4 +1833,25 @@ public class ManualQCData extends PlotPageData {
 
     return result;
   }
+
+  /**
+   * A database query run by {@link ManualQCData#loadAsync(DataQuery)}.
+   *
+   * @param <T>
+   *          The type of the query result.
+   */
+  @FunctionalInterface
+  private interface DataQuery<T> {
+
+    /**
+     * Run the query.
+     *
+     * @param conn
+     *          A database connection.
+     * @return The query result.
+     * @throws Exception
+     *           If the query fails.
+     */
+    T run(Connection conn) throws Exception;
+  }
 }
@@ -0,0 +1,429 @@
+package uk.ac.exeter.QuinCe.web.datasets.plotPage.ManualQC;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import uk.ac.exeter.QuinCe.data.Dataset.Coordinate;
+import uk.ac.exeter.QuinCe.data.Dataset.DataSet;
+import uk.ac.exeter.QuinCe.data.Dataset.DatasetSensorValues;
+import uk.ac.exeter.QuinCe.data.Dataset.Measurement;
+import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.ReadOnlyDataReductionRecord;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.Variable;
+
+/**
+ * Process-wide cache of the data loaded for the QC pages, shared between all
+ * the users viewing the same {@link DataSet}.
+ *
+ * <p>
+ * Each dataset's data can be several gigabytes in size, so loading a separate
+ * copy for each user session is very expensive. Instead, each
+ * {@link ManualQCData} object acquires an {@link Entry} from this cache and
+ * releases it when it is finished with. Entries are identified by a key (which
+ * must start with the dataset's database ID followed by {@code |}) and a
+ * version, which must change whenever the dataset is reprocessed. Requesting a
+ * key with a new version replaces the cached entry, although users already
+ * holding the old entry continue to use it.
+ * </p>
+ *
+ * <p>
+ * Each entry counts the number of users holding it. Entries that are no longer
+ * held by any users are removed by {@link #evictIdle()} once they have been
+ * unused for {@link #IDLE_TIMEOUT} milliseconds, so users opening the same
+ * dataset shortly after each other can still share the data.
+ * </p>
+ *
+ * <p>
+ * The cached data must not be modified while it is shared. Users who want to
+ * change the data (i.e. set QC flags) must first call {@link #detach(Entry)},
+ * and then work on their own copy of the data.
+ * </p>
+ */
+public class ManualQCDataCache {
+
+  /**
+   * The time (in milliseconds) that an entry can remain in the cache after its
+   * last user releases it.
+   */
+  protected static final long IDLE_TIMEOUT = 600000L;
+
+  /**
+   * The cached entries.
+   */
+  private static final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private ManualQCDataCache() {
+  }
+
+  /**
+   * Acquire the data for the specified key and version, loading it if it is
+   * not in the cache.
+   *
+   * <p>
+   * If another user is already loading the data, this method waits until the
+   * load is complete. Every successful call must be matched by a call to
+   * {@link #release(Entry)} or {@link #detach(Entry)}.
+   * </p>
+   *
+   * @param key
+   *          The entry key.
+   * @param version
+   *          The version of the dataset's data.
+   * @param loader
+   *          Loads the data if it is not in the cache.
+   * @return The cache entry.
+   * @throws Exception
+   *           If the data cannot be loaded.
+   */
+  public static Entry acquire(String key, String version,
+    Callable<DatasetData> loader) throws Exception {
+
+    Entry entry;
+    boolean load = false;
+
+    synchronized (entries) {
+      entry = entries.get(key);
+      if (null == entry || !entry.version.equals(version)) {
+        entry = new Entry(key, version);
+        entries.put(key, entry);
+        load = true;
+      }
+
+      entry.refCount++;
+    }
+
+    if (load) {
+      try {
+        DatasetData loaded = loader.call();
+
+        // Don't share data whose data reduction failed to load
+        final Entry loadedEntry = entry;
+        loaded.dataReduction.whenComplete((r, e) -> {
+          if (null != e) {
+            synchronized (entries) {
+              entries.remove(key, loadedEntry);
+            }
+          }
+        });
+
+        entry.data.complete(loaded);
+      } catch (Exception e) {
+        entry.data.completeExceptionally(e);
+      }
+    }
+
+    try {
+      entry.data.get();
+    } catch (ExecutionException e) {
+      synchronized (entries) {
+        entry.refCount--;
+        entries.remove(key, entry);
+      }
+
+      throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+    }
+
+    return entry;
+  }
+
+  /**
+   * Release an entry acquired from {@link #acquire(String, String, Callable)}.
+   *
+   * @param entry
+   *          The entry.
+   */
+  public static void release(Entry entry) {
+    synchronized (entries) {
+      if (entry.refCount > 0) {
+        entry.refCount--;
+      }
+      entry.lastUsed = System.currentTimeMillis();
+    }
+  }
+
+  /**
+   * Release an entry before its data is modified.
+   *
+   * <p>
+   * All the entries for the same dataset are removed from the cache, since the
+   * data they contain will no longer match the database. If the caller was the
+   * only user of the entry, it can continue to use the entry's data as its own
+   * and modify it freely. Otherwise other users are still reading the data, so
+   * the caller must load its own copy before making any changes.
+   * </p>
+   *
+   * @param entry
+   *          The entry.
+   * @return {@code true} if the caller was the only user of the entry;
+   *         {@code false} if other users are still using it.
+   */
+  public static boolean detach(Entry entry) {
+    synchronized (entries) {
+      String prefix = entry.key.substring(0, entry.key.indexOf('|') + 1);
+      entries.keySet().removeIf(k -> k.startsWith(prefix));
+
+      boolean owner = entry.refCount <= 1;
+      if (entry.refCount > 0) {
+        entry.refCount--;
+      }
+
+      return owner;
+    }
+  }
+
+  /**
+   * Remove all entries that have not been used by anyone for
+   * {@link #IDLE_TIMEOUT} milliseconds.
+   */
+  public static void evictIdle() {
+    evictIdle(IDLE_TIMEOUT);
+  }
+
+  /**
+   * Remove all entries that have not been used by anyone for the specified
+   * time.
+   *
+   * @param timeout
+   *          The idle time in milliseconds.
+   */
+  protected static void evictIdle(long timeout) {
+    long cutoff = System.currentTimeMillis() - timeout;
+
+    synchronized (entries) {
+      entries.values()
+        .removeIf(e -> e.refCount == 0 && e.lastUsed <= cutoff);
+    }
+  }
+
+  /**
+   * Get the number of entries in the cache.
+   *
+   * @return The number of entries.
+   */
+  protected static int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  /**
+   * Remove all entries from the cache.
+   */
+  protected static void clear() {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+
+  /**
+   * A single cache entry.
+   */
+  public static class Entry {
+
+    /**
+     * The entry key.
+     */
+    private final String key;
+
+    /**
+     * The version of the dataset's data.
+     */
+    private final String version;
+
+    /**
+     * The data. This is completed once the data has been loaded.
+     */
+    private final CompletableFuture<DatasetData> data = new CompletableFuture<DatasetData>();
+
+    /**
+     * The number of users holding the entry.
+     */
+    private int refCount = 0;
+
+    /**
+     * The time that the entry was last released.
+     */
+    private long lastUsed = System.currentTimeMillis();
+
+    /**
+     * Create an empty entry.
+     *
+     * @param key
+     *          The entry key.
+     * @param version
+     *          The version of the dataset's data.
+     */
+    private Entry(String key, String version) {
+      this.key = key;
+      this.version = version;
+    }
+
+    /**
+     * Get the entry's data.
+     *
+     * @return The data.
+     */
+    public DatasetData getData() {
+      return data.join();
+    }
+
+    /**
+     * Get the number of users holding the entry.
+     *
+     * @return The number of users.
+     */
+    protected int getRefCount() {
+      synchronized (entries) {
+        return refCount;
+      }
+    }
+  }
+
+  /**
+   * The data loaded for a dataset.
+   *
+   * <p>
+   * The data reduction values may still be loading when the object is
+   * created. Until they are loaded, {@link #getDataReduction()} returns an
+   * empty map.
+   * </p>
+   */
+  public static class DatasetData {
+
+    /**
+     * The dataset's sensor values.
+     */
+    private final DatasetSensorValues sensorValues;
+
+    /**
+     * The dataset's measurements.
+     */
+    private final TreeMap<Coordinate, Measurement> measurements;
+
+    /**
+     * The values calculated by data reduction. This is completed once the
+     * values have been loaded.
+     */
+    private final CompletableFuture<Map<Long, Map<Variable, ReadOnlyDataReductionRecord>>> dataReduction;
+
+    /**
+     * Create the data object with all its data loaded.
+     *
+     * @param sensorValues
+     *          The sensor values.
+     * @param measurements
+     *          The measurements. May be {@code null}.
+     * @param dataReduction
+     *          The data reduction values. May be {@code null}.
+     */
+    public DatasetData(DatasetSensorValues sensorValues,
+      TreeMap<Coordinate, Measurement> measurements,
+      Map<Long, Map<Variable, ReadOnlyDataReductionRecord>> dataReduction) {
+      this(sensorValues, measurements,
+        CompletableFuture.completedFuture(dataReduction));
+    }
+
+    /**
+     * Create the data object while the data reduction values are still being
+     * loaded.
+     *
+     * @param sensorValues
+     *          The sensor values.
+     * @param measurements
+     *          The measurements. May be {@code null}.
+     * @param dataReduction
+     *          Completed with the data reduction values once they are loaded.
+     */
+    public DatasetData(DatasetSensorValues sensorValues,
+      TreeMap<Coordinate, Measurement> measurements,
+      CompletableFuture<Map<Long, Map<Variable, ReadOnlyDataReductionRecord>>> dataReduction) {
+      this.sensorValues = sensorValues;
+      this.measurements = measurements;
+      this.dataReduction = dataReduction;
+    }
+
+    /**
+     * Get the dataset's sensor values.
+     *
+     * @return The sensor values.
+     */
+    public DatasetSensorValues getSensorValues() {
+      return sensorValues;
+    }
+
+    /**
+     * Create a copy of this object with a different set of sensor values. The
+     * measurements and data reduction values are shared with this object.
+     *
+     * @param sensorValues
+     *          The sensor values.
+     * @return The new object.
+     */
+    public DatasetData withSensorValues(DatasetSensorValues sensorValues) {
+      return new DatasetData(sensorValues, measurements, dataReduction);
+    }
+
+    /**
+     * Get the dataset's measurements.
+     *
+     * @return The measurements.
+     */
+    public TreeMap<Coordinate, Measurement> getMeasurements() {
+      return measurements;
+    }
+
+    /**
+     * Get the values calculated by data reduction. If they have not been
+     * loaded yet (or failed to load), an empty map is returned.
+     *
+     * @return The data reduction values.
+     */
+    public Map<Long, Map<Variable, ReadOnlyDataReductionRecord>> getDataReduction() {
+      Map<Long, Map<Variable, ReadOnlyDataReductionRecord>> result = null;
+
+      if (dataReduction.isDone() && !dataReduction.isCompletedExceptionally()) {
+        result = dataReduction.join();
+      }
+
+      return null == result
+        ? Collections.<Long, Map<Variable, ReadOnlyDataReductionRecord>> emptyMap()
+        : result;
+    }
+
+    /**
+     * Determine whether or not the data reduction values have finished
+     * loading. This also returns {@code true} if the load failed.
+     *
+     * @return {@code true} if the load has finished; {@code false} if it is
+     *         still in progress.
+     */
+    public boolean isDataReductionLoaded() {
+      return dataReduction.isDone();
+    }
+
+    /**
+     * Wait for the data reduction values to be loaded.
+     *
+     * @return The data reduction values.
+     * @throws Exception
+     *           If the data reduction values could not be loaded.
+     */
+    public Map<Long, Map<Variable, ReadOnlyDataReductionRecord>> awaitDataReduction()
+      throws Exception {
+      try {
+        dataReduction.get();
+      } catch (ExecutionException e) {
+        throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+      }
+
+      return getDataReduction();
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package uk.ac.exeter.QuinCe.web.datasets.plotPage.ManualQC;
+
+import javax.servlet.annotation.WebListener;
+
+import uk.ac.exeter.QuinCe.utils.BackgroundTask;
+import uk.ac.exeter.QuinCe.utils.BackgroundTaskException;
+
+/**
+ * Background task to remove unused datasets from the
+ * {@link ManualQCDataCache}.
+ *
+ * <p>
+ * The task will run once per minute.
+ * </p>
+ *
+ * @see ManualQCDataCache#evictIdle()
+ */
+@WebListener
+public class ManualQCDataCacheTidier extends BackgroundTask {
+
+  @Override
+  protected void doTask() throws BackgroundTaskException {
+    ManualQCDataCache.evictIdle();
+  }
+
+  @Override
+  protected long getRunInterval() {
+    return 60;
+  }
+}
@@ -56,6 +56,12 @@ public class TimeManualQualityControlBean extends PlotPageBean {
         DataSet.STATUS_WAITING);
       Properties jobProperties = new Properties();
       jobProperties.put(DataSetJob.ID_PARAM, String.valueOf(datasetId));
+
+      // Only the data around the user's changes needs to be reprocessed
+      if (null != data) {
+        DataSetJob.setDirtyWindow(jobProperties, data.getChangedRange());
+      }
+
       JobManager.addJob(getDataSource(), getUser(),
         AutoQCJob.class.getCanonicalName(), jobProperties);
     } catch (Exception e) {
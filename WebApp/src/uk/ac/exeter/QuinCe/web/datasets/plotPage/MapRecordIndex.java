@@ -0,0 +1,247 @@
+package uk.ac.exeter.QuinCe.web.datasets.plotPage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import uk.ac.exeter.QuinCe.data.Dataset.GeoBounds;
+
+/**
+ * A grid-based spatial index of a list of {@link MapRecord}s, used to quickly
+ * find the records within a map view.
+ *
+ * <p>
+ * The extent of the records is divided into a grid of cells, and each cell
+ * holds the list indices of the records whose positions fall inside it. A
+ * query only examines the records in the cells that overlap the requested
+ * bounds, so its cost depends on the number of visible records rather than
+ * the total number of records.
+ * </p>
+ *
+ * <p>
+ * The index is not updated if the list of records changes; a new index must
+ * be built.
+ * </p>
+ */
+class MapRecordIndex {
+
+  /**
+   * The average number of records per grid cell that the index aims for.
+   */
+  private static final int TARGET_CELL_SIZE = 16;
+
+  /**
+   * The maximum number of cells along each side of the grid.
+   */
+  private static final int MAX_CELLS = 1024;
+
+  /**
+   * The indexed records.
+   */
+  private final List<MapRecord> records;
+
+  /**
+   * The minimum longitude of the grid.
+   */
+  private double minLon;
+
+  /**
+   * The minimum latitude of the grid.
+   */
+  private double minLat;
+
+  /**
+   * The width of each cell in degrees of longitude.
+   */
+  private double cellWidth;
+
+  /**
+   * The height of each cell in degrees of latitude.
+   */
+  private double cellHeight;
+
+  /**
+   * The number of cells along each side of the grid.
+   */
+  private int gridSize;
+
+  /**
+   * The list indices of the records in each cell, in ascending order. Cells
+   * are stored row by row.
+   */
+  private int[][] cells;
+
+  /**
+   * Build the index for a list of records.
+   *
+   * @param records
+   *          The records.
+   */
+  protected MapRecordIndex(List<MapRecord> records) {
+    this.records = records;
+    build();
+  }
+
+  /**
+   * Build the index.
+   */
+  private void build() {
+    minLon = Double.MAX_VALUE;
+    double maxLon = -Double.MAX_VALUE;
+    minLat = Double.MAX_VALUE;
+    double maxLat = -Double.MAX_VALUE;
+
+    int positionCount = 0;
+
+    for (MapRecord record : records) {
+      if (null != record.position) {
+        positionCount++;
+        minLon = Math.min(minLon, record.position.getLongitude());
+        maxLon = Math.max(maxLon, record.position.getLongitude());
+        minLat = Math.min(minLat, record.position.getLatitude());
+        maxLat = Math.max(maxLat, record.position.getLatitude());
+      }
+    }
+
+    if (positionCount == 0) {
+      gridSize = 0;
+      cells = new int[0][];
+    } else {
+      gridSize = Math.min(MAX_CELLS, Math.max(1,
+        (int) Math.ceil(Math.sqrt((double) positionCount / TARGET_CELL_SIZE))));
+
+      // Make sure the maximum values fall inside the last cell
+      cellWidth = Math.nextUp((maxLon - minLon) / gridSize);
+      cellHeight = Math.nextUp((maxLat - minLat) / gridSize);
+      if (cellWidth == 0D) {
+        cellWidth = 1D;
+      }
+      if (cellHeight == 0D) {
+        cellHeight = 1D;
+      }
+
+      // Count the records in each cell so we can size the arrays exactly
+      int[] cellCounts = new int[gridSize * gridSize];
+      int[] recordCells = new int[records.size()];
+
+      for (int i = 0; i < records.size(); i++) {
+        MapRecord record = records.get(i);
+        if (null == record.position) {
+          recordCells[i] = -1;
+        } else {
+          int cell = getCell(getColumn(record.position.getLongitude()),
+            getRow(record.position.getLatitude()));
+          recordCells[i] = cell;
+          cellCounts[cell]++;
+        }
+      }
+
+      cells = new int[cellCounts.length][];
+      for (int i = 0; i < cellCounts.length; i++) {
+        cells[i] = new int[cellCounts[i]];
+      }
+
+      int[] filled = new int[cellCounts.length];
+      for (int i = 0; i < recordCells.length; i++) {
+        int cell = recordCells[i];
+        if (cell >= 0) {
+          cells[cell][filled[cell]] = i;
+          filled[cell]++;
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the records whose positions are within the specified bounds, as
+   * defined by {@link GeoBounds#inBounds(com.javadocmd.simplelatlng.LatLng)}.
+   * The records are returned in the same order as the indexed list.
+   *
+   * @param bounds
+   *          The bounds.
+   * @return The records within the bounds.
+   */
+  protected List<MapRecord> getRecords(GeoBounds bounds) {
+
+    List<MapRecord> result = new ArrayList<MapRecord>();
+
+    if (gridSize > 0 && bounds.getMaxLon() >= minLon
+      && bounds.getMaxLat() >= minLat) {
+
+      int minColumn = getColumn(bounds.getMinLon());
+      int maxColumn = getColumn(bounds.getMaxLon());
+      int minRow = getRow(bounds.getMinLat());
+      int maxRow = getRow(bounds.getMaxLat());
+
+      int foundCount = 0;
+      int[] found = new int[TARGET_CELL_SIZE];
+
+      for (int row = minRow; row <= maxRow; row++) {
+        for (int column = minColumn; column <= maxColumn; column++) {
+          for (int index : cells[getCell(column, row)]) {
+            if (bounds.inBounds(records.get(index).position)) {
+              if (foundCount == found.length) {
+                found = Arrays.copyOf(found, found.length * 2);
+              }
+              found[foundCount] = index;
+              foundCount++;
+            }
+          }
+        }
+      }
+
+      Arrays.sort(found, 0, foundCount);
+      for (int i = 0; i < foundCount; i++) {
+        result.add(records.get(found[i]));
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the grid column for a longitude, limited to the extent of the grid.
+   *
+   * @param lon
+   *          The longitude.
+   * @return The column.
+   */
+  private int getColumn(double lon) {
+    return clamp((int) Math.floor((lon - minLon) / cellWidth));
+  }
+
+  /**
+   * Get the grid row for a latitude, limited to the extent of the grid.
+   *
+   * @param lat
+   *          The latitude.
+   * @return The row.
+   */
+  private int getRow(double lat) {
+    return clamp((int) Math.floor((lat - minLat) / cellHeight));
+  }
+
+  /**
+   * Limit a column or row number to the extent of the grid.
+   *
+   * @param value
+   *          The column or row number.
+   * @return The limited value.
+   */
+  private int clamp(int value) {
+    return Math.max(0, Math.min(gridSize - 1, value));
+  }
+
+  /**
+   * Get the index of a cell in {@link #cells}.
+   *
+   * @param column
+   *          The cell's column.
+   * @param row
+   *          The cell's row.
+   * @return The cell index.
+   */
+  private int getCell(int column, int row) {
+    return row * gridSize + column;
+  }
+}
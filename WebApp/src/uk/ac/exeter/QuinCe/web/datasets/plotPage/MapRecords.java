@@ -2,8 +2,10 @@ package uk.ac.exeter.QuinCe.web.datasets.plotPage;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.function.Function;
@@ -17,14 +19,28 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
+import uk.ac.exeter.QuinCe.data.Dataset.Coordinate;
 import uk.ac.exeter.QuinCe.data.Dataset.DatasetSensorValues;
 import uk.ac.exeter.QuinCe.data.Dataset.GeoBounds;
 
 @SuppressWarnings("serial")
 public class MapRecords extends ArrayList<MapRecord> {
 
+  /**
+   * The maximum number of records in a map view that will be displayed
+   * without being clustered.
+   */
   private static final int DECIMATION_LIMIT = 1000;
 
+  /**
+   * The number of cells along each side of the map view used when clustering
+   * records.
+   *
+   * @see #cluster(List, GeoBounds, DatasetSensorValues)
+   */
+  private static final int CLUSTER_GRID_SIZE = (int) Math
+    .sqrt(DECIMATION_LIMIT);
+
   private Gson valueGson;
 
   private Gson flagGson;
@@ -45,6 +61,18 @@ public class MapRecords extends ArrayList<MapRecord> {
 
   private final PlotPageData data;
 
+  /**
+   * Spatial index of the records. Built when first needed, and discarded when
+   * records are added.
+   */
+  private MapRecordIndex index = null;
+
+  /**
+   * The records keyed by row ID. Built when first needed, and discarded when
+   * records are added.
+   */
+  private Map<Long, MapRecord> recordsById = null;
+
   public MapRecords(int size, PlotPageData data,
     Function<Double, String> valueFormatter) {
 
@@ -92,124 +120,318 @@ public class MapRecords extends ArrayList<MapRecord> {
       .create();
   }
 
-  public String getDisplayJson(GeoBounds bounds, List<Long> selectedRows,
-    boolean useNeededFlags, boolean hideNonGoodFlags, String filter,
-    boolean includePath, DatasetSensorValues allSensorValues) {
+  /**
+   * Get the GeoJSON layers to be displayed for a map view.
+   *
+   * <p>
+   * The values and flags layers are assembled from the tiles in
+   * {@link MapTileCache} that cover the view, which are built if they are not
+   * already in the cache. The selection layer and path are built for each
+   * request.
+   * </p>
+   *
+   * @param tileKey
+   *          The key prefix for this set of records in the
+   *          {@link MapTileCache}.
+   * @param bounds
+   *          The map view bounds.
+   * @param selectedRows
+   *          The selected row IDs.
+   * @param useNeededFlags
+   *          Indicates whether values needing flags are shown as flagged.
+   * @param hideNonGoodFlags
+   *          Indicates whether values that are not good are hidden.
+   * @param filter
+   *          The Run Type filter.
+   * @param includePath
+   *          Indicates whether the path of the records is included.
+   * @param allSensorValues
+   *          The sensor values for the dataset.
+   * @return The map layers.
+   */
+  public String getDisplayJson(String tileKey, GeoBounds bounds,
+    List<Long> selectedRows, boolean useNeededFlags, boolean hideNonGoodFlags,
+    String filter, boolean includePath, DatasetSensorValues allSensorValues) {
 
-    Set<MapRecord> boundedRecords = new TreeSet<MapRecord>();
-    List<MapRecord> mapData = new ArrayList<MapRecord>();
-    Set<MapRecord> flags = new TreeSet<MapRecord>();
+    JsonArray valueFeatures = new JsonArray();
+    JsonArray flagFeatures = new JsonArray();
     List<MapRecord> selection = new ArrayList<MapRecord>();
 
     if (size() > 0) {
-      MapRecord minLon = get(0);
-      MapRecord maxLon = get(0);
-      MapRecord minLat = get(0);
-      MapRecord maxLat = get(0);
-
-      // Find the records within the specified bounds, and also record the
-      // records
-      // closest to the bound limits.
-      for (MapRecord record : this) {
-
-        boolean filteredOut = false;
-
-        if (!filter.equals(PlotPageData.NO_FILTER)) {
-          if (data.getInstrument().hasRunTypes()) {
-            if (!data.getRunTypePeriods()
-              .getRunType(record.getCoordinate().getTime(), true)
-              .equals(filter)) {
-              filteredOut = true;
+      Set<Long> tileFlagRows = new HashSet<Long>();
+
+      int zoom = MapTileCache.getZoom(bounds);
+      for (int[] tileNumber : MapTileCache.getTiles(bounds, zoom)) {
+        int x = tileNumber[0];
+        int y = tileNumber[1];
+
+        String key = tileKey + "|" + zoom + "/" + x + "/" + y + "|"
+          + useNeededFlags + "|" + hideNonGoodFlags + "|" + filter;
+
+        MapTileCache.MapTile tile = MapTileCache.getTile(key,
+          () -> buildTile(zoom, x, y, useNeededFlags, hideNonGoodFlags, filter,
+            allSensorValues));
+
+        valueFeatures.addAll(tile.valueFeatures);
+        flagFeatures.addAll(tile.flagFeatures);
+        tileFlagRows.addAll(tile.flagRows);
+      }
+
+      if (selectedRows.size() > 0) {
+        Set<Long> selectedRowSet = new HashSet<Long>(selectedRows);
+
+        for (MapRecord record : getIndex().getRecords(bounds)) {
+          if (selectedRowSet.contains(record.getRowId())
+            && isDisplayed(record, hideNonGoodFlags, filter, allSensorValues)) {
+
+            selection.add(record);
+
+            // Selected flags are shown even if they were decimated away
+            if (showAsFlag(record, useNeededFlags, allSensorValues)
+              && !tileFlagRows.contains(record.getRowId())) {
+              flagFeatures.add(getFlagGson(useNeededFlags).toJsonTree(record));
             }
           }
         }
+      }
+    }
 
-        if (!filteredOut && (!hideNonGoodFlags || record.isGood(allSensorValues)
-          || record.flagNeeded())) {
-          if (bounds.inBounds(record.position)) {
-            if (record.position.getLongitude() < minLon.position
-              .getLongitude()) {
-              minLon = record;
-            } else if (record.position.getLongitude() > maxLon.position
-              .getLongitude()) {
-              maxLon = record;
-            }
+    JsonArray json = new JsonArray();
 
-            if (record.position.getLatitude() < minLat.position.getLatitude()) {
-              minLat = record;
-            } else if (record.position.getLatitude() > maxLat.position
-              .getLatitude()) {
-              maxLat = record;
-            }
+    json.add(makeFeatureCollection(valueFeatures));
+    json.add(makeFeatureCollection(flagFeatures));
+    json.add(selectionGson
+      .toJsonTree(makeFeatureCollection(selectionGson, selection)));
 
-            boundedRecords.add(record);
-          }
-        }
+    if (includePath) {
+      json.add(makeGeoJsonPath());
+    }
+
+    return json.toString();
+  }
+
+  /**
+   * Build the contents of a map tile.
+   *
+   * <p>
+   * The tile contains the records whose positions fall within it that are not
+   * filtered out. If there are more than {@link #DECIMATION_LIMIT} such
+   * records, they are clustered
+   * ({@link #cluster(List, GeoBounds, DatasetSensorValues)}).
+   * </p>
+   *
+   * @param zoom
+   *          The zoom level.
+   * @param x
+   *          The tile's {@code x} number.
+   * @param y
+   *          The tile's {@code y} number.
+   * @param useNeededFlags
+   *          Indicates whether values needing flags are shown as flagged.
+   * @param hideNonGoodFlags
+   *          Indicates whether values that are not good are hidden.
+   * @param filter
+   *          The Run Type filter.
+   * @param allSensorValues
+   *          The sensor values for the dataset.
+   * @return The tile.
+   */
+  private MapTileCache.MapTile buildTile(int zoom, int x, int y,
+    boolean useNeededFlags, boolean hideNonGoodFlags, String filter,
+    DatasetSensorValues allSensorValues) {
+
+    GeoBounds tileBounds = MapTileCache.getTileBounds(zoom, x, y);
+
+    // GeoBounds excludes positions on its edges, so widen the search
+    // slightly and then check each record's tile
+    GeoBounds searchBounds = new GeoBounds(
+      Math.nextDown(tileBounds.getMinLon()),
+      Math.nextUp(tileBounds.getMaxLon()),
+      Math.nextDown(tileBounds.getMinLat()),
+      Math.nextUp(tileBounds.getMaxLat()));
+
+    List<MapRecord> tileRecords = new ArrayList<MapRecord>();
+
+    for (MapRecord record : getIndex().getRecords(searchBounds)) {
+      if (MapTileCache.getTileX(record.position.getLongitude(), zoom) == x
+        && MapTileCache.getTileY(record.position.getLatitude(), zoom) == y
+        && isDisplayed(record, hideNonGoodFlags, filter, allSensorValues)) {
+        tileRecords.add(record);
       }
+    }
 
-      // Decimate the chosen records
-      Set<MapRecord> decimated = new HashSet<MapRecord>();
-      List<MapRecord> selected = new ArrayList<MapRecord>();
-
-      if (boundedRecords.size() <= DECIMATION_LIMIT) {
-        decimated.addAll(boundedRecords);
-        selected = boundedRecords.stream()
-          .filter(r -> selectedRows.contains(r.getRowId())).toList();
-      } else {
-        int nth = (int) Math.floor(boundedRecords.size() / DECIMATION_LIMIT);
-        int count = 0;
-        for (MapRecord record : boundedRecords) {
-          count++;
-
-          if (count % nth == 0 || !record.isGood(allSensorValues)) {
-            decimated.add(record);
-          }
+    Collection<MapRecord> decimated = tileRecords.size() <= DECIMATION_LIMIT
+      ? tileRecords
+      : cluster(tileRecords, tileBounds, allSensorValues);
 
-          if (selectedRows.contains(record.getRowId())) {
-            selected.add(record);
-          }
-        }
+    Gson tileFlagGson = getFlagGson(useNeededFlags);
+
+    JsonArray valueFeatures = new JsonArray();
+    JsonArray flagFeatures = new JsonArray();
+    Set<Long> flagRows = new HashSet<Long>();
+
+    for (MapRecord record : decimated) {
+      valueFeatures.add(valueGson.toJsonTree(record));
+      if (showAsFlag(record, useNeededFlags, allSensorValues)) {
+        flagFeatures.add(tileFlagGson.toJsonTree(record));
+        flagRows.add(record.getRowId());
       }
+    }
+
+    return new MapTileCache.MapTile(valueFeatures, flagFeatures, flagRows);
+  }
+
+  /**
+   * Determine whether a record passes the Run Type filter and flag display
+   * settings.
+   *
+   * @param record
+   *          The record.
+   * @param hideNonGoodFlags
+   *          Indicates whether values that are not good are hidden.
+   * @param filter
+   *          The Run Type filter.
+   * @param allSensorValues
+   *          The sensor values for the dataset.
+   * @return {@code true} if the record should be displayed; {@code false}
+   *         otherwise.
+   */
+  private boolean isDisplayed(MapRecord record, boolean hideNonGoodFlags,
+    String filter, DatasetSensorValues allSensorValues) {
 
-      decimated.add(minLon);
-      decimated.add(maxLon);
-      decimated.add(minLat);
-      decimated.add(maxLat);
+    boolean filteredOut = false;
 
-      for (MapRecord record : decimated) {
-        mapData.add(record);
-        if (showAsFlag(record, useNeededFlags, allSensorValues)) {
-          flags.add(record);
+    if (!filter.equals(PlotPageData.NO_FILTER)) {
+      if (data.getInstrument().hasRunTypes()) {
+        if (!data.getRunTypePeriods()
+          .getRunType(record.getCoordinate().getTime(), true).equals(filter)) {
+          filteredOut = true;
         }
       }
+    }
 
-      for (MapRecord record : selected) {
-        selection.add(record);
-        if (showAsFlag(record, useNeededFlags, allSensorValues)) {
-          flags.add(record);
-        }
+    return !filteredOut && (!hideNonGoodFlags || record.isGood(allSensorValues)
+      || record.flagNeeded());
+  }
+
+  private Gson getFlagGson(boolean useNeededFlags) {
+    return useNeededFlags ? flagGson : flagNrtGson;
+  }
+
+  /**
+   * Reduce the number of records to be displayed by dividing the map view into
+   * a grid of {@link #CLUSTER_GRID_SIZE} x {@link #CLUSTER_GRID_SIZE} cells and
+   * keeping one record from each cell. Records that are not good are always
+   * kept, as are the records closest to each edge of the view.
+   *
+   * <p>
+   * Because the grid is based on the map view, zooming in on the map reveals
+   * more detail.
+   * </p>
+   *
+   * @param records
+   *          The records in the view.
+   * @param bounds
+   *          The map view bounds.
+   * @param allSensorValues
+   *          The sensor values for the dataset.
+   * @return The records to be displayed.
+   */
+  private Set<MapRecord> cluster(List<MapRecord> records, GeoBounds bounds,
+    DatasetSensorValues allSensorValues) {
+
+    Set<MapRecord> result = new TreeSet<MapRecord>();
+
+    double cellWidth = (bounds.getMaxLon() - bounds.getMinLon())
+      / CLUSTER_GRID_SIZE;
+    double cellHeight = (bounds.getMaxLat() - bounds.getMinLat())
+      / CLUSTER_GRID_SIZE;
+
+    boolean[] cellUsed = new boolean[CLUSTER_GRID_SIZE * CLUSTER_GRID_SIZE];
+
+    MapRecord minLon = records.get(0);
+    MapRecord maxLon = records.get(0);
+    MapRecord minLat = records.get(0);
+    MapRecord maxLat = records.get(0);
+
+    for (MapRecord record : records) {
+      double lon = record.position.getLongitude();
+      double lat = record.position.getLatitude();
+
+      int column = Math.min(CLUSTER_GRID_SIZE - 1,
+        (int) ((lon - bounds.getMinLon()) / cellWidth));
+      int row = Math.min(CLUSTER_GRID_SIZE - 1,
+        (int) ((lat - bounds.getMinLat()) / cellHeight));
+      int cell = row * CLUSTER_GRID_SIZE + column;
+
+      if (!cellUsed[cell]) {
+        result.add(record);
+        cellUsed[cell] = true;
+      } else if (!record.isGood(allSensorValues)) {
+        result.add(record);
+      }
+
+      if (lon < minLon.position.getLongitude()) {
+        minLon = record;
+      } else if (lon > maxLon.position.getLongitude()) {
+        maxLon = record;
+      }
+
+      if (lat < minLat.position.getLatitude()) {
+        minLat = record;
+      } else if (lat > maxLat.position.getLatitude()) {
+        maxLat = record;
       }
     }
 
-    JsonArray json = new JsonArray();
+    result.add(minLon);
+    result.add(maxLon);
+    result.add(minLat);
+    result.add(maxLat);
 
-    json.add(valueGson.toJsonTree(makeFeatureCollection(valueGson, mapData)));
+    return result;
+  }
 
-    if (useNeededFlags) {
-      json.add(flagGson.toJsonTree(makeFeatureCollection(flagGson, flags)));
-    } else {
-      json
-        .add(flagNrtGson.toJsonTree(makeFeatureCollection(flagNrtGson, flags)));
+  /**
+   * Get the spatial index of the records, building it if necessary.
+   *
+   * @return The spatial index.
+   */
+  private MapRecordIndex getIndex() {
+    if (null == index) {
+      index = new MapRecordIndex(this);
     }
 
-    json.add(selectionGson
-      .toJsonTree(makeFeatureCollection(selectionGson, selection)));
+    return index;
+  }
 
-    if (includePath) {
-      json.add(makeGeoJsonPath());
+  /**
+   * Replace the values of the records for the specified coordinates after
+   * their QC flags have changed. The cached value range is recalculated when
+   * it is next needed.
+   *
+   * <p>
+   * Records whose values are not held as {@link PlotPageTableValue}s always
+   * reflect the current QC flags, so they are left unchanged.
+   * </p>
+   *
+   * @param values
+   *          The new values.
+   */
+  protected void updateValues(Map<Coordinate, PlotPageTableValue> values) {
+    if (values.size() > 0 && null == recordsById) {
+      recordsById = new HashMap<Long, MapRecord>(size());
+      forEach(r -> recordsById.put(r.getRowId(), r));
     }
 
-    return json.toString();
+    for (Map.Entry<Coordinate, PlotPageTableValue> entry : values.entrySet()) {
+      MapRecord record = recordsById.get(entry.getKey().getId());
+      if (record instanceof PlotPageValueMapRecord) {
+        ((PlotPageValueMapRecord) record).setValue(entry.getValue());
+      }
+    }
+
+    resetRange();
   }
 
   private JsonElement makeGeoJsonPath() {
@@ -242,6 +464,13 @@ public class MapRecords extends ArrayList<MapRecord> {
       || !record.isGood(allSensorValues);
   }
 
+  private JsonObject makeFeatureCollection(JsonArray features) {
+    JsonObject object = new JsonObject();
+    object.addProperty("type", "FeatureCollection");
+    object.add("features", features);
+    return object;
+  }
+
   private JsonObject makeFeatureCollection(Gson gson,
     Collection<MapRecord> points) {
     JsonObject object = new JsonObject();
@@ -388,6 +617,8 @@ public class MapRecords extends ArrayList<MapRecord> {
   @Override
   public boolean add(MapRecord record) {
     resetRange();
+    index = null;
+    recordsById = null;
     boolean result;
 
     // Don't add NaN values
@@ -0,0 +1,281 @@
+package uk.ac.exeter.QuinCe.web.datasets.plotPage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import com.google.gson.JsonArray;
+
+import uk.ac.exeter.QuinCe.data.Dataset.GeoBounds;
+
+/**
+ * Process-wide cache of map tiles for the QC page maps.
+ *
+ * <p>
+ * The world is divided into a pyramid of square longitude/latitude tiles. At
+ * zoom level {@code z} each tile is {@code 360 / 2^z} degrees wide and high,
+ * and tiles are numbered from the south-west corner of the world
+ * ({@code -180, -90}). Each tile holds the GeoJSON features for the
+ * {@link MapRecord}s that fall inside it, built once and then shared by all
+ * users viewing the same data.
+ * </p>
+ *
+ * <p>
+ * Keys are built by the caller, but must start with the dataset's database ID
+ * followed by {@code |} so that {@link #invalidate(long)} can find them. The
+ * cache holds the most recently used {@link #CACHE_SIZE} tiles.
+ * </p>
+ *
+ * <p>
+ * Each dataset has a generation number, which is incremented whenever its QC
+ * flags are changed. Users who loaded the dataset's data before the change
+ * keep their original generation, so tiles built from their copy of the data
+ * are never shown to users who have seen the change.
+ * </p>
+ */
+class MapTileCache {
+
+  /**
+   * The maximum number of tiles held in the cache.
+   */
+  private static final int CACHE_SIZE = 5000;
+
+  /**
+   * The highest zoom level used.
+   */
+  private static final int MAX_ZOOM = 24;
+
+  /**
+   * The cached tiles.
+   */
+  @SuppressWarnings("serial")
+  private static final Map<String, MapTile> tiles = Collections
+    .synchronizedMap(new LinkedHashMap<String, MapTile>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, MapTile> eldest) {
+        return size() > CACHE_SIZE;
+      }
+    });
+
+  /**
+   * The current generation of each dataset's data.
+   */
+  private static final Map<Long, Long> generations = new ConcurrentHashMap<Long, Long>();
+
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private MapTileCache() {
+  }
+
+  /**
+   * Get a tile from the cache, building and storing it if it is not present.
+   *
+   * @param key
+   *          The tile key.
+   * @param builder
+   *          Builds the tile if it is not in the cache.
+   * @return The tile.
+   */
+  protected static MapTile getTile(String key, Supplier<MapTile> builder) {
+    MapTile tile = tiles.get(key);
+
+    if (null == tile) {
+      tile = builder.get();
+      tiles.put(key, tile);
+    }
+
+    return tile;
+  }
+
+  /**
+   * Get the current generation of a dataset's data.
+   *
+   * @param datasetId
+   *          The dataset's database ID.
+   * @return The generation.
+   */
+  protected static long getGeneration(long datasetId) {
+    return generations.getOrDefault(datasetId, 0L);
+  }
+
+  /**
+   * Remove all the tiles for a dataset and increment its generation. This
+   * must be called whenever the dataset's QC flags are changed.
+   *
+   * @param datasetId
+   *          The dataset's database ID.
+   * @return The new generation of the dataset's data.
+   */
+  protected static long invalidate(long datasetId) {
+    long generation = generations.merge(datasetId, 1L, Long::sum);
+
+    String prefix = datasetId + "|";
+    synchronized (tiles) {
+      tiles.keySet().removeIf(k -> k.startsWith(prefix));
+    }
+
+    return generation;
+  }
+
+  /**
+   * Remove all tiles from the cache.
+   */
+  protected static void clear() {
+    tiles.clear();
+  }
+
+  /**
+   * Get the zoom level to use for a map view. The tiles at this level are at
+   * least as large as the view, so it is covered by no more than two tiles in
+   * each direction.
+   *
+   * @param bounds
+   *          The map view.
+   * @return The zoom level.
+   */
+  protected static int getZoom(GeoBounds bounds) {
+    double span = Math.max(bounds.getMaxLon() - bounds.getMinLon(),
+      bounds.getMaxLat() - bounds.getMinLat());
+
+    int zoom = MAX_ZOOM;
+    if (span > 0D) {
+      zoom = (int) Math.floor(Math.log(360D / span) / Math.log(2D));
+    }
+
+    return Math.max(0, Math.min(MAX_ZOOM, zoom));
+  }
+
+  /**
+   * Get the {@code x} and {@code y} numbers of the tiles that overlap a map
+   * view at the specified zoom level.
+   *
+   * @param bounds
+   *          The map view.
+   * @param zoom
+   *          The zoom level.
+   * @return The tile numbers.
+   */
+  protected static List<int[]> getTiles(GeoBounds bounds, int zoom) {
+    List<int[]> result = new ArrayList<int[]>();
+
+    int minX = getTileX(bounds.getMinLon(), zoom);
+    int maxX = getTileX(bounds.getMaxLon(), zoom);
+    int minY = getTileY(bounds.getMinLat(), zoom);
+    int maxY = getTileY(bounds.getMaxLat(), zoom);
+
+    for (int y = minY; y <= maxY; y++) {
+      for (int x = minX; x <= maxX; x++) {
+        result.add(new int[] { x, y });
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the {@code x} number of the tile containing a longitude.
+   *
+   * @param lon
+   *          The longitude.
+   * @param zoom
+   *          The zoom level.
+   * @return The tile number.
+   */
+  protected static int getTileX(double lon, int zoom) {
+    return clamp((int) Math.floor((lon + 180D) / getTileSize(zoom)),
+      1 << zoom);
+  }
+
+  /**
+   * Get the {@code y} number of the tile containing a latitude.
+   *
+   * @param lat
+   *          The latitude.
+   * @param zoom
+   *          The zoom level.
+   * @return The tile number.
+   */
+  protected static int getTileY(double lat, int zoom) {
+    return clamp((int) Math.floor((lat + 90D) / getTileSize(zoom)),
+      Math.max(1, 1 << (zoom - 1)));
+  }
+
+  /**
+   * Get the bounds of a tile.
+   *
+   * @param zoom
+   *          The zoom level.
+   * @param x
+   *          The tile's {@code x} number.
+   * @param y
+   *          The tile's {@code y} number.
+   * @return The tile bounds.
+   */
+  protected static GeoBounds getTileBounds(int zoom, int x, int y) {
+    double size = getTileSize(zoom);
+    return new GeoBounds(x * size - 180D, (x + 1) * size - 180D,
+      y * size - 90D, (y + 1) * size - 90D);
+  }
+
+  /**
+   * Get the width and height of the tiles at a zoom level in degrees.
+   *
+   * @param zoom
+   *          The zoom level.
+   * @return The tile size.
+   */
+  private static double getTileSize(int zoom) {
+    return 360D / (1 << zoom);
+  }
+
+  /**
+   * Limit a tile number to the range of tiles at a zoom level.
+   *
+   * @param value
+   *          The tile number.
+   * @param count
+   *          The number of tiles in that direction.
+   * @return The limited value.
+   */
+  private static int clamp(int value, int count) {
+    return Math.max(0, Math.min(count - 1, value));
+  }
+
+  /**
+   * The prebuilt contents of a single map tile.
+   *
+   * <p>
+   * The feature arrays are shared between requests and must not be modified.
+   * </p>
+   */
+  protected static class MapTile {
+
+    /**
+     * The GeoJSON features for the values layer.
+     */
+    protected final JsonArray valueFeatures;
+
+    /**
+     * The GeoJSON features for the flags layer.
+     */
+    protected final JsonArray flagFeatures;
+
+    /**
+     * The row IDs of the records in the flags layer.
+     */
+    protected final Set<Long> flagRows;
+
+    protected MapTile(JsonArray valueFeatures, JsonArray flagFeatures,
+      Set<Long> flagRows) {
+      this.valueFeatures = valueFeatures;
+      this.flagFeatures = flagFeatures;
+      this.flagRows = flagRows;
+    }
+  }
+}
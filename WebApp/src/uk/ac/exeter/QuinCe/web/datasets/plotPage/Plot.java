@@ -2,12 +2,15 @@ package uk.ac.exeter.QuinCe.web.datasets.plotPage;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
@@ -29,6 +32,14 @@ public class Plot {
    */
   private static Gson Y2_GSON;
 
+  /**
+   * The number of points per pixel of plot width that are sent to the front
+   * end when the plot data is decimated.
+   *
+   * @see #setViewWidth(int)
+   */
+  private static final int POINTS_PER_PIXEL = 2;
+
   /**
    * The source data for the plot
    */
@@ -79,6 +90,37 @@ public class Plot {
    */
   private String filter = PlotPageData.NO_FILTER;
 
+  /**
+   * The width of the plot on the front end in pixels. If this is zero, the
+   * plot data is not decimated.
+   */
+  private int viewWidth = 0;
+
+  /**
+   * The minimum X value currently visible on the front end, or {@code null} if
+   * the plot is not zoomed.
+   */
+  private Double viewXMin = null;
+
+  /**
+   * The maximum X value currently visible on the front end, or {@code null} if
+   * the plot is not zoomed.
+   */
+  private Double viewXMax = null;
+
+  /**
+   * The bounds of the rectangle used for selecting points on the front end:
+   * min X, max X, min Y, max Y.
+   *
+   * @see #selectRect()
+   */
+  private Double[] selectRect = new Double[4];
+
+  /**
+   * The IDs of the points found by {@link #selectRect()}.
+   */
+  private List<Long> rectSelection = new ArrayList<Long>();
+
   static {
     Y2_GSON = new GsonBuilder()
       .registerTypeAdapter(PlotValue.class, new Y2AxisPlotValueSerializer())
@@ -173,12 +215,8 @@ public class Plot {
       Gson gson = new GsonBuilder().registerTypeAdapter(PlotValue.class,
         new MainPlotValueSerializer(null != y2Axis)).create();
 
-      result = gson.toJson(getPlotValues().stream()
-        .filter(f -> !f.xNull() && !hideFlags ? true
-          : (null == f.getFlag()
-            || data.getFlagScheme().isGood(f.getFlag(), true)
-            || f.getFlag().equals(FlagScheme.NEEDED_FLAG)))
-        .collect(Collectors.toList()));
+      result = gson.toJson(decimate(getMainPlotValues(), PlotValue::getY,
+        v -> isFlagged(v.getFlag())));
     }
 
     return result;
@@ -200,7 +238,8 @@ public class Plot {
         .collect(Collectors.toList());
 
       if (plotData.stream().anyMatch(d -> d.hasY2())) {
-        result = Y2_GSON.toJson(plotData);
+        result = Y2_GSON.toJson(decimate(plotData, PlotValue::getY2,
+          v -> isFlagged(v.getFlag2())));
       }
     }
 
@@ -208,7 +247,11 @@ public class Plot {
   }
 
   /**
-   * Get the JSON data for the flags plot
+   * Get the JSON data for the flags plot.
+   *
+   * <p>
+   * The flags plot only contains flagged values, so it is never decimated.
+   * </p>
    *
    * @return The flags data
    * @throws Exception
@@ -232,6 +275,147 @@ public class Plot {
     return result;
   }
 
+  /**
+   * Get the values to be shown in the main plot, taking into account whether
+   * flagged values are hidden.
+   *
+   * @return The main plot values.
+   */
+  private List<PlotValue> getMainPlotValues() {
+    return getPlotValues().stream()
+      .filter(f -> !f.xNull() && !hideFlags ? true
+        : (null == f.getFlag() || data.getFlagScheme().isGood(f.getFlag(), true)
+          || f.getFlag().equals(FlagScheme.NEEDED_FLAG)))
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * Determine whether or not a flag must be highlighted in the plot. Values
+   * with such flags are never removed when the plot data is decimated.
+   *
+   * @param flag
+   *          The flag.
+   * @return {@code true} if the flag should be highlighted; {@code false}
+   *         otherwise.
+   */
+  private boolean isFlagged(Flag flag) {
+    return null != flag && (flag.equals(FlagScheme.NEEDED_FLAG)
+      || !data.getFlagScheme().isGood(flag, true));
+  }
+
+  /**
+   * Determine whether or not the plot data sent to the front end will be
+   * decimated.
+   *
+   * <p>
+   * Data is decimated if a view width has been set (see
+   * {@link #setViewWidth(int)}) and the plot contains more than
+   * {@link #POINTS_PER_PIXEL} values for each pixel.
+   * </p>
+   *
+   * @return {@code true} if the plot data is decimated; {@code false}
+   *         otherwise.
+   */
+  public boolean getDecimated() {
+    return viewWidth > 0 && null != getPlotValues()
+      && getPlotValues().size() > viewWidth * POINTS_PER_PIXEL;
+  }
+
+  /**
+   * Decimate a series of plot values for display.
+   *
+   * <p>
+   * If the front end is zoomed in, the values within the visible X range are
+   * decimated to {@link #POINTS_PER_PIXEL} values for each pixel of the view
+   * width. The values outside the visible range are decimated more heavily so
+   * that the shape of the series is still shown if the plot is zoomed out
+   * before more detailed data is retrieved.
+   * </p>
+   *
+   * @param values
+   *          The values, ordered by X value.
+   * @param y
+   *          Function to get the Y value being plotted.
+   * @param keep
+   *          Test for values that must not be removed.
+   * @return The decimated values.
+   */
+  private List<PlotValue> decimate(List<PlotValue> values,
+    Function<PlotValue, Double> y, Predicate<PlotValue> keep) {
+
+    List<PlotValue> result = values;
+
+    if (getDecimated()) {
+      int threshold = viewWidth * POINTS_PER_PIXEL;
+
+      if (null == viewXMin && null == viewXMax) {
+        result = PlotDecimator.decimate(values, PlotValue::getXValue, y, keep,
+          threshold);
+      } else {
+        List<PlotValue> before = new ArrayList<PlotValue>();
+        List<PlotValue> visible = new ArrayList<PlotValue>();
+        List<PlotValue> after = new ArrayList<PlotValue>();
+
+        for (PlotValue value : values) {
+          double x = value.getXValue();
+          if (null != viewXMin && x < viewXMin) {
+            before.add(value);
+          } else if (null != viewXMax && x > viewXMax) {
+            after.add(value);
+          } else {
+            visible.add(value);
+          }
+        }
+
+        result = new ArrayList<PlotValue>();
+        result.addAll(PlotDecimator.decimate(before, PlotValue::getXValue, y,
+          keep, viewWidth / 2));
+        result.addAll(PlotDecimator.decimate(visible, PlotValue::getXValue, y,
+          keep, threshold));
+        result.addAll(PlotDecimator.decimate(after, PlotValue::getXValue, y,
+          keep, viewWidth / 2));
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Find the values shown in the main plot that lie within the selection
+   * rectangle set by {@link #setSelectMinX(Double)} etc. The results are
+   * retrieved with {@link #getRectSelection()}.
+   *
+   * <p>
+   * This is used instead of selecting the points on the front end when the
+   * plot data is decimated, since the front end does not have all the values.
+   * </p>
+   */
+  public void selectRect() {
+    rectSelection = new ArrayList<Long>();
+
+    if (null != getPlotValues() && null != selectRect[0]
+      && null != selectRect[1] && null != selectRect[2]
+      && null != selectRect[3]) {
+
+      for (PlotValue value : getMainPlotValues()) {
+        double x = value.getXValue();
+        if (x >= selectRect[0] && x <= selectRect[1] && value.hasY()
+          && value.getY() >= selectRect[2] && value.getY() <= selectRect[3]) {
+          rectSelection.add(value.getId());
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the IDs of the values found by {@link #selectRect()} as a JSON array.
+   *
+   * @return The selected value IDs.
+   */
+  public String getRectSelection() {
+    return new Gson().toJson(rectSelection);
+  }
+
   protected void makePlotValues() throws Exception {
     TreeMap<Coordinate, PlotPageTableValue> xValues = getXValues();
     TreeMap<Coordinate, PlotPageTableValue> yValues = getYValues();
@@ -239,81 +423,179 @@ public class Plot {
 
     plotValues = new TreeSet<PlotValue>();
 
-    Map<LocalDateTime, String> coordinateRunTypes = new HashMap<LocalDateTime, String>();
-
-    if (data.getInstrument().hasRunTypes()) {
-      coordinateRunTypes = data.getRunTypePeriods().getRunTypes(
-        xValues.keySet().stream().map(c -> c.getTime()).sorted().toList(),
-        true);
-    }
+    Map<LocalDateTime, String> coordinateRunTypes = getRunTypes(
+      xValues.keySet());
 
     for (Coordinate coordinate : xValues.keySet()) {
+      PlotValue plotValue = makePlotValue(coordinate, xValues.get(coordinate),
+        yValues.get(coordinate), y2Values.get(coordinate),
+        isFilteredOut(coordinate, coordinateRunTypes));
 
-      boolean filteredOut = false;
+      if (null != plotValue) {
+        plotValues.add(plotValue);
+      }
+    }
+  }
 
-      if (!filter.equals(PlotPageData.NO_FILTER)) {
-        if (data.getInstrument().hasRunTypes()) {
-          String runType = coordinateRunTypes.get(coordinate.getTime());
-          if (null == runType || !runType.equals(filter)) {
-            filteredOut = true;
-          }
+  /**
+   * Update the plot values for the specified coordinates after the QC flags of
+   * their values have changed, without rebuilding the complete set of plot
+   * values.
+   *
+   * <p>
+   * Only the QC flags are expected to change, so coordinates that do not have
+   * a plot value are not added to the plot.
+   * </p>
+   *
+   * @param coordinates
+   *          The coordinates whose QC flags have changed.
+   * @throws Exception
+   *           If the plot values cannot be updated.
+   */
+  protected void updatePlotValues(Collection<Coordinate> coordinates)
+    throws Exception {
+
+    if (null == plotValues) {
+      makePlotValues();
+    } else {
+      TreeMap<Coordinate, PlotPageTableValue> xValues = data
+        .getColumnValues(xAxis, coordinates);
+      TreeMap<Coordinate, PlotPageTableValue> yValues = data
+        .getColumnValues(yAxis, coordinates);
+      TreeMap<Coordinate, PlotPageTableValue> y2Values = null == y2Axis
+        ? new TreeMap<Coordinate, PlotPageTableValue>()
+        : data.getColumnValues(y2Axis, coordinates);
+
+      Map<LocalDateTime, String> coordinateRunTypes = getRunTypes(
+        xValues.keySet());
+
+      for (Coordinate coordinate : xValues.keySet()) {
+        PlotValue plotValue = makePlotValue(coordinate,
+          xValues.get(coordinate), yValues.get(coordinate),
+          y2Values.get(coordinate),
+          isFilteredOut(coordinate, coordinateRunTypes));
+
+        // The X value is unchanged, so the new plot value will replace the
+        // existing one in the set.
+        if (null != plotValue && plotValues.remove(plotValue)) {
+          plotValues.add(plotValue);
         }
       }
+    }
+  }
 
-      if ((yValues.containsKey(coordinate)
-        || y2Values.containsKey(coordinate))) {
-
-        PlotPageTableValue x = xValues.get(coordinate);
-        PlotPageTableValue y = yValues.get(coordinate);
-        PlotPageTableValue y2 = y2Values.get(coordinate);
+  /**
+   * Get the Run Types for the specified coordinates, if the instrument has
+   * Run Types.
+   *
+   * @param coordinates
+   *          The coordinates.
+   * @return The Run Types for the coordinates' times.
+   */
+  private Map<LocalDateTime, String> getRunTypes(
+    Collection<Coordinate> coordinates) {
 
-        boolean hasYValue = null != y && null != y.getValue();
-        boolean hasY2Value = null != y2 && null != y2.getValue();
+    Map<LocalDateTime, String> result = new HashMap<LocalDateTime, String>();
 
-        PlotValue plotValue = null;
+    if (data.getInstrument().hasRunTypes()) {
+      result = data.getRunTypePeriods().getRunTypes(
+        coordinates.stream().map(c -> c.getTime()).sorted().toList(), true);
+    }
 
-        if (hasYValue || hasY2Value) {
+    return result;
+  }
 
-          Double yValue = null;
-          boolean yGhost = false;
-          Flag yFlag = null;
-          if (null != y) {
-            yValue = scaleYValue(MathUtils.nullableParseDouble(y.getValue()));
-            yGhost = filteredOut || y.getQcFlag(data.getAllSensorValues())
-              .equals(FlagScheme.FLUSHING_FLAG);
-            yFlag = y.getQcFlag(data.getAllSensorValues());
-            if (useNeededFlags && y.getFlagNeeded()) {
-              yFlag = FlagScheme.NEEDED_FLAG;
-            }
-          }
+  /**
+   * Determine whether or not a coordinate is excluded by the Run Type
+   * {@link #filter}.
+   *
+   * @param coordinate
+   *          The coordinate.
+   * @param coordinateRunTypes
+   *          The Run Types from {@link #getRunTypes(Collection)}.
+   * @return {@code true} if the coordinate is filtered out; {@code false}
+   *         otherwise.
+   */
+  private boolean isFilteredOut(Coordinate coordinate,
+    Map<LocalDateTime, String> coordinateRunTypes) {
 
-          Double y2Value = null;
-          boolean y2Ghost = false;
-          Flag y2Flag = null;
-          if (null != y2) {
-            y2Value = scaleYValue(MathUtils.nullableParseDouble(y2.getValue()));
-            y2Ghost = filteredOut || y2.getQcFlag(data.getAllSensorValues())
-              .equals(FlagScheme.FLUSHING_FLAG);
-            y2Flag = y2.getQcFlag(data.getAllSensorValues());
-            // We never show NEEDED flags for Y2 axis
-          }
+    boolean filteredOut = false;
 
-          if (xAxis.getId() == FileDefinition.TIME_COLUMN_ID) {
-            plotValue = new PlotValue(coordinate.getId(),
-              (TimeCoordinate) coordinate, yValue, yGhost, yFlag, y2Value,
-              y2Ghost, y2Flag, data.getFlagScheme());
-          } else if (null != x && null != x.getValue() && null != y) {
-            plotValue = new PlotValue(coordinate.getId(),
-              MathUtils.nullableParseDouble(x.getValue()), yValue, yGhost,
-              yFlag, y2Value, y2Ghost, y2Flag, data.getFlagScheme());
-          }
+    if (!filter.equals(PlotPageData.NO_FILTER)) {
+      if (data.getInstrument().hasRunTypes()) {
+        String runType = coordinateRunTypes.get(coordinate.getTime());
+        if (null == runType || !runType.equals(filter)) {
+          filteredOut = true;
         }
+      }
+    }
 
-        if (null != plotValue) {
-          plotValues.add(plotValue);
+    return filteredOut;
+  }
+
+  /**
+   * Build the plot value for a single coordinate.
+   *
+   * @param coordinate
+   *          The coordinate.
+   * @param x
+   *          The X axis value.
+   * @param y
+   *          The Y axis value.
+   * @param y2
+   *          The second Y axis value.
+   * @param filteredOut
+   *          Indicates whether the coordinate is excluded by the Run Type
+   *          filter.
+   * @return The plot value, or {@code null} if the coordinate should not be
+   *         plotted.
+   */
+  private PlotValue makePlotValue(Coordinate coordinate, PlotPageTableValue x,
+    PlotPageTableValue y, PlotPageTableValue y2, boolean filteredOut) {
+
+    boolean hasYValue = null != y && null != y.getValue();
+    boolean hasY2Value = null != y2 && null != y2.getValue();
+
+    PlotValue plotValue = null;
+
+    if (hasYValue || hasY2Value) {
+
+      Double yValue = null;
+      boolean yGhost = false;
+      Flag yFlag = null;
+      if (null != y) {
+        yValue = scaleYValue(MathUtils.nullableParseDouble(y.getValue()));
+        yGhost = filteredOut || y.getQcFlag(data.getAllSensorValues())
+          .equals(FlagScheme.FLUSHING_FLAG);
+        yFlag = y.getQcFlag(data.getAllSensorValues());
+        if (useNeededFlags && y.getFlagNeeded()) {
+          yFlag = FlagScheme.NEEDED_FLAG;
         }
       }
+
+      Double y2Value = null;
+      boolean y2Ghost = false;
+      Flag y2Flag = null;
+      if (null != y2) {
+        y2Value = scaleYValue(MathUtils.nullableParseDouble(y2.getValue()));
+        y2Ghost = filteredOut || y2.getQcFlag(data.getAllSensorValues())
+          .equals(FlagScheme.FLUSHING_FLAG);
+        y2Flag = y2.getQcFlag(data.getAllSensorValues());
+        // We never show NEEDED flags for Y2 axis
+      }
+
+      if (xAxis.getId() == FileDefinition.TIME_COLUMN_ID) {
+        plotValue = new PlotValue(coordinate.getId(),
+          (TimeCoordinate) coordinate, yValue, yGhost, yFlag, y2Value, y2Ghost,
+          y2Flag, data.getFlagScheme());
+      } else if (null != x && null != x.getValue() && null != y) {
+        plotValue = new PlotValue(coordinate.getId(),
+          MathUtils.nullableParseDouble(x.getValue()), yValue, yGhost, yFlag,
+          y2Value, y2Ghost, y2Flag, data.getFlagScheme());
+      }
     }
+
+    return plotValue;
   }
 
   protected TreeMap<Coordinate, PlotPageTableValue> getXValues()
@@ -443,6 +725,84 @@ public class Plot {
     return filter;
   }
 
+  public int getViewWidth() {
+    return viewWidth;
+  }
+
+  /**
+   * Set the width of the plot on the front end, in pixels. The plot data will
+   * be decimated to suit this width. Setting the width to zero disables
+   * decimation.
+   *
+   * @param viewWidth
+   *          The plot width.
+   */
+  public void setViewWidth(int viewWidth) {
+    this.viewWidth = viewWidth;
+  }
+
+  public Double getViewXMin() {
+    return viewXMin;
+  }
+
+  /**
+   * Set the minimum X value visible on the front end. Time values are given in
+   * milliseconds since the epoch.
+   *
+   * @param viewXMin
+   *          The minimum visible X value.
+   */
+  public void setViewXMin(Double viewXMin) {
+    this.viewXMin = viewXMin;
+  }
+
+  public Double getViewXMax() {
+    return viewXMax;
+  }
+
+  /**
+   * Set the maximum X value visible on the front end. Time values are given in
+   * milliseconds since the epoch.
+   *
+   * @param viewXMax
+   *          The maximum visible X value.
+   */
+  public void setViewXMax(Double viewXMax) {
+    this.viewXMax = viewXMax;
+  }
+
+  public Double getSelectMinX() {
+    return selectRect[0];
+  }
+
+  public void setSelectMinX(Double selectMinX) {
+    selectRect[0] = selectMinX;
+  }
+
+  public Double getSelectMaxX() {
+    return selectRect[1];
+  }
+
+  public void setSelectMaxX(Double selectMaxX) {
+    selectRect[1] = selectMaxX;
+  }
+
+  public Double getSelectMinY() {
+    return selectRect[2];
+  }
+
+  public void setSelectMinY(Double selectMinY) {
+    selectRect[2] = selectMinY;
+  }
+
+  public Double getSelectMaxY() {
+    return selectRect[3];
+  }
+
+  public void setSelectMaxY(Double selectMaxY) {
+    selectRect[3] = selectMaxY;
+  }
+
   public void setFilter(String filter) throws Exception {
     if (!StringUtils.isEmpty(filter)) {
       this.filter = filter;
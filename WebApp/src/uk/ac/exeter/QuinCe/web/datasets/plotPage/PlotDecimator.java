@@ -0,0 +1,168 @@
+package uk.ac.exeter.QuinCe.web.datasets.plotPage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+import uk.ac.exeter.QuinCe.utils.MathUtils;
+
+/**
+ * Reduces the number of points in a plot series while keeping its visual
+ * shape, using the Largest-Triangle-Three-Buckets (LTTB) algorithm.
+ *
+ * <p>
+ * The series is divided into buckets, and the point in each bucket that forms
+ * the largest triangle with the point chosen from the previous bucket and the
+ * average of the next bucket is kept. The first and last points are always
+ * kept. Points matching a supplied {@link Predicate} (e.g. points with QC
+ * flags) are kept regardless of whether they are chosen.
+ * </p>
+ */
+public class PlotDecimator {
+
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private PlotDecimator() {
+  }
+
+  /**
+   * Decimate a series of values.
+   *
+   * <p>
+   * The values must be ordered by their x values. Values without a y value
+   * are not considered when choosing the points to keep, and are removed
+   * unless they match {@code keep}. If the series contains no more than
+   * {@code threshold} values it is returned unchanged.
+   * </p>
+   *
+   * @param <T>
+   *          The type of the values.
+   * @param values
+   *          The values.
+   * @param x
+   *          Function to get the x value of a value.
+   * @param y
+   *          Function to get the y value of a value.
+   * @param keep
+   *          Test for values that must always be kept.
+   * @param threshold
+   *          The number of points to choose.
+   * @return The decimated values, in their original order.
+   */
+  public static <T> List<T> decimate(List<T> values, ToDoubleFunction<T> x,
+    Function<T, Double> y, Predicate<T> keep, int threshold) {
+
+    if (values.size() <= threshold) {
+      return values;
+    }
+
+    List<T> candidates = values.stream()
+      .filter(v -> !MathUtils.isEmpty(y.apply(v))).toList();
+
+    int count = candidates.size();
+    double[] xValues = new double[count];
+    double[] yValues = new double[count];
+    for (int i = 0; i < count; i++) {
+      xValues[i] = x.applyAsDouble(candidates.get(i));
+      yValues[i] = y.apply(candidates.get(i));
+    }
+
+    boolean[] chosen = choose(xValues, yValues, threshold);
+
+    List<T> result = new ArrayList<T>(threshold);
+    int candidate = 0;
+    for (T value : values) {
+      boolean isCandidate = candidate < count
+        && candidates.get(candidate) == value;
+
+      if ((isCandidate && chosen[candidate]) || keep.test(value)) {
+        result.add(value);
+      }
+
+      if (isCandidate) {
+        candidate++;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Choose the points to keep using the LTTB algorithm.
+   *
+   * @param x
+   *          The x values.
+   * @param y
+   *          The y values.
+   * @param threshold
+   *          The number of points to choose.
+   * @return Flags indicating which points have been chosen.
+   */
+  private static boolean[] choose(double[] x, double[] y, int threshold) {
+    int count = x.length;
+    boolean[] chosen = new boolean[count];
+
+    if (count <= threshold || threshold < 3) {
+      // Too few points to decimate, or too few buckets to use.
+      // Keep everything or just the end points as appropriate
+      for (int i = 0; i < count; i++) {
+        chosen[i] = count <= threshold || i == 0 || i == count - 1;
+      }
+    } else {
+      chosen[0] = true;
+      chosen[count - 1] = true;
+
+      // The first and last points use one bucket each
+      double bucketSize = (double) (count - 2) / (threshold - 2);
+      int previous = 0;
+
+      for (int bucket = 0; bucket < threshold - 2; bucket++) {
+
+        // Average of the next bucket
+        int nextStart = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+        int nextEnd = Math.min((int) Math.floor((bucket + 2) * bucketSize) + 1,
+          count);
+
+        double avgX = 0D;
+        double avgY = 0D;
+        for (int i = nextStart; i < nextEnd; i++) {
+          avgX += x[i];
+          avgY += y[i];
+        }
+        int nextLength = nextEnd - nextStart;
+        if (nextLength > 0) {
+          avgX /= nextLength;
+          avgY /= nextLength;
+        } else {
+          avgX = x[count - 1];
+          avgY = y[count - 1];
+        }
+
+        // Find the point in this bucket with the largest triangle
+        int start = (int) Math.floor(bucket * bucketSize) + 1;
+        int end = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+
+        double maxArea = -1D;
+        int maxPoint = start;
+
+        for (int i = start; i < end; i++) {
+          double area = Math.abs((x[previous] - avgX) * (y[i] - y[previous])
+            - (x[previous] - x[i]) * (avgY - y[previous]));
+
+          if (area > maxArea) {
+            maxArea = area;
+            maxPoint = i;
+          }
+        }
+
+        chosen[maxPoint] = true;
+        previous = maxPoint;
+      }
+    }
+
+    return chosen;
+  }
+}
@@ -340,6 +340,14 @@ public abstract class PlotPageBean extends BaseManagedBean {
     return getFinishNavigation();
   }
 
+  /**
+   * Release the bean's data when the user's session ends. No further data
+   * processing is performed.
+   */
+  public void sessionDestroyed() {
+    reset();
+  }
+
   /**
    * Get the latest error message from data processing.
    *
@@ -6,6 +6,8 @@ import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -164,6 +166,28 @@ public abstract class PlotPageData {
    */
   protected Map<PlotPageColumnHeading, MapRecords> mapCache = new HashMap<PlotPageColumnHeading, MapRecords>();
 
+  /**
+   * The generation of the dataset's data in the {@link MapTileCache} that
+   * this object's data corresponds to.
+   */
+  private long mapTileGeneration = 0L;
+
+  /**
+   * The maximum number of table rows that will be sent to the front end after
+   * QC flags are changed. If more rows are changed, the front end reloads the
+   * whole table.
+   *
+   * @see #qcFlagsChanged(Collection)
+   */
+  protected static final int MAX_TABLE_UPDATES = 1000;
+
+  /**
+   * The table rows that were changed by the last call to
+   * {@link #qcFlagsChanged(Collection)}, or {@code null} if the whole table
+   * must be reloaded.
+   */
+  private List<PlotPageTableRecord> tableUpdates = null;
+
   /**
    * The available filter values.
    */
@@ -249,6 +273,7 @@ public abstract class PlotPageData {
    */
   public void loadData(Progress progress) {
     try {
+      mapTileGeneration = MapTileCache.getGeneration(dataset.getId());
       loadDataAction(progress);
 
       if (instrument.hasRunTypes()) {
@@ -633,6 +658,22 @@ public abstract class PlotPageData {
     return errorMessage;
   }
 
+  /**
+   * Determine whether or not all the data for the page has been loaded.
+   *
+   * <p>
+   * Some data may be loaded in the background after the page is first
+   * displayed. The page polls this method so it can refresh the table, plots
+   * and maps once all the data is available.
+   * </p>
+   *
+   * @return {@code true} if all the data has been loaded; {@code false}
+   *         otherwise.
+   */
+  public boolean isAllDataLoaded() {
+    return loaded;
+  }
+
   /**
    * Register an exception encountered during data processing.
    *
@@ -963,6 +1004,98 @@ public abstract class PlotPageData {
     getPlot2().init();
   }
 
+  /**
+   * Update the plots, maps and table after the QC flags for some values have
+   * been changed.
+   *
+   * <p>
+   * Only the plot values, map records and table rows for the specified
+   * coordinates are updated, instead of rebuilding everything from scratch.
+   * The updated table rows are sent to the front end via
+   * {@link #getTableUpdates()}.
+   * </p>
+   *
+   * @param coordinates
+   *          The coordinates of the values whose QC flags have changed.
+   * @throws Exception
+   *           If the updates cannot be made.
+   */
+  protected void qcFlagsChanged(Collection<Coordinate> coordinates)
+    throws Exception {
+
+    invalidateMapTiles();
+
+    getPlot1().updatePlotValues(coordinates);
+    getPlot2().updatePlotValues(coordinates);
+
+    for (Map.Entry<PlotPageColumnHeading, MapRecords> entry : mapCache
+      .entrySet()) {
+
+      if (entry.getKey().getId() == FileDefinition.TIME_COLUMN_ID) {
+        entry.getValue().updateValues(
+          Collections.<Coordinate, PlotPageTableValue> emptyMap());
+      } else {
+        entry.getValue()
+          .updateValues(getColumnValues(entry.getKey(), coordinates));
+      }
+    }
+
+    if (coordinates.size() > MAX_TABLE_UPDATES) {
+      tableUpdates = null;
+    } else {
+      tableUpdates = new ArrayList<PlotPageTableRecord>(coordinates.size());
+      for (Coordinate coordinate : coordinates) {
+        int row = getTableRow(coordinate);
+        if (row >= 0) {
+          tableUpdates.addAll(generateTableDataRecords(row, 1));
+        }
+      }
+    }
+  }
+
+  /**
+   * Clear the table rows recorded by {@link #qcFlagsChanged(Collection)}, so
+   * that the front end reloads the whole table. This must be called before QC
+   * flags are changed, in case the change fails.
+   */
+  protected void resetTableUpdates() {
+    tableUpdates = null;
+  }
+
+  /**
+   * Get the table rows that were changed by the last call to
+   * {@link #qcFlagsChanged(Collection)} as a JSON string. The format of each
+   * row is the same as {@link #generateTableData(int, int)}.
+   *
+   * <p>
+   * If too many rows were changed, {@code null} is returned to indicate that
+   * the whole table must be reloaded.
+   * </p>
+   *
+   * @return The changed table rows.
+   */
+  public String getTableUpdates() {
+    return null == tableUpdates || null == tableDataGson ? "null"
+      : tableDataGson.toJson(tableUpdates);
+  }
+
+  /**
+   * Get the index of the table row for the specified coordinate.
+   *
+   * <p>
+   * The default implementation assumes that the table contains one row for
+   * each entry in {@link #getCoordinates()}, in the same order.
+   * </p>
+   *
+   * @param coordinate
+   *          The coordinate.
+   * @return The row index, or a negative number if the coordinate is not in
+   *         the table.
+   */
+  protected int getTableRow(Coordinate coordinate) {
+    return Collections.binarySearch(getCoordinates(), coordinate);
+  }
+
   /**
    * Get all the values for a given column.
    *
@@ -973,6 +1106,41 @@ public abstract class PlotPageData {
   protected abstract TreeMap<Coordinate, PlotPageTableValue> getColumnValues(
     PlotPageColumnHeading column) throws Exception;
 
+  /**
+   * Get the values for a given column at the specified coordinates.
+   *
+   * <p>
+   * The default implementation extracts the values from
+   * {@link #getColumnValues(PlotPageColumnHeading)}. Subclasses should
+   * override this if they can look up individual values more efficiently.
+   * </p>
+   *
+   * @param column
+   *          The column.
+   * @param coordinates
+   *          The coordinates.
+   * @return The column values. Coordinates without a value are not included.
+   * @throws Exception
+   *           If the values cannot be retrieved.
+   */
+  protected TreeMap<Coordinate, PlotPageTableValue> getColumnValues(
+    PlotPageColumnHeading column, Collection<Coordinate> coordinates)
+    throws Exception {
+
+    TreeMap<Coordinate, PlotPageTableValue> allValues = getColumnValues(
+      column);
+
+    TreeMap<Coordinate, PlotPageTableValue> result = new TreeMap<Coordinate, PlotPageTableValue>();
+    for (Coordinate coordinate : coordinates) {
+      PlotPageTableValue value = allValues.get(coordinate);
+      if (null != value) {
+        result.put(coordinate, value);
+      }
+    }
+
+    return result;
+  }
+
   /**
    * Get the {@link ColumnHeading} for the specified column ID.
    *
@@ -1055,11 +1223,8 @@ public abstract class PlotPageData {
   public Double[] getValueRange(PlotPageColumnHeading column, boolean hideFlags)
     throws Exception {
 
-    if (!mapCache.containsKey(column)) {
-      buildMapCache(column);
-    }
-
-    return mapCache.get(column).getValueRange(getAllSensorValues(), hideFlags);
+    return getMapRecords(column).getValueRange(getAllSensorValues(),
+      hideFlags);
   }
 
   protected abstract List<Coordinate> getCoordinates();
@@ -1068,12 +1233,43 @@ public abstract class PlotPageData {
     boolean useNeededFlags, boolean hideNonGoodFlags, String filter,
     boolean includePath, DatasetSensorValues allSensorValues) throws Exception {
 
-    if (!mapCache.containsKey(column)) {
-      buildMapCache(column);
-    }
+    // Get the key first, so it can't claim the records are complete if the
+    // column finishes loading while they are being built.
+    String tileKey = getMapTileKey(column);
+
+    return getMapRecords(column).getDisplayJson(tileKey, bounds,
+      getMapSelection(), useNeededFlags, hideNonGoodFlags, filter, includePath,
+      allSensorValues);
+  }
+
+  /**
+   * Get the key prefix for a column's map tiles in the {@link MapTileCache}.
+   *
+   * <p>
+   * The key identifies the dataset, the version of its data and the type of
+   * page, so tiles are only shared between users looking at the same data.
+   * Columns whose values are still loading (see
+   * {@link #isColumnLoading(PlotPageColumnHeading)}) get a separate key so
+   * their incomplete tiles are never used for the complete data.
+   * </p>
+   *
+   * @param column
+   *          The column.
+   * @return The key prefix.
+   */
+  private String getMapTileKey(PlotPageColumnHeading column) {
+    return dataset.getId() + "|" + mapTileGeneration + "|"
+      + dataset.getProcessingVersion() + "|" + dataset.getStatusDate() + "|"
+      + getClass().getName() + "|" + column.getId()
+      + (isColumnLoading(column) ? "|loading" : "");
+  }
 
-    return mapCache.get(column).getDisplayJson(bounds, getMapSelection(),
-      useNeededFlags, hideNonGoodFlags, filter, includePath, allSensorValues);
+  /**
+   * Remove the dataset's tiles from the {@link MapTileCache}. This must be
+   * called whenever the QC flags of the dataset's values are changed.
+   */
+  protected void invalidateMapTiles() {
+    mapTileGeneration = MapTileCache.invalidate(dataset.getId());
   }
 
   /**
@@ -1091,15 +1287,50 @@ public abstract class PlotPageData {
 
   public GeoBounds getMapBounds(PlotPageColumnHeading column,
     boolean hideNonGoodFlags) throws Exception {
-    if (!mapCache.containsKey(column)) {
-      buildMapCache(column);
+    return getMapRecords(column).getBounds(getAllSensorValues(),
+      hideNonGoodFlags);
+  }
+
+  /**
+   * Get the map records for a column from the {@link #mapCache}, building
+   * them if required.
+   *
+   * @param column
+   *          The column.
+   * @return The map records.
+   * @throws Exception
+   *           If the records cannot be built.
+   */
+  private MapRecords getMapRecords(PlotPageColumnHeading column)
+    throws Exception {
+    MapRecords result = mapCache.get(column);
+    if (null == result) {
+      result = buildMapCache(column);
     }
 
-    return mapCache.get(column).getBounds(getAllSensorValues(),
-      hideNonGoodFlags);
+    return result;
   }
 
-  protected void buildMapCache(PlotPageColumnHeading column) throws Exception {
+  /**
+   * Build the map records for a column and add them to the {@link #mapCache}.
+   *
+   * <p>
+   * The records for columns that are still loading (see
+   * {@link #isColumnLoading(PlotPageColumnHeading)}) are not cached, so they
+   * are rebuilt with the complete data once it is available.
+   * </p>
+   *
+   * @param column
+   *          The column.
+   * @return The map records.
+   * @throws Exception
+   *           If the records cannot be built.
+   */
+  protected MapRecords buildMapCache(PlotPageColumnHeading column)
+    throws Exception {
+
+    // Check before building, in case the load finishes part way through
+    boolean loading = isColumnLoading(column);
 
     MapRecords records = new MapRecords(size(), this);
 
@@ -1121,7 +1352,26 @@ public abstract class PlotPageData {
       }
     }
 
-    mapCache.put(column, records);
+    if (!loading) {
+      mapCache.put(column, records);
+    }
+
+    return records;
+  }
+
+  /**
+   * Determine whether or not the values for a column are still being loaded
+   * in the background. Such columns are displayed without their values until
+   * the load is complete.
+   *
+   * @param column
+   *          The column.
+   * @return {@code true} if the column's values are still loading;
+   *         {@code false} if they are available.
+   * @see #isAllDataLoaded()
+   */
+  protected boolean isColumnLoading(PlotPageColumnHeading column) {
+    return false;
   }
 
   protected abstract DataLatLng getMapPosition(Coordinate coordinate)
@@ -25,6 +25,16 @@ public class PlotPageValueMapRecord extends MapRecord {
     this.value = value;
   }
 
+  /**
+   * Replace the record's value.
+   *
+   * @param value
+   *          The new value.
+   */
+  protected void setValue(PlotPageTableValue value) {
+    this.value = value;
+  }
+
   @Override
   public boolean isGood(DatasetSensorValues allSensorValues) {
     return allSensorValues.getFlagScheme()
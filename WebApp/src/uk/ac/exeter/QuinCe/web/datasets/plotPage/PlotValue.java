@@ -6,6 +6,7 @@ import java.util.Objects;
 import uk.ac.exeter.QuinCe.data.Dataset.TimeCoordinate;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.Flag;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.FlagScheme;
+import uk.ac.exeter.QuinCe.utils.DateTimeUtils;
 import uk.ac.exeter.QuinCe.utils.MathUtils;
 
 class PlotValue implements Comparable<PlotValue> {
@@ -167,6 +168,24 @@ class PlotValue implements Comparable<PlotValue> {
     return xDouble;
   }
 
+  /**
+   * Get the X value as a number. Times are converted to milliseconds since the
+   * epoch. Missing values are returned as {@link Double#NaN}.
+   *
+   * @return The numeric X value.
+   */
+  public double getXValue() {
+    double result;
+
+    if (xIsTime()) {
+      result = DateTimeUtils.dateToLong(getXTime());
+    } else {
+      result = null == xDouble ? Double.NaN : xDouble;
+    }
+
+    return result;
+  }
+
   public LocalDateTime getXTime() {
     return xTime.getTime();
   }
@@ -4,6 +4,7 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -15,6 +16,7 @@ import javax.sql.DataSource;
 import uk.ac.exeter.QuinCe.data.Dataset.Coordinate;
 import uk.ac.exeter.QuinCe.data.Dataset.DataSet;
 import uk.ac.exeter.QuinCe.data.Dataset.DataSetDataDB;
+import uk.ac.exeter.QuinCe.data.Dataset.DatasetSensorValues;
 import uk.ac.exeter.QuinCe.data.Dataset.SensorValue;
 import uk.ac.exeter.QuinCe.data.Instrument.FileDefinition;
 import uk.ac.exeter.QuinCe.data.Instrument.Instrument;
@@ -29,6 +31,7 @@ import uk.ac.exeter.QuinCe.web.datasets.plotPage.PlotPageTableValue;
 import uk.ac.exeter.QuinCe.web.datasets.plotPage.SensorValuePlotPageTableValue;
 import uk.ac.exeter.QuinCe.web.datasets.plotPage.SimplePlotPageTableValue;
 import uk.ac.exeter.QuinCe.web.datasets.plotPage.ManualQC.ManualQCData;
+import uk.ac.exeter.QuinCe.web.datasets.plotPage.ManualQC.ManualQCDataCache;
 
 public class PositionQCData extends ManualQCData {
 
@@ -46,24 +49,32 @@ public class PositionQCData extends ManualQCData {
   }
 
   @Override
-  public void loadDataAction(Progress progress) throws Exception {
-
-    // Fake value after "initialising" message
-    progress.setValue(5F);
+  protected ManualQCDataCache.DatasetData loadDatasetData(Progress progress)
+    throws Exception {
 
     progress.setName("Loading position data");
     try (Connection conn = dataSource.getConnection()) {
-      sensorValues = DataSetDataDB.getPositionSensorValues(conn, dataset);
+      DatasetSensorValues positionValues = DataSetDataDB
+        .getPositionSensorValues(conn, dataset);
+      progress.setValue(50F);
+
+      // Build the coordinate lists now so they aren't built by several users
+      // at once if the data is shared.
+      progress.setName("Analysing data");
+      positionValues.getCoordinates();
+      positionValues.getRawPositionCoordinates();
+
+      return new ManualQCDataCache.DatasetData(positionValues, null,
+        Collections.emptyMap());
     }
-    progress.setValue(50F);
+  }
 
-    // Build the row IDs
-    progress.setName("Analysing data");
+  @Override
+  protected void buildRowIDs() {
     coordinates = new LinkedHashMap<Long, Coordinate>();
     sensorValues.getCoordinates().forEach(v -> coordinates.put(v.getId(), v));
     rowIDs = sensorValues.getRawPositionCoordinates().stream()
       .map(c -> c.getId()).collect(Collectors.toList());
-    progress.setValue(100F);
   }
 
   @Override
@@ -272,4 +283,27 @@ public class PositionQCData extends ManualQCData {
 
     return result;
   }
+
+  @Override
+  protected TreeMap<Coordinate, PlotPageTableValue> getColumnValues(
+    PlotPageColumnHeading column, Collection<Coordinate> coordinates)
+    throws Exception {
+
+    TreeMap<Coordinate, PlotPageTableValue> result;
+
+    if (SensorType.isPosition(column.getId())) {
+      result = new TreeMap<Coordinate, PlotPageTableValue>();
+      for (Coordinate coordinate : coordinates) {
+        SensorValue value = sensorValues.getRawSensorValue(column.getId(),
+          coordinate);
+        if (null != value) {
+          result.put(coordinate, new SensorValuePlotPageTableValue(value));
+        }
+      }
+    } else {
+      result = super.getColumnValues(column, coordinates);
+    }
+
+    return result;
+  }
 }
@@ -6,6 +6,7 @@ import java.util.Properties;
 
 import uk.ac.exeter.QuinCe.jobs.Job;
 import uk.ac.exeter.QuinCe.jobs.JobManager;
+import uk.ac.exeter.QuinCe.jobs.JobSchedulingPolicy;
 import uk.ac.exeter.QuinCe.jobs.JobSummary;
 import uk.ac.exeter.QuinCe.jobs.JobThreadPool;
 import uk.ac.exeter.QuinCe.jobs.test.TenSecondJob;
@@ -38,6 +39,16 @@ public class JobsBean extends BaseManagedBean {
    */
   private int overflowThreads = 0;
 
+  /**
+   * The estimated memory used by running jobs, in megabytes
+   */
+  private long reservedMemory = 0;
+
+  /**
+   * The maximum estimated memory for running jobs, in megabytes
+   */
+  private long memoryLimit = 0;
+
   /**
    * The number of jobs with different statuses
    */
@@ -93,6 +104,16 @@ public class JobsBean extends BaseManagedBean {
       maxThreads = -1;
     }
 
+    try {
+      reservedMemory = JobThreadPool.getInstance().getReservedMemory()
+        / 1048576;
+      memoryLimit = JobThreadPool.getInstance().getMemoryLimit() / 1048576;
+    } catch (Exception e) {
+      ExceptionUtils.printStackTrace(e);
+      reservedMemory = -1;
+      memoryLimit = -1;
+    }
+
     try {
       jobCounts = JobManager.getJobCounts(ServletUtils.getDBDataSource());
     } catch (Exception e) {
@@ -311,6 +332,33 @@ public class JobsBean extends BaseManagedBean {
     return jobList;
   }
 
+  /**
+   * Get the estimated memory used by running jobs
+   *
+   * @return The reserved memory in megabytes
+   */
+  public long getReservedMemory() {
+    return reservedMemory;
+  }
+
+  /**
+   * Get the maximum estimated memory for running jobs
+   *
+   * @return The memory limit in megabytes
+   */
+  public long getMemoryLimit() {
+    return memoryLimit;
+  }
+
+  /**
+   * Get the queue wait time statistics for each job priority
+   *
+   * @return The wait time statistics
+   */
+  public List<JobSchedulingPolicy.WaitStats> getWaitStats() {
+    return JobSchedulingPolicy.getInstance().getWaitStats();
+  }
+
   /**
    * Get the number of jobs with a specified status
    *
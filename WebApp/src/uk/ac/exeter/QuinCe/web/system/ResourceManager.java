@@ -28,6 +28,7 @@ import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.QCConfiguration;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.QCConfigurationDeserializer;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.QCRoutinesConfiguration;
 import uk.ac.exeter.QuinCe.data.Export.ExportConfig;
+import uk.ac.exeter.QuinCe.data.Instrument.Calibration.CalibrationDB;
 import uk.ac.exeter.QuinCe.data.Instrument.RunTypes.RunTypeCategoryConfiguration;
 import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorsConfiguration;
 import uk.ac.exeter.QuinCe.jobs.InvalidThreadCountException;
@@ -266,5 +267,6 @@ public class ResourceManager implements ServletContextListener {
    */
   public static void destroy() {
     instance = null;
+    CalibrationDB.clearCalibrationSetCache();
   }
 }
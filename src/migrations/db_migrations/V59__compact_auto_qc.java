@@ -0,0 +1,72 @@
+package db_migrations;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.AutoQCResultCodec;
+
+/**
+ * Convert the Auto QC results in the {@code sensor_values} table from JSON to
+ * the compact format written by {@link AutoQCResultCodec}.
+ *
+ * <p>
+ * The table is processed in blocks of records ordered by ID so the whole
+ * table is never held in memory.
+ * </p>
+ */
+public class V59__compact_auto_qc extends BaseJavaMigration {
+
+  private static final int BLOCK_SIZE = 10000;
+
+  @Override
+  public void migrate(Context context) throws Exception {
+
+    Connection conn = context.getConnection();
+
+    PreparedStatement getAutoQC = conn.prepareStatement(
+      "SELECT id, auto_qc FROM sensor_values WHERE id > ? "
+        + "AND auto_qc IS NOT NULL ORDER BY id LIMIT " + BLOCK_SIZE);
+
+    PreparedStatement setAutoQC = conn
+      .prepareStatement("UPDATE sensor_values SET auto_qc = ? WHERE id = ?");
+
+    long lastId = 0;
+    boolean finished = false;
+
+    while (!finished) {
+      getAutoQC.setLong(1, lastId);
+
+      int recordCount = 0;
+      int updateCount = 0;
+
+      try (ResultSet records = getAutoQC.executeQuery()) {
+        while (records.next()) {
+          recordCount++;
+          lastId = records.getLong(1);
+          String oldAutoQC = records.getString(2);
+
+          if (oldAutoQC.startsWith("[")) {
+            setAutoQC.setString(1,
+              AutoQCResultCodec.convertLegacyJson(oldAutoQC));
+            setAutoQC.setLong(2, lastId);
+            setAutoQC.addBatch();
+            updateCount++;
+          }
+        }
+      }
+
+      if (updateCount > 0) {
+        setAutoQC.executeBatch();
+      }
+
+      finished = recordCount < BLOCK_SIZE;
+    }
+
+    setAutoQC.close();
+    getAutoQC.close();
+  }
+}
@@ -0,0 +1,7 @@
+-- Scheduling details for jobs
+
+-- 0 = NRT, 1 = Interactive, 2 = Bulk
+ALTER TABLE job ADD priority TINYINT NOT NULL DEFAULT 1;
+
+-- The instrument that the job works on, if known
+ALTER TABLE job ADD instrument_id INT DEFAULT NULL;